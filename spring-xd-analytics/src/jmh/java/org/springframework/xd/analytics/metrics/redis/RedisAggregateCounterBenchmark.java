@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.redis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+/**
+ * Compares the throughput of {@link RedisAggregateCounterRepository#increment(String, long, DateTime)} with the
+ * previous approach of issuing one command per hash, bookkeeping set and total count. Requires a Redis server on
+ * localhost:6379.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RedisAggregateCounterBenchmark {
+
+	private static final String COUNTER_NAME = "aggregateCounterBenchmark";
+
+	private LettuceConnectionFactory connectionFactory;
+
+	private RedisAggregateCounterRepository repository;
+
+	@Setup
+	public void setUp() {
+		this.connectionFactory = new LettuceConnectionFactory();
+		this.connectionFactory.afterPropertiesSet();
+		this.repository = new RedisAggregateCounterRepository(this.connectionFactory);
+		this.repository.delete(COUNTER_NAME);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.repository.delete(COUNTER_NAME);
+		this.connectionFactory.destroy();
+	}
+
+	@Benchmark
+	public long commandPerBucket() {
+		AggregateKeyGenerator akg = new AggregateKeyGenerator("aggregatecounters", COUNTER_NAME, new DateTime());
+		String bookkeepingKey = "metric_meta.aggregatecounters." + COUNTER_NAME;
+		incrementHash(akg.getYearsKey(), akg.getYear(), bookkeepingKey);
+		incrementHash(akg.getYearKey(), akg.getMonth(), bookkeepingKey);
+		incrementHash(akg.getMonthKey(), akg.getDay(), bookkeepingKey);
+		incrementHash(akg.getDayKey(), akg.getHour(), bookkeepingKey);
+		incrementHash(akg.getHourKey(), akg.getMinute(), bookkeepingKey);
+		return this.repository.increment(COUNTER_NAME, 1);
+	}
+
+	private void incrementHash(String key, String hashKey, String bookkeepingKey) {
+		if (this.repository.hashOperations.increment(key, hashKey, 1) == 1) {
+			this.repository.setOperations.add(bookkeepingKey, key);
+		}
+	}
+
+	@Benchmark
+	public long script() {
+		return this.repository.increment(COUNTER_NAME, 1, new DateTime());
+	}
+
+}
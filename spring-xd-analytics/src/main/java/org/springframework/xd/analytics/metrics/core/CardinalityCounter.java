@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import org.springframework.util.Assert;
+
+/**
+ * A counter which estimates the number of distinct values it has been offered, using the <a
+ * href="http://algo.inria.fr/flajolet/Publications/FlFuGaMe07.pdf">HyperLogLog</a> algorithm.
+ * <p>
+ * Each value is hashed to 64 bits. The first {@value #PRECISION} bits of the hash select one of {@value #REGISTERS}
+ * registers, which remembers the highest rank (the position of the first set bit) of the remaining bits it has seen.
+ * The counter thus takes {@value #REGISTERS} bytes however many values it has been offered, and estimates their number
+ * with a standard error of about 1.6%. Counters are merged by taking the maximum of each register, which gives the
+ * counter of the union of the values offered to them; for example, counters of successive time windows can be merged
+ * into a counter of a longer window.
+ *
+ * @since 1.0
+ */
+public final class CardinalityCounter implements Metric {
+
+	/**
+	 * The number of bits of the hash of a value which select its register.
+	 */
+	public static final int PRECISION = 12;
+
+	/**
+	 * The number of registers of a counter.
+	 */
+	public static final int REGISTERS = 1 << PRECISION;
+
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+	private final String name;
+
+	private final byte[] registers;
+
+	/**
+	 * Creates a counter which has not been offered any value.
+	 *
+	 * @param name the name under which the counter will be stored
+	 */
+	public CardinalityCounter(String name) {
+		this(name, new byte[REGISTERS]);
+	}
+
+	/**
+	 * @param name the name under which the counter will be stored
+	 * @param registers the registers of the counter, which are not copied
+	 */
+	public CardinalityCounter(String name, byte[] registers) {
+		Assert.notNull(name, "The counter name cannot be null");
+		Assert.notNull(registers, "The registers cannot be null");
+		Assert.isTrue(registers.length == REGISTERS, "A counter has " + REGISTERS + " registers, not "
+				+ registers.length);
+		this.name = name;
+		this.registers = registers;
+	}
+
+	/**
+	 * @return the name of the counter
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the estimated number of distinct values offered to the counter
+	 */
+	public synchronized long getValue() {
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+		if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+			// linear counting is more accurate for small cardinalities
+			estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * @return a copy of the registers of the counter
+	 */
+	public synchronized byte[] getRegisters() {
+		return registers.clone();
+	}
+
+	synchronized CardinalityCounter offer(String value) {
+		long hash = hash(value);
+		int register = register(hash);
+		byte rank = rank(hash);
+		if (rank > registers[register]) {
+			registers[register] = rank;
+		}
+		return this;
+	}
+
+	CardinalityCounter merge(CardinalityCounter other) {
+		byte[] otherRegisters = other.getRegisters();
+		synchronized (this) {
+			for (int i = 0; i < REGISTERS; i++) {
+				if (otherRegisters[i] > registers[i]) {
+					registers[i] = otherRegisters[i];
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Hash a value to 64 bits, with the FNV-1a hash of its characters followed by the finalizer of MurmurHash3.
+	 *
+	 * @param value the value
+	 * @return the hash of the value
+	 */
+	public static long hash(String value) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h = (h ^ value.charAt(i)) * 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * @param hash the hash of a value
+	 * @return the index of the register the value is counted in
+	 */
+	public static int register(long hash) {
+		return (int) (hash >>> (64 - PRECISION));
+	}
+
+	/**
+	 * @param hash the hash of a value
+	 * @return the rank of the value in its register, between 1 and {@code 65 - PRECISION}
+	 */
+	public static byte rank(long hash) {
+		return (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		return name.equals(((CardinalityCounter) o).name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "CardinalityCounter [name = " + name + ", value = " + getValue() + "]";
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+/**
+ * A service for managing {@link CardinalityCounter} instances.
+ *
+ * @since 1.0
+ */
+public interface CardinalityCounterRepository extends MetricRepository<CardinalityCounter> {
+
+	/**
+	 * Offer a value to the counter, creating the counter if necessary.
+	 *
+	 * @param name the counter name
+	 * @param value the value
+	 * @throws IllegalArgumentException in case the given name or value is null
+	 */
+	void offer(String name, String value);
+
+	/**
+	 * Merge counters into the named counter, creating it if necessary, so that it estimates the number of distinct
+	 * values offered to any of them. Counters that do not exist are ignored.
+	 *
+	 * @param name the name of the counter to merge into
+	 * @param sourceNames the names of the counters to merge
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void merge(String name, Iterable<String> sourceNames);
+
+}
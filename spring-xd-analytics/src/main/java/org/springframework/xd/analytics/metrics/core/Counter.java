@@ -110,7 +110,7 @@ public class Counter implements Metric {
 
 	@Override
 	public String toString() {
-		return "Counter [name=" + name + ", value=" + value + "]";
+		return "Counter [name=" + name + ", value=" + getValue() + "]";
 	}
 
 }
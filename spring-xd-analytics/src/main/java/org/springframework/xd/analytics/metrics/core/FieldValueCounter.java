@@ -36,18 +36,27 @@ public final class FieldValueCounter implements Metric {
 
 	private final Map<String, Double> fieldValueCount;
 
+	private final Map<String, Double> fieldValueErrors;
+
 	public FieldValueCounter(String name) {
 		Assert.notNull(name);
 		this.name = name;
 		this.fieldValueCount = new ConcurrentHashMap<String, Double>();
+		this.fieldValueErrors = new ConcurrentHashMap<String, Double>();
 	}
 
 	@PersistenceConstructor
 	public FieldValueCounter(String name, Map<String, Double> fieldValueCount) {
+		this(name, fieldValueCount, new ConcurrentHashMap<String, Double>());
+	}
+
+	public FieldValueCounter(String name, Map<String, Double> fieldValueCount, Map<String, Double> fieldValueErrors) {
 		Assert.notNull(name);
 		Assert.notNull(fieldValueCount);
+		Assert.notNull(fieldValueErrors);
 		this.name = name;
 		this.fieldValueCount = fieldValueCount;
+		this.fieldValueErrors = fieldValueErrors;
 	}
 
 	/**
@@ -64,6 +73,17 @@ public final class FieldValueCounter implements Metric {
 		return this.fieldValueCount;
 	}
 
+	/**
+	 * For a counter that only tracks its approximate top values, the amount by which the count of each value may exceed
+	 * the true count of the value. Values that have no entry are counted exactly.
+	 * 
+	 * @return the fieldValueErrors
+	 * @see FieldValueCounterRepository#incrementTopK(String, String, double, int)
+	 */
+	public Map<String, Double> getFieldValueErrors() {
+		return this.fieldValueErrors;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -36,6 +36,31 @@ public interface FieldValueCounterRepository extends MetricRepository<FieldValue
 	 */
 	void increment(String name, String fieldName);
 
+	/**
+	 * Increment the FieldValueCounter for a given field name by the given amount, creating missing counters.
+	 * 
+	 * @param name the FieldValueCounter name
+	 * @param fieldName the name of the field
+	 * @param score the amount to add
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void increment(String name, String fieldName, double score);
+
+	/**
+	 * Increment the FieldValueCounter for a given field name by the given amount, creating missing counters, while
+	 * tracking at most {@code capacity} field values with the Space-Saving algorithm. When the counter is full, a field
+	 * name that is not tracked replaces the one with the lowest count and starts from that count, which is recorded as
+	 * its error (see {@link FieldValueCounter#getFieldValueErrors()}). Counts thus never underestimate, and every field
+	 * name whose true count exceeds the total of all amounts divided by the capacity is tracked.
+	 * 
+	 * @param name the FieldValueCounter name
+	 * @param fieldName the name of the field
+	 * @param score the amount to add, which must not be negative
+	 * @param capacity the maximum number of field names to track
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void incrementTopK(String name, String fieldName, double score, int capacity);
+
 	/**
 	 * Decrement the FieldValueCounter for a given field name by one, creating missing counters.
 	 * 
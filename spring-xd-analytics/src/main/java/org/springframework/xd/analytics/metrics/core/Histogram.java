@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * A histogram of non-negative integral values, such as latencies, which answers percentile queries.
+ * <p>
+ * As in <a href="http://hdrhistogram.github.io/HdrHistogram/">HdrHistogram</a>, values are counted in buckets whose
+ * width grows with the magnitude of the values: values below {@value #SUB_BUCKETS} have a bucket each, and every
+ * following power of two is split into {@code SUB_BUCKETS / 2} buckets of equal width. A value is thus known to within
+ * 1/128 (0.8%) of itself. Only buckets that have counted a value are stored, and there are at most about 7300 buckets
+ * over the whole range of {@code long}, so the size of a histogram is bounded whatever it has recorded. Histograms are
+ * merged by adding the counts of their buckets.
+ *
+ * @since 1.0
+ */
+public final class Histogram implements Metric {
+
+	/**
+	 * The number of bits of a value that select its bucket within its power of two.
+	 */
+	public static final int SUB_BUCKET_BITS = 8;
+
+	/**
+	 * The number of values below which each value has a bucket of its own.
+	 */
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+	private final String name;
+
+	private final SortedMap<Integer, Long> counts;
+
+	/**
+	 * Creates a histogram which has not recorded any value.
+	 *
+	 * @param name the name under which the histogram will be stored
+	 */
+	public Histogram(String name) {
+		this(name, Collections.<Integer, Long> emptyMap());
+	}
+
+	/**
+	 * @param name the name under which the histogram will be stored
+	 * @param counts the counts of the histogram, by bucket
+	 */
+	public Histogram(String name, Map<Integer, Long> counts) {
+		Assert.notNull(name, "The histogram name cannot be null");
+		Assert.notNull(counts, "The counts cannot be null");
+		this.name = name;
+		this.counts = new TreeMap<Integer, Long>(counts);
+	}
+
+	/**
+	 * @return the name of the histogram
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return a copy of the counts of the histogram, by bucket
+	 */
+	public synchronized SortedMap<Integer, Long> getCounts() {
+		return new TreeMap<Integer, Long>(counts);
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public synchronized long getCount() {
+		long count = 0;
+		for (long c : counts.values()) {
+			count += c;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the highest value equivalent to the largest value recorded, or 0 if none has been
+	 */
+	public synchronized long getMax() {
+		return counts.isEmpty() ? 0 : highestEquivalentValue(counts.lastKey());
+	}
+
+	/**
+	 * Return the value that the given percentage of the recorded values are less than or equivalent to. The value
+	 * returned is the highest value of its bucket, so it overestimates the exact percentile by at most 0.8%.
+	 *
+	 * @param percentile the percentage, greater than 0 and at most 100
+	 * @return the value at the percentile, or 0 if no value has been recorded
+	 */
+	public synchronized long getValueAtPercentile(double percentile) {
+		Assert.isTrue(percentile > 0 && percentile <= 100, "percentile must be greater than 0 and at most 100");
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * getCount()));
+		long seen = 0;
+		for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+			seen += entry.getValue();
+			if (seen >= rank) {
+				return highestEquivalentValue(entry.getKey());
+			}
+		}
+		return 0;
+	}
+
+	synchronized Histogram record(long value, long count) {
+		Assert.isTrue(value >= 0, "A histogram only records non-negative values");
+		add(bucket(value), count);
+		return this;
+	}
+
+	Histogram merge(Histogram other) {
+		Map<Integer, Long> otherCounts = other.getCounts();
+		synchronized (this) {
+			for (Map.Entry<Integer, Long> entry : otherCounts.entrySet()) {
+				add(entry.getKey(), entry.getValue());
+			}
+		}
+		return this;
+	}
+
+	private void add(int bucket, long count) {
+		Long current = counts.get(bucket);
+		counts.put(bucket, (current == null ? 0 : current) + count);
+	}
+
+	/**
+	 * @param value a non-negative value
+	 * @return the index of the bucket the value is counted in
+	 */
+	public static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/**
+	 * @param bucket the index of a bucket
+	 * @return the lowest value counted in the bucket
+	 */
+	public static long lowestEquivalentValue(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / HALF_SUB_BUCKETS - 1;
+		return (long) (bucket % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS) << shift;
+	}
+
+	/**
+	 * @param bucket the index of a bucket
+	 * @return the highest value counted in the bucket
+	 */
+	public static long highestEquivalentValue(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / HALF_SUB_BUCKETS - 1;
+		return lowestEquivalentValue(bucket) + (1L << shift) - 1;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		return name.equals(((Histogram) o).name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "Histogram [name = " + name + ", count = " + getCount() + ", max = " + getMax() + "]";
+	}
+
+}
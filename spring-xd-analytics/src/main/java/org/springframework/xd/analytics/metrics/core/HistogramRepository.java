@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import org.joda.time.DateTime;
+
+/**
+ * A service for managing {@link Histogram} instances.
+ * <p>
+ * Besides the histogram of all the values recorded under a name, which {@link #findOne(Object)} returns, the values
+ * recorded in each minute are kept in a histogram of their own for a limited number of minutes. The percentiles of the
+ * most recent minutes are read with {@link #findRecent(String, int)}.
+ *
+ * @since 1.0
+ */
+public interface HistogramRepository extends MetricRepository<Histogram> {
+
+	/**
+	 * Record a value at the current time, creating the histogram if necessary.
+	 *
+	 * @param name the histogram name
+	 * @param value the value, which must not be negative
+	 * @throws IllegalArgumentException in case the given name is null or the value is negative
+	 */
+	void record(String name, long value);
+
+	/**
+	 * Record a value at the given time, creating the histogram if necessary.
+	 *
+	 * @param name the histogram name
+	 * @param value the value, which must not be negative
+	 * @param time the time the value is recorded at
+	 * @throws IllegalArgumentException in case the given name is null or the value is negative
+	 */
+	void record(String name, long value, DateTime time);
+
+	/**
+	 * Return the histogram of the values recorded in the most recent minutes, including the current one. Minutes older
+	 * than the retention of the repository are not counted.
+	 *
+	 * @param name the histogram name
+	 * @param minutes the number of minutes
+	 * @return the histogram of the values recorded in those minutes, or null if there is no histogram with the name
+	 */
+	Histogram findRecent(String name, int minutes);
+
+	/**
+	 * Merge histograms into the named histogram, creating it if necessary. Histograms that do not exist are ignored.
+	 * Only the histograms of all the values recorded are merged, not those of recent minutes.
+	 *
+	 * @param name the name of the histogram to merge into
+	 * @param sourceNames the names of the histograms to merge
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void merge(String name, Iterable<String> sourceNames);
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Accumulates increments locally and applies their sum to a backing repository, so that a burst of increments of the
+ * same key costs a single repository call. Pending increments are kept per key in a concurrent map of atomic longs and
+ * are added without locking. They are flushed every {@code flushInterval} milliseconds, once {@code flushSize}
+ * increments have been added since the last flush, and when the buffer is destroyed.
+ * <p>
+ * Counts read from the repository lag behind by at most the flush interval. If applying a sum fails, it is kept and
+ * retried with the next flush.
+ *
+ * @param <K> the type of key increments are accumulated by
+ * @since 1.0
+ */
+public class IncrementBuffer<K> implements DisposableBean {
+
+	/**
+	 * Marks the sum of a key that has been taken by a flush; the next increment of that key starts a new sum.
+	 */
+	private static final long FLUSHED = Long.MIN_VALUE;
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final ConcurrentMap<K, AtomicLong> sums = new ConcurrentHashMap<K, AtomicLong>();
+
+	private final AtomicInteger incrementsSinceFlush = new AtomicInteger();
+
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	private final Flusher<K> flusher;
+
+	private final int flushSize;
+
+	private final ThreadPoolTaskScheduler scheduler;
+
+	/**
+	 * @param flusher applies the sums to the backing repository
+	 * @param flushInterval the interval in milliseconds between flushes, or 0 to only flush by size
+	 * @param flushSize the number of increments after which to flush, or 0 to only flush by time
+	 */
+	public IncrementBuffer(Flusher<K> flusher, long flushInterval, int flushSize) {
+		Assert.notNull(flusher, "'flusher' cannot be null");
+		Assert.isTrue(flushInterval >= 0, "'flushInterval' cannot be negative");
+		Assert.isTrue(flushSize >= 0, "'flushSize' cannot be negative");
+		Assert.isTrue(flushInterval > 0 || flushSize > 0, "one of 'flushInterval' and 'flushSize' must be positive");
+		this.flusher = flusher;
+		this.flushSize = flushSize;
+		if (flushInterval > 0) {
+			this.scheduler = new ThreadPoolTaskScheduler();
+			this.scheduler.setThreadNamePrefix("increment-buffer-");
+			this.scheduler.afterPropertiesSet();
+			this.scheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					flush();
+				}
+			}, flushInterval);
+		}
+		else {
+			this.scheduler = null;
+		}
+	}
+
+	/**
+	 * Add the given amount to the pending sum of the given key.
+	 *
+	 * @param key the key
+	 * @param amount the amount
+	 */
+	public void increment(K key, long amount) {
+		add(key, amount);
+		if (this.flushSize > 0 && this.incrementsSinceFlush.incrementAndGet() >= this.flushSize
+				&& this.flushLock.tryLock()) {
+			// a flush already in progress on another thread will pick up this increment
+			try {
+				doFlush();
+			}
+			finally {
+				this.flushLock.unlock();
+			}
+		}
+	}
+
+	private void add(K key, long amount) {
+		while (true) {
+			AtomicLong sum = this.sums.get(key);
+			if (sum == null) {
+				sum = this.sums.putIfAbsent(key, new AtomicLong(amount));
+				if (sum == null) {
+					return;
+				}
+			}
+			long current = sum.get();
+			if (current == FLUSHED) {
+				// taken by a flush; help remove it and start a new sum
+				this.sums.remove(key, sum);
+			}
+			else if (sum.compareAndSet(current, current + amount)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Apply all pending sums to the backing repository.
+	 */
+	public void flush() {
+		this.flushLock.lock();
+		try {
+			doFlush();
+		}
+		finally {
+			this.flushLock.unlock();
+		}
+	}
+
+	private void doFlush() {
+		this.incrementsSinceFlush.set(0);
+		for (Map.Entry<K, AtomicLong> entry : this.sums.entrySet()) {
+			long amount = entry.getValue().getAndSet(FLUSHED);
+			this.sums.remove(entry.getKey(), entry.getValue());
+			if (amount != 0 && amount != FLUSHED) {
+				try {
+					this.flusher.flush(entry.getKey(), amount);
+				}
+				catch (RuntimeException e) {
+					logger.error("Failed to flush increments of '" + entry.getKey() + "', will retry", e);
+					add(entry.getKey(), amount);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop flushing periodically and flush the pending sums.
+	 */
+	@Override
+	public void destroy() {
+		if (this.scheduler != null) {
+			this.scheduler.destroy();
+		}
+		flush();
+	}
+
+	/**
+	 * Applies the sum of the increments of a key to the backing repository.
+	 *
+	 * @param <K> the type of key
+	 */
+	public interface Flusher<K> {
+
+		void flush(K key, long amount);
+	}
+
+}
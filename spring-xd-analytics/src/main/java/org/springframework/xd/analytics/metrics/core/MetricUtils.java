@@ -26,6 +26,22 @@ public final class MetricUtils {
 		return g.reset();
 	}
 
+	public static CardinalityCounter offerCardinalityValue(CardinalityCounter c, String value) {
+		return c.offer(value);
+	}
+
+	public static CardinalityCounter mergeCardinalityCounter(CardinalityCounter c, CardinalityCounter other) {
+		return c.merge(other);
+	}
+
+	public static Histogram recordHistogramValue(Histogram h, long value, long count) {
+		return h.record(value, count);
+	}
+
+	public static Histogram mergeHistogram(Histogram h, Histogram other) {
+		return h.merge(other);
+	}
+
 	public static long[] concatArrays(List<long[]> arrays, int start, int size) {
 		long[] counts = new long[size];
 		long[] first = arrays.remove(0);
@@ -18,18 +18,25 @@ package org.springframework.xd.analytics.metrics.integration;
 
 import java.text.ParseException;
 
+import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.messaging.Message;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
+import org.springframework.xd.analytics.metrics.core.IncrementBuffer;
 
 /**
+ * Counts messages in an {@link AggregateCounterRepository}. If a flush interval or size is set, messages are counted
+ * per minute in an {@link IncrementBuffer} and the counter is incremented by the accumulated count of each minute.
+ * 
  * @author Luke Taylor
  */
-public class AggregateCounterHandler {
+public class AggregateCounterHandler implements InitializingBean, DisposableBean {
 
 	private final AggregateCounterRepository aggregateCounterRepository;
 
@@ -37,6 +44,12 @@ public class AggregateCounterHandler {
 
 	private DateTimeFormatter dateFormat = ISODateTimeFormat.dateTime();
 
+	private volatile long flushInterval;
+
+	private volatile int flushSize;
+
+	private volatile IncrementBuffer<Long> incrementBuffer;
+
 	public AggregateCounterHandler(AggregateCounterRepository aggregateCounterRepository, String counterName) {
 		Assert.notNull(aggregateCounterRepository, "Aggregate Counter Repository can not be null");
 		Assert.notNull(counterName, "Counter Name can not be null");
@@ -49,11 +62,50 @@ public class AggregateCounterHandler {
 		this.dateFormat = DateTimeFormat.forPattern(pattern);
 	}
 
+	/**
+	 * @param flushInterval the interval in milliseconds at which accumulated counts are flushed; 0 for none
+	 */
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * @param flushSize the number of messages after which accumulated counts are flushed; 0 for none
+	 */
+	public void setFlushSize(int flushSize) {
+		this.flushSize = flushSize;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (flushInterval > 0 || flushSize > 0) {
+			this.incrementBuffer = new IncrementBuffer<Long>(new IncrementBuffer.Flusher<Long>() {
+
+				@Override
+				public void flush(Long minute, long amount) {
+					aggregateCounterRepository.increment(counterName, amount, new DateTime(minute));
+				}
+			}, flushInterval, flushSize);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.incrementBuffer != null) {
+			this.incrementBuffer.destroy();
+		}
+	}
+
 	public Message<?> process(Message<?> message, String timeField) throws ParseException {
 		if (message == null) {
 			return null;
 		}
-		if (timeField == null) {
+		if (this.incrementBuffer != null) {
+			// minutes are the finest resolution of an aggregate counter
+			DateTime time = (timeField == null) ? new DateTime() : dateFormat.parseDateTime(timeField);
+			this.incrementBuffer.increment(time.minuteOfHour().roundFloorCopy().getMillis(), 1);
+		}
+		else if (timeField == null) {
 			this.aggregateCounterRepository.increment(counterName);
 		}
 		else {
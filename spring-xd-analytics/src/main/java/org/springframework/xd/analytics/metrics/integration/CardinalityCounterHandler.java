@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounterRepository;
+
+/**
+ * Offers values to a cardinality counter. Each element of a collection or array is offered as a separate value, except
+ * for a {@code byte[]} which is offered as a single UTF-8 string; null values are ignored.
+ *
+ * @since 1.0
+ */
+public class CardinalityCounterHandler {
+
+	private final CardinalityCounterRepository cardinalityCounterRepository;
+
+	private final String counterName;
+
+	public CardinalityCounterHandler(CardinalityCounterRepository cardinalityCounterRepository, String counterName) {
+		Assert.notNull(cardinalityCounterRepository, "Cardinality Counter Repository can not be null");
+		Assert.notNull(counterName, "Counter Name can not be null");
+		this.cardinalityCounterRepository = cardinalityCounterRepository;
+		this.counterName = counterName;
+	}
+
+	public void process(Object value) {
+		if (value instanceof byte[]) {
+			offer(toString((byte[]) value));
+		}
+		else if ((value instanceof Collection) || ObjectUtils.isArray(value)) {
+			Collection<?> c = (value instanceof Collection) ? (Collection<?>) value
+					: Arrays.asList(ObjectUtils.toObjectArray(value));
+			for (Object val : c) {
+				offer(val);
+			}
+		}
+		else {
+			offer(value);
+		}
+	}
+
+	private void offer(Object value) {
+		if (value != null) {
+			this.cardinalityCounterRepository.offer(counterName, value.toString());
+		}
+	}
+
+	private static String toString(byte[] bytes) {
+		try {
+			return new String(bytes, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -23,6 +23,8 @@ import java.util.Map;
 
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.transformer.MessageTransformationException;
 import org.springframework.messaging.Message;
@@ -30,18 +32,21 @@ import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
+import org.springframework.xd.analytics.metrics.core.IncrementBuffer;
 import org.springframework.xd.tuple.Tuple;
 import org.springframework.xd.tuple.integration.JsonToTupleTransformer;
 
 /**
  * Counts the occurrence of values for a set of JavaBean properties or Tuple fields using a FieldValueCounterService.
- * Assumes a String payload is JSON and will convert it to a Tuple.
+ * Assumes a String payload is JSON and will convert it to a Tuple. If a flush interval or size is set, values are
+ * counted in an {@link IncrementBuffer} and each field value is incremented by its accumulated count. If a top K is set,
+ * only the approximate top K values are tracked.
  * 
  * @author Mark Pollack
  * @author David Turanski
  * @author Mark Fisher
  */
-public class FieldValueCounterHandler {
+public class FieldValueCounterHandler implements InitializingBean, DisposableBean {
 
 	private final FieldValueCounterRepository fieldValueCounterRepository;
 
@@ -51,6 +56,14 @@ public class FieldValueCounterHandler {
 
 	private final JsonToTupleTransformer jsonToTupleTransformer;
 
+	private volatile long flushInterval;
+
+	private volatile int flushSize;
+
+	private volatile int topK;
+
+	private volatile IncrementBuffer<String> incrementBuffer;
+
 	public FieldValueCounterHandler(FieldValueCounterRepository fieldValueCounterRepository, String counterName,
 			String fieldName) {
 		Assert.notNull(fieldValueCounterRepository, "FieldValueCounterRepository can not be null");
@@ -60,7 +73,51 @@ public class FieldValueCounterHandler {
 		this.fieldName = fieldName;
 		this.counterName = counterName;
 		this.jsonToTupleTransformer = new JsonToTupleTransformer();
+		// only the first element of the field path needs to be read from a JSON payload
+		this.jsonToTupleTransformer.setFieldNames(StringUtils.tokenizeToStringArray(fieldName, ".")[0]);
+
+	}
+
+	/**
+	 * @param flushInterval the interval in milliseconds at which accumulated counts are flushed; 0 for none
+	 */
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * @param flushSize the number of values after which accumulated counts are flushed; 0 for none
+	 */
+	public void setFlushSize(int flushSize) {
+		this.flushSize = flushSize;
+	}
 
+	/**
+	 * @param topK the number of most frequent values to track, approximately; 0 to count all values exactly
+	 * @see FieldValueCounterRepository#incrementTopK(String, String, double, int)
+	 */
+	public void setTopK(int topK) {
+		this.topK = topK;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (flushInterval > 0 || flushSize > 0) {
+			this.incrementBuffer = new IncrementBuffer<String>(new IncrementBuffer.Flusher<String>() {
+
+				@Override
+				public void flush(String fieldValue, long amount) {
+					increment(counterName, fieldValue, amount);
+				}
+			}, flushInterval, flushSize);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.incrementBuffer != null) {
+			this.incrementBuffer.destroy();
+		}
 	}
 
 	@ServiceActivator
@@ -130,11 +187,29 @@ public class FieldValueCounterHandler {
 					: Arrays.asList(ObjectUtils.toObjectArray(value));
 			for (Object val : c) {
 				// TODO better conversion to a string
-				fieldValueCounterRepository.increment(counterName, val.toString());
+				incrementFieldValue(counterName, val.toString());
 			}
 		}
 		else {
-			fieldValueCounterRepository.increment(counterName, value.toString());
+			incrementFieldValue(counterName, value.toString());
+		}
+	}
+
+	private void incrementFieldValue(String counterName, String fieldValue) {
+		if (this.incrementBuffer != null && counterName.equals(this.counterName)) {
+			this.incrementBuffer.increment(fieldValue, 1);
+		}
+		else {
+			increment(counterName, fieldValue, 1);
+		}
+	}
+
+	private void increment(String counterName, String fieldValue, double amount) {
+		if (topK > 0) {
+			fieldValueCounterRepository.incrementTopK(counterName, fieldValue, amount, topK);
+		}
+		else {
+			fieldValueCounterRepository.increment(counterName, fieldValue, amount);
 		}
 	}
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import java.util.Map;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.integration.transformer.MessageTransformationException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.xd.analytics.metrics.core.HistogramRepository;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.integration.JsonToTupleTransformer;
+
+/**
+ * Records a numeric value of each message in a histogram. The value is either a field of the payload, which may be a
+ * Tuple, a Map, a JavaBean or a JSON String, or the result of a SpEL expression evaluated against the message. Values
+ * that are not integral are rounded.
+ *
+ * @since 1.0
+ */
+public class HistogramHandler {
+
+	private static final SpelExpressionParser parser = new SpelExpressionParser();
+
+	private final HistogramRepository histogramRepository;
+
+	private final String name;
+
+	private volatile String fieldName;
+
+	private volatile JsonToTupleTransformer jsonToTupleTransformer;
+
+	private volatile Expression expression = parser.parseExpression("payload");
+
+	public HistogramHandler(HistogramRepository histogramRepository, String name) {
+		Assert.notNull(histogramRepository, "Histogram Repository can not be null");
+		Assert.notNull(name, "Histogram Name can not be null");
+		this.histogramRepository = histogramRepository;
+		this.name = name;
+	}
+
+	/**
+	 * @param fieldName the name of the field of the payload holding the value; if empty, the expression is used
+	 */
+	public void setFieldName(String fieldName) {
+		if (StringUtils.hasText(fieldName)) {
+			this.fieldName = fieldName;
+			this.jsonToTupleTransformer = new JsonToTupleTransformer();
+			this.jsonToTupleTransformer.setFieldNames(fieldName);
+		}
+		else {
+			this.fieldName = null;
+		}
+	}
+
+	/**
+	 * @param expression a SpEL expression evaluated against the message to obtain the value
+	 */
+	public void setExpression(String expression) {
+		Assert.hasText(expression, "expression must not be empty");
+		this.expression = parser.parseExpression(expression);
+	}
+
+	@ServiceActivator
+	public void process(Message<?> message) {
+		Object value = (fieldName == null) ? expression.getValue(message) : getField(message);
+		if (value != null) {
+			this.histogramRepository.record(name, convertToLong(value));
+		}
+	}
+
+	private Object getField(Message<?> message) {
+		Object payload = message.getPayload();
+		if (payload instanceof String) {
+			try {
+				payload = jsonToTupleTransformer.transformPayload(payload.toString());
+			}
+			catch (Exception e) {
+				throw new MessageTransformationException(message, e);
+			}
+		}
+		if (payload instanceof Tuple) {
+			Tuple tuple = (Tuple) payload;
+			return tuple.hasFieldName(fieldName) ? tuple.getValue(fieldName) : null;
+		}
+		if (payload instanceof Map) {
+			return ((Map<?, ?>) payload).get(fieldName);
+		}
+		BeanWrapperImpl beanWrapper = new BeanWrapperImpl(payload);
+		return beanWrapper.isReadableProperty(fieldName) ? beanWrapper.getPropertyValue(fieldName) : null;
+	}
+
+	long convertToLong(Object value) {
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Number) {
+			return Math.round(((Number) value).doubleValue());
+		}
+		if (value instanceof String) {
+			try {
+				return Math.round(Double.parseDouble((String) value));
+			}
+			catch (NumberFormatException e) {
+				throw new MessagingException("cannot convert '" + value + "' to a number", e);
+			}
+		}
+		throw new MessagingException("cannot convert " + value.getClass().getName() + " to a number");
+	}
+
+}
@@ -1,21 +1,31 @@
 
 package org.springframework.xd.analytics.metrics.integration;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.CounterRepository;
+import org.springframework.xd.analytics.metrics.core.IncrementBuffer;
 
 /**
- * Counts the number of non-null messages using an underlying {@link CounterRepository}.
+ * Counts the number of non-null messages using an underlying {@link CounterRepository}. If a flush interval or size is
+ * set, messages are counted in an {@link IncrementBuffer} and the counter is incremented by the accumulated count.
  * 
  */
-public class MessageCounterHandler {
+public class MessageCounterHandler implements InitializingBean, DisposableBean {
 
 	private final CounterRepository counterRepository;
 
 	private final String counterName;
 
+	private volatile long flushInterval;
+
+	private volatile int flushSize;
+
+	private volatile IncrementBuffer<String> incrementBuffer;
+
 	public MessageCounterHandler(CounterRepository counterRepository, String counterName) {
 		Assert.notNull(counterRepository, "Counter Repository can not be null");
 		Assert.notNull(counterName, "Counter Name can not be null");
@@ -23,10 +33,49 @@ public class MessageCounterHandler {
 		this.counterName = counterName;
 	}
 
+	/**
+	 * @param flushInterval the interval in milliseconds at which accumulated counts are flushed; 0 for none
+	 */
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * @param flushSize the number of messages after which accumulated counts are flushed; 0 for none
+	 */
+	public void setFlushSize(int flushSize) {
+		this.flushSize = flushSize;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (flushInterval > 0 || flushSize > 0) {
+			this.incrementBuffer = new IncrementBuffer<String>(new IncrementBuffer.Flusher<String>() {
+
+				@Override
+				public void flush(String counterName, long amount) {
+					counterRepository.increment(counterName, amount);
+				}
+			}, flushInterval, flushSize);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.incrementBuffer != null) {
+			this.incrementBuffer.destroy();
+		}
+	}
+
 	@ServiceActivator
 	public Message<?> process(Message<?> message) {
 		if (message != null) {
-			this.counterRepository.increment(counterName);
+			if (this.incrementBuffer != null) {
+				this.incrementBuffer.increment(counterName, 1);
+			}
+			else {
+				this.counterRepository.increment(counterName);
+			}
 		}
 		return message;
 	}
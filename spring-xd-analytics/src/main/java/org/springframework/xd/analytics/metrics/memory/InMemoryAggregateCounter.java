@@ -16,199 +16,190 @@
 
 package org.springframework.xd.analytics.metrics.memory;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.joda.time.Chronology;
 import org.joda.time.DateTime;
-import org.joda.time.Days;
-import org.joda.time.Duration;
+import org.joda.time.DateTimeConstants;
 import org.joda.time.Interval;
 
-import org.joda.time.Months;
-import org.joda.time.Years;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.AggregateCount;
 import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
 import org.springframework.xd.analytics.metrics.core.Counter;
-import org.springframework.xd.analytics.metrics.core.MetricUtils;
 
 /**
  * A counter that tracks integral values but also remembers how its value was distributed over time.
- * 
+ *
  * <p>
- * This core class only holds data structures. Depending on backing stores, logic for computing totals may be
- * implemented in a specialization of this class or at the repository level.
+ * The counts of each resolution are kept in a fixed size ring buffer, so that only the most recent buckets of each
+ * resolution are retained and the memory used by a counter does not grow over time. The ring of a resolution is only
+ * allocated when the counter is first incremented, so counters that are never incremented stay small. Buckets are
+ * retained relative to the most recent bucket that was incremented, not to the current time. Increments and queries do
+ * not lock: each slot of a ring holds both the count and the generation of the bucket it counts in a single word, which
+ * is updated with a compare-and-set. A bucket can count up to 2<sup>48</sup>-1.
  * </p>
- * 
+ *
  * @author Luke Taylor
  * @author Eric Bottard
  */
 class InMemoryAggregateCounter extends Counter {
-	private Map<Integer, long[]> monthCountsByYear = new HashMap<Integer, long[]>();
 
-	private Map<Integer, long[]> dayCountsByYear = new HashMap<Integer, long[]>();
+	private final AtomicLong total;
 
-	private Map<Integer, long[]> hourCountsByDay = new HashMap<Integer, long[]>();
+	private final Map<AggregateCountResolution, Ring> rings = new EnumMap<AggregateCountResolution, Ring>(
+			AggregateCountResolution.class);
 
-	private Map<Integer, long[]> minuteCountsByDay = new HashMap<Integer, long[]>();
+	/**
+	 * @param name the counter name
+	 * @param retention the number of buckets to retain for each resolution
+	 */
+	public InMemoryAggregateCounter(String name, Map<AggregateCountResolution, Integer> retention) {
+		super(name);
+		this.total = new AtomicLong();
+		for (AggregateCountResolution resolution : AggregateCountResolution.values()) {
+			Integer size = retention.get(resolution);
+			Assert.notNull(size, "No retention set for resolution " + resolution);
+			rings.put(resolution, new Ring(size));
+		}
+	}
 
-	public InMemoryAggregateCounter(String name, long value) {
-		super(name, value);
+	@Override
+	public long getValue() {
+		return total.get();
 	}
 
-	public InMemoryAggregateCounter(String name) {
-		super(name);
+	@Override
+	public long increment(long amount) {
+		return total.addAndGet(amount);
+	}
+
+	@Override
+	public long decrement(long amount) {
+		return total.addAndGet(-amount);
 	}
 
 	public AggregateCount getCounts(int nCounts, DateTime endDate, AggregateCountResolution resolution) {
 		Assert.notNull(endDate, "endDate must not be null");
 
-		return getCounts(new Interval(resolution.minus(endDate, nCounts-1), endDate), resolution);
+		return getCounts(new Interval(resolution.minus(endDate, nCounts - 1), endDate), resolution);
 	}
 
 	public AggregateCount getCounts(Interval interval, AggregateCountResolution resolution) {
-		DateTime start = interval.getStart();
-		DateTime end = interval.getEnd();
-		Chronology c = interval.getChronology();
-
-		long[] counts;
-		if (resolution == AggregateCountResolution.minute) {
-			List<long[]> days = accumulateDayCounts(minuteCountsByDay, start, end, 60 * 24);
-
-			counts = MetricUtils.concatArrays(days, interval.getStart().getMinuteOfDay(),
-					interval.toPeriod().toStandardMinutes().getMinutes() + 1);
-		}
-		else if (resolution == AggregateCountResolution.hour) {
-			List<long[]> days = accumulateDayCounts(hourCountsByDay, start, end, 24);
+		long startBucket = bucket(interval.getStart(), resolution);
+		long endBucket = bucket(interval.getEnd(), resolution);
+		Ring ring = rings.get(resolution);
 
-			counts = MetricUtils.concatArrays(days, interval.getStart().getHourOfDay(),
-					interval.toPeriod().toStandardHours().getHours() + 1);
+		long[] counts = new long[(int) (endBucket - startBucket + 1)];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = ring.get(startBucket + i);
 		}
-		else if (resolution == AggregateCountResolution.day) {
-			DateTime startDay = new DateTime(c.dayOfYear().roundFloor(start.getMillis()));
-			DateTime endDay = new DateTime(c.dayOfYear().roundFloor(end.plusDays(1).getMillis()));
-			int nDays = Days.daysBetween(startDay, endDay).getDays();
-			DateTime cursor = new DateTime(c.year().roundFloor(interval.getStartMillis()));
-			List<long[]> yearDays = new ArrayList<long[]>();
-			DateTime endYear = new DateTime(c.year().roundCeiling(end.getMillis()));
-
-			while (cursor.isBefore(endYear)) {
-				long[] dayCounts = dayCountsByYear.get(cursor.getYear());
-				if (dayCounts == null) {
-					// Querying where we have no data
-					dayCounts = new long[daysInYear(cursor.getYear())];
-				}
-				yearDays.add(dayCounts);
-				cursor = cursor.plusYears(1);
-			}
-
-			counts = MetricUtils.concatArrays(yearDays, startDay.getDayOfYear() - 1, nDays);
+		return new AggregateCount(getName(), interval, counts, resolution);
+	}
 
-		}
-		else if (resolution == AggregateCountResolution.month) {
-			DateTime startMonth = new DateTime(c.monthOfYear().roundFloor(interval.getStartMillis()));
-			DateTime endMonth = new DateTime(c.monthOfYear().roundFloor(end.plusMonths(1).getMillis()));
-			int nMonths = Months.monthsBetween(startMonth, endMonth).getMonths();
-			DateTime cursor = new DateTime(c.year().roundFloor(interval.getStartMillis()));
-			List<long[]> yearMonths = new ArrayList<long[]>();
-			DateTime endYear = new DateTime(c.year().roundCeiling(end.getMillis()));
-
-			while (cursor.isBefore(endYear)) {
-				long[] monthCounts = monthCountsByYear.get(cursor.getYear());
-				if (monthCounts == null) {
-					monthCounts = new long[12];
-				}
-				yearMonths.add(monthCounts);
-				cursor = cursor.plusYears(1);
+	long increment(long amount, DateTime dateTime) {
+		Assert.isTrue(amount >= 0, "An aggregate counter can't be decremented");
+		if (amount > 0) {
+			for (Map.Entry<AggregateCountResolution, Ring> entry : rings.entrySet()) {
+				entry.getValue().add(bucket(dateTime, entry.getKey()), amount);
 			}
-
-			counts = MetricUtils.concatArrays(yearMonths, startMonth.getMonthOfYear() - 1 , nMonths);
 		}
-		else if (resolution == AggregateCountResolution.year) {
-			DateTime startYear = new DateTime(interval.getStart().getYear(), 1, 1, 0, 0);
-			DateTime endYear   =  new DateTime(end.getYear() + 1, 1, 1, 0, 0);
-			int nYears = Years.yearsBetween(startYear, endYear).getYears();
-			counts = new long[nYears];
-
-			for (int i = 0; i < nYears; i++) {
-				long[] monthCounts = monthCountsByYear.get(startYear.plusYears(i).getYear());
-				counts[i] = MetricUtils.sum(monthCounts);
-			}
+		return increment(amount);
+	}
 
+	/**
+	 * Number the buckets of a resolution consecutively, in the time zone of the given date.
+	 */
+	private static long bucket(DateTime dateTime, AggregateCountResolution resolution) {
+		long localMillis = dateTime.getMillis() + dateTime.getZone().getOffset(dateTime.getMillis());
+		switch (resolution) {
+			case minute:
+				return floorDiv(localMillis, DateTimeConstants.MILLIS_PER_MINUTE);
+			case hour:
+				return floorDiv(localMillis, DateTimeConstants.MILLIS_PER_HOUR);
+			case day:
+				return floorDiv(localMillis, DateTimeConstants.MILLIS_PER_DAY);
+			case month:
+				return dateTime.getYear() * 12L + dateTime.getMonthOfYear() - 1;
+			case year:
+				return dateTime.getYear();
+			default:
+				throw new IllegalStateException("Shouldn't happen. Unhandled resolution: " + resolution);
 		}
-		else {
-			throw new IllegalStateException("Shouldn't happen. Unhandled resolution: " + resolution);
-		}
-		return new AggregateCount(getName(), interval, counts, resolution);
 	}
 
-	private static List<long[]> accumulateDayCounts(Map<Integer, long[]> fromDayCounts, DateTime start, DateTime end,
-			int subSize) {
-		List<long[]> days = new ArrayList<long[]>();
-		Duration step = Duration.standardDays(1);
-		long[] emptySubArray = new long[subSize];
-		end = end.plusDays(1); // Need to account for an interval which crosses days
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		return (x % y < 0) ? q - 1 : q;
+	}
 
-		for (DateTime now = start; now.isBefore(end); now = now.plus(step)) {
-			int countsByDayKey = now.getYear() * 1000 + now.getDayOfYear();
-			long[] dayCounts = fromDayCounts.get(countsByDayKey);
+	/**
+	 * The most recent buckets of a resolution. Bucket {@code b} is counted in slot {@code b % size}; the slot also
+	 * holds the low 16 bits of the generation {@code b / size} of the bucket, in its high bits. Incrementing a bucket of
+	 * a later generation than the one in its slot starts counting that bucket afresh, evicting the older bucket. The
+	 * slots are allocated on the first increment.
+	 */
+	private static final class Ring {
 
-			if (dayCounts == null) {
-				// Use an empty array if we don't have data
-				dayCounts = emptySubArray;
-			}
-			days.add(dayCounts);
-		}
-		return days;
-	}
+		private static final int COUNT_BITS = 48;
 
-	private int daysInYear(int year) {
-		Duration d = new Duration(new DateTime(year, 1, 1, 0, 0), new DateTime(year + 1, 1, 1, 0, 0));
-		return (int)d.getStandardDays();
-	}
+		private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
 
-	synchronized long increment(long amount, DateTime dateTime) {
-		int year = dateTime.getYear();
-		int month = dateTime.getMonthOfYear();
-		int day = dateTime.getDayOfYear();
-		int hour = dateTime.getHourOfDay();
-		int minute = dateTime.getMinuteOfDay();
-
-		long[] monthCounts = monthCountsByYear.get(year);
-		long[] dayCounts = dayCountsByYear.get(year);
-
-		if (monthCounts == null) {
-			monthCounts = new long[12];
-			monthCountsByYear.put(year, monthCounts);
-			dayCounts = new long[daysInYear(year)];
-			dayCountsByYear.put(year, dayCounts);
-		}
+		private final AtomicReference<AtomicLongArray> slotsRef = new AtomicReference<AtomicLongArray>();
 
-		int countsByDayKey = year * 1000 + day;
-		long[] hourCounts = hourCountsByDay.get(countsByDayKey);
+		private final int size;
 
-		if (hourCounts == null) {
-			hourCounts = new long[24];
-			hourCountsByDay.put(countsByDayKey, hourCounts);
+		Ring(int size) {
+			Assert.isTrue(size > 0, "retention must be positive");
+			this.size = size;
 		}
 
-		long[] minuteCounts = minuteCountsByDay.get(countsByDayKey);
-
-		if (minuteCounts == null) {
-			minuteCounts = new long[60 * 24];
-			minuteCountsByDay.put(countsByDayKey, minuteCounts);
+		void add(long bucket, long amount) {
+			AtomicLongArray slots = slotsRef.get();
+			if (slots == null) {
+				slotsRef.compareAndSet(null, new AtomicLongArray(size));
+				slots = slotsRef.get();
+			}
+			long fullGeneration = floorDiv(bucket, size);
+			int slot = (int) (bucket - fullGeneration * size);
+			short generation = (short) fullGeneration;
+			while (true) {
+				long current = slots.get(slot);
+				short slotGeneration = generation(current);
+				long next;
+				if (slotGeneration == generation) {
+					next = current + amount;
+				}
+				else if ((short) (generation - slotGeneration) > 0 || (current & COUNT_MASK) == 0) {
+					// the slot holds an older bucket, or nothing
+					next = ((long) generation << COUNT_BITS) | amount;
+				}
+				else {
+					// the bucket has already been evicted
+					return;
+				}
+				if (slots.compareAndSet(slot, current, next)) {
+					return;
+				}
+			}
 		}
 
-		minuteCounts[minute] += amount;
-		monthCounts[month-1] += amount;
-		dayCounts[day-1] += amount;
-		hourCounts[hour] += amount;
+		long get(long bucket) {
+			AtomicLongArray slots = slotsRef.get();
+			if (slots == null) {
+				return 0;
+			}
+			long fullGeneration = floorDiv(bucket, size);
+			long current = slots.get((int) (bucket - fullGeneration * size));
+			return generation(current) == (short) fullGeneration ? current & COUNT_MASK : 0;
+		}
 
-		return increment(amount);
+		private static short generation(long slotValue) {
+			return (short) (slotValue >>> COUNT_BITS);
+		}
 	}
 
 }
@@ -17,13 +17,16 @@
 package org.springframework.xd.analytics.metrics.memory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.AggregateCount;
 import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
 import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
@@ -33,7 +36,8 @@ import org.springframework.xd.store.AbstractInMemoryRepository;
 /**
  * In-memory aggregate counter with minute resolution.
  * 
- * Note that the data is permanently accumulated, so will grow steadily in size until the host process is restarted.
+ * Only the most recent buckets of each resolution are retained: by default a week of minutes, 90 days of hours, 5
+ * years of days, 10 years of months and 100 years. Counters created after changing a retention use the new value.
  * 
  * @author Luke Taylor
  * @author Eric Bottard
@@ -42,7 +46,58 @@ import org.springframework.xd.store.AbstractInMemoryRepository;
 public class InMemoryAggregateCounterRepository extends AbstractInMemoryRepository<Counter, String> implements
 		AggregateCounterRepository {
 
-	private Map<String, InMemoryAggregateCounter> aggregates = new HashMap<String, InMemoryAggregateCounter>();
+	private final ConcurrentMap<String, InMemoryAggregateCounter> aggregates = new ConcurrentHashMap<String, InMemoryAggregateCounter>();
+
+	private final Map<AggregateCountResolution, Integer> retention = new EnumMap<AggregateCountResolution, Integer>(
+			AggregateCountResolution.class);
+
+	public InMemoryAggregateCounterRepository() {
+		retention.put(AggregateCountResolution.minute, 7 * 24 * 60);
+		retention.put(AggregateCountResolution.hour, 90 * 24);
+		retention.put(AggregateCountResolution.day, 5 * 366);
+		retention.put(AggregateCountResolution.month, 10 * 12);
+		retention.put(AggregateCountResolution.year, 100);
+	}
+
+	/**
+	 * Set the number of minutes to retain. Default 10080 (a week).
+	 */
+	public void setMinuteRetention(int minutes) {
+		setRetention(AggregateCountResolution.minute, minutes);
+	}
+
+	/**
+	 * Set the number of hours to retain. Default 2160 (90 days).
+	 */
+	public void setHourRetention(int hours) {
+		setRetention(AggregateCountResolution.hour, hours);
+	}
+
+	/**
+	 * Set the number of days to retain. Default 1830 (5 years).
+	 */
+	public void setDayRetention(int days) {
+		setRetention(AggregateCountResolution.day, days);
+	}
+
+	/**
+	 * Set the number of months to retain. Default 120 (10 years).
+	 */
+	public void setMonthRetention(int months) {
+		setRetention(AggregateCountResolution.month, months);
+	}
+
+	/**
+	 * Set the number of years to retain. Default 100.
+	 */
+	public void setYearRetention(int years) {
+		setRetention(AggregateCountResolution.year, years);
+	}
+
+	private synchronized void setRetention(AggregateCountResolution resolution, int buckets) {
+		Assert.isTrue(buckets > 0, "retention must be positive");
+		retention.put(resolution, buckets);
+	}
 
 	@Override
 	public long increment(String name) {
@@ -51,7 +106,7 @@ public class InMemoryAggregateCounterRepository extends AbstractInMemoryReposito
 
 	@Override
 	public long increment(String name, long amount) {
-		return increment(name, 1L, DateTime.now());
+		return increment(name, amount, DateTime.now());
 	}
 
 	@Override
@@ -75,11 +130,17 @@ public class InMemoryAggregateCounterRepository extends AbstractInMemoryReposito
 		return getOrCreate(name).getCounts(nCounts, end, resolution);
 	}
 
-	private synchronized InMemoryAggregateCounter getOrCreate(String name) {
+	private InMemoryAggregateCounter getOrCreate(String name) {
 		InMemoryAggregateCounter c = aggregates.get(name);
 		if (c == null) {
-			c = new InMemoryAggregateCounter(name);
-			aggregates.put(name, c);
+			InMemoryAggregateCounter created;
+			synchronized (this) {
+				created = new InMemoryAggregateCounter(name, retention);
+			}
+			c = aggregates.putIfAbsent(name, created);
+			if (c == null) {
+				c = created;
+			}
 		}
 		return c;
 	}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.memory;
+
+import static org.springframework.xd.analytics.metrics.core.MetricUtils.mergeCardinalityCounter;
+import static org.springframework.xd.analytics.metrics.core.MetricUtils.offerCardinalityValue;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounter;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounterRepository;
+
+/**
+ * Memory backed implementation of CardinalityCounterRepository that uses a ConcurrentMap
+ *
+ * @since 1.0
+ */
+public class InMemoryCardinalityCounterRepository extends InMemoryMetricRepository<CardinalityCounter> implements
+		CardinalityCounterRepository {
+
+	@Override
+	protected CardinalityCounter create(String name) {
+		return new CardinalityCounter(name);
+	}
+
+	@Override
+	public void offer(String name, String value) {
+		Assert.notNull(name, "Counter name can not be null");
+		Assert.notNull(value, "Value can not be null");
+		offerCardinalityValue(getOrCreate(name), value);
+	}
+
+	@Override
+	public void merge(String name, Iterable<String> sourceNames) {
+		Assert.notNull(name, "Counter name can not be null");
+		CardinalityCounter counter = getOrCreate(name);
+		for (CardinalityCounter source : findAll(sourceNames)) {
+			if (source != counter) {
+				mergeCardinalityCounter(counter, source);
+			}
+		}
+	}
+}
@@ -18,6 +18,7 @@ package org.springframework.xd.analytics.metrics.memory;
 
 import java.util.Map;
 
+import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounter;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
 
@@ -40,18 +41,51 @@ public class InMemoryFieldValueCounterRepository extends InMemoryMetricRepositor
 		modifyFieldValue(name, fieldName, 1);
 	}
 
+	@Override
+	public synchronized void increment(String name, String fieldName, double score) {
+		modifyFieldValue(name, fieldName, score);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Finding the field name with the lowest count takes time proportional to the capacity.
+	 */
+	@Override
+	public synchronized void incrementTopK(String name, String fieldName, double score, int capacity) {
+		Assert.isTrue(capacity > 0, "capacity must be positive");
+		Assert.isTrue(score >= 0, "score cannot be negative");
+		FieldValueCounter counter = getOrCreate(name);
+		Map<String, Double> data = counter.getFieldValueCount();
+		Double count = data.get(fieldName);
+		if (count == null && data.size() >= capacity) {
+			Map.Entry<String, Double> min = null;
+			for (Map.Entry<String, Double> entry : data.entrySet()) {
+				if (min == null || entry.getValue() < min.getValue()) {
+					min = entry;
+				}
+			}
+			count = min.getValue();
+			data.remove(min.getKey());
+			counter.getFieldValueErrors().remove(min.getKey());
+			counter.getFieldValueErrors().put(fieldName, count);
+		}
+		data.put(fieldName, (count == null ? 0 : count) + score);
+	}
+
 	@Override
 	public synchronized void decrement(String name, String fieldName) {
 		modifyFieldValue(name, fieldName, -1);
 	}
 
 	@Override
-	public void reset(String name, String fieldName) {
+	public synchronized void reset(String name, String fieldName) {
 		FieldValueCounter counter = getOrCreate(name);
 		Map<String, Double> data = counter.getFieldValueCount();
 		if (data.containsKey(fieldName)) {
 			data.put(fieldName, 0D);
 		}
+		counter.getFieldValueErrors().remove(fieldName);
 	}
 
 	private void modifyFieldValue(String name, String fieldName, double delta) {
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.memory;
+
+import static org.springframework.xd.analytics.metrics.core.MetricUtils.mergeHistogram;
+import static org.springframework.xd.analytics.metrics.core.MetricUtils.recordHistogramValue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.Histogram;
+import org.springframework.xd.analytics.metrics.core.HistogramRepository;
+
+/**
+ * Memory backed implementation of HistogramRepository that uses a ConcurrentMap. The histograms of each minute are
+ * kept in a skip list by minute; those older than the retention are evicted when a value is recorded.
+ *
+ * @since 1.0
+ */
+public class InMemoryHistogramRepository extends InMemoryMetricRepository<Histogram> implements HistogramRepository {
+
+	private final ConcurrentMap<String, ConcurrentNavigableMap<Long, Histogram>> windows = new ConcurrentHashMap<String, ConcurrentNavigableMap<Long, Histogram>>();
+
+	private volatile int windowRetention = 60;
+
+	/**
+	 * @param windowRetention the number of minutes for which the histograms of each minute are kept
+	 */
+	public void setWindowRetention(int windowRetention) {
+		Assert.isTrue(windowRetention > 0, "windowRetention must be positive");
+		this.windowRetention = windowRetention;
+	}
+
+	@Override
+	protected Histogram create(String name) {
+		return new Histogram(name);
+	}
+
+	@Override
+	public void record(String name, long value) {
+		record(name, value, new DateTime());
+	}
+
+	@Override
+	public void record(String name, long value, DateTime time) {
+		Assert.notNull(name, "Histogram name can not be null");
+		Assert.isTrue(value >= 0, "A histogram only records non-negative values");
+		recordHistogramValue(getOrCreate(name), value, 1);
+
+		ConcurrentNavigableMap<Long, Histogram> minutes = windows.get(name);
+		if (minutes == null) {
+			ConcurrentNavigableMap<Long, Histogram> newMinutes = new ConcurrentSkipListMap<Long, Histogram>();
+			minutes = windows.putIfAbsent(name, newMinutes);
+			if (minutes == null) {
+				minutes = newMinutes;
+			}
+		}
+		long minute = minute(time);
+		Histogram histogram = minutes.get(minute);
+		if (histogram == null) {
+			Histogram newHistogram = new Histogram(name);
+			histogram = minutes.putIfAbsent(minute, newHistogram);
+			if (histogram == null) {
+				histogram = newHistogram;
+			}
+		}
+		recordHistogramValue(histogram, value, 1);
+		minutes.headMap(minutes.lastKey() - windowRetention + 1).clear();
+	}
+
+	@Override
+	public Histogram findRecent(String name, int minutes) {
+		Assert.isTrue(minutes > 0, "minutes must be positive");
+		if (findOne(name) == null) {
+			return null;
+		}
+		Histogram result = new Histogram(name);
+		ConcurrentNavigableMap<Long, Histogram> histograms = windows.get(name);
+		if (histograms != null) {
+			long now = minute(new DateTime());
+			long from = now - Math.min(minutes, windowRetention) + 1;
+			for (Histogram histogram : histograms.subMap(from, true, now, true).values()) {
+				mergeHistogram(result, histogram);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void merge(String name, Iterable<String> sourceNames) {
+		Assert.notNull(name, "Histogram name can not be null");
+		Histogram histogram = getOrCreate(name);
+		for (Histogram source : findAll(sourceNames)) {
+			if (source != histogram) {
+				mergeHistogram(histogram, source);
+			}
+		}
+	}
+
+	@Override
+	public void delete(String name) {
+		super.delete(name);
+		windows.remove(name);
+	}
+
+	@Override
+	public void delete(Histogram histogram) {
+		super.delete(histogram);
+		windows.remove(histogram.getName());
+	}
+
+	@Override
+	public void deleteAll() {
+		super.deleteAll();
+		windows.clear();
+	}
+
+	private static long minute(DateTime time) {
+		return time.getMillis() / DateTimeConstants.MILLIS_PER_MINUTE;
+	}
+}
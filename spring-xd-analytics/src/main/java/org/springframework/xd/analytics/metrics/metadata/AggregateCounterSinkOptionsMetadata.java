@@ -26,7 +26,7 @@ import org.springframework.xd.module.options.spi.ModuleOption;
  * 
  * @author Eric Bottard
  */
-@Mixin({ DateFormatMixin.class, MetricNameMixin.class })
+@Mixin({ DateFormatMixin.class, MetricNameMixin.class, IncrementBufferMixin.class })
 public class AggregateCounterSinkOptionsMetadata {
 
 	private String timeField = null;
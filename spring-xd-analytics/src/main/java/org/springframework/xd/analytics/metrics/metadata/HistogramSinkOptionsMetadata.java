@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.metadata;
+
+import org.hibernate.validator.constraints.NotBlank;
+
+import org.springframework.xd.module.options.spi.Mixin;
+import org.springframework.xd.module.options.spi.ModuleOption;
+
+
+/**
+ * Captures options for the {@code histogram} sink module.
+ *
+ * @since 1.0
+ */
+@Mixin(MetricNameMixin.class)
+public class HistogramSinkOptionsMetadata {
+
+	private String fieldName = null;
+
+	private String expression = "payload";
+
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	@ModuleOption("the name of the numeric field of the payload to record; takes precedence over the expression")
+	public void setFieldName(String fieldName) {
+		this.fieldName = fieldName;
+	}
+
+	@NotBlank
+	public String getExpression() {
+		return expression;
+	}
+
+	@ModuleOption("a SpEL expression evaluated against the message, whose numeric value is recorded")
+	public void setExpression(String expression) {
+		this.expression = expression;
+	}
+
+}
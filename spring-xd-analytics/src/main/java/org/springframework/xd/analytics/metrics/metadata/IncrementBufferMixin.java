@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.metadata;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.xd.module.options.spi.ModuleOption;
+
+
+/**
+ * Adds {@code flushInterval} and {@code flushSize} options, which enable the local accumulation of increments before
+ * they are applied to the metric.
+ * 
+ * @since 1.0
+ */
+public class IncrementBufferMixin {
+
+	private long flushInterval = 0;
+
+	private int flushSize = 0;
+
+	@Min(0)
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	@ModuleOption("if positive, the interval in milliseconds at which locally accumulated increments are applied to the metric")
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	@Min(0)
+	public int getFlushSize() {
+		return flushSize;
+	}
+
+	@ModuleOption("if positive, the number of locally accumulated increments after which they are applied to the metric")
+	public void setFlushSize(int flushSize) {
+		this.flushSize = flushSize;
+	}
+
+
+}
@@ -3,9 +3,11 @@ package org.springframework.xd.analytics.metrics.redis;
 
 import java.lang.reflect.ParameterizedType;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import org.springframework.data.redis.connection.DataType;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.ValueOperations;
@@ -16,7 +18,8 @@ import org.springframework.xd.analytics.metrics.core.MetricRepository;
 /**
  * Common base functionality for Redis implementations.
  * 
- * Only handles single values (not lists, maps etc).
+ * Only handles single values (not lists, maps etc). The names of the metrics are tracked with a {@link MetricNameIndex},
+ * so that they can be listed without scanning the keyspace.
  * 
  * @author Luke Taylor
  */
@@ -38,6 +41,8 @@ abstract class AbstractRedisMetricRepository<M extends Metric, V> implements Met
 
 	private final RedisOperations<String, V> redisOperations;
 
+	private final MetricNameIndex nameIndex;
+
 	@SuppressWarnings("unchecked")
 	AbstractRedisMetricRepository(RedisConnectionFactory connectionFactory, String metricPrefix) {
 		Assert.notNull(connectionFactory);
@@ -47,13 +52,19 @@ abstract class AbstractRedisMetricRepository<M extends Metric, V> implements Met
 		Class<V> valueClass = (Class<V>) parameterizedType.getActualTypeArguments()[1];
 		this.redisOperations = RedisUtils.createRedisTemplate(connectionFactory, valueClass);
 		this.valueOperations = redisOperations.opsForValue();
+		this.nameIndex = new MetricNameIndex(connectionFactory, metricPrefix, DataType.STRING);
+	}
+
+	MetricNameIndex getNameIndex() {
+		return nameIndex;
 	}
 
 	@Override
 	public void deleteAll() {
-		Set<String> keys = redisOperations.keys(metricPrefix + "*");
-		if (keys.size() > 0) {
-			redisOperations.delete(keys);
+		Set<String> names = nameIndex.names();
+		if (names.size() > 0) {
+			redisOperations.delete(getMetricKeys(names));
+			nameIndex.remove(names);
 		}
 	}
 
@@ -86,10 +97,19 @@ abstract class AbstractRedisMetricRepository<M extends Metric, V> implements Met
 		return metricPrefix + metricName;
 	}
 
+	private List<String> getMetricKeys(Iterable<String> metricNames) {
+		List<String> keys = new ArrayList<String>();
+		for (String name : metricNames) {
+			keys.add(getMetricKey(name));
+		}
+		return keys;
+	}
+
 	@Override
 	public <S extends M> S save(S metric) {
 		String metricKey = getMetricKey(metric.getName());
 		valueOperations.set(metricKey, value(metric));
+		nameIndex.add(metric.getName());
 		return metric;
 	}
 
@@ -106,12 +126,13 @@ abstract class AbstractRedisMetricRepository<M extends Metric, V> implements Met
 	public void delete(String name) {
 		Assert.notNull(name, "The name of the metric must not be null");
 		this.redisOperations.delete(getMetricKey(name));
+		this.nameIndex.remove(name);
 	}
 
 	@Override
 	public void delete(M metric) {
 		Assert.notNull(metric, "The metric must not be null");
-		this.redisOperations.delete(getMetricKey(metric.getName()));
+		delete(metric.getName());
 	}
 
 	@Override
@@ -141,30 +162,24 @@ abstract class AbstractRedisMetricRepository<M extends Metric, V> implements Met
 
 	@Override
 	public List<M> findAll() {
-		List<M> gauges = new ArrayList<M>();
-		// TODO asking for keys is not recommended. See http://redis.io/commands/keys
-		// Need to keep track of created instances explicitly.
-		Set<String> keys = this.redisOperations.keys(this.metricPrefix + "*");
-		for (String key : keys) {
-			if (!key.matches(metricPrefix + ".+?_\\d{4}\\.\\d{2}\\.\\d{2}-\\d{2}:\\d{2}")) {
-				V value = this.valueOperations.get(key);
-				String name = key.substring(metricPrefix.length());
-				M m = create(name, value);
-				gauges.add(m);
-			}
-		}
-		return gauges;
-
+		return findAll(nameIndex.names());
 	}
 
+	/**
+	 * Read the metrics with the given names with a single MGET, skipping those that do not exist.
+	 */
 	@Override
-	public Iterable<M> findAll(Iterable<String> keys) {
+	public List<M> findAll(Iterable<String> names) {
 		List<M> results = new ArrayList<M>();
-
-		for (String k : keys) {
-			M value = findOne(k);
+		List<String> keys = getMetricKeys(names);
+		if (keys.isEmpty()) {
+			return results;
+		}
+		Iterator<String> namesIt = names.iterator();
+		for (V value : this.valueOperations.multiGet(keys)) {
+			String name = namesIt.next();
 			if (value != null) {
-				results.add(value);
+				results.add(create(name, value));
 			}
 		}
 		return results;
@@ -172,6 +187,6 @@ abstract class AbstractRedisMetricRepository<M extends Metric, V> implements Met
 
 	@Override
 	public long count() {
-		return findAll().size();
+		return nameIndex.size();
 	}
 }
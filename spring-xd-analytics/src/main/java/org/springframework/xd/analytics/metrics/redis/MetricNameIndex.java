@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.redis;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.util.StringUtils;
+
+/**
+ * Tracks the names of the metrics a repository stores under a common key prefix, so that they can be listed without
+ * the KEYS command, which blocks the server for the length of a scan of the whole keyspace. As in
+ * {@link org.springframework.xd.store.AbstractRedisRepository}, the names are kept in a sorted set with a dummy score;
+ * the set is stored under the key prefix stripped of its trailing dot, e.g. {@code gauges} for {@code gauges.}.
+ * <p>
+ * Metrics written by earlier versions, which did not track names, are added the first time the names are read. The
+ * keyspace is then walked with SCAN, one step per Lua script call, which requires Redis 2.8 or later; with an earlier
+ * version such metrics are not listed. Once a scan completes, a marker key, e.g. {@code gauges:scanned}, is stored
+ * next to the set so that the keyspace is walked only once per store, rather than once per repository instance.
+ *
+ * @since 1.0
+ */
+final class MetricNameIndex {
+
+	private static final String FIRST_CURSOR = "0";
+
+	private static final int SCAN_COUNT = 1000;
+
+	private static final String SCANNED_SUFFIX = ":scanned";
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final StringRedisTemplate redisTemplate;
+
+	private final String metricPrefix;
+
+	private final String key;
+
+	private final String scannedKey;
+
+	private final DataType metricType;
+
+	@SuppressWarnings("rawtypes")
+	private final RedisScript<List> scanScript = createScanScript();
+
+	private volatile boolean scanned;
+
+	/**
+	 * @param connectionFactory the connection factory
+	 * @param metricPrefix the prefix of the keys of the metrics
+	 * @param metricType the type of the keys of the metrics
+	 */
+	MetricNameIndex(RedisConnectionFactory connectionFactory, String metricPrefix, DataType metricType) {
+		this.redisTemplate = new StringRedisTemplate(connectionFactory);
+		this.metricPrefix = metricPrefix;
+		this.key = StringUtils.trimTrailingCharacter(metricPrefix, '.');
+		this.scannedKey = key + SCANNED_SUFFIX;
+		this.metricType = metricType;
+	}
+
+	/**
+	 * @return the key of the sorted set holding the names
+	 */
+	String getKey() {
+		return key;
+	}
+
+	void add(String name) {
+		redisTemplate.opsForZSet().add(key, name, 0.0D);
+	}
+
+	void remove(String name) {
+		redisTemplate.opsForZSet().remove(key, name);
+	}
+
+	void remove(Collection<String> names) {
+		if (!names.isEmpty()) {
+			redisTemplate.opsForZSet().remove(key, names.toArray());
+		}
+	}
+
+	/**
+	 * @return the names of the metrics, in lexical order
+	 */
+	Set<String> names() {
+		scanIfNecessary();
+		return redisTemplate.opsForZSet().range(key, 0, -1);
+	}
+
+	/**
+	 * @return the number of metrics
+	 */
+	long size() {
+		scanIfNecessary();
+		return redisTemplate.opsForZSet().size(key);
+	}
+
+	private void scanIfNecessary() {
+		if (scanned) {
+			return;
+		}
+		synchronized (this) {
+			if (!scanned) {
+				try {
+					if (!redisTemplate.hasKey(scannedKey)) {
+						scan();
+						redisTemplate.opsForValue().set(scannedKey, Long.toString(System.currentTimeMillis()));
+					}
+				}
+				catch (DataAccessException e) {
+					logger.warn("Failed to scan for metrics stored under '" + metricPrefix
+							+ "' by an earlier version; they will not be listed", e);
+				}
+				scanned = true;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void scan() {
+		String cursor = FIRST_CURSOR;
+		do {
+			List<String> result = redisTemplate.execute(scanScript, Collections.singletonList(key), cursor,
+					metricPrefix, metricType.code(), Integer.toString(SCAN_COUNT));
+			cursor = result.get(0);
+			for (String name : result.subList(1, result.size())) {
+				add(name);
+			}
+		}
+		while (!FIRST_CURSOR.equals(cursor));
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static RedisScript<List> createScanScript() {
+		DefaultRedisScript<List> script = new DefaultRedisScript<List>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource("metric-index-scan.lua",
+				MetricNameIndex.class)));
+		script.setResultType(List.class);
+		return script;
+	}
+
+}
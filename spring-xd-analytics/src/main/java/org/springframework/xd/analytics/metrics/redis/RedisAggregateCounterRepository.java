@@ -17,19 +17,31 @@
 package org.springframework.xd.analytics.metrics.redis;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.joda.time.*;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.AggregateCount;
 import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
@@ -39,17 +51,38 @@ import org.springframework.xd.analytics.metrics.core.MetricUtils;
 /**
  * Redis implementation of {@link AggregateCounterRepository}. Subclasses and intercepts calls to
  * {@link RedisCounterRepository} to also track counts in various redis hashes.
+ * <p>
+ * An increment updates all the hashes, the bookkeeping set and the total count with a single Lua script, so it costs
+ * one round trip and is applied atomically. This requires Redis 2.6 or later.
+ * <p>
+ * The minute and hour counts can be set to expire, so that long lived counters use a bounded amount of memory: a hash
+ * of minute counts (or hour counts) expires a given number of seconds after its last minute (or hour) was first
+ * incremented. The sets tracking the hashes of each counter are then cleaned up periodically. Queries read all the
+ * hashes they need in a single pipeline.
  * 
  * @author Eric Bottard
  * @author Luke Taylor
  */
 @Qualifier("aggregate")
-public class RedisAggregateCounterRepository extends RedisCounterRepository implements AggregateCounterRepository {
+public class RedisAggregateCounterRepository extends RedisCounterRepository implements AggregateCounterRepository,
+		InitializingBean, DisposableBean {
 
 	protected HashOperations<String, String, Long> hashOperations;
 
 	protected SetOperations<String, String> setOperations;
 
+	private final RedisScript<Long> incrementScript = createIncrementScript();
+
+	private final RedisTemplate<String, String> hashTemplate;
+
+	private volatile long minuteCountsTtl;
+
+	private volatile long hourCountsTtl;
+
+	private volatile long pruneInterval = 3600000;
+
+	private volatile ThreadPoolTaskScheduler pruneScheduler;
+
 	/**
 	 * @param redisConnectionFactory
 	 */
@@ -64,6 +97,87 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		redisTemplate.afterPropertiesSet();
 		hashOperations = redisTemplate.opsForHash();
 		setOperations = redisTemplate.opsForSet();
+		hashTemplate = redisTemplate;
+	}
+
+	/**
+	 * Set the number of seconds for which minute counts are kept after the last minute of their hour was first
+	 * incremented. Default 0, to keep them forever.
+	 */
+	public void setMinuteCountsTtl(long minuteCountsTtl) {
+		Assert.isTrue(minuteCountsTtl >= 0, "'minuteCountsTtl' cannot be negative");
+		this.minuteCountsTtl = minuteCountsTtl;
+	}
+
+	/**
+	 * Set the number of seconds for which hour counts are kept after the last hour of their day was first
+	 * incremented. Default 0, to keep them forever.
+	 */
+	public void setHourCountsTtl(long hourCountsTtl) {
+		Assert.isTrue(hourCountsTtl >= 0, "'hourCountsTtl' cannot be negative");
+		this.hourCountsTtl = hourCountsTtl;
+	}
+
+	/**
+	 * Set the interval in milliseconds at which expired hashes are removed from the sets tracking the hashes of each
+	 * counter, when a TTL is set. Default one hour.
+	 */
+	public void setPruneInterval(long pruneInterval) {
+		Assert.isTrue(pruneInterval > 0, "'pruneInterval' must be positive");
+		this.pruneInterval = pruneInterval;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (minuteCountsTtl > 0 || hourCountsTtl > 0) {
+			pruneScheduler = new ThreadPoolTaskScheduler();
+			pruneScheduler.setThreadNamePrefix("aggregate-counter-pruner-");
+			pruneScheduler.afterPropertiesSet();
+			pruneScheduler.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					pruneExpiredCounts();
+				}
+			}, pruneInterval);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (pruneScheduler != null) {
+			pruneScheduler.destroy();
+		}
+	}
+
+	/**
+	 * Remove the hashes that have expired from the sets tracking the hashes of each counter.
+	 */
+	public void pruneExpiredCounts() {
+		for (String counterKey : zSetOperations.range(0, -1)) {
+			String bookkeepingKey = bookkeepingKeyFor(idFromRedisKey(counterKey));
+			final List<String> keys = new ArrayList<String>(setOperations.members(bookkeepingKey));
+			List<Object> exist = hashTemplate.executePipelined(new RedisCallback<Object>() {
+
+				@Override
+				public Object doInRedis(RedisConnection connection) throws DataAccessException {
+					StringRedisSerializer serializer = new StringRedisSerializer();
+					for (String key : keys) {
+						connection.exists(serializer.serialize(key));
+					}
+					return null;
+				}
+			});
+			List<String> expired = new ArrayList<String>();
+			for (int i = 0; i < keys.size(); i++) {
+				if (Boolean.FALSE.equals(exist.get(i))) {
+					expired.add(keys.get(i));
+				}
+			}
+			if (!expired.isEmpty()) {
+				setOperations.remove(bookkeepingKey, expired.toArray());
+			}
+		}
 	}
 
 	@Override
@@ -75,15 +189,12 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 	public long increment(String name, long amount, DateTime dateTime) {
 		final AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, dateTime);
 
-		String bookkeepingKey = bookkeepingKeyFor(name);
-
-		doIncrementHash(akg.getYearsKey(), akg.getYear(), amount, bookkeepingKey);
-		doIncrementHash(akg.getYearKey(), akg.getMonth(), amount, bookkeepingKey);
-		doIncrementHash(akg.getMonthKey(), akg.getDay(), amount, bookkeepingKey);
-		doIncrementHash(akg.getDayKey(), akg.getHour(), amount, bookkeepingKey);
-		doIncrementHash(akg.getHourKey(), akg.getMinute(), amount, bookkeepingKey);
-
-		return super.increment(name, amount);
+		// the hashes are listed from the coarsest to the finest bucket, in the same order as their fields
+		List<String> keys = Arrays.asList(akg.getYearsKey(), akg.getYearKey(), akg.getMonthKey(), akg.getDayKey(),
+				akg.getHourKey(), bookkeepingKeyFor(name), getPrefix(), redisKeyFromId(name));
+		return redisOperations.execute(incrementScript, keys, String.valueOf(amount), akg.getYear(), akg.getMonth(),
+				akg.getDay(), akg.getHour(), akg.getMinute(), String.valueOf(hourCountsTtl),
+				String.valueOf(minuteCountsTtl));
 	}
 
 	/**
@@ -94,17 +205,15 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 	}
 
 	/**
-	 * Internally increments the given hash key, keeping track of created hash for a given counter, so they can be
-	 * cleaned up when needed.
+	 * Create the script incrementing the hashes of a counter, keeping track of created hashes for a given counter, so
+	 * they can be cleaned up when needed.
 	 */
-	private void doIncrementHash(String key, String hashKey, long amount, String bookkeepingKey) {
-		long newValue = hashOperations.increment(key, hashKey, amount);
-		// TODO: the following test does not necessarily mean that the hash
-		// is new, just that the key inside that hash is new. So we end up
-		// calling add more than needed
-		if (newValue == amount) {
-			setOperations.add(bookkeepingKey, key);
-		}
+	private static RedisScript<Long> createIncrementScript() {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<Long>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource("aggregate-counter-increment.lua",
+				RedisAggregateCounterRepository.class)));
+		script.setResultType(Long.class);
+		return script;
 	}
 
 	@Override
@@ -141,23 +250,25 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 			MutableDateTime dt = new MutableDateTime(interval.getStart());
 			dt.setRounding(c.hourOfDay());
 			Duration step = Duration.standardHours(1);
-			List<long[]> hours = new ArrayList<long[]>();
+			List<String> keys = new ArrayList<String>();
 			while (dt.isBefore(end)) {
-				hours.add(getMinCountsForHour(name, dt));
+				keys.add(new AggregateKeyGenerator(getPrefix(), name, dt).getHourKey());
 				dt.add(step);
 			}
+			List<long[]> hours = getCountsArrays(keys, Collections.nCopies(keys.size(), 60), false);
 			counts = MetricUtils.concatArrays(hours, interval.getStart().getMinuteOfHour(),
 					interval.toPeriod().toStandardMinutes().getMinutes() + 1);
 
 		}
 		else if (resolution == AggregateCountResolution.hour) {
 			DateTime cursor = new DateTime(c.dayOfMonth().roundFloor(interval.getStart().getMillis()));
-			List<long[]> days = new ArrayList<long[]>();
+			List<String> keys = new ArrayList<String>();
 			Duration step = Duration.standardHours(24);
 			while (cursor.isBefore(end)) {
-				days.add(getHourCountsForDay(name, cursor));
+				keys.add(new AggregateKeyGenerator(getPrefix(), name, cursor.toDateMidnight()).getDayKey());
 				cursor = cursor.plus(step);
 			}
+			List<long[]> days = getCountsArrays(keys, Collections.nCopies(keys.size(), 24), false);
 
 			counts = MetricUtils.concatArrays(days, interval.getStart().getHourOfDay(),
 					interval.toPeriod().toStandardHours().getHours() + 1);
@@ -168,12 +279,15 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 			DateTime endDay = new DateTime(c.dayOfYear().roundFloor(end.plusDays(1).getMillis()));
 			int nDays = Days.daysBetween(startDay, endDay).getDays();
 			DateTime cursor = new DateTime(c.monthOfYear().roundFloor(interval.getStart().getMillis()));
-			List<long[]> months = new ArrayList<long[]>();
+			List<String> keys = new ArrayList<String>();
+			List<Integer> sizes = new ArrayList<Integer>();
 			DateTime endMonth = new DateTime(c.monthOfYear().roundCeiling(interval.getEnd().plusMonths(1).getMillis()));
 			while (cursor.isBefore(endMonth)) {
-				months.add(getDayCountsForMonth(name, cursor));
+				keys.add(new AggregateKeyGenerator(getPrefix(), name, cursor.toDateMidnight()).getMonthKey());
+				sizes.add(cursor.dayOfMonth().getMaximumValue()); // Days in this month
 				cursor = cursor.plusMonths(1);
 			}
+			List<long[]> months = getCountsArrays(keys, sizes, true);
 
 			counts = MetricUtils.concatArrays(months, interval.getStart().getDayOfMonth() - 1, nDays);
 		}
@@ -182,12 +296,15 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 			DateTime endMonth = new DateTime(c.monthOfYear().roundFloor(end.plusMonths(1).getMillis()));
 			int nMonths = Months.monthsBetween(startMonth, endMonth).getMonths();
 			DateTime cursor = new DateTime(c.year().roundFloor(interval.getStartMillis()));
-			List<long[]> years = new ArrayList<long[]>();
+			List<String> keys = new ArrayList<String>();
+			List<Integer> sizes = new ArrayList<Integer>();
 			DateTime endYear = new DateTime(c.year().roundCeiling(interval.getEnd().plusYears(1).getMillis()));
 			while (cursor.isBefore(endYear)) {
-				years.add(getMonthCountsForYear(name, cursor));
+				keys.add(new AggregateKeyGenerator(getPrefix(), name, cursor).getYearKey());
+				sizes.add(cursor.monthOfYear().getMaximumValue()); // Months in this year
 				cursor = cursor.plusYears(1);
 			}
+			List<long[]> years = getCountsArrays(keys, sizes, true);
 
 			counts = MetricUtils.concatArrays(years, interval.getStart().getMonthOfYear() - 1, nMonths);
 		}
@@ -218,30 +335,28 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		return getEntries(akg.getYearsKey());
 	}
 
-	private long[] getMonthCountsForYear(String name, DateTime year) {
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, year);
-		return convertToArray(getEntries(akg.getYearKey()), year.monthOfYear().getMaximumValue(), true); // Months in this year
-	}
-
-	private long[] getDayCountsForMonth(String name, DateTime month) {
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, month.toDateMidnight());
-		return convertToArray(getEntries(akg.getMonthKey()), month.dayOfMonth().getMaximumValue(), true); // Days in this month
-	}
-
-	private long[] getHourCountsForDay(String name, DateTime day) {
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, day.toDateMidnight());
-		return convertToArray(getEntries(akg.getDayKey()), 24, false);
-	}
-
-	private long[] getMinCountsForHour(String name, ReadableDateTime dateTime) {
-		return getMinCountsForHour(name, dateTime.getYear(), dateTime.getMonthOfYear(), dateTime.getDayOfMonth(),
-				dateTime.getHourOfDay());
-	}
-
-	private long[] getMinCountsForHour(String name, int year, int month, int day, int hour) {
-		DateTime dt = new DateTime().withYear(year).withMonthOfYear(month).withDayOfMonth(day).withHourOfDay(hour);
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, dt);
-		return convertToArray(getEntries(akg.getHourKey()), 60, false);
+	/**
+	 * Read the given hashes in a single pipeline, converting each to an array of the corresponding size.
+	 */
+	private List<long[]> getCountsArrays(final List<String> keys, List<Integer> sizes, boolean unitOffset) {
+		List<Object> entries = hashTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				StringRedisSerializer serializer = new StringRedisSerializer();
+				for (String key : keys) {
+					connection.hGetAll(serializer.serialize(key));
+				}
+				return null;
+			}
+		});
+		List<long[]> arrays = new ArrayList<long[]>(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			@SuppressWarnings("unchecked")
+			Map<String, Long> map = (Map<String, Long>) entries.get(i);
+			arrays.add(convertToArray(map, sizes.get(i), unitOffset));
+		}
+		return arrays;
 	}
 
 	private Map<String, Long> getEntries(String key) {
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounter;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounterRepository;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
+
+/**
+ * Redis implementation of {@link CardinalityCounterRepository}. Each counter is stored as a string of its registers,
+ * one byte per register. Values are hashed on the client, and registers are raised by a Lua script, so that offering a
+ * value costs one round trip and concurrent updates are not lost. This requires Redis 2.6 or later. The names of the
+ * counters are tracked with a {@link MetricNameIndex}.
+ *
+ * @since 1.0
+ */
+public class RedisCardinalityCounterRepository implements CardinalityCounterRepository {
+
+	private final String metricPrefix;
+
+	private final StringRedisTemplate redisTemplate;
+
+	private final MetricNameIndex nameIndex;
+
+	private final RedisScript<Long> mergeScript = createMergeScript();
+
+	public RedisCardinalityCounterRepository(RedisConnectionFactory connectionFactory) {
+		this(connectionFactory, "cardinalitycounters.");
+	}
+
+	public RedisCardinalityCounterRepository(RedisConnectionFactory connectionFactory, String metricPrefix) {
+		Assert.notNull(connectionFactory);
+		Assert.hasText(metricPrefix, "metric prefix cannot be empty");
+		this.metricPrefix = metricPrefix;
+		redisTemplate = new StringRedisTemplate();
+		// avoids proxy
+		redisTemplate.setExposeConnection(true);
+		redisTemplate.setConnectionFactory(connectionFactory);
+		redisTemplate.afterPropertiesSet();
+		nameIndex = new MetricNameIndex(connectionFactory, metricPrefix, DataType.STRING);
+	}
+
+	@Override
+	public void offer(String name, String value) {
+		Assert.notNull(name, "The name of the counter must not be null");
+		Assert.notNull(value, "The value must not be null");
+		long hash = CardinalityCounter.hash(value);
+		raise(name, Arrays.asList(Integer.toString(CardinalityCounter.register(hash)),
+				Byte.toString(CardinalityCounter.rank(hash))));
+	}
+
+	/**
+	 * Read the counters to merge, merge them locally, then raise the registers of the named counter to those of the
+	 * result in a single script call.
+	 */
+	@Override
+	public void merge(String name, Iterable<String> sourceNames) {
+		Assert.notNull(name, "The name of the counter must not be null");
+		CardinalityCounter union = new CardinalityCounter(name);
+		for (CardinalityCounter source : findAll(sourceNames)) {
+			MetricUtils.mergeCardinalityCounter(union, source);
+		}
+		raise(name, nonZeroRegisters(union));
+	}
+
+	private void raise(String name, List<String> registersAndRanks) {
+		List<String> args = new ArrayList<String>(registersAndRanks.size() + 2);
+		args.add(name);
+		args.add(Integer.toString(CardinalityCounter.REGISTERS));
+		args.addAll(registersAndRanks);
+		redisTemplate.execute(mergeScript, Arrays.asList(getMetricKey(name), nameIndex.getKey()), args.toArray());
+	}
+
+	private static List<String> nonZeroRegisters(CardinalityCounter counter) {
+		List<String> registersAndRanks = new ArrayList<String>();
+		byte[] registers = counter.getRegisters();
+		for (int i = 0; i < registers.length; i++) {
+			if (registers[i] != 0) {
+				registersAndRanks.add(Integer.toString(i));
+				registersAndRanks.add(Byte.toString(registers[i]));
+			}
+		}
+		return registersAndRanks;
+	}
+
+	@Override
+	public <S extends CardinalityCounter> S save(final S counter) {
+		final byte[] key = rawKey(counter.getName());
+		redisTemplate.execute(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				connection.set(key, counter.getRegisters());
+				return null;
+			}
+		});
+		nameIndex.add(counter.getName());
+		return counter;
+	}
+
+	@Override
+	public <S extends CardinalityCounter> Iterable<S> save(Iterable<S> counters) {
+		List<S> results = new ArrayList<S>();
+		for (S c : counters) {
+			results.add(save(c));
+		}
+		return results;
+	}
+
+	@Override
+	public void delete(String name) {
+		Assert.notNull(name, "The name of the counter must not be null");
+		redisTemplate.delete(getMetricKey(name));
+		nameIndex.remove(name);
+	}
+
+	@Override
+	public void delete(CardinalityCounter counter) {
+		Assert.notNull(counter, "The counter must not be null");
+		delete(counter.getName());
+	}
+
+	@Override
+	public void delete(Iterable<? extends CardinalityCounter> counters) {
+		for (CardinalityCounter counter : counters) {
+			delete(counter);
+		}
+	}
+
+	@Override
+	public void deleteAll() {
+		Set<String> names = nameIndex.names();
+		if (names.size() > 0) {
+			List<String> keys = new ArrayList<String>(names.size());
+			for (String name : names) {
+				keys.add(getMetricKey(name));
+			}
+			redisTemplate.delete(keys);
+			nameIndex.remove(names);
+		}
+	}
+
+	@Override
+	public CardinalityCounter findOne(String name) {
+		Assert.notNull(name, "The name of the counter must not be null");
+		List<CardinalityCounter> counters = findAll(Arrays.asList(name));
+		return counters.isEmpty() ? null : counters.get(0);
+	}
+
+	@Override
+	public boolean exists(String name) {
+		return findOne(name) != null;
+	}
+
+	@Override
+	public List<CardinalityCounter> findAll() {
+		return findAll(nameIndex.names());
+	}
+
+	/**
+	 * Read the counters with the given names with a single MGET, skipping those that do not exist.
+	 */
+	@Override
+	public List<CardinalityCounter> findAll(Iterable<String> names) {
+		List<CardinalityCounter> counters = new ArrayList<CardinalityCounter>();
+		final List<byte[]> keys = new ArrayList<byte[]>();
+		for (String name : names) {
+			keys.add(rawKey(name));
+		}
+		if (keys.isEmpty()) {
+			return counters;
+		}
+		List<byte[]> values = redisTemplate.execute(new RedisCallback<List<byte[]>>() {
+
+			@Override
+			public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+				return connection.mGet(keys.toArray(new byte[keys.size()][]));
+			}
+		});
+		Iterator<String> namesIt = names.iterator();
+		for (byte[] registers : values) {
+			String name = namesIt.next();
+			if (registers != null) {
+				counters.add(new CardinalityCounter(name, registers));
+			}
+		}
+		return counters;
+	}
+
+	@Override
+	public long count() {
+		return nameIndex.size();
+	}
+
+	/**
+	 * Provides the key for a named metric. By default this appends the name to the metricPrefix value.
+	 *
+	 * @param metricName the name of the metric
+	 * @return the redis key under which the metric is stored
+	 */
+	protected String getMetricKey(String metricName) {
+		return metricPrefix + metricName;
+	}
+
+	private byte[] rawKey(String metricName) {
+		return redisTemplate.getStringSerializer().serialize(getMetricKey(metricName));
+	}
+
+	private static RedisScript<Long> createMergeScript() {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<Long>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource("cardinality-counter-merge.lua",
+				RedisCardinalityCounterRepository.class)));
+		script.setResultType(Long.class);
+		return script;
+	}
+
+}
@@ -2,20 +2,36 @@
 package org.springframework.xd.analytics.metrics.redis;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounter;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
 
+/**
+ * Redis implementation of {@link FieldValueCounterRepository}. Each counter is stored as a sorted set of its field
+ * values, scored by their counts. The names of the counters are tracked with a {@link MetricNameIndex}, so that they
+ * can be listed without scanning the keyspace; an increment updates the counter and the index with a single Lua script.
+ * The errors of the counts of counters that only track their top values are stored in a hash, under the key prefix
+ * prepended with {@code metric_meta.}.
+ */
 public class RedisFieldValueCounterRepository implements FieldValueCounterRepository {
 
 	private final String metricPrefix;
@@ -24,6 +40,12 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 
 	private static final String MARKER = "_marker_";
 
+	private final MetricNameIndex nameIndex;
+
+	private final RedisScript<Long> incrementScript = createScript("field-value-counter-increment.lua");
+
+	private final RedisScript<Long> incrementTopKScript = createScript("field-value-counter-increment-top-k.lua");
+
 	public RedisFieldValueCounterRepository(RedisConnectionFactory connectionFactory) {
 		this(connectionFactory, "fieldvaluecounters.");
 	}
@@ -37,6 +59,7 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		redisTemplate.setExposeConnection(true);
 		redisTemplate.setConnectionFactory(connectionFactory);
 		redisTemplate.afterPropertiesSet();
+		nameIndex = new MetricNameIndex(connectionFactory, metricPrefix, DataType.ZSET);
 	}
 
 	@Override
@@ -69,14 +92,14 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 	@Override
 	public void delete(String name) {
 		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
-		this.redisTemplate.delete(getMetricKey(name));
+		this.redisTemplate.delete(Arrays.asList(getMetricKey(name), getErrorsKey(name)));
+		this.nameIndex.remove(name);
 	}
 
 	@Override
 	public void delete(FieldValueCounter fieldValueCounter) {
 		Assert.notNull(fieldValueCounter, "The FieldValueCounter must not be null");
-		this.redisTemplate.delete(getMetricKey(fieldValueCounter.getName()));
-
+		delete(fieldValueCounter.getName());
 	}
 
 	@Override
@@ -92,7 +115,8 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		String metricKey = getMetricKey(name);
 		if (redisTemplate.hasKey(metricKey)) {
 			Map<String, Double> values = getZSetData(metricKey);
-			FieldValueCounter c = new FieldValueCounter(name, values);
+			Map<Object, Object> errors = redisTemplate.opsForHash().entries(getErrorsKey(name));
+			FieldValueCounter c = new FieldValueCounter(name, values, toDoubles(errors));
 			return c;
 		}
 		else {
@@ -107,73 +131,93 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 
 	@Override
 	public List<FieldValueCounter> findAll() {
-		List<FieldValueCounter> counters = new ArrayList<FieldValueCounter>();
-		// TODO asking for keys is not recommended. See
-		// http://redis.io/commands/keys
-		Set<String> keys = this.redisTemplate.keys(this.metricPrefix + "*");
-		for (String key : keys) {
-			// TODO remove this naming convention for minute aggregates
-			if (!key.matches(this.metricPrefix
-					+ ".+?_\\d{4}\\.\\d{2}\\.\\d{2}-\\d{2}:\\d{2}")) {
-				if (this.redisTemplate.type(key) == DataType.ZSET) {
-					Map<String, Double> values = getZSetData(key);
-					String name = key.substring(metricPrefix.length());
-					FieldValueCounter c = new FieldValueCounter(name, values);
-					counters.add(c);
-				}
-			}
-		}
-		return counters;
+		return findAll(nameIndex.names());
 	}
 
+	/**
+	 * Read the counters with the given names and their errors in a single pipeline, skipping those that do not exist.
+	 */
 	@Override
-	public Iterable<FieldValueCounter> findAll(Iterable<String> keys) {
-		List<FieldValueCounter> results = new ArrayList<FieldValueCounter>();
-
-		for (String k : keys) {
-			FieldValueCounter value = findOne(k);
-			if (value != null) {
-				results.add(value);
+	public List<FieldValueCounter> findAll(final Iterable<String> names) {
+		List<Object> results = this.redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+				for (String name : names) {
+					connection.zRangeWithScores(serializer.serialize(getMetricKey(name)), 0, -1);
+					connection.hGetAll(serializer.serialize(getErrorsKey(name)));
+				}
+				return null;
+			}
+		});
+		List<FieldValueCounter> counters = new ArrayList<FieldValueCounter>();
+		Iterator<Object> resultsIt = results.iterator();
+		for (String name : names) {
+			@SuppressWarnings("unchecked")
+			Set<TypedTuple<String>> rangeWithScore = (Set<TypedTuple<String>>) resultsIt.next();
+			@SuppressWarnings("unchecked")
+			Map<Object, Object> errors = (Map<Object, Object>) resultsIt.next();
+			// a counter that does not exist reads as an empty set
+			if (!rangeWithScore.isEmpty()) {
+				counters.add(new FieldValueCounter(name, toMap(rangeWithScore), toDoubles(errors)));
 			}
 		}
-		return results;
+		return counters;
 	}
 
 	@Override
 	public long count() {
-		return findAll().size();
+		return nameIndex.size();
 	}
 
 	@Override
 	public void deleteAll() {
-		Set<String> keys = redisTemplate.keys(metricPrefix + "*");
-		if (keys.size() > 0) {
+		Set<String> names = nameIndex.names();
+		if (names.size() > 0) {
+			List<String> keys = new ArrayList<String>(2 * names.size());
+			for (String name : names) {
+				keys.add(getMetricKey(name));
+				keys.add(getErrorsKey(name));
+			}
 			redisTemplate.delete(keys);
+			nameIndex.remove(names);
 		}
 	}
 
 	@Override
 	public void increment(String counterName, String fieldName) {
-		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, 1.0);
+		increment(counterName, fieldName, 1.0);
 	}
 
+	@Override
 	public void increment(String counterName, String fieldName, double score) {
-		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, score);
+		redisTemplate.execute(incrementScript, Arrays.asList(getMetricKey(counterName), nameIndex.getKey()),
+				fieldName, Double.toString(score), counterName);
+	}
+
+	@Override
+	public void incrementTopK(String counterName, String fieldName, double score, int capacity) {
+		Assert.isTrue(capacity > 0, "capacity must be positive");
+		Assert.isTrue(score >= 0, "score cannot be negative");
+		redisTemplate.execute(incrementTopKScript,
+				Arrays.asList(getMetricKey(counterName), getErrorsKey(counterName), nameIndex.getKey()),
+				fieldName, Double.toString(score), counterName, Integer.toString(capacity));
 	}
 
 	@Override
 	public void decrement(String counterName, String fieldName) {
-		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, -1.0);
+		increment(counterName, fieldName, -1.0);
 	}
 
 
 	public void decrement(String counterName, String fieldName, double score) {
-		redisTemplate.boundZSetOps(getMetricKey(counterName)).incrementScore(fieldName, -score);
+		increment(counterName, fieldName, -score);
 	}
-
 	@Override
 	public void reset(String counterName, String fieldName) {
 		redisTemplate.boundZSetOps(getMetricKey(counterName)).remove(fieldName);
+		redisTemplate.opsForHash().delete(getErrorsKey(counterName), fieldName);
 	}
 
 
@@ -187,10 +231,18 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		return metricPrefix + metricName;
 	}
 
+	private String getErrorsKey(String metricName) {
+		return "metric_meta." + metricPrefix + metricName;
+	}
+
 	protected Map<String, Double> getZSetData(String counterKey) {
 		// TODO directly serialize into a Map vs Set of TypedTuples to avoid extra copy
 		Set<TypedTuple<String>> rangeWithScore = this.redisTemplate
 				.boundZSetOps(counterKey).rangeWithScores(0, -1);
+		return toMap(rangeWithScore);
+	}
+
+	private static Map<String, Double> toMap(Set<TypedTuple<String>> rangeWithScore) {
 		Map<String, Double> values = new HashMap<String, Double>(
 				rangeWithScore.size());
 		for (Iterator<TypedTuple<String>> iterator = rangeWithScore.iterator(); iterator
@@ -203,4 +255,20 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		return values;
 	}
 
+	private static Map<String, Double> toDoubles(Map<Object, Object> map) {
+		Map<String, Double> values = new HashMap<String, Double>(map.size());
+		for (Map.Entry<Object, Object> entry : map.entrySet()) {
+			values.put((String) entry.getKey(), Double.valueOf((String) entry.getValue()));
+		}
+		return values;
+	}
+
+	private static RedisScript<Long> createScript(String name) {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<Long>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource(name,
+				RedisFieldValueCounterRepository.class)));
+		script.setResultType(Long.class);
+		return script;
+	}
+
 }
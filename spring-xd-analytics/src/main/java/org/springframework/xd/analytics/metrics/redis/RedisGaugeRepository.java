@@ -16,7 +16,13 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import java.util.Arrays;
+
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.xd.analytics.metrics.core.Gauge;
 import org.springframework.xd.analytics.metrics.core.GaugeRepository;
 
@@ -29,6 +35,8 @@ import org.springframework.xd.analytics.metrics.core.GaugeRepository;
 public class RedisGaugeRepository extends AbstractRedisMetricRepository<Gauge, Long>
 		implements GaugeRepository {
 
+	private final RedisScript<Long> setValueScript = createSetValueScript();
+
 	public RedisGaugeRepository(RedisConnectionFactory connectionFactory) {
 		this(connectionFactory, "gauges.");
 	}
@@ -55,12 +63,21 @@ public class RedisGaugeRepository extends AbstractRedisMetricRepository<Gauge, L
 
 	@Override
 	public void setValue(String name, long value) {
-		getValueOperations().set(getMetricKey(name), value);
+		getRedisOperations().execute(setValueScript,
+				Arrays.asList(getMetricKey(name), getNameIndex().getKey()), value, name);
 	}
 
 	@Override
 	public void reset(String name) {
-		getValueOperations().set(getMetricKey(name), 0L);
+		setValue(name, 0L);
+	}
+
+	private static RedisScript<Long> createSetValueScript() {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<Long>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource("gauge-set-value.lua",
+				RedisGaugeRepository.class)));
+		script.setResultType(Long.class);
+		return script;
 	}
 
 }
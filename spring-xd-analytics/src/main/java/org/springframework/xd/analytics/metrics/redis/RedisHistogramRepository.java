@@ -0,0 +1,322 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.Histogram;
+import org.springframework.xd.analytics.metrics.core.HistogramRepository;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
+
+/**
+ * Redis implementation of {@link HistogramRepository}. Each histogram is stored as a hash of its counts by bucket, which
+ * a Lua script increments along with the hash of the current minute, so that recording a value costs one round trip.
+ * The hashes of the minutes are stored under the key prefix prepended with {@code metric_meta.} and expire once they
+ * are older than the retention. The names of the histograms are tracked with a {@link MetricNameIndex}.
+ *
+ * @since 1.0
+ */
+public class RedisHistogramRepository implements HistogramRepository {
+
+	private static final String MARKER = "_marker_";
+
+	private final String metricPrefix;
+
+	private final StringRedisTemplate redisTemplate;
+
+	private final MetricNameIndex nameIndex;
+
+	private final RedisScript<Long> recordScript = createRecordScript();
+
+	private volatile int windowRetention = 60;
+
+	public RedisHistogramRepository(RedisConnectionFactory connectionFactory) {
+		this(connectionFactory, "histograms.");
+	}
+
+	public RedisHistogramRepository(RedisConnectionFactory connectionFactory, String metricPrefix) {
+		Assert.notNull(connectionFactory);
+		Assert.hasText(metricPrefix, "metric prefix cannot be empty");
+		this.metricPrefix = metricPrefix;
+		redisTemplate = new StringRedisTemplate();
+		// avoids proxy
+		redisTemplate.setExposeConnection(true);
+		redisTemplate.setConnectionFactory(connectionFactory);
+		redisTemplate.afterPropertiesSet();
+		nameIndex = new MetricNameIndex(connectionFactory, metricPrefix, DataType.HASH);
+	}
+
+	/**
+	 * @param windowRetention the number of minutes for which the histograms of each minute are kept
+	 */
+	public void setWindowRetention(int windowRetention) {
+		Assert.isTrue(windowRetention > 0, "windowRetention must be positive");
+		this.windowRetention = windowRetention;
+	}
+
+	@Override
+	public void record(String name, long value) {
+		record(name, value, new DateTime());
+	}
+
+	@Override
+	public void record(String name, long value, DateTime time) {
+		Assert.notNull(name, "The name of the histogram must not be null");
+		Assert.isTrue(value >= 0, "A histogram only records non-negative values");
+		add(name, getWindowKey(name, minute(time)), Arrays.asList(Integer.toString(Histogram.bucket(value)), "1"));
+	}
+
+	/**
+	 * Read the histograms to merge, merge them locally, then add the counts of the result to the named histogram in a
+	 * single script call.
+	 */
+	@Override
+	public void merge(String name, Iterable<String> sourceNames) {
+		Assert.notNull(name, "The name of the histogram must not be null");
+		Histogram union = new Histogram(name);
+		for (Histogram source : findAll(sourceNames)) {
+			MetricUtils.mergeHistogram(union, source);
+		}
+		add(name, null, toArgs(union));
+	}
+
+	private void add(String name, String windowKey, List<String> bucketsAndCounts) {
+		List<String> keys = new ArrayList<String>(3);
+		keys.add(getMetricKey(name));
+		keys.add(nameIndex.getKey());
+		if (windowKey != null) {
+			keys.add(windowKey);
+		}
+		List<String> args = new ArrayList<String>(bucketsAndCounts.size() + 2);
+		args.add(name);
+		args.add(Integer.toString((windowRetention + 1) * 60));
+		args.addAll(bucketsAndCounts);
+		redisTemplate.execute(recordScript, keys, args.toArray());
+	}
+
+	private static List<String> toArgs(Histogram histogram) {
+		List<String> bucketsAndCounts = new ArrayList<String>();
+		for (Map.Entry<Integer, Long> entry : histogram.getCounts().entrySet()) {
+			bucketsAndCounts.add(entry.getKey().toString());
+			bucketsAndCounts.add(entry.getValue().toString());
+		}
+		return bucketsAndCounts;
+	}
+
+	@Override
+	public Histogram findRecent(final String name, int minutes) {
+		Assert.notNull(name, "The name of the histogram must not be null");
+		Assert.isTrue(minutes > 0, "minutes must be positive");
+		long now = minute(new DateTime());
+		final List<String> windowKeys = new ArrayList<String>();
+		for (long minute = now - Math.min(minutes, windowRetention) + 1; minute <= now; minute++) {
+			windowKeys.add(getWindowKey(name, minute));
+		}
+		List<Object> results = redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+				connection.exists(serializer.serialize(getMetricKey(name)));
+				for (String key : windowKeys) {
+					connection.hGetAll(serializer.serialize(key));
+				}
+				return null;
+			}
+		});
+		if (!Boolean.TRUE.equals(results.get(0))) {
+			return null;
+		}
+		Histogram result = new Histogram(name);
+		for (Object counts : results.subList(1, results.size())) {
+			@SuppressWarnings("unchecked")
+			Map<Object, Object> map = (Map<Object, Object>) counts;
+			MetricUtils.mergeHistogram(result, new Histogram(name, toCounts(map)));
+		}
+		return result;
+	}
+
+	@Override
+	public <S extends Histogram> S save(S histogram) {
+		redisTemplate.delete(getMetricKey(histogram.getName()));
+		add(histogram.getName(), null, toArgs(histogram));
+		return histogram;
+	}
+
+	@Override
+	public <S extends Histogram> Iterable<S> save(Iterable<S> histograms) {
+		List<S> results = new ArrayList<S>();
+		for (S h : histograms) {
+			results.add(save(h));
+		}
+		return results;
+	}
+
+	@Override
+	public void delete(String name) {
+		Assert.notNull(name, "The name of the histogram must not be null");
+		redisTemplate.delete(getKeys(Collections.singleton(name)));
+		nameIndex.remove(name);
+	}
+
+	@Override
+	public void delete(Histogram histogram) {
+		Assert.notNull(histogram, "The histogram must not be null");
+		delete(histogram.getName());
+	}
+
+	@Override
+	public void delete(Iterable<? extends Histogram> histograms) {
+		for (Histogram histogram : histograms) {
+			delete(histogram);
+		}
+	}
+
+	@Override
+	public void deleteAll() {
+		Set<String> names = nameIndex.names();
+		if (names.size() > 0) {
+			redisTemplate.delete(getKeys(names));
+			nameIndex.remove(names);
+		}
+	}
+
+	/**
+	 * @return the keys of the histograms with the given names and of their retained minutes
+	 */
+	private List<String> getKeys(Set<String> names) {
+		long now = minute(new DateTime());
+		List<String> keys = new ArrayList<String>();
+		for (String name : names) {
+			keys.add(getMetricKey(name));
+			for (long minute = now - windowRetention; minute <= now; minute++) {
+				keys.add(getWindowKey(name, minute));
+			}
+		}
+		return keys;
+	}
+
+	@Override
+	public Histogram findOne(String name) {
+		Assert.notNull(name, "The name of the histogram must not be null");
+		List<Histogram> histograms = findAll(Collections.singletonList(name));
+		return histograms.isEmpty() ? null : histograms.get(0);
+	}
+
+	@Override
+	public boolean exists(String name) {
+		return findOne(name) != null;
+	}
+
+	@Override
+	public List<Histogram> findAll() {
+		return findAll(nameIndex.names());
+	}
+
+	/**
+	 * Read the histograms with the given names in a single pipeline, skipping those that do not exist.
+	 */
+	@Override
+	public List<Histogram> findAll(final Iterable<String> names) {
+		List<Object> results = redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+				for (String name : names) {
+					connection.hGetAll(serializer.serialize(getMetricKey(name)));
+				}
+				return null;
+			}
+		});
+		List<Histogram> histograms = new ArrayList<Histogram>();
+		Iterator<Object> resultsIt = results.iterator();
+		for (String name : names) {
+			@SuppressWarnings("unchecked")
+			Map<Object, Object> counts = (Map<Object, Object>) resultsIt.next();
+			// a histogram that does not exist reads as an empty hash
+			if (!counts.isEmpty()) {
+				histograms.add(new Histogram(name, toCounts(counts)));
+			}
+		}
+		return histograms;
+	}
+
+	@Override
+	public long count() {
+		return nameIndex.size();
+	}
+
+	/**
+	 * Provides the key for a named metric. By default this appends the name to the metricPrefix value.
+	 *
+	 * @param metricName the name of the metric
+	 * @return the redis key under which the metric is stored
+	 */
+	protected String getMetricKey(String metricName) {
+		return metricPrefix + metricName;
+	}
+
+	private String getWindowKey(String metricName, long minute) {
+		return "metric_meta." + metricPrefix + metricName + "." + minute;
+	}
+
+	private static long minute(DateTime time) {
+		return time.getMillis() / DateTimeConstants.MILLIS_PER_MINUTE;
+	}
+
+	private static Map<Integer, Long> toCounts(Map<Object, Object> map) {
+		Map<Integer, Long> counts = new HashMap<Integer, Long>(map.size());
+		for (Map.Entry<Object, Object> entry : map.entrySet()) {
+			if (!MARKER.equals(entry.getKey())) {
+				counts.put(Integer.valueOf((String) entry.getKey()), Long.valueOf((String) entry.getValue()));
+			}
+		}
+		return counts;
+	}
+
+	private static RedisScript<Long> createRecordScript() {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<Long>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource("histogram-record.lua",
+				RedisHistogramRepository.class)));
+		script.setResultType(Long.class);
+		return script;
+	}
+
+}
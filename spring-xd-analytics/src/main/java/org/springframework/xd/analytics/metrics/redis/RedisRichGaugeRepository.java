@@ -16,13 +16,23 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import java.util.Arrays;
+
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.util.StringUtils;
 import org.springframework.xd.analytics.metrics.core.MetricUtils;
 import org.springframework.xd.analytics.metrics.core.RichGauge;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 
 /**
+ * Redis implementation of {@link RichGaugeRepository}. Each gauge is stored as a space delimited string of its value,
+ * alpha, average, max, min and count. New values are applied by a Lua script, so that setting a value costs one round
+ * trip and concurrent updates are not lost. This requires Redis 2.6 or later.
+ * 
  * @author Luke Taylor
  */
 public final class RedisRichGaugeRepository extends
@@ -30,6 +40,8 @@ public final class RedisRichGaugeRepository extends
 
 	private static final String ZERO = serialize(new RichGauge("zero"));
 
+	private final RedisScript<Long> setValueScript = createSetValueScript();
+
 	public RedisRichGaugeRepository(RedisConnectionFactory connectionFactory) {
 		super(connectionFactory, "richgauges.");
 	}
@@ -45,13 +57,16 @@ public final class RedisRichGaugeRepository extends
 
 	@Override
 	public void setValue(String name, double value) {
-		String key = getMetricKey(name);
-		RichGauge g = findOne(name);
-		if (g == null) {
-			g = new RichGauge(name);
-		}
-		MetricUtils.setRichGaugeValue(g, value);
-		getValueOperations().set(key, serialize(g));
+		getRedisOperations().execute(setValueScript,
+				Arrays.asList(getMetricKey(name), getNameIndex().getKey()), Double.toString(value), name);
+	}
+
+	private static RedisScript<Long> createSetValueScript() {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<Long>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource("rich-gauge-set-value.lua",
+				RedisRichGaugeRepository.class)));
+		script.setResultType(Long.class);
+		return script;
 	}
 
 	@Override
@@ -88,5 +103,6 @@ public final class RedisRichGaugeRepository extends
 	@Override
 	public void reset(String name) {
 		getValueOperations().set(getMetricKey(name), ZERO);
+		getNameIndex().add(name);
 	}
 }
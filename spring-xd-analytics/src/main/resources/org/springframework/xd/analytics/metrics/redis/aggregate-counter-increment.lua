@@ -0,0 +1,20 @@
+-- Increments an aggregate counter in one atomic step.
+-- KEYS[1..5]: the years, year, month, day and hour hashes
+-- KEYS[6]: the set tracking the hashes used by the counter
+-- KEYS[7]: the sorted set tracking the counters of the repository
+-- KEYS[8]: the total count
+-- ARGV[1]: the amount; ARGV[2..6]: the year, month, day, hour and minute fields
+-- ARGV[7], ARGV[8]: the seconds after which the day and hour hashes, holding the hour and minute counts, expire once
+-- their last field was created; 0 to keep them
+local amount = tonumber(ARGV[1])
+local ttls = { [4] = tonumber(ARGV[7]), [5] = tonumber(ARGV[8]) }
+for i = 1, 5 do
+	if redis.call('HINCRBY', KEYS[i], ARGV[i + 1], ARGV[1]) == amount then
+		redis.call('SADD', KEYS[6], KEYS[i])
+		if ttls[i] and ttls[i] > 0 then
+			redis.call('EXPIRE', KEYS[i], ttls[i])
+		end
+	end
+end
+redis.call('ZADD', KEYS[7], 0, KEYS[8])
+return redis.call('INCRBY', KEYS[8], ARGV[1])
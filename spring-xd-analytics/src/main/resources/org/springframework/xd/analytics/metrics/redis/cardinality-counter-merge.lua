@@ -0,0 +1,21 @@
+-- Raises registers of a cardinality counter to the given ranks, creating the counter if necessary.
+-- Only the registers being raised are read, so the counter is never copied into the script as a whole.
+-- KEYS[1]: the counter, stored as a string of one byte per register
+-- KEYS[2]: the sorted set tracking the counters of the repository
+-- ARGV[1]: the name of the counter; ARGV[2]: the number of registers of a counter
+-- ARGV[3], ARGV[4], ...: pairs of the index of a register and a rank
+if redis.call('STRLEN', KEYS[1]) == 0 then
+	-- SETRANGE pads the new string with zero bytes up to the last register
+	redis.call('SETRANGE', KEYS[1], tonumber(ARGV[2]) - 1, string.char(0))
+	redis.call('ZADD', KEYS[2], 0, ARGV[1])
+end
+local raised = 0
+for i = 3, #ARGV, 2 do
+	local register = tonumber(ARGV[i])
+	local rank = tonumber(ARGV[i + 1])
+	if rank > string.byte(redis.call('GETRANGE', KEYS[1], register, register)) then
+		redis.call('SETRANGE', KEYS[1], register, string.char(rank))
+		raised = raised + 1
+	end
+end
+return raised
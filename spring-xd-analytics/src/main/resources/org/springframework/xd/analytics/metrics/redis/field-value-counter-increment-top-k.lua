@@ -0,0 +1,18 @@
+-- Increments the count of a field value in a counter that tracks at most a given number of values, with the
+-- Space-Saving algorithm, and tracks the name of the counter in one step.
+-- KEYS[1]: the counter, a sorted set of field values
+-- KEYS[2]: the hash of the errors of the counts of the field values
+-- KEYS[3]: the sorted set tracking the counters of the repository
+-- ARGV[1]: the field value; ARGV[2]: the amount; ARGV[3]: the name of the counter; ARGV[4]: the capacity
+local amount = tonumber(ARGV[2])
+if not redis.call('ZSCORE', KEYS[1], ARGV[1]) and redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[4]) then
+	-- replace the value with the lowest count, which becomes the error of the new value
+	local min = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+	redis.call('ZREM', KEYS[1], min[1])
+	redis.call('HDEL', KEYS[2], min[1])
+	redis.call('HSET', KEYS[2], ARGV[1], min[2])
+	amount = amount + tonumber(min[2])
+end
+-- 17 significant digits are enough for the doubles to be read back exactly
+redis.call('ZINCRBY', KEYS[1], string.format('%.17g', amount), ARGV[1])
+return redis.call('ZADD', KEYS[3], 0, ARGV[3])
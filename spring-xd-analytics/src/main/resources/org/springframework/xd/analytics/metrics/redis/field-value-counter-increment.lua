@@ -0,0 +1,6 @@
+-- Increments the count of a field value and tracks the name of the counter in one step.
+-- KEYS[1]: the counter, a sorted set of field values
+-- KEYS[2]: the sorted set tracking the counters of the repository
+-- ARGV[1]: the field value; ARGV[2]: the amount; ARGV[3]: the name of the counter
+redis.call('ZINCRBY', KEYS[1], ARGV[2], ARGV[1])
+return redis.call('ZADD', KEYS[2], 0, ARGV[3])
@@ -0,0 +1,6 @@
+-- Sets the value of a gauge and tracks its name in one step.
+-- KEYS[1]: the gauge
+-- KEYS[2]: the sorted set tracking the gauges of the repository
+-- ARGV[1]: the new value; ARGV[2]: the name of the gauge
+redis.call('SET', KEYS[1], ARGV[1])
+return redis.call('ZADD', KEYS[2], 0, ARGV[2])
@@ -0,0 +1,19 @@
+-- Adds counts to the buckets of a histogram and, optionally, of the histogram of a minute, and tracks the name of the
+-- histogram in one step.
+-- KEYS[1]: the histogram, a hash of counts by bucket
+-- KEYS[2]: the sorted set tracking the histograms of the repository
+-- KEYS[3]: optional, the histogram of a minute, which expires
+-- ARGV[1]: the name of the histogram; ARGV[2]: the seconds after which the histogram of the minute expires
+-- ARGV[3], ARGV[4], ...: pairs of a bucket and a count
+for i = 3, #ARGV, 2 do
+	redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+	if KEYS[3] then
+		redis.call('HINCRBY', KEYS[3], ARGV[i], ARGV[i + 1])
+	end
+end
+if KEYS[3] then
+	redis.call('EXPIRE', KEYS[3], ARGV[2])
+end
+-- a hash cannot be empty, so a histogram without counts holds a marker
+redis.call('HSETNX', KEYS[1], '_marker_', 0)
+return redis.call('ZADD', KEYS[2], 0, ARGV[1])
@@ -0,0 +1,17 @@
+-- Performs one step of a SCAN of the keyspace for the metrics stored under a key prefix, so that metrics written
+-- before their names were tracked can be added to the tracking set without blocking the server for a full scan.
+-- This script only reads; SCAN is not deterministic, so writes are left to the caller.
+-- KEYS[1]: the sorted set tracking the metrics of the repository, which is not itself a metric
+-- ARGV[1]: the cursor; ARGV[2]: the key prefix; ARGV[3]: the type of the metric keys; ARGV[4]: the SCAN count
+-- Returns the cursor to continue from ("0" once the scan is complete), followed by the names of the metrics found.
+local pattern = string.gsub(ARGV[2], '([%*%?%[%]\\])', '\\%1') .. '*'
+local scan = redis.call('SCAN', ARGV[1], 'MATCH', pattern, 'COUNT', ARGV[4])
+local result = { scan[1] }
+for _, key in ipairs(scan[2]) do
+	-- skip keys of the minute aggregates of earlier versions, named "<name>_yyyy.MM.dd-HH:mm"
+	if key ~= KEYS[1] and not string.find(key, '_%d%d%d%d%.%d%d%.%d%d%-%d%d:%d%d$')
+			and redis.call('TYPE', key)['ok'] == ARGV[3] then
+		result[#result + 1] = string.sub(key, #ARGV[2] + 1)
+	end
+end
+return result
@@ -0,0 +1,33 @@
+-- Sets the value of a rich gauge in one atomic step, updating its average, max, min and count as RichGauge does.
+-- KEYS[1]: the gauge, stored as "value alpha average max min count"
+-- KEYS[2]: the sorted set tracking the gauges of the repository
+-- ARGV[1]: the new value; ARGV[2]: the name of the gauge
+local value = tonumber(ARGV[1])
+local previous, alpha, average, max, min, count = 0, -1, 0, 0, 0, 0
+local current = redis.call('GET', KEYS[1])
+if current then
+	local parts = {}
+	for part in string.gmatch(current, '%S+') do
+		parts[#parts + 1] = tonumber(part)
+	end
+	previous, alpha, average, max, min, count = parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]
+end
+if count == 0 then
+	max = value
+	min = value
+elseif value > max then
+	max = value
+elseif value < min then
+	min = value
+end
+if alpha > 0 and count > 0 then
+	average = alpha * previous + (1 - alpha) * average
+else
+	average = (average * count + value) / (count + 1)
+end
+count = count + 1
+-- 17 significant digits are enough for the doubles to be read back exactly
+local gauge = string.format('%.17g %.17g %.17g %.17g %.17g %d', value, alpha, average, max, min, count)
+redis.call('SET', KEYS[1], gauge)
+redis.call('ZADD', KEYS[2], 0, ARGV[2])
+return count
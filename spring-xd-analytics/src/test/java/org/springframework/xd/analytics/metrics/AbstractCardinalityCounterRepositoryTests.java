@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.core.CardinalityCounter;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounterRepository;
+
+/**
+ * Base tests for various implementations of {@link CardinalityCounterRepository}.
+ */
+public abstract class AbstractCardinalityCounterRepositoryTests {
+
+	protected abstract CardinalityCounterRepository createService();
+
+	@Test
+	public void testOfferAndFind() {
+		CardinalityCounterRepository repo = createService();
+		for (int i = 0; i < 1000; i++) {
+			repo.offer("test", "value" + (i % 100));
+		}
+		CardinalityCounter c = repo.findOne("test");
+		assertEquals("test", c.getName());
+		assertEquals(100, c.getValue(), 8);
+		assertEquals(1, repo.count());
+		assertEquals(1, ((List<CardinalityCounter>) repo.findAll()).size());
+		assertNull(repo.findOne("missing"));
+
+		repo.delete("test");
+		assertNull(repo.findOne("test"));
+		assertEquals(0, repo.count());
+	}
+
+	@Test
+	public void testMerge() {
+		CardinalityCounterRepository repo = createService();
+		for (int i = 0; i < 1000; i++) {
+			repo.offer("monday", "value" + i);
+			repo.offer("tuesday", "value" + (i + 500));
+		}
+		repo.merge("week", Arrays.asList("monday", "tuesday", "wednesday"));
+		assertEquals(1500, repo.findOne("week").getValue(), 1500 * 0.08);
+		assertEquals(1000, repo.findOne("monday").getValue(), 1000 * 0.08);
+		assertNull(repo.findOne("wednesday"));
+	}
+
+	@Test
+	public void testSaveOverwrites() {
+		CardinalityCounterRepository repo = createService();
+		repo.offer("test", "a");
+		repo.save(new CardinalityCounter("test"));
+		assertEquals(0, repo.findOne("test").getValue());
+	}
+
+}
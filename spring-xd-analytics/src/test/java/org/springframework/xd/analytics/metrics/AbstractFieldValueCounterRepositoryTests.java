@@ -157,4 +157,38 @@ public abstract class AbstractFieldValueCounterRepositoryTests {
 		counters = (List<FieldValueCounter>) fieldValueCounterRepository.findAll();
 		assertThat(counters.size(), equalTo(0));
 	}
+
+	@Test
+	public void testIncrementTopK() {
+		String name = "topKCounter";
+		fieldValueCounterRepository.incrementTopK(name, "a", 1, 2);
+		fieldValueCounterRepository.incrementTopK(name, "a", 1, 2);
+		fieldValueCounterRepository.incrementTopK(name, "b", 1, 2);
+		fieldValueCounterRepository.incrementTopK(name, "c", 1, 2);
+
+		FieldValueCounter counter = fieldValueCounterRepository.findOne(name);
+		Map<String, Double> counts = counter.getFieldValueCount();
+		assertThat(counts.size(), equalTo(2));
+		assertThat(counts.get("a"), equalTo(2.0));
+		assertThat(counts.get("c"), equalTo(2.0));
+		assertThat(counts.get("b"), is(nullValue()));
+		assertThat(counter.getFieldValueErrors().get("c"), equalTo(1.0));
+		assertThat(counter.getFieldValueErrors().get("a"), is(nullValue()));
+
+		fieldValueCounterRepository.delete(name);
+		assertThat(fieldValueCounterRepository.findOne(name), is(nullValue()));
+	}
+
+	@Test
+	public void testResetClearsTopKError() {
+		String name = "topKResetCounter";
+		fieldValueCounterRepository.incrementTopK(name, "a", 2, 1);
+		fieldValueCounterRepository.incrementTopK(name, "b", 1, 1);
+		assertThat(fieldValueCounterRepository.findOne(name).getFieldValueErrors().get("b"), equalTo(2.0));
+
+		fieldValueCounterRepository.reset(name, "b");
+		assertThat(fieldValueCounterRepository.findOne(name).getFieldValueErrors().get("b"), is(nullValue()));
+
+		fieldValueCounterRepository.delete(name);
+	}
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.analytics.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.core.Histogram;
+import org.springframework.xd.analytics.metrics.core.HistogramRepository;
+
+/**
+ * Base tests for various implementations of {@link HistogramRepository}.
+ */
+public abstract class AbstractHistogramRepositoryTests {
+
+	protected abstract HistogramRepository createService();
+
+	@Test
+	public void testRecordAndFind() {
+		HistogramRepository repo = createService();
+		for (int i = 1; i <= 100; i++) {
+			repo.record("test", i);
+		}
+		Histogram h = repo.findOne("test");
+		assertEquals("test", h.getName());
+		assertEquals(100, h.getCount());
+		assertEquals(50, h.getValueAtPercentile(50));
+		assertEquals(100, h.getMax());
+		assertEquals(1, repo.count());
+		assertEquals(1, ((List<Histogram>) repo.findAll()).size());
+		assertNull(repo.findOne("missing"));
+
+		repo.delete("test");
+		assertNull(repo.findOne("test"));
+		assertEquals(0, repo.count());
+	}
+
+	@Test
+	public void testFindRecent() {
+		HistogramRepository repo = createService();
+		repo.record("test", 1000, new DateTime().minusMinutes(30));
+		repo.record("test", 10);
+		repo.record("test", 20);
+
+		Histogram recent = repo.findRecent("test", 10);
+		assertEquals(2, recent.getCount());
+		assertEquals(20, recent.getMax());
+		assertEquals(3, repo.findOne("test").getCount());
+		assertEquals(3, repo.findRecent("test", 60).getCount());
+		assertNull(repo.findRecent("missing", 10));
+	}
+
+	@Test
+	public void testMerge() {
+		HistogramRepository repo = createService();
+		for (int i = 1; i <= 10; i++) {
+			repo.record("monday", i);
+			repo.record("tuesday", i * 10);
+		}
+		repo.merge("week", Arrays.asList("monday", "tuesday", "wednesday"));
+		Histogram week = repo.findOne("week");
+		assertEquals(20, week.getCount());
+		assertEquals(100, week.getMax());
+		assertEquals(10, repo.findOne("monday").getCount());
+		assertNull(repo.findOne("wednesday"));
+	}
+
+	@Test
+	public void testSaveOverwrites() {
+		HistogramRepository repo = createService();
+		repo.record("test", 1);
+		repo.save(new Histogram("test"));
+		assertEquals(0, repo.findOne("test").getCount());
+	}
+
+}
@@ -29,9 +29,11 @@ import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactor
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.xd.analytics.metrics.redis.RedisAggregateCounterRepository;
+import org.springframework.xd.analytics.metrics.redis.RedisCardinalityCounterRepository;
 import org.springframework.xd.analytics.metrics.redis.RedisCounterRepository;
 import org.springframework.xd.analytics.metrics.redis.RedisFieldValueCounterRepository;
 import org.springframework.xd.analytics.metrics.redis.RedisGaugeRepository;
+import org.springframework.xd.analytics.metrics.redis.RedisHistogramRepository;
 import org.springframework.xd.analytics.metrics.redis.RedisRichGaugeRepository;
 
 /**
@@ -71,6 +73,16 @@ public class RedisRepositoriesConfig {
 		return new RedisAggregateCounterRepository(redisConnectionFactory());
 	}
 
+	@Bean
+	public RedisCardinalityCounterRepository redisCardinalityCounterRepository() {
+		return new RedisCardinalityCounterRepository(redisConnectionFactory());
+	}
+
+	@Bean
+	public RedisHistogramRepository redisHistogramRepository() {
+		return new RedisHistogramRepository(redisConnectionFactory());
+	}
+
 	@Bean
 	public StringRedisTemplate stringRedisTemplate() {
 		return new StringRedisTemplate(redisConnectionFactory());
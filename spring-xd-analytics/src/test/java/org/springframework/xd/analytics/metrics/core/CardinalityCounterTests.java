@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CardinalityCounter}.
+ */
+public class CardinalityCounterTests {
+
+	@Test
+	public void emptyCounterIsZero() {
+		assertEquals(0, new CardinalityCounter("test").getValue());
+	}
+
+	@Test
+	public void duplicatesAreNotCounted() {
+		CardinalityCounter c = new CardinalityCounter("test");
+		for (int i = 0; i < 10; i++) {
+			c.offer("a").offer("b").offer("c");
+		}
+		assertEquals(3, c.getValue());
+	}
+
+	@Test
+	public void estimatesAreAccurate() {
+		for (int n : new int[] { 100, 1000, 10000, 100000, 1000000 }) {
+			CardinalityCounter c = new CardinalityCounter("test");
+			for (int i = 0; i < n; i++) {
+				c.offer("value" + i);
+			}
+			// five times the standard error of about 1.6%
+			assertEquals("estimate of " + n, n, c.getValue(), n * 0.08);
+		}
+	}
+
+	@Test
+	public void mergeCountsTheUnion() {
+		CardinalityCounter c1 = new CardinalityCounter("c1");
+		CardinalityCounter c2 = new CardinalityCounter("c2");
+		for (int i = 0; i < 20000; i++) {
+			c1.offer("value" + i);
+			c2.offer("value" + (i + 10000));
+		}
+		c1.merge(c2);
+		assertEquals(30000, c1.getValue(), 30000 * 0.08);
+		assertEquals(20000, c2.getValue(), 20000 * 0.08);
+	}
+
+	@Test
+	public void ranksAreWithinBounds() {
+		assertEquals(1, CardinalityCounter.rank(-1L));
+		assertEquals(65 - CardinalityCounter.PRECISION, CardinalityCounter.rank(0L));
+		assertTrue(CardinalityCounter.register(-1L) == CardinalityCounter.REGISTERS - 1);
+	}
+
+}
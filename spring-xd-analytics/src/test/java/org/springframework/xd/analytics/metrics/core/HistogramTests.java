@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.analytics.metrics.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Histogram}.
+ */
+public class HistogramTests {
+
+	@Test
+	public void emptyHistogramIsZero() {
+		Histogram h = new Histogram("test");
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getMax());
+		assertEquals(0, h.getValueAtPercentile(50));
+	}
+
+	@Test
+	public void smallValuesAreExact() {
+		Histogram h = new Histogram("test");
+		for (int i = 1; i <= 100; i++) {
+			h.record(i, 1);
+		}
+		assertEquals(100, h.getCount());
+		assertEquals(50, h.getValueAtPercentile(50));
+		assertEquals(99, h.getValueAtPercentile(99));
+		assertEquals(100, h.getValueAtPercentile(100));
+		assertEquals(100, h.getMax());
+	}
+
+	@Test
+	public void bucketsCoverValuesContiguously() {
+		for (int bucket = 0; bucket < 3000; bucket++) {
+			long lowest = Histogram.lowestEquivalentValue(bucket);
+			long highest = Histogram.highestEquivalentValue(bucket);
+			assertEquals(bucket, Histogram.bucket(lowest));
+			assertEquals(bucket, Histogram.bucket(highest));
+			assertEquals(bucket + 1, Histogram.bucket(highest + 1));
+		}
+		assertEquals(Long.MAX_VALUE, Histogram.highestEquivalentValue(Histogram.bucket(Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void percentilesAreAccurate() {
+		Histogram h = new Histogram("test");
+		for (long i = 1; i <= 100000; i++) {
+			h.record(i * 1000, 1);
+		}
+		for (double p : new double[] { 50, 95, 99, 99.9 }) {
+			long exact = (long) (p * 1000) * 1000;
+			long value = h.getValueAtPercentile(p);
+			assertTrue("percentile " + p + " was " + value, value >= exact && value <= exact * 1.008);
+		}
+	}
+
+	@Test
+	public void mergeAddsCounts() {
+		Histogram h1 = new Histogram("h1").record(10, 3).record(1000, 1);
+		Histogram h2 = new Histogram("h2").record(10, 1).record(5, 4);
+		h1.merge(h2);
+		assertEquals(9, h1.getCount());
+		assertEquals(4, h1.getCounts().get(Histogram.bucket(10)).longValue());
+		assertEquals(5, h2.getCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeValuesAreRejected() {
+		new Histogram("test").record(-1, 1);
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link IncrementBuffer}.
+ */
+public class IncrementBufferTests {
+
+	private final Map<String, Long> flushed = new ConcurrentHashMap<String, Long>();
+
+	private final IncrementBuffer.Flusher<String> flusher = new IncrementBuffer.Flusher<String>() {
+
+		@Override
+		public synchronized void flush(String key, long amount) {
+			Long total = flushed.get(key);
+			flushed.put(key, (total == null ? 0 : total) + amount);
+		}
+	};
+
+	@Test
+	public void testFlushBySize() {
+		IncrementBuffer<String> buffer = new IncrementBuffer<String>(flusher, 0, 3);
+		buffer.increment("a", 1);
+		buffer.increment("b", 2);
+		assertNull(flushed.get("a"));
+		buffer.increment("a", 1);
+		assertEquals(Long.valueOf(2), flushed.get("a"));
+		assertEquals(Long.valueOf(2), flushed.get("b"));
+	}
+
+	@Test
+	public void testFlushOnDestroy() {
+		IncrementBuffer<String> buffer = new IncrementBuffer<String>(flusher, 60000, 0);
+		buffer.increment("a", 5);
+		assertNull(flushed.get("a"));
+		buffer.destroy();
+		assertEquals(Long.valueOf(5), flushed.get("a"));
+	}
+
+	@Test
+	public void testFailedFlushIsRetried() {
+		final boolean[] fail = { true };
+		IncrementBuffer<String> buffer = new IncrementBuffer<String>(new IncrementBuffer.Flusher<String>() {
+
+			@Override
+			public void flush(String key, long amount) {
+				if (fail[0]) {
+					throw new IllegalStateException("unavailable");
+				}
+				flusher.flush(key, amount);
+			}
+		}, 0, 10);
+		buffer.increment("a", 1);
+		buffer.flush();
+		assertNull(flushed.get("a"));
+		fail[0] = false;
+		buffer.increment("a", 1);
+		buffer.flush();
+		assertEquals(Long.valueOf(2), flushed.get("a"));
+	}
+
+	@Test
+	public void testConcurrentIncrements() throws Exception {
+		final IncrementBuffer<String> buffer = new IncrementBuffer<String>(flusher, 1, 100);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		final CountDownLatch done = new CountDownLatch(4);
+		for (int i = 0; i < 4; i++) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						buffer.increment("key" + (j % 10), 1);
+					}
+					done.countDown();
+				}
+			});
+		}
+		done.await(10, TimeUnit.SECONDS);
+		executor.shutdown();
+		buffer.destroy();
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Long.valueOf(4000), flushed.get("key" + i));
+		}
+	}
+
+}
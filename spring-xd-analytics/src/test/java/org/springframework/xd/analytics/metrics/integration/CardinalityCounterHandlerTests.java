@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.analytics.metrics.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.memory.InMemoryCardinalityCounterRepository;
+
+/**
+ * Tests for {@link CardinalityCounterHandler}.
+ */
+public class CardinalityCounterHandlerTests {
+
+	private final InMemoryCardinalityCounterRepository repo = new InMemoryCardinalityCounterRepository();
+
+	private final CardinalityCounterHandler handler = new CardinalityCounterHandler(repo, "test");
+
+	@Test
+	public void testValuesAndElementsAreCounted() {
+		handler.process("a");
+		handler.process(1);
+		handler.process(Arrays.asList("a", "b", null));
+		handler.process(new String[] { "b", "c" });
+		handler.process(null);
+		assertEquals(4, repo.findOne("test").getValue());
+	}
+
+	@Test
+	public void testByteArrayIsCountedAsOneValue() throws Exception {
+		for (int i = 0; i < 1000; i++) {
+			handler.process(("value" + i).getBytes("UTF-8"));
+		}
+		handler.process("value0".getBytes("UTF-8"));
+		handler.process("value0");
+		long value = repo.findOne("test").getValue();
+		assertTrue("Estimate was " + value, value > 900 && value < 1100);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessagingException;
+import org.springframework.xd.analytics.metrics.memory.InMemoryHistogramRepository;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * Tests for {@link HistogramHandler}.
+ */
+public class HistogramHandlerTests {
+
+	private final InMemoryHistogramRepository repo = new InMemoryHistogramRepository();
+
+	private final HistogramHandler handler = new HistogramHandler(repo, "test");
+
+	@Test
+	public void testPayloadIsRecordedByDefault() {
+		handler.process(MessageBuilder.withPayload(42).build());
+		handler.process(MessageBuilder.withPayload("7.6").build());
+		assertEquals(2, repo.findOne("test").getCount());
+		assertEquals(42, repo.findOne("test").getMax());
+		assertEquals(8, repo.findOne("test").getValueAtPercentile(50));
+	}
+
+	@Test
+	public void testFieldIsRecorded() {
+		handler.setFieldName("latency");
+		handler.process(MessageBuilder.withPayload(TupleBuilder.tuple().of("latency", 10)).build());
+		handler.process(MessageBuilder.withPayload("{\"latency\": 20}").build());
+		handler.process(MessageBuilder.withPayload(Collections.singletonMap("latency", 30L)).build());
+		handler.process(MessageBuilder.withPayload(TupleBuilder.tuple().of("other", 10)).build());
+		assertEquals(3, repo.findOne("test").getCount());
+		assertEquals(30, repo.findOne("test").getMax());
+	}
+
+	@Test
+	public void testExpressionIsRecorded() {
+		handler.setExpression("headers['latency']");
+		handler.process(MessageBuilder.withPayload("ignored").setHeader("latency", 15).build());
+		handler.process(MessageBuilder.withPayload("ignored").build());
+		assertEquals(1, repo.findOne("test").getCount());
+		assertNull(repo.findOne("other"));
+	}
+
+	@Test(expected = MessagingException.class)
+	public void testNonNumericValueIsRejected() {
+		handler.convertToLong("fast");
+	}
+}
@@ -17,6 +17,7 @@
 package org.springframework.xd.analytics.metrics.integration;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Test;
@@ -69,4 +70,20 @@ public class MessageCounterHandlerTests {
 		assertThat(counter.getValue(), equalTo(12L));
 	}
 
+	@Test
+	public void testBufferedCounts() {
+		MessageCounterHandler handler = new MessageCounterHandler(repo, "tupleCounter");
+		handler.setFlushSize(3);
+		handler.afterPropertiesSet();
+		Message<String> message = MessageBuilder.withPayload("Hi").build();
+		handler.process(message);
+		handler.process(message);
+		assertThat(repo.findOne("tupleCounter"), nullValue());
+		handler.process(message);
+		assertThat(repo.findOne("tupleCounter").getValue(), equalTo(3L));
+		handler.process(message);
+		handler.destroy();
+		assertThat(repo.findOne("tupleCounter").getValue(), equalTo(4L));
+	}
+
 }
@@ -16,9 +16,21 @@
 
 package org.springframework.xd.analytics.metrics.memory;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
 import org.junit.Before;
+import org.junit.Test;
 
 import org.springframework.xd.analytics.metrics.AbstractAggregateCounterTests;
+import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
 
 /**
  * @author Luke Taylor
@@ -29,4 +41,61 @@ public class InMemoryAggregateCounterTests extends AbstractAggregateCounterTests
 	public void createService() {
 		aggregateCounterRepository = new InMemoryAggregateCounterRepository();
 	}
+
+	@Test
+	public void testOldBucketsAreEvicted() {
+		InMemoryAggregateCounterRepository repository = new InMemoryAggregateCounterRepository();
+		repository.setMinuteRetention(10);
+		DateTime start = new DateTime(2013, 6, 28, 23, 0);
+		for (int i = 0; i < 15; i++) {
+			repository.increment(counterName, i + 1, start.plusMinutes(i));
+		}
+		long[] counts = repository.getCounts(counterName, new Interval(start, start.plusMinutes(14)),
+				AggregateCountResolution.minute).getCounts();
+		assertArrayEquals(new long[] { 0, 0, 0, 0, 0, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 }, counts);
+		// increments of evicted buckets are not counted in later buckets
+		repository.increment(counterName, 100, start);
+		assertEquals(0, repository.getCounts(counterName, new Interval(start, start),
+				AggregateCountResolution.minute).getCounts()[0]);
+		assertEquals(15, repository.getCounts(counterName, new Interval(start, start.plusMinutes(14)),
+				AggregateCountResolution.minute).getCounts()[14]);
+		assertEquals(220, repository.findOne(counterName).getValue());
+	}
+
+	@Test
+	public void testCountsBeforeFirstIncrementAreZero() {
+		DateTime start = new DateTime(2013, 6, 28, 23, 0);
+		Interval interval = new Interval(start, start.plusMinutes(2));
+		assertArrayEquals(new long[3], aggregateCounterRepository.getCounts(counterName, interval,
+				AggregateCountResolution.minute).getCounts());
+		aggregateCounterRepository.increment(counterName, 5, start.plusMinutes(1));
+		assertArrayEquals(new long[] { 0, 5, 0 }, aggregateCounterRepository.getCounts(counterName, interval,
+				AggregateCountResolution.minute).getCounts());
+	}
+
+	@Test
+	public void testConcurrentIncrements() throws Exception {
+		final DateTime start = new DateTime(2013, 6, 28, 23, 0);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		final CountDownLatch done = new CountDownLatch(4);
+		for (int i = 0; i < 4; i++) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						aggregateCounterRepository.increment(counterName, 1, start.plusMinutes(j % 3));
+					}
+					done.countDown();
+				}
+			});
+		}
+		done.await(10, TimeUnit.SECONDS);
+		executor.shutdown();
+		assertEquals(40000, aggregateCounterRepository.findOne(counterName).getValue());
+		assertEquals(40000, aggregateCounterRepository.getCounts(counterName, new Interval(start, start),
+				AggregateCountResolution.hour).getCounts()[0]);
+		assertEquals(3334 * 4, aggregateCounterRepository.getCounts(counterName, new Interval(start, start),
+				AggregateCountResolution.minute).getCounts()[0]);
+	}
 }
@@ -16,14 +16,28 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.xd.analytics.metrics.AbstractAggregateCounterTests;
+import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
 import org.springframework.xd.analytics.metrics.common.RedisRepositoriesConfig;
 import org.springframework.xd.test.redis.RedisTestSupport;
 
@@ -46,4 +60,79 @@ public class RedisAggregateCounterTests extends AbstractAggregateCounterTests {
 		aggregateCounterRepository.delete(counterName);
 	}
 
+	@Autowired
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Test
+	public void testMinuteCountsExpire() {
+		RedisAggregateCounterRepository repository = new RedisAggregateCounterRepository(
+				stringRedisTemplate.getConnectionFactory());
+		repository.setMinuteCountsTtl(3600);
+		DateTime dateTime = new DateTime(2013, 6, 28, 23, 10);
+		repository.increment(counterName, 5, dateTime);
+
+		String hourKey = "aggregatecounters." + counterName + ".2013062823";
+		String dayKey = "aggregatecounters." + counterName + ".20130628";
+		long ttl = stringRedisTemplate.getExpire(hourKey);
+		assertTrue(ttl > 0 && ttl <= 3600);
+		assertEquals(-1L, stringRedisTemplate.getExpire(dayKey).longValue());
+
+		// as if the minute counts had expired
+		stringRedisTemplate.delete(hourKey);
+		repository.pruneExpiredCounts();
+		String bookkeepingKey = "metric_meta.aggregatecounters." + counterName;
+		assertFalse(stringRedisTemplate.opsForSet().isMember(bookkeepingKey, hourKey));
+		assertTrue(stringRedisTemplate.opsForSet().isMember(bookkeepingKey, dayKey));
+
+		assertEquals(0, repository.getCounts(counterName, new Interval(dateTime, dateTime),
+				AggregateCountResolution.minute).getCounts()[0]);
+		assertEquals(5, repository.getCounts(counterName, new Interval(dateTime, dateTime),
+				AggregateCountResolution.hour).getCounts()[0]);
+	}
+
+	@Test
+	public void testIncrementUpdatesEveryBucketAndTheTotal() {
+		RedisAggregateCounterRepository repository = new RedisAggregateCounterRepository(
+				stringRedisTemplate.getConnectionFactory());
+		assertEquals(5, repository.increment(counterName, 5, new DateTime(2013, 6, 28, 23, 10)));
+		assertEquals(8, repository.increment(counterName, 3, new DateTime(2013, 6, 28, 23, 11)));
+
+		String prefix = "aggregatecounters." + counterName + ".";
+		assertEquals("8", stringRedisTemplate.opsForHash().get(prefix + "years", "2013"));
+		assertEquals("8", stringRedisTemplate.opsForHash().get(prefix + "2013", "06"));
+		assertEquals("8", stringRedisTemplate.opsForHash().get(prefix + "201306", "28"));
+		assertEquals("8", stringRedisTemplate.opsForHash().get(prefix + "20130628", "23"));
+		assertEquals("5", stringRedisTemplate.opsForHash().get(prefix + "2013062823", "10"));
+		assertEquals("3", stringRedisTemplate.opsForHash().get(prefix + "2013062823", "11"));
+		assertEquals("8", stringRedisTemplate.opsForValue().get("aggregatecounters." + counterName));
+		assertNotNull(stringRedisTemplate.opsForZSet().score("aggregatecounters", "aggregatecounters." + counterName));
+
+		// each hash is tracked once, by the increment that created it
+		assertEquals(new HashSet<String>(Arrays.asList(prefix + "years", prefix + "2013", prefix + "201306",
+				prefix + "20130628", prefix + "2013062823")),
+				stringRedisTemplate.opsForSet().members("metric_meta.aggregatecounters." + counterName));
+		assertEquals(8, repository.findOne(counterName).getValue());
+	}
+
+	@Test
+	public void testIncrementTracksTheHashesOfANewBucket() {
+		RedisAggregateCounterRepository repository = new RedisAggregateCounterRepository(
+				stringRedisTemplate.getConnectionFactory());
+		repository.increment(counterName, 1, new DateTime(2013, 12, 31, 23, 59));
+		repository.increment(counterName, 1, new DateTime(2014, 1, 1, 0, 0));
+
+		String prefix = "aggregatecounters." + counterName + ".";
+		assertEquals(new HashSet<String>(Arrays.asList(prefix + "years", prefix + "2013", prefix + "201312",
+				prefix + "20131231", prefix + "2013123123", prefix + "2014", prefix + "201401", prefix + "20140101",
+				prefix + "2014010100")),
+				stringRedisTemplate.opsForSet().members("metric_meta.aggregatecounters." + counterName));
+		assertEquals("1", stringRedisTemplate.opsForHash().get(prefix + "years", "2013"));
+		assertEquals("1", stringRedisTemplate.opsForHash().get(prefix + "years", "2014"));
+		assertEquals(-1L, stringRedisTemplate.getExpire(prefix + "2014010100").longValue());
+
+		repository.delete(counterName);
+		assertFalse(stringRedisTemplate.hasKey(prefix + "2013123123"));
+		assertFalse(stringRedisTemplate.hasKey("metric_meta.aggregatecounters." + counterName));
+	}
+
 }
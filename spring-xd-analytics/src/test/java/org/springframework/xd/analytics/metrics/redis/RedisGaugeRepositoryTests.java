@@ -16,15 +16,23 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.AnnotationConfigContextLoader;
 import org.springframework.xd.analytics.metrics.SharedGaugeRepositoryTests;
+import org.springframework.xd.analytics.metrics.core.Gauge;
 import org.springframework.xd.analytics.metrics.common.RedisRepositoriesConfig;
 import org.springframework.xd.test.redis.RedisTestSupport;
 
@@ -48,4 +56,45 @@ public class RedisGaugeRepositoryTests extends SharedGaugeRepositoryTests {
 		gaugeRepository.deleteAll();
 	}
 
+	@Autowired
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Test
+	public void testUntrackedGaugesAreListed() {
+		// as written by versions that did not track gauge names, into a store not scanned yet
+		stringRedisTemplate.delete("gauges:scanned");
+		stringRedisTemplate.opsForValue().set("gauges.untracked", "42");
+		stringRedisTemplate.opsForValue().set("gauges.untracked_2014.01.01-12:00", "1");
+		gaugeRepository.setValue("tracked", 7);
+
+		RedisGaugeRepository repository = new RedisGaugeRepository(stringRedisTemplate.getConnectionFactory());
+		List<Gauge> gauges = repository.findAll();
+		assertEquals(2, gauges.size());
+		assertEquals("tracked", gauges.get(0).getName());
+		assertEquals(7, gauges.get(0).getValue());
+		assertEquals("untracked", gauges.get(1).getName());
+		assertEquals(42, gauges.get(1).getValue());
+		assertEquals(2, gaugeRepository.count());
+
+		repository.deleteAll();
+		assertEquals(Boolean.FALSE, stringRedisTemplate.hasKey("gauges.untracked"));
+		assertEquals(0, gaugeRepository.count());
+		stringRedisTemplate.delete("gauges.untracked_2014.01.01-12:00");
+	}
+
+	@Test
+	public void testKeyspaceIsScannedOncePerStore() {
+		stringRedisTemplate.delete("gauges:scanned");
+		gaugeRepository.setValue("tracked", 7);
+		assertEquals(1, new RedisGaugeRepository(stringRedisTemplate.getConnectionFactory()).count());
+		assertEquals(Boolean.TRUE, stringRedisTemplate.hasKey("gauges:scanned"));
+
+		// a repository created later relies on the index rather than scanning again
+		stringRedisTemplate.opsForValue().set("gauges.untracked", "42");
+		RedisGaugeRepository repository = new RedisGaugeRepository(stringRedisTemplate.getConnectionFactory());
+		assertEquals(1, repository.count());
+		assertEquals("tracked", repository.findAll().get(0).getName());
+		stringRedisTemplate.delete("gauges.untracked");
+	}
+
 }
@@ -1,9 +1,17 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +20,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.AnnotationConfigContextLoader;
 import org.springframework.xd.analytics.metrics.AbstractRichGaugeRepositoryTests;
 import org.springframework.xd.analytics.metrics.common.RedisRepositoriesConfig;
+import org.springframework.xd.analytics.metrics.core.RichGauge;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 import org.springframework.xd.test.redis.RedisTestSupport;
 
@@ -39,4 +48,29 @@ public class RedisRichGaugeRepositoryTests extends AbstractRichGaugeRepositoryTe
 	protected RichGaugeRepository createService() {
 		return repo;
 	}
+
+	@Test
+	public void concurrentUpdatesAreNotLost() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		final CountDownLatch done = new CountDownLatch(4);
+		for (int i = 0; i < 4; i++) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 1; j <= 100; j++) {
+						repo.setValue("test", j);
+					}
+					done.countDown();
+				}
+			});
+		}
+		done.await(30, TimeUnit.SECONDS);
+		executor.shutdown();
+		RichGauge g = repo.findOne("test");
+		assertEquals(400, g.getCount());
+		assertEquals(50.5, g.getAverage(), 1E-6);
+		assertEquals(100.0, g.getMax(), 1E-6);
+		assertEquals(1.0, g.getMin(), 1E-6);
+	}
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.bus.serializer.kryo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.xd.tuple.DefaultTuple;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.shaded.org.objenesis.strategy.StdInstantiatorStrategy;
+
+/**
+ * Compares the round trip throughput of the Kryo codecs with the previous approach of creating and configuring a new
+ * {@link Kryo} instance, {@link Input} and {@link Output} for every message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KryoCodecBenchmark {
+
+	private final PojoCodec pojoCodec = new PojoCodec();
+
+	private final TupleCodec tupleCodec = new TupleCodec();
+
+	private Payload payload;
+
+	private Tuple tuple;
+
+	@Setup
+	public void setUp() {
+		this.payload = new Payload("some text", 42, 3.14159);
+		this.tuple = TupleBuilder.tuple().of("name", "foo", "count", 42, "ratio", 3.14159);
+	}
+
+	@Benchmark
+	public Object pojoNewKryoPerMessage() {
+		Kryo kryo = new Kryo();
+		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+		kryo.register(Payload.class);
+		Output output = new Output(new ByteArrayOutputStream());
+		kryo.writeObject(output, this.payload);
+		output.close();
+		byte[] bytes = ((ByteArrayOutputStream) output.getOutputStream()).toByteArray();
+
+		kryo = new Kryo();
+		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+		kryo.register(Payload.class);
+		return kryo.readObject(new Input(bytes), Payload.class);
+	}
+
+	@Benchmark
+	public Object pojoCodec() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.pojoCodec.serialize(this.payload, bos);
+		return this.pojoCodec.deserialize(bos.toByteArray(), Payload.class);
+	}
+
+	@Benchmark
+	public Object tupleNewKryoPerMessage() {
+		Kryo kryo = new Kryo();
+		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+		kryo.register(DefaultTuple.class);
+		Output output = new Output(new ByteArrayOutputStream());
+		kryo.writeObject(output, this.tuple);
+		output.close();
+		byte[] bytes = ((ByteArrayOutputStream) output.getOutputStream()).toByteArray();
+
+		kryo = new Kryo();
+		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+		kryo.register(DefaultTuple.class);
+		return kryo.readObject(new Input(bytes), DefaultTuple.class);
+	}
+
+	@Benchmark
+	public Object tupleCodec() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.tupleCodec.serialize(this.tuple, bos);
+		return this.tupleCodec.deserialize(bos.toByteArray());
+	}
+
+	static class Payload {
+
+		private String text;
+
+		private int count;
+
+		private double ratio;
+
+		Payload(String text, int count, double ratio) {
+			this.text = text;
+			this.count = count;
+			this.ratio = ratio;
+		}
+	}
+}
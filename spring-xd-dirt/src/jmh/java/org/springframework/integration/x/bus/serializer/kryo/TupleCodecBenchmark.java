@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.bus.serializer.kryo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.xd.tuple.DefaultTuple;
+import org.springframework.xd.tuple.DefaultTupleConversionService;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+import org.springframework.xd.tuple.TupleSchema;
+import org.springframework.xd.tuple.TupleToJsonStringConverter;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.shaded.org.objenesis.strategy.StdInstantiatorStrategy;
+
+/**
+ * Compares the round trip throughput of {@link TupleCodec} with the previous approach of writing {@link DefaultTuple}
+ * with Kryo's field serializer, which writes the field names with every tuple, and giving each deserialized tuple a
+ * new conversion service.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TupleCodecBenchmark {
+
+	@Param({ "10", "50", "200" })
+	public int fieldCount;
+
+	private final TupleCodec tupleCodec = new TupleCodec();
+
+	private Kryo fieldSerializingKryo;
+
+	private Output output;
+
+	private Tuple tuple;
+
+	@Setup
+	public void setUp() {
+		TupleBuilder builder = TupleBuilder.tuple();
+		for (int i = 0; i < this.fieldCount; i++) {
+			switch (i % 3) {
+				case 0:
+					builder.put("stringField" + i, "value" + i);
+					break;
+				case 1:
+					builder.put("intField" + i, i);
+					break;
+				default:
+					builder.put("doubleField" + i, i * 1.5);
+			}
+		}
+		this.tuple = builder.build();
+		this.fieldSerializingKryo = new Kryo();
+		this.fieldSerializingKryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+		this.fieldSerializingKryo.register(ArrayList.class);
+		this.fieldSerializingKryo.register(UUID.class);
+		this.output = new Output(4096, -1);
+	}
+
+	/**
+	 * Writes what Kryo's field serializer wrote for a tuple: the list of names, the list of values, the id and the
+	 * timestamp. Each tuple then got a new conversion service.
+	 */
+	@Benchmark
+	public Object fieldSerializer() {
+		this.output.setOutputStream(new ByteArrayOutputStream());
+		this.fieldSerializingKryo.writeObject(this.output, new ArrayList<String>(this.tuple.getFieldNames()));
+		this.fieldSerializingKryo.writeObject(this.output, new ArrayList<Object>(this.tuple.getValues()));
+		this.fieldSerializingKryo.writeObject(this.output, this.tuple.getId());
+		this.fieldSerializingKryo.writeObject(this.output, this.tuple.getTimestamp());
+		this.output.close();
+		byte[] bytes = ((ByteArrayOutputStream) this.output.getOutputStream()).toByteArray();
+
+		Input input = new Input(bytes);
+		@SuppressWarnings("unchecked")
+		List<String> names = this.fieldSerializingKryo.readObject(input, ArrayList.class);
+		@SuppressWarnings("unchecked")
+		List<Object> values = this.fieldSerializingKryo.readObject(input, ArrayList.class);
+		UUID id = this.fieldSerializingKryo.readObject(input, UUID.class);
+		Long timestamp = this.fieldSerializingKryo.readObject(input, Long.class);
+		DefaultTuple result = new DefaultTuple(TupleSchema.of(names), values.toArray(),
+				new DefaultTupleConversionService(), id, timestamp);
+		result.setTupleToStringConverter(new TupleToJsonStringConverter());
+		return result;
+	}
+
+	@Benchmark
+	public Object tupleCodec() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.tupleCodec.serialize(this.tuple, bos);
+		return this.tupleCodec.deserialize(bos.toByteArray());
+	}
+
+}
@@ -19,9 +19,13 @@ import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -64,6 +68,19 @@ public abstract class MessageBusSupport implements MessageBus {
 
 	private final IdGenerator idGenerator = new AlternativeJdkIdGenerator();
 
+	/**
+	 * Buffers larger than this are not retained by a thread after a serialization.
+	 */
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	private final ThreadLocal<SerializationBuffer> serializationBuffers = new ThreadLocal<SerializationBuffer>() {
+
+		@Override
+		protected SerializationBuffer initialValue() {
+			return new SerializationBuffer();
+		}
+	};
+
 	public void setCodec(MultiTypeCodec<Object> codec) {
 		this.codec = codec;
 	}
@@ -142,46 +159,88 @@ public abstract class MessageBusSupport implements MessageBus {
 
 	// TODO: Performs serialization currently no transformation
 	protected final Message<?> serializePayloadIfNecessary(Message<?> message, MediaType to) {
-		Object originalPayload = message.getPayload();
-		Object originalContentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
-		Object contentType = originalContentType;
 		if (to.equals(ALL)) {
 			return message;
 		}
 		else if (to.equals(APPLICATION_OCTET_STREAM)) {
-			contentType = resolveContentType(originalPayload);
-			Object payload = serializePayloadIfNecessary(originalPayload);
-			MessageBuilder<Object> messageBuilder = MessageBuilder.withPayload(payload)
-					.copyHeaders(message.getHeaders())
-					.setHeader(MessageHeaders.CONTENT_TYPE, contentType);
-			if (originalContentType != null) {
-				messageBuilder.setHeader(ORIGINAL_CONTENT_TYPE_HEADER, originalContentType);
-			}
-			return messageBuilder.build();
+			Object originalPayload = message.getPayload();
+			return buildSerializedMessage(message, serializePayloadIfNecessary(originalPayload));
 		}
 		else {
 			throw new IllegalArgumentException("'to' can only be 'ALL' or 'APPLICATION_OCTET_STREAM'");
 		}
 	}
 
+	/**
+	 * Serialize the payload of the message, returning a message whose payload is a {@link ByteBuffer} view of the
+	 * serialized bytes. Objects that require the codec are serialized into a buffer owned by the calling thread, so
+	 * the returned payload is only valid until the next serialization on that thread and must be consumed (typically
+	 * by copying it into the transport's own representation) before then. This avoids an intermediate copy for
+	 * transports that add their own framing around the payload.
+	 * 
+	 * @param message the message to serialize
+	 * @return a message with the serialized payload and the content type headers
+	 */
+	protected final Message<ByteBuffer> serializePayloadToBuffer(Message<?> message) {
+		Object originalPayload = message.getPayload();
+		ByteBuffer payload;
+		if (originalPayload instanceof byte[]) {
+			payload = ByteBuffer.wrap((byte[]) originalPayload);
+		}
+		else if (originalPayload instanceof String) {
+			payload = ByteBuffer.wrap(serializePayloadIfNecessary(originalPayload));
+		}
+		else {
+			payload = serializeWithCodec(originalPayload).toByteBuffer();
+		}
+		return buildSerializedMessage(message, payload);
+	}
+
+	private <P> Message<P> buildSerializedMessage(Message<?> message, P serializedPayload) {
+		Object originalContentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+		Object contentType = resolveContentType(message.getPayload());
+		MessageBuilder<P> messageBuilder = MessageBuilder.withPayload(serializedPayload)
+				.copyHeaders(message.getHeaders())
+				.setHeader(MessageHeaders.CONTENT_TYPE, contentType);
+		if (originalContentType != null) {
+			messageBuilder.setHeader(ORIGINAL_CONTENT_TYPE_HEADER, originalContentType);
+		}
+		return messageBuilder.build();
+	}
+
 	private byte[] serializePayloadIfNecessary(Object originalPayload) {
 		if (originalPayload instanceof byte[]) {
 			return (byte[]) originalPayload;
 		}
-		else {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		else if (originalPayload instanceof String) {
 			try {
-				if (originalPayload instanceof String) {
-					return ((String) originalPayload).getBytes("UTF-8");
-				}
-				this.codec.serialize(originalPayload, bos);
-				return bos.toByteArray();
+				return ((String) originalPayload).getBytes("UTF-8");
 			}
-			catch (IOException e) {
+			catch (UnsupportedEncodingException e) {
 				throw new SerializationException("unable to serialize payload ["
 						+ originalPayload.getClass().getName() + "]", e);
 			}
 		}
+		else {
+			return serializeWithCodec(originalPayload).toByteArray();
+		}
+	}
+
+	private SerializationBuffer serializeWithCodec(Object originalPayload) {
+		SerializationBuffer buffer = this.serializationBuffers.get();
+		if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+			buffer = new SerializationBuffer();
+			this.serializationBuffers.set(buffer);
+		}
+		buffer.reset();
+		try {
+			this.codec.serialize(originalPayload, buffer);
+			return buffer;
+		}
+		catch (IOException e) {
+			throw new SerializationException("unable to serialize payload ["
+					+ originalPayload.getClass().getName() + "]", e);
+		}
 	}
 
 	protected final Message<?> deserializePayloadIfNecessary(Message<?> message) {
@@ -205,22 +264,44 @@ public abstract class MessageBusSupport implements MessageBus {
 				return payload;
 			}
 			else {
-				return deserializePayload((byte[]) payload, contentType);
+				byte[] bytes = (byte[]) payload;
+				return deserializePayload(bytes, 0, bytes.length, contentType);
+			}
+		}
+		else if (payload instanceof ByteBuffer && ((ByteBuffer) payload).hasArray()) {
+			ByteBuffer buffer = (ByteBuffer) payload;
+			byte[] bytes = buffer.array();
+			int offset = buffer.arrayOffset() + buffer.position();
+			int length = buffer.remaining();
+			if (APPLICATION_OCTET_STREAM.equals(contentType)) {
+				if (offset == 0 && length == bytes.length) {
+					return bytes;
+				}
+				return Arrays.copyOfRange(bytes, offset, offset + length);
+			}
+			else {
+				return deserializePayload(bytes, offset, length, contentType);
 			}
 		}
 		return payload;
 	}
 
-	private Object deserializePayload(byte[] bytes, MimeType contentType) {
+	/**
+	 * Deserialize the {@code length} bytes starting at {@code offset}; the slice is read in place, without copying it
+	 * to a new array first.
+	 */
+	private Object deserializePayload(byte[] bytes, int offset, int length, MimeType contentType) {
 		Class<?> targetType = null;
 		try {
 			if (contentType.equals(TEXT_PLAIN)) {
-				return new String(bytes, "UTF-8");
+				return new String(bytes, offset, length, "UTF-8");
 			}
 			targetType = Class.forName(contentType.getParameter("type"));
 
-
-			return codec.deserialize(bytes, targetType);
+			if (offset == 0 && length == bytes.length) {
+				return codec.deserialize(bytes, targetType);
+			}
+			return codec.deserialize(new ByteArrayInputStream(bytes, offset, length), targetType);
 		}
 		catch (ClassNotFoundException e) {
 			throw new SerializationException("unable to deserialize [" + targetType + "]. Class not found.", e);
@@ -241,4 +322,22 @@ public abstract class MessageBusSupport implements MessageBus {
 		return "application/x-java-object;type=" + originalPayload.getClass().getName();
 	}
 
+	/**
+	 * A growable byte array that is reused across serializations and exposes its contents without copying.
+	 */
+	private static class SerializationBuffer extends ByteArrayOutputStream {
+
+		private SerializationBuffer() {
+			super(1024);
+		}
+
+		private int capacity() {
+			return this.buf.length;
+		}
+
+		private ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(this.buf, 0, this.count);
+		}
+	}
+
 }
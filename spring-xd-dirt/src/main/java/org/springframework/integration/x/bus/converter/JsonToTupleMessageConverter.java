@@ -22,8 +22,8 @@ import java.util.List;
 import org.springframework.messaging.Message;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.xd.tuple.JsonParserToTupleConverter;
 import org.springframework.xd.tuple.Tuple;
-import org.springframework.xd.tuple.TupleBuilder;
 
 
 /**
@@ -39,6 +39,8 @@ public class JsonToTupleMessageConverter extends AbstractFromMessageConverter {
 		targetMimeTypes.add(MessageConverterUtils.X_JAVA_OBJECT);
 	}
 
+	private final JsonParserToTupleConverter jsonParserToTupleConverter = new JsonParserToTupleConverter();
+
 	public JsonToTupleMessageConverter() {
 		super(MimeTypeUtils.APPLICATION_JSON, targetMimeTypes);
 	}
@@ -55,14 +57,13 @@ public class JsonToTupleMessageConverter extends AbstractFromMessageConverter {
 
 	@Override
 	public Object convertFromInternal(Message<?> message, Class<?> targetClass) {
-		String source = null;
+		Tuple t = null;
 		if (message.getPayload() instanceof byte[]) {
-			source = new String((byte[]) message.getPayload());
+			t = jsonParserToTupleConverter.convert((byte[]) message.getPayload());
 		}
 		else {
-			source = (String) message.getPayload();
+			t = jsonParserToTupleConverter.convert((String) message.getPayload());
 		}
-		Tuple t = TupleBuilder.fromString(source);
 		return buildConvertedMessage(t, message.getHeaders(), MessageConverterUtils.javaObjectMimeType(t.getClass()));
 	}
 }
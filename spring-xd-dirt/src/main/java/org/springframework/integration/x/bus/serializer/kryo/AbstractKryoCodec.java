@@ -16,7 +16,6 @@
 
 package org.springframework.integration.x.bus.serializer.kryo;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,11 +29,56 @@ import com.esotericsoftware.kryo.io.Output;
 
 
 /**
+ * Base class for single type codecs using {@link com.esotericsoftware.kryo.Kryo}. Kryo instances are not thread safe
+ * and expensive to create, so each thread uses its own instance along with reusable {@link Input} and {@link Output}
+ * buffers.
  * 
  * @author David Turanski
  */
 abstract class AbstractKryoCodec<T> extends AbstractCodec<T> {
 
+	private static final int BUFFER_SIZE = 4096;
+
+	private volatile KryoRegistrar kryoRegistrar;
+
+	private final ThreadLocal<Kryo> kryos = new ThreadLocal<Kryo>() {
+
+		@Override
+		protected Kryo initialValue() {
+			Kryo kryo = getKryoInstance();
+			if (kryoRegistrar != null) {
+				kryoRegistrar.registerTypes(kryo);
+			}
+			return kryo;
+		}
+	};
+
+	private final ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+
+		@Override
+		protected Output initialValue() {
+			return new Output(BUFFER_SIZE, -1);
+		}
+	};
+
+	private final ThreadLocal<Input> inputs = new ThreadLocal<Input>() {
+
+		@Override
+		protected Input initialValue() {
+			return new Input(BUFFER_SIZE);
+		}
+	};
+
+	/**
+	 * Set a {@link KryoRegistrar} used to register additional classes with each Kryo instance. Must be set before the
+	 * codec is first used.
+	 * 
+	 * @param kryoRegistrar the registrar
+	 */
+	public void setKryoRegistrar(KryoRegistrar kryoRegistrar) {
+		this.kryoRegistrar = kryoRegistrar;
+	}
+
 	/**
 	 * Serialize an object using an existing output stream
 	 * 
@@ -45,9 +89,15 @@ abstract class AbstractKryoCodec<T> extends AbstractCodec<T> {
 	@Override
 	public void serialize(T object, OutputStream outputStream) throws IOException {
 		Assert.notNull(outputStream, "outputStream cannot be null");
-		Output output = new Output(outputStream);
-		doSerialize(object, getKryoInstance(), output);
-		output.close();
+		Output output = this.outputs.get();
+		output.setOutputStream(outputStream);
+		try {
+			doSerialize(object, this.kryos.get(), output);
+			output.close();
+		}
+		finally {
+			output.setOutputStream(null);
+		}
 	}
 
 	/**
@@ -59,10 +109,16 @@ abstract class AbstractKryoCodec<T> extends AbstractCodec<T> {
 	 */
 	@Override
 	public T deserialize(InputStream inputStream) throws IOException {
-		Input input = new Input(inputStream);
-		T result = doDeserialize(getKryoInstance(), input);
-		input.close();
-		return result;
+		Input input = this.inputs.get();
+		input.setInputStream(inputStream);
+		try {
+			T result = doDeserialize(this.kryos.get(), input);
+			input.close();
+			return result;
+		}
+		finally {
+			input.setInputStream(null);
+		}
 	}
 
 	/**
@@ -74,9 +130,14 @@ abstract class AbstractKryoCodec<T> extends AbstractCodec<T> {
 	 */
 	@Override
 	public T deserialize(byte[] bytes) throws IOException {
-		return deserialize(new ByteArrayInputStream(bytes));
+		return doDeserialize(this.kryos.get(), new Input(bytes));
 	}
 
+	/**
+	 * Create and configure a new Kryo instance. Invoked once per thread; the instance is then reused by that thread.
+	 * 
+	 * @return the Kryo instance
+	 */
 	protected Kryo getKryoInstance() {
 		return new Kryo();
 	}
@@ -16,7 +16,6 @@
 
 package org.springframework.integration.x.bus.serializer.kryo;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,13 +27,57 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
 /**
- * Base class for serializers using {@link com.esotericsoftware.kryo.Kryo}
+ * Base class for serializers using {@link com.esotericsoftware.kryo.Kryo}. Kryo instances are not thread safe and
+ * expensive to create, so each thread uses its own instance along with reusable {@link Input} and {@link Output}
+ * buffers.
  * 
  * @author David Turanski
  * @since 1.0
  */
 abstract class AbstractKryoMultiTypeCodec<T> implements MultiTypeCodec<T> {
 
+	private static final int BUFFER_SIZE = 4096;
+
+	private volatile KryoRegistrar kryoRegistrar;
+
+	private final ThreadLocal<Kryo> kryos = new ThreadLocal<Kryo>() {
+
+		@Override
+		protected Kryo initialValue() {
+			Kryo kryo = getKryoInstance();
+			if (kryoRegistrar != null) {
+				kryoRegistrar.registerTypes(kryo);
+			}
+			return kryo;
+		}
+	};
+
+	private final ThreadLocal<Output> outputs = new ThreadLocal<Output>() {
+
+		@Override
+		protected Output initialValue() {
+			return new Output(BUFFER_SIZE, -1);
+		}
+	};
+
+	private final ThreadLocal<Input> inputs = new ThreadLocal<Input>() {
+
+		@Override
+		protected Input initialValue() {
+			return new Input(BUFFER_SIZE);
+		}
+	};
+
+	/**
+	 * Set a {@link KryoRegistrar} used to register additional classes with each Kryo instance. Must be set before the
+	 * codec is first used.
+	 * 
+	 * @param kryoRegistrar the registrar
+	 */
+	public void setKryoRegistrar(KryoRegistrar kryoRegistrar) {
+		this.kryoRegistrar = kryoRegistrar;
+	}
+
 	/**
 	 * Serialize an object using an existing output stream
 	 * 
@@ -44,9 +87,19 @@ abstract class AbstractKryoMultiTypeCodec<T> implements MultiTypeCodec<T> {
 	 */
 	@Override
 	public void serialize(T object, OutputStream outputStream) throws IOException {
-		Output output = (outputStream == null) ? new Output(2048, -1) : new Output(outputStream);
-		doSerialize(object, getKryoInstance(), output);
-		output.close();
+		if (outputStream == null) {
+			doSerialize(object, this.kryos.get(), new Output(2048, -1));
+			return;
+		}
+		Output output = this.outputs.get();
+		output.setOutputStream(outputStream);
+		try {
+			doSerialize(object, this.kryos.get(), output);
+			output.close();
+		}
+		finally {
+			output.setOutputStream(null);
+		}
 	}
 
 	/**
@@ -59,10 +112,16 @@ abstract class AbstractKryoMultiTypeCodec<T> implements MultiTypeCodec<T> {
 	 */
 	@Override
 	public T deserialize(InputStream inputStream, Class<? extends T> type) throws IOException {
-		Input input = new Input(inputStream);
-		T result = doDeserialize(getKryoInstance(), input, type);
-		input.close();
-		return result;
+		Input input = this.inputs.get();
+		input.setInputStream(inputStream);
+		try {
+			T result = doDeserialize(this.kryos.get(), input, type);
+			input.close();
+			return result;
+		}
+		finally {
+			input.setInputStream(null);
+		}
 	}
 
 	/**
@@ -75,12 +134,17 @@ abstract class AbstractKryoMultiTypeCodec<T> implements MultiTypeCodec<T> {
 	 */
 	@Override
 	public T deserialize(byte[] bytes, Class<? extends T> type) throws IOException {
-		return deserialize(new ByteArrayInputStream(bytes), type);
+		return doDeserialize(this.kryos.get(), new Input(bytes), type);
 	}
 
 	protected abstract T doDeserialize(Kryo kryo, Input input, Class<? extends T> type);
 
 	protected abstract void doSerialize(T object, Kryo kryo, Output output);
 
+	/**
+	 * Create and configure a new Kryo instance. Invoked once per thread; the instance is then reused by that thread.
+	 * 
+	 * @return the Kryo instance
+	 */
 	protected abstract Kryo getKryoInstance();
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.bus.serializer.kryo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+import com.esotericsoftware.kryo.Kryo;
+
+
+/**
+ * A {@link KryoRegistrar} that registers a list of classes using consecutive IDs, starting at
+ * {@link #setRegistrationIdOffset(int) registrationIdOffset}. Because the IDs are derived from the list order rather
+ * than from the order in which payload types are first seen, they are stable across containers that share the same
+ * configuration.
+ * 
+ * @since 1.0
+ */
+public class KryoClassListRegistrar implements KryoRegistrar {
+
+	/**
+	 * Default first ID; IDs below this value are reserved for Kryo's primitive registrations and the codecs' own types.
+	 */
+	public static final int DEFAULT_REGISTRATION_ID_OFFSET = 20;
+
+	private final List<Class<?>> registeredClasses;
+
+	private volatile int registrationIdOffset = DEFAULT_REGISTRATION_ID_OFFSET;
+
+	public KryoClassListRegistrar(List<Class<?>> classes) {
+		Assert.notNull(classes, "'classes' cannot be null");
+		this.registeredClasses = new ArrayList<Class<?>>(classes);
+	}
+
+	/**
+	 * Set the ID assigned to the first class in the list.
+	 * 
+	 * @param registrationIdOffset the first ID; must not be negative
+	 */
+	public void setRegistrationIdOffset(int registrationIdOffset) {
+		Assert.isTrue(registrationIdOffset >= 0, "'registrationIdOffset' cannot be negative");
+		this.registrationIdOffset = registrationIdOffset;
+	}
+
+	@Override
+	public void registerTypes(Kryo kryo) {
+		int id = this.registrationIdOffset;
+		for (Class<?> type : this.registeredClasses) {
+			kryo.register(type, id++);
+		}
+	}
+}
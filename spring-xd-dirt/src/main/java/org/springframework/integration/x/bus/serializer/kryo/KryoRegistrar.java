@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.bus.serializer.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+
+
+/**
+ * Strategy for registering classes with a {@link Kryo} instance. Registered classes are written using a small integer
+ * ID instead of their fully qualified class name. Since the IDs must be identical on the serializing and the
+ * deserializing side, every container must be configured with the same registrar.
+ * 
+ * @since 1.0
+ */
+public interface KryoRegistrar {
+
+	/**
+	 * Register classes with the given {@link Kryo} instance. Invoked once for each instance created by a codec.
+	 * 
+	 * @param kryo the instance to register classes with
+	 */
+	void registerTypes(Kryo kryo);
+}
@@ -16,66 +16,261 @@
 
 package org.springframework.integration.x.bus.serializer.kryo;
 
-import org.springframework.beans.DirectFieldAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.format.support.FormattingConversionService;
 import org.springframework.xd.tuple.DefaultTuple;
 import org.springframework.xd.tuple.DefaultTupleConversionService;
 import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleSchema;
 import org.springframework.xd.tuple.TupleToJsonStringConverter;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.shaded.org.objenesis.strategy.StdInstantiatorStrategy;
 
 /**
  * Kryo serializer for {@link Tuple}
- * 
+ * <p>
+ * Tuples are written in a compact format: the id and timestamp, a schema (the list of field names) and then each value
+ * preceded by a one byte type tag. Values of common types are written directly; any other value is written by Kryo.
+ * A schema is written in full only the first time it occurs in a message; nested tuples with the same field names
+ * refer to it by an ID. Since producers and consumers share no schema registry, IDs are only valid within one
+ * message. On the receiving side, decoded schemas are interned as {@link TupleSchema}s, so that tuples with the same
+ * layout share one schema, and all tuples share one conversion service.
+ *
  * @author David Turanski
  * @since 1.0
  */
 public class TupleCodec extends AbstractKryoCodec<Tuple> {
 
+	private static final FormattingConversionService conversionService = new DefaultTupleConversionService();
+
+	private static final Converter<Tuple, String> tupleToStringConverter = new TupleToJsonStringConverter();
+
+	private final TupleSerializer tupleSerializer = new TupleSerializer();
+
 	@Override
 	protected void doSerialize(Tuple object, Kryo kryo, Output output) {
-		kryo.writeObject(output, object);
+		kryo.writeObject(output, object, this.tupleSerializer);
 	}
 
 	@Override
 	protected Tuple doDeserialize(Kryo kryo, Input input) {
-		DefaultTuple tuple = kryo.readObject(input, DefaultTuple.class);
-		restoreConversionService(tuple);
+		return kryo.readObject(input, DefaultTuple.class, this.tupleSerializer);
+	}
 
-		return tuple;
+	@Override
+	protected Kryo getKryoInstance() {
+		Kryo kryo = new Kryo();
+		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+		kryo.register(DefaultTuple.class, this.tupleSerializer);
+		return kryo;
 	}
 
 	/**
-	 * @param tuple
+	 * Writes and reads tuples in the compact format; also used by Kryo for tuples nested in other values.
 	 */
-	private void restoreConversionService(DefaultTuple tuple) {
-		setConversionService(tuple, new DefaultTupleConversionService(), new TupleToJsonStringConverter());
-		for (Object value : tuple.getValues()) {
-			if (value instanceof DefaultTuple) {
-				restoreConversionService((DefaultTuple) value);
+	private class TupleSerializer extends Serializer<Tuple> {
+
+		private static final byte NULL = 0;
+
+		private static final byte STRING = 1;
+
+		private static final byte INTEGER = 2;
+
+		private static final byte LONG = 3;
+
+		private static final byte DOUBLE = 4;
+
+		private static final byte FLOAT = 5;
+
+		private static final byte BOOLEAN = 6;
+
+		private static final byte SHORT = 7;
+
+		private static final byte BYTE = 8;
+
+		private static final byte CHARACTER = 9;
+
+		private static final byte DATE = 10;
+
+		private static final byte TUPLE = 11;
+
+		private static final byte OBJECT = 12;
+
+		private final Object writtenSchemasKey = new Object();
+
+		private final Object readSchemasKey = new Object();
+
+		@Override
+		public void write(Kryo kryo, Output output, Tuple tuple) {
+			UUID id = tuple.getId();
+			output.writeLong(id.getMostSignificantBits());
+			output.writeLong(id.getLeastSignificantBits());
+			output.writeLong(tuple.getTimestamp());
+			writeSchema(kryo, output, tuple instanceof DefaultTuple ? ((DefaultTuple) tuple).getSchema()
+					: TupleSchema.of(tuple.getFieldNames()));
+			for (Object value : tuple.getValues()) {
+				writeValue(kryo, output, value);
 			}
 		}
-	}
 
-	/**
-	 * @param defaultTupleConversionService
-	 * @param tupleToJsonStringConverter
-	 */
-	private void setConversionService(DefaultTuple tuple, DefaultTupleConversionService defaultTupleConversionService,
-			TupleToJsonStringConverter tupleToJsonStringConverter) {
-		DirectFieldAccessor dfa = new DirectFieldAccessor(tuple);
-		dfa.setPropertyValue("formattingConversionService", defaultTupleConversionService);
-		dfa.setPropertyValue("tupleToStringConverter", tupleToJsonStringConverter);
-	}
+		@Override
+		public Tuple read(Kryo kryo, Input input, Class<Tuple> type) {
+			UUID id = new UUID(input.readLong(), input.readLong());
+			Long timestamp = input.readLong();
+			TupleSchema schema = readSchema(kryo, input);
+			Object[] values = new Object[schema.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = readValue(kryo, input);
+			}
+			DefaultTuple tuple = new DefaultTuple(schema, values, conversionService, id, timestamp);
+			tuple.setTupleToStringConverter(tupleToStringConverter);
+			return tuple;
+		}
 
-	@Override
-	protected Kryo getKryoInstance() {
-		Kryo kryo = new Kryo();
-		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
-		kryo.register(DefaultTuple.class);
-		return kryo;
+		/**
+		 * Write the schema ID plus one, or 0 followed by the field names if the schema has not been written yet.
+		 */
+		@SuppressWarnings("unchecked")
+		private void writeSchema(Kryo kryo, Output output, TupleSchema schema) {
+			Map<TupleSchema, Integer> writtenSchemas = (Map<TupleSchema, Integer>) kryo.getGraphContext().get(
+					this.writtenSchemasKey);
+			if (writtenSchemas == null) {
+				writtenSchemas = new HashMap<TupleSchema, Integer>();
+				kryo.getGraphContext().put(this.writtenSchemasKey, writtenSchemas);
+			}
+			Integer schemaId = writtenSchemas.get(schema);
+			if (schemaId != null) {
+				output.writeVarInt(schemaId + 1, true);
+				return;
+			}
+			writtenSchemas.put(schema, writtenSchemas.size());
+			output.writeVarInt(0, true);
+			output.writeVarInt(schema.size(), true);
+			for (String name : schema.getFieldNames()) {
+				output.writeString(name);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private TupleSchema readSchema(Kryo kryo, Input input) {
+			List<TupleSchema> readSchemas = (List<TupleSchema>) kryo.getGraphContext().get(this.readSchemasKey);
+			if (readSchemas == null) {
+				readSchemas = new ArrayList<TupleSchema>();
+				kryo.getGraphContext().put(this.readSchemasKey, readSchemas);
+			}
+			int schemaRef = input.readVarInt(true);
+			if (schemaRef > 0) {
+				return readSchemas.get(schemaRef - 1);
+			}
+			int size = input.readVarInt(true);
+			List<String> names = new ArrayList<String>(size);
+			for (int i = 0; i < size; i++) {
+				names.add(input.readString());
+			}
+			TupleSchema schema = TupleSchema.of(names);
+			readSchemas.add(schema);
+			return schema;
+		}
+
+		private void writeValue(Kryo kryo, Output output, Object value) {
+			if (value == null) {
+				output.writeByte(NULL);
+				return;
+			}
+			Class<?> type = value.getClass();
+			if (type == String.class) {
+				output.writeByte(STRING);
+				output.writeString((String) value);
+			}
+			else if (type == Integer.class) {
+				output.writeByte(INTEGER);
+				output.writeInt((Integer) value);
+			}
+			else if (type == Long.class) {
+				output.writeByte(LONG);
+				output.writeLong((Long) value);
+			}
+			else if (type == Double.class) {
+				output.writeByte(DOUBLE);
+				output.writeDouble((Double) value);
+			}
+			else if (type == Float.class) {
+				output.writeByte(FLOAT);
+				output.writeFloat((Float) value);
+			}
+			else if (type == Boolean.class) {
+				output.writeByte(BOOLEAN);
+				output.writeBoolean((Boolean) value);
+			}
+			else if (type == Short.class) {
+				output.writeByte(SHORT);
+				output.writeShort((Short) value);
+			}
+			else if (type == Byte.class) {
+				output.writeByte(BYTE);
+				output.writeByte((Byte) value);
+			}
+			else if (type == Character.class) {
+				output.writeByte(CHARACTER);
+				output.writeChar((Character) value);
+			}
+			else if (type == Date.class) {
+				output.writeByte(DATE);
+				output.writeLong(((Date) value).getTime());
+			}
+			else if (value instanceof Tuple) {
+				output.writeByte(TUPLE);
+				write(kryo, output, (Tuple) value);
+			}
+			else {
+				output.writeByte(OBJECT);
+				kryo.writeClassAndObject(output, value);
+			}
+		}
+
+		private Object readValue(Kryo kryo, Input input) {
+			byte tag = input.readByte();
+			switch (tag) {
+				case NULL:
+					return null;
+				case STRING:
+					return input.readString();
+				case INTEGER:
+					return input.readInt();
+				case LONG:
+					return input.readLong();
+				case DOUBLE:
+					return input.readDouble();
+				case FLOAT:
+					return input.readFloat();
+				case BOOLEAN:
+					return input.readBoolean();
+				case SHORT:
+					return input.readShort();
+				case BYTE:
+					return input.readByte();
+				case CHARACTER:
+					return input.readChar();
+				case DATE:
+					return new Date(input.readLong());
+				case TUPLE:
+					return read(kryo, input, Tuple.class);
+				case OBJECT:
+					return kryo.readClassAndObject(input);
+				default:
+					throw new IllegalStateException("Unknown tuple value type: " + tag);
+			}
+		}
 	}
 }
@@ -16,6 +16,9 @@
 
 package org.springframework.integration.x.rabbit;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.aopalliance.aop.Advice;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -23,12 +26,16 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.MessageDeliveryMode;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.config.StatelessRetryOperationsInterceptorFactoryBean;
+import org.springframework.amqp.rabbit.connection.AbstractConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.support.GenericApplicationContext;
@@ -38,6 +45,7 @@ import org.springframework.integration.amqp.inbound.AmqpInboundChannelAdapter;
 import org.springframework.integration.amqp.outbound.AmqpOutboundEndpoint;
 import org.springframework.integration.amqp.support.DefaultAmqpHeaderMapper;
 import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.NullChannel;
 import org.springframework.integration.endpoint.EventDrivenConsumer;
 import org.springframework.integration.handler.AbstractMessageHandler;
 import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
@@ -51,7 +59,11 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.rabbitmq.client.Address;
 
 /**
  * A {@link MessageBus} implementation backed by RabbitMQ.
@@ -66,12 +78,33 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 
 	private final RabbitAdmin rabbitAdmin;
 
+	/**
+	 * Header counting the attempts to publish a message that the broker did not confirm.
+	 */
+	private static final String PUBLISH_ATTEMPTS_HEADER = "xdPublishAttempts";
+
 	private final RabbitTemplate rabbitTemplate = new RabbitTemplate();
 
 	private final ConnectionFactory connectionFactory;
 
+	private volatile ConnectionFactory producerConnectionFactory;
+
+	private volatile CachingConnectionFactory derivedProducerConnectionFactory;
+
+	private volatile ExecutorService republishExecutor;
+
+	private volatile boolean publisherConfirms;
+
+	private volatile int maxPublishAttempts = 3;
+
 	private volatile Integer concurrentConsumers;
 
+	private volatile Integer prefetchCount;
+
+	private volatile Integer txSize;
+
+	private volatile MessageDeliveryMode defaultDeliveryMode;
+
 	private final DefaultAmqpHeaderMapper mapper;
 
 	private final GenericApplicationContext autoDeclareContext = new GenericApplicationContext();
@@ -92,6 +125,85 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 		this.setCodec(codec);
 	}
 
+	/**
+	 * Set the number of consumers for each queue. By default the listener container's default is used.
+	 * 
+	 * @param concurrentConsumers the number of consumers
+	 */
+	public void setConcurrentConsumers(int concurrentConsumers) {
+		this.concurrentConsumers = concurrentConsumers;
+	}
+
+	/**
+	 * Set the number of unacknowledged messages the broker sends to each consumer. By default the listener
+	 * container's default (1) is used, which limits consumer throughput to one round trip per message.
+	 * 
+	 * @param prefetchCount the prefetch count
+	 */
+	public void setPrefetchCount(int prefetchCount) {
+		this.prefetchCount = prefetchCount;
+	}
+
+	/**
+	 * Set the number of messages a consumer processes before acknowledging them with a single ack. Should not exceed
+	 * the {@link #setPrefetchCount(int) prefetch count}, since the consumer otherwise waits for messages the broker
+	 * will not send until the outstanding ones are acknowledged. By default every message is acknowledged.
+	 * 
+	 * @param txSize the number of messages per acknowledgement
+	 */
+	public void setTxSize(int txSize) {
+		this.txSize = txSize;
+	}
+
+	/**
+	 * Set the delivery mode of sent messages, unless a message carries an
+	 * {@link AmqpHeaders#DELIVERY_MODE amqp_deliveryMode} header already. By default messages are persistent.
+	 * 
+	 * @param defaultDeliveryMode the delivery mode
+	 */
+	public void setDefaultDeliveryMode(MessageDeliveryMode defaultDeliveryMode) {
+		this.defaultDeliveryMode = defaultDeliveryMode;
+	}
+
+	/**
+	 * Set the connection factory that producers publish with. By default producers share the connection factory of
+	 * the consumers, unless {@link #setPublisherConfirms(boolean) publisher confirms} are enabled: producers then
+	 * publish on a connection factory with confirms enabled that connects to the same addresses, with the same
+	 * credentials and virtual host, as the connection factory of the consumers.
+	 * 
+	 * @param producerConnectionFactory the connection factory for producers
+	 */
+	public void setProducerConnectionFactory(ConnectionFactory producerConnectionFactory) {
+		Assert.notNull(producerConnectionFactory, "producerConnectionFactory must not be null");
+		this.producerConnectionFactory = producerConnectionFactory;
+		this.rabbitTemplate.setConnectionFactory(producerConnectionFactory);
+	}
+
+	/**
+	 * Enable publisher confirms. Sends do not wait for the confirm; a message the broker rejects is published again
+	 * from a separate thread, up to the {@link #setMaxPublishAttempts(int) maximum number of attempts}, and then
+	 * logged. A {@link #setProducerConnectionFactory(ConnectionFactory) producer connection factory} must be a
+	 * {@link CachingConnectionFactory} with publisher confirms enabled; without one, the connection factory of the
+	 * consumers must be an {@link AbstractConnectionFactory} to derive one from. The connection factory of the
+	 * consumers is not modified.
+	 * 
+	 * @param publisherConfirms true to enable publisher confirms
+	 */
+	public void setPublisherConfirms(boolean publisherConfirms) {
+		this.publisherConfirms = publisherConfirms;
+	}
+
+	/**
+	 * Set the number of times a message is published before a rejection by the broker is reported. Only applies with
+	 * {@link #setPublisherConfirms(boolean) publisher confirms}. Default 3.
+	 * 
+	 * @param maxPublishAttempts the maximum number of attempts
+	 */
+	public void setMaxPublishAttempts(int maxPublishAttempts) {
+		Assert.isTrue(maxPublishAttempts > 0, "maxPublishAttempts must be positive");
+		this.maxPublishAttempts = maxPublishAttempts;
+	}
+
 	@Override
 	public void bindConsumer(final String name, MessageChannel moduleInputChannel, boolean aliasHint) {
 		if (logger.isInfoEnabled()) {
@@ -123,6 +235,12 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 		if (this.concurrentConsumers != null) {
 			listenerContainer.setConcurrentConsumers(this.concurrentConsumers);
 		}
+		if (this.prefetchCount != null) {
+			listenerContainer.setPrefetchCount(this.prefetchCount);
+		}
+		if (this.txSize != null) {
+			listenerContainer.setTxSize(this.txSize);
+		}
 		listenerContainer.setQueues(queue);
 		Advice advice = new StatelessRetryOperationsInterceptorFactoryBean().getObject();
 		listenerContainer.setAdviceChain(new Advice[] { advice });
@@ -154,17 +272,77 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 
 	private AmqpOutboundEndpoint buildOutboundEndpoint(final String name) {
 		rabbitAdmin.declareQueue(new Queue(name));
-		AmqpOutboundEndpoint queue = new AmqpOutboundEndpoint(rabbitTemplate);
+		AmqpOutboundEndpoint queue = createOutboundEndpoint();
 		queue.setRoutingKey(name); // uses default exchange
 		queue.setHeaderMapper(mapper);
 		queue.afterPropertiesSet();
 		return queue;
 	}
 
+	/**
+	 * Create an outbound endpoint. With publisher confirms, each endpoint publishes with its own template, as a
+	 * template supports a single confirm callback, and passes the message as the correlation data of the confirm so
+	 * that a rejected message can be published again.
+	 */
+	private AmqpOutboundEndpoint createOutboundEndpoint() {
+		if (!this.publisherConfirms) {
+			return new AmqpOutboundEndpoint(rabbitTemplate);
+		}
+		RabbitTemplate template = new RabbitTemplate(getConfirmingConnectionFactory());
+		AmqpOutboundEndpoint endpoint = new AmqpOutboundEndpoint(template);
+		endpoint.setBeanFactory(new DefaultListableBeanFactory());
+		endpoint.setConfirmCorrelationExpression("#this");
+		endpoint.setConfirmAckChannel(new NullChannel());
+		DirectChannel nacks = new DirectChannel();
+		nacks.subscribe(new NackHandler(endpoint, getRepublishExecutor()));
+		endpoint.setConfirmNackChannel(nacks);
+		return endpoint;
+	}
+
+	/**
+	 * Return the connection factory producers publish with when publisher confirms are enabled, deriving it from the
+	 * connection factory of the consumers the first time unless one was set.
+	 */
+	synchronized ConnectionFactory getConfirmingConnectionFactory() {
+		if (this.producerConnectionFactory != null) {
+			Assert.isTrue(this.producerConnectionFactory instanceof CachingConnectionFactory
+					&& ((CachingConnectionFactory) this.producerConnectionFactory).isPublisherConfirms(),
+					"publisher confirms require a producer CachingConnectionFactory with publisher confirms enabled");
+			return this.producerConnectionFactory;
+		}
+		if (this.derivedProducerConnectionFactory == null) {
+			Assert.isInstanceOf(AbstractConnectionFactory.class, this.connectionFactory,
+					"publisher confirms require a producer connection factory, or one to derive it from");
+			// the settings of the consumers' factory are not exposed, but the client factory holding them can be shared
+			DirectFieldAccessor accessor = new DirectFieldAccessor(this.connectionFactory);
+			CachingConnectionFactory factory = new CachingConnectionFactory(
+					(com.rabbitmq.client.ConnectionFactory) accessor.getPropertyValue("rabbitConnectionFactory"));
+			Address[] addresses = (Address[]) accessor.getPropertyValue("addresses");
+			if (addresses != null) {
+				factory.setAddresses(StringUtils.arrayToCommaDelimitedString(addresses));
+			}
+			factory.setPublisherConfirms(true);
+			this.derivedProducerConnectionFactory = factory;
+		}
+		return this.derivedProducerConnectionFactory;
+	}
+
+	/**
+	 * Return the executor publishing rejected messages again, so that the confirm callback of the connection is not
+	 * blocked by a publish.
+	 */
+	private synchronized ExecutorService getRepublishExecutor() {
+		if (this.republishExecutor == null) {
+			this.republishExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory(
+					"rabbit-bus-republisher-"));
+		}
+		return this.republishExecutor;
+	}
+
 	@Override
 	public void bindPubSubProducer(String name, MessageChannel moduleOutputChannel) {
 		rabbitAdmin.declareExchange(new FanoutExchange("topic." + name));
-		AmqpOutboundEndpoint fanout = new AmqpOutboundEndpoint(rabbitTemplate);
+		AmqpOutboundEndpoint fanout = createOutboundEndpoint();
 		fanout.setExchangeName("topic." + name);
 		fanout.setHeaderMapper(mapper);
 		fanout.afterPropertiesSet();
@@ -214,7 +392,7 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 		this.rabbitAdmin.declareQueue(requestQueue);
 		this.doRegisterConsumer(name, requests, requestQueue);
 
-		AmqpOutboundEndpoint replyQueue = new AmqpOutboundEndpoint(rabbitTemplate);
+		AmqpOutboundEndpoint replyQueue = createOutboundEndpoint();
 		replyQueue.setBeanFactory(new DefaultListableBeanFactory());
 		replyQueue.setRoutingKeyExpression("headers['" + AmqpHeaders.REPLY_TO + "']");
 		replyQueue.setHeaderMapper(mapper);
@@ -223,8 +401,14 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 	}
 
 	@Override
-	public void destroy() {
+	public synchronized void destroy() {
 		stopBindings();
+		if (this.republishExecutor != null) {
+			this.republishExecutor.shutdown();
+		}
+		if (this.derivedProducerConnectionFactory != null) {
+			this.derivedProducerConnectionFactory.destroy();
+		}
 	}
 
 	private class SendingHandler extends AbstractMessageHandler {
@@ -242,15 +426,67 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 		protected void handleMessageInternal(Message<?> message) throws Exception {
 			Message<?> messageToSend = serializePayloadIfNecessary(message,
 					MediaType.APPLICATION_OCTET_STREAM);
-			if (replyTo != null) {
-				messageToSend = MessageBuilder.fromMessage(messageToSend)
-						.setHeader(AmqpHeaders.REPLY_TO, this.replyTo)
-						.build();
+			if (replyTo != null || defaultDeliveryMode != null) {
+				MessageBuilder<?> builder = MessageBuilder.fromMessage(messageToSend);
+				if (replyTo != null) {
+					builder.setHeader(AmqpHeaders.REPLY_TO, this.replyTo);
+				}
+				if (defaultDeliveryMode != null) {
+					builder.setHeaderIfAbsent(AmqpHeaders.DELIVERY_MODE, defaultDeliveryMode);
+				}
+				messageToSend = builder.build();
 			}
 			this.delegate.handleMessage(messageToSend);
 		}
 	}
 
+	/**
+	 * Publishes a message rejected by the broker again through the endpoint that published it, on the given executor
+	 * rather than on the thread of the confirm callback, and reports it once the maximum number of attempts is
+	 * reached.
+	 */
+	private class NackHandler implements MessageHandler {
+
+		private final MessageHandler endpoint;
+
+		private final ExecutorService executor;
+
+		private NackHandler(MessageHandler endpoint, ExecutorService executor) {
+			this.endpoint = endpoint;
+			this.executor = executor;
+		}
+
+		@Override
+		public void handleMessage(Message<?> nack) {
+			Message<?> message = (Message<?>) nack.getPayload();
+			Integer attempts = message.getHeaders().get(PUBLISH_ATTEMPTS_HEADER, Integer.class);
+			int attempt = (attempts == null ? 1 : attempts) + 1;
+			if (attempt > maxPublishAttempts) {
+				logger.error("Message " + message.getHeaders().getId() + " was not confirmed by the broker after "
+						+ maxPublishAttempts + " attempts");
+				return;
+			}
+			if (logger.isWarnEnabled()) {
+				logger.warn("Message " + message.getHeaders().getId() + " was not confirmed by the broker, "
+						+ "publishing it again");
+			}
+			final Message<?> retry = MessageBuilder.fromMessage(message).setHeader(PUBLISH_ATTEMPTS_HEADER, attempt)
+					.build();
+			this.executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						endpoint.handleMessage(retry);
+					}
+					catch (RuntimeException e) {
+						logger.error("Failed to publish message " + retry.getHeaders().getId() + " again", e);
+					}
+				}
+			});
+		}
+	}
+
 	private class ReceivingHandler extends AbstractReplyProducingMessageHandler {
 
 		@Override
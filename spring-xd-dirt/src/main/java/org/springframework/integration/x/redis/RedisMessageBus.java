@@ -22,10 +22,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.Lifecycle;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.http.MediaType;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.endpoint.EventDrivenConsumer;
 import org.springframework.integration.endpoint.MessageProducerSupport;
@@ -46,6 +46,8 @@ import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.util.Assert;
 
 /**
@@ -69,6 +71,18 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 
 	private volatile EvaluationContext evaluationContext;
 
+	private volatile int producerBatchSize = 1;
+
+	private volatile long producerBatchTimeout = 100;
+
+	private volatile int consumerBatchSize = 1;
+
+	private volatile int consumerConcurrency = 1;
+
+	private volatile int consumerPrefetch = 0;
+
+	private ThreadPoolTaskScheduler batchingTaskScheduler;
+
 	public RedisMessageBus(RedisConnectionFactory connectionFactory, MultiTypeCodec<Object> codec) {
 		Assert.notNull(connectionFactory, "connectionFactory must not be null");
 		Assert.notNull(codec, "codec must not be null");
@@ -81,12 +95,81 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		this.evaluationContext = context;
 	}
 
+	/**
+	 * Set the maximum number of messages a producer sends to a queue with a single LPUSH. The default (1) sends every
+	 * message as soon as it is received; larger values enable batching. Applies to producers bound afterwards;
+	 * pub/sub and reply producers are never batched.
+	 * 
+	 * @param producerBatchSize the batch size
+	 */
+	public void setProducerBatchSize(int producerBatchSize) {
+		Assert.isTrue(producerBatchSize > 0, "'producerBatchSize' must be positive");
+		this.producerBatchSize = producerBatchSize;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds a message is held by a batching producer before it is sent. Default 100.
+	 * 
+	 * @param producerBatchTimeout the timeout
+	 */
+	public void setProducerBatchTimeout(long producerBatchTimeout) {
+		Assert.isTrue(producerBatchTimeout > 0, "'producerBatchTimeout' must be positive");
+		this.producerBatchTimeout = producerBatchTimeout;
+	}
+
+	/**
+	 * Set the maximum number of messages a consumer pops from a queue per round trip. The default (1) pops one message
+	 * per blocking call; larger values drain the queue in batches. Applies to consumers bound afterwards; pub/sub and
+	 * reply consumers are never batched.
+	 * 
+	 * @param consumerBatchSize the batch size
+	 */
+	public void setConsumerBatchSize(int consumerBatchSize) {
+		Assert.isTrue(consumerBatchSize > 0, "'consumerBatchSize' must be positive");
+		this.consumerBatchSize = consumerBatchSize;
+	}
+
+	/**
+	 * Set the number of threads delivering messages from each queue to the module. Default 1. Without a
+	 * {@link #setConsumerPrefetch(int) prefetch}, each thread pops its own batches, so with more than one thread
+	 * messages are only delivered in order within a batch; with a prefetch and more than one thread, no ordering is
+	 * guaranteed.
+	 * 
+	 * @param consumerConcurrency the number of threads
+	 */
+	public void setConsumerConcurrency(int consumerConcurrency) {
+		Assert.isTrue(consumerConcurrency > 0, "'consumerConcurrency' must be positive");
+		this.consumerConcurrency = consumerConcurrency;
+	}
+
+	/**
+	 * Set the capacity of a bounded queue between the thread popping messages from Redis and the threads delivering
+	 * them to the module, so that fetching overlaps with processing. Default 0, meaning no hand-off queue.
+	 * 
+	 * @param consumerPrefetch the capacity of the hand-off queue
+	 * @see RedisQueueBatchingMessageDrivenEndpoint
+	 */
+	public void setConsumerPrefetch(int consumerPrefetch) {
+		Assert.isTrue(consumerPrefetch >= 0, "'consumerPrefetch' cannot be negative");
+		this.consumerPrefetch = consumerPrefetch;
+	}
+
 	@Override
 	public void bindConsumer(final String name, MessageChannel moduleInputChannel, boolean aliasHint) {
-		RedisQueueMessageDrivenEndpoint adapter = new RedisQueueMessageDrivenEndpoint("queue." + name,
-				this.connectionFactory);
-		adapter.setSerializer(null);
-		doRegisterConsumer(name, moduleInputChannel, adapter);
+		if (this.consumerBatchSize > 1 || this.consumerConcurrency > 1 || this.consumerPrefetch > 0) {
+			RedisQueueBatchingMessageDrivenEndpoint adapter = new RedisQueueBatchingMessageDrivenEndpoint("queue."
+					+ name, this.connectionFactory);
+			adapter.setBatchSize(this.consumerBatchSize);
+			adapter.setConcurrency(this.consumerConcurrency);
+			adapter.setPrefetch(this.consumerPrefetch);
+			doRegisterConsumer(name, moduleInputChannel, adapter);
+		}
+		else {
+			RedisQueueMessageDrivenEndpoint adapter = new RedisQueueMessageDrivenEndpoint("queue." + name,
+					this.connectionFactory);
+			adapter.setSerializer(null);
+			doRegisterConsumer(name, moduleInputChannel, adapter);
+		}
 	}
 
 	@Override
@@ -115,10 +198,19 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 	@Override
 	public void bindProducer(final String name, MessageChannel moduleOutputChannel, boolean aliasHint) {
 		Assert.isInstanceOf(SubscribableChannel.class, moduleOutputChannel);
-		RedisQueueOutboundChannelAdapter queue = new RedisQueueOutboundChannelAdapter("queue." + name,
-				connectionFactory);
-		queue.afterPropertiesSet();
-		doRegisterProducer(name, moduleOutputChannel, queue);
+		if (this.producerBatchSize > 1) {
+			RedisQueueBatchingMessageHandler queue = new RedisQueueBatchingMessageHandler("queue." + name,
+					connectionFactory, this.producerBatchSize, this.producerBatchTimeout, getBatchingTaskScheduler());
+			queue.setBeanName("outbound." + name + ".batching");
+			queue.afterPropertiesSet();
+			doRegisterProducer(name, moduleOutputChannel, queue);
+		}
+		else {
+			RedisQueueOutboundChannelAdapter queue = new RedisQueueOutboundChannelAdapter("queue." + name,
+					connectionFactory);
+			queue.afterPropertiesSet();
+			doRegisterProducer(name, moduleOutputChannel, queue);
+		}
 	}
 
 	@Override
@@ -133,11 +225,31 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		this.doRegisterProducer(name, moduleOutputChannel, delegate, null);
 	}
 
-	private void doRegisterProducer(final String name, MessageChannel moduleOutputChannel, MessageHandler delegate,
-			String replyTo) {
+	private void doRegisterProducer(final String name, MessageChannel moduleOutputChannel,
+			final MessageHandler delegate, String replyTo) {
 		Assert.isInstanceOf(SubscribableChannel.class, moduleOutputChannel);
 		MessageHandler handler = new SendingHandler(delegate, replyTo);
-		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler);
+		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler) {
+
+			@Override
+			protected void doStart() {
+				if (delegate instanceof Lifecycle) {
+					((Lifecycle) delegate).start();
+				}
+				super.doStart();
+			}
+
+			/**
+			 * Unsubscribe first, so that a batching delegate flushes after the last message has been received.
+			 */
+			@Override
+			protected void doStop() {
+				super.doStop();
+				if (delegate instanceof Lifecycle) {
+					((Lifecycle) delegate).stop();
+				}
+			}
+		};
 		consumer.setBeanName("outbound." + name);
 		consumer.afterPropertiesSet();
 		addBinding(Binding.forProducer(moduleOutputChannel, consumer));
@@ -183,6 +295,21 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 	@Override
 	public void destroy() {
 		stopBindings();
+		synchronized (this) {
+			if (this.batchingTaskScheduler != null) {
+				this.batchingTaskScheduler.destroy();
+				this.batchingTaskScheduler = null;
+			}
+		}
+	}
+
+	private synchronized TaskScheduler getBatchingTaskScheduler() {
+		if (this.batchingTaskScheduler == null) {
+			this.batchingTaskScheduler = new ThreadPoolTaskScheduler();
+			this.batchingTaskScheduler.setThreadNamePrefix("redis-bus-batch-");
+			this.batchingTaskScheduler.afterPropertiesSet();
+		}
+		return this.batchingTaskScheduler;
 	}
 
 	private class SendingHandler extends AbstractMessageHandler {
@@ -199,17 +326,14 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 
 		@Override
 		protected void handleMessageInternal(Message<?> message) throws Exception {
-			@SuppressWarnings("unchecked")
-			Message<byte[]> transformed = (Message<byte[]>) serializePayloadIfNecessary(message,
-					MediaType.APPLICATION_OCTET_STREAM);
+			Message<ByteBuffer> transformed = serializePayloadToBuffer(message);
 			if (this.replyTo != null) {
 				transformed = MessageBuilder.fromMessage(transformed)
 						.setHeader(REPLY_TO, this.replyTo)
 						.build();
 			}
-			Message<?> messageToSend = embeddedHeadersMessageConverter.embedHeaders(transformed,
+			Message<byte[]> messageToSend = embeddedHeadersMessageConverter.embedHeaders(transformed,
 					MessageHeaders.CONTENT_TYPE, ORIGINAL_CONTENT_TYPE_HEADER, REPLY_TO);
-			Assert.isInstanceOf(byte[].class, messageToSend.getPayload());
 			delegate.handleMessage(messageToSend);
 		}
 
@@ -236,56 +360,62 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 
 		/**
 		 * Encodes requested headers into payload; max headers = 255; max header name length = 255; max header value
-		 * length = 255.
+		 * length = 255. The headers and the payload are written into a single array of the exact size.
 		 * 
 		 * @throws UnsupportedEncodingException
 		 */
-		Message<byte[]> embedHeaders(Message<byte[]> message, String... headers) throws UnsupportedEncodingException {
-			String[] headerValues = new String[headers.length];
-			int n = 0;
+		Message<byte[]> embedHeaders(Message<ByteBuffer> message, String... headers)
+				throws UnsupportedEncodingException {
+			byte[][] headerNames = new byte[headers.length][];
+			byte[][] headerValues = new byte[headers.length][];
 			int headerCount = 0;
 			int headersLength = 0;
-			for (String header : headers) {
-				String value = message.getHeaders().get(header) == null ? null
-						: message.getHeaders().get(header).toString();
-				headerValues[n++] = value;
+			for (int i = 0; i < headers.length; i++) {
+				Object value = message.getHeaders().get(headers[i]);
 				if (value != null) {
+					headerNames[i] = headers[i].getBytes("UTF-8");
+					headerValues[i] = value.toString().getBytes("UTF-8");
 					headerCount++;
-					headersLength += header.length() + value.length();
+					headersLength += headerNames[i].length + headerValues[i].length;
 				}
 			}
-			byte[] newPayload = new byte[message.getPayload().length + headersLength + headerCount * 2 + 1];
+			ByteBuffer payload = message.getPayload().duplicate();
+			byte[] newPayload = new byte[payload.remaining() + headersLength + headerCount * 2 + 1];
 			ByteBuffer byteBuffer = ByteBuffer.wrap(newPayload);
 			byteBuffer.put((byte) headerCount);
 			for (int i = 0; i < headers.length; i++) {
 				if (headerValues[i] != null) {
-					byteBuffer.put((byte) headers[i].length());
-					byteBuffer.put(headers[i].getBytes("UTF-8"));
-					byteBuffer.put((byte) headerValues[i].length());
-					byteBuffer.put(headerValues[i].getBytes("UTF-8"));
+					byteBuffer.put((byte) headerNames[i].length);
+					byteBuffer.put(headerNames[i]);
+					byteBuffer.put((byte) headerValues[i].length);
+					byteBuffer.put(headerValues[i]);
 				}
 			}
-			byteBuffer.put(message.getPayload());
+			byteBuffer.put(payload);
 			return MessageBuilder.withPayload(newPayload).copyHeaders(message.getHeaders()).build();
 		}
 
-		Message<byte[]> extractHeaders(Message<byte[]> message) throws UnsupportedEncodingException {
+		/**
+		 * Decodes the embedded headers. The payload of the returned message is a {@link ByteBuffer} view of the
+		 * original bytes following the headers rather than a copy.
+		 * 
+		 * @throws UnsupportedEncodingException
+		 */
+		Message<ByteBuffer> extractHeaders(Message<byte[]> message) throws UnsupportedEncodingException {
 			byte[] bytes = message.getPayload();
 			ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-			int headerCount = byteBuffer.get();
+			int headerCount = byteBuffer.get() & 0xff;
 			Map<String, String> headers = new HashMap<String, String>();
 			for (int i = 0; i < headerCount; i++) {
-				int len = byteBuffer.get();
+				int len = byteBuffer.get() & 0xff;
 				String headerName = new String(bytes, byteBuffer.position(), len, "UTF-8");
 				byteBuffer.position(byteBuffer.position() + len);
-				len = byteBuffer.get();
+				len = byteBuffer.get() & 0xff;
 				String headerValue = new String(bytes, byteBuffer.position(), len, "UTF-8");
 				byteBuffer.position(byteBuffer.position() + len);
 				headers.put(headerName, headerValue);
 			}
-			byte[] newPayload = new byte[byteBuffer.remaining()];
-			byteBuffer.get(newPayload);
-			return MessageBuilder.withPayload(newPayload).copyHeaders(headers).build();
+			return MessageBuilder.withPayload(byteBuffer).copyHeaders(headers).build();
 		}
 
 	}
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.redis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * A message-driven endpoint that drains a Redis list in batches. Each round trip blocks in BRPOP until an element is
+ * available and then pops up to {@code batchSize - 1} further elements with a script that stops at the first RPOP
+ * that finds the list empty, so a busy queue is drained with two network round trips per batch instead of one per
+ * element, and a nearly empty one does not cost {@code batchSize} commands. The elements are sent to the output
+ * channel as {@code byte[]} payloads.
+ * <p>
+ * The endpoint runs in one of two modes, which differ in their ordering guarantees:
+ * <ul>
+ * <li>Without a {@code prefetch} (the default), {@code concurrency} threads each pop batches and dispatch them
+ * before popping again. With one thread, messages are dispatched in the order in which they were pushed; with more,
+ * ordering is only preserved within a batch.</li>
+ * <li>With a {@code prefetch} greater than zero, a single thread pops batches into a bounded hand-off queue of that
+ * capacity, and {@code concurrency} threads take messages from it and dispatch them. Fetching from Redis thus
+ * overlaps with processing, and the fetcher blocks while the hand-off queue is full. With one dispatching thread,
+ * messages are dispatched in push order; with more, no ordering is guaranteed.</li>
+ * </ul>
+ * Messages that have been popped are always dispatched, including any still held in the hand-off queue when the
+ * endpoint is stopped. The threads of a stopped endpoint exit on their own once their current BRPOP returns; if the
+ * endpoint is started again, it first waits for them so that the threads of the two starts do not run side by side.
+ *
+ * @since 1.0
+ */
+public class RedisQueueBatchingMessageDrivenEndpoint extends MessageProducerSupport {
+
+	public static final long DEFAULT_RECEIVE_TIMEOUT = 1000;
+
+	public static final long DEFAULT_RECOVERY_INTERVAL = 5000;
+
+	/**
+	 * Pops up to ARGV[1] elements from the list KEYS[1], stopping once it is empty.
+	 */
+	private static final byte[] DRAIN_SCRIPT = ("local values = {}\n"
+			+ "for i = 1, tonumber(ARGV[1]) do\n"
+			+ "	local value = redis.call('RPOP', KEYS[1])\n"
+			+ "	if not value then break end\n"
+			+ "	values[i] = value\n"
+			+ "end\n"
+			+ "return values").getBytes();
+
+	private final String queueName;
+
+	private final byte[] rawQueueName;
+
+	private final RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
+
+	private volatile int batchSize = 1;
+
+	private volatile int concurrency = 1;
+
+	private volatile int prefetch = 0;
+
+	private volatile long receiveTimeout = DEFAULT_RECEIVE_TIMEOUT;
+
+	private volatile long recoveryInterval = DEFAULT_RECOVERY_INTERVAL;
+
+	private volatile Executor taskExecutor;
+
+	/**
+	 * The threads started by the last start, or {@code null} if the endpoint was never started.
+	 */
+	private volatile Consumers consumers;
+
+	public RedisQueueBatchingMessageDrivenEndpoint(String queueName, RedisConnectionFactory connectionFactory) {
+		Assert.hasText(queueName, "'queueName' is required");
+		Assert.notNull(connectionFactory, "'connectionFactory' cannot be null");
+		this.queueName = queueName;
+		this.rawQueueName = queueName.getBytes();
+		this.template.setConnectionFactory(connectionFactory);
+		this.template.afterPropertiesSet();
+	}
+
+	/**
+	 * Set the maximum number of elements popped per round trip. Default 1.
+	 *
+	 * @param batchSize the batch size
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the number of threads draining the list. Default 1.
+	 *
+	 * @param concurrency the number of threads
+	 */
+	public void setConcurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "'concurrency' must be positive");
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Set the capacity of the hand-off queue between the thread fetching from Redis and the dispatching threads.
+	 * Default 0, meaning each thread fetches and dispatches its own batches.
+	 *
+	 * @param prefetch the capacity of the hand-off queue
+	 */
+	public void setPrefetch(int prefetch) {
+		Assert.isTrue(prefetch >= 0, "'prefetch' cannot be negative");
+		this.prefetch = prefetch;
+	}
+
+	/**
+	 * Set the time in milliseconds a BRPOP blocks; rounded up to whole seconds. Default 1000.
+	 *
+	 * @param receiveTimeout the timeout
+	 */
+	public void setReceiveTimeout(long receiveTimeout) {
+		Assert.isTrue(receiveTimeout > 0, "'receiveTimeout' must be positive");
+		this.receiveTimeout = receiveTimeout;
+	}
+
+	/**
+	 * Set the time in milliseconds to wait before polling again after a failure. Default 5000.
+	 *
+	 * @param recoveryInterval the interval
+	 */
+	public void setRecoveryInterval(long recoveryInterval) {
+		this.recoveryInterval = recoveryInterval;
+	}
+
+	/**
+	 * Set the executor running the listener threads; it must be able to run {@code concurrency} tasks at once, plus
+	 * one if a {@code prefetch} is set. By default a {@link SimpleAsyncTaskExecutor} is used.
+	 *
+	 * @param taskExecutor the executor
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "redis:batching-queue-inbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() {
+		super.onInit();
+		if (this.taskExecutor == null) {
+			String beanName = getComponentName();
+			this.taskExecutor = new SimpleAsyncTaskExecutor((beanName == null ? "" : beanName + "-")
+					+ getComponentType());
+		}
+	}
+
+	@Override
+	protected void doStart() {
+		Consumers previous = this.consumers;
+		if (previous != null) {
+			if (previous.active) {
+				return;
+			}
+			previous.awaitTermination(2 * this.receiveTimeout + this.recoveryInterval);
+		}
+		if (this.prefetch > 0) {
+			Consumers consumers = new Consumers(this.concurrency + 1);
+			this.consumers = consumers;
+			HandOff handOff = new HandOff(this.prefetch);
+			this.taskExecutor.execute(new FetchingTask(consumers, handOff));
+			for (int i = 0; i < this.concurrency; i++) {
+				this.taskExecutor.execute(new DispatchingTask(consumers, handOff));
+			}
+		}
+		else {
+			Consumers consumers = new Consumers(this.concurrency);
+			this.consumers = consumers;
+			for (int i = 0; i < this.concurrency; i++) {
+				this.taskExecutor.execute(new ListenerTask(consumers));
+			}
+		}
+	}
+
+	/**
+	 * Listener threads finish their current batch and exit at the latest after the receive timeout; dispatching
+	 * threads exit once the hand-off queue has been drained.
+	 */
+	@Override
+	protected void doStop() {
+		Consumers consumers = this.consumers;
+		if (consumers != null) {
+			consumers.active = false;
+		}
+	}
+
+	/**
+	 * Pop the next batch; blocks for at most the receive timeout if the list is empty.
+	 *
+	 * @return the popped elements in the order in which they were pushed; empty if the timeout expired
+	 */
+	List<byte[]> popBatch() {
+		final int timeout = (int) Math.max(1, (this.receiveTimeout + 999) / 1000);
+		final int batchSize = this.batchSize;
+		return this.template.execute(new RedisCallback<List<byte[]>>() {
+
+			@Override
+			public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+				List<byte[]> first = connection.bRPop(timeout, rawQueueName);
+				// BRPOP returns the key followed by the value
+				if (first == null || first.size() < 2) {
+					return Collections.emptyList();
+				}
+				List<byte[]> batch = new ArrayList<byte[]>(batchSize);
+				batch.add(first.get(1));
+				if (batchSize > 1) {
+					List<?> drained = connection.eval(DRAIN_SCRIPT, ReturnType.MULTI, 1, rawQueueName,
+							String.valueOf(batchSize - 1).getBytes());
+					if (drained != null) {
+						for (Object result : drained) {
+							batch.add((byte[]) result);
+						}
+					}
+				}
+				return batch;
+			}
+		});
+	}
+
+	/**
+	 * Pop the next batch, logging any failure and waiting for the recovery interval.
+	 *
+	 * @param consumers the threads the calling thread belongs to
+	 *
+	 * @return the batch, or {@code null} if it could not be popped
+	 */
+	private List<byte[]> popBatchOrRecover(Consumers consumers) {
+		try {
+			return popBatch();
+		}
+		catch (Exception e) {
+			if (consumers.active) {
+				logger.error("Failed to receive from '" + this.queueName + "', retrying in " + this.recoveryInterval
+						+ " ms", e);
+				try {
+					Thread.sleep(this.recoveryInterval);
+				}
+				catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					consumers.active = false;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Send one popped element; it has already been removed from the list, so a failure is logged rather than
+	 * allowed to stop the listener.
+	 */
+	private void dispatch(byte[] element) {
+		try {
+			sendMessage(MessageBuilder.withPayload(element).build());
+		}
+		catch (Exception e) {
+			logger.error("Failed to send message received from '" + this.queueName + "'", e);
+		}
+	}
+
+	/**
+	 * The threads started together by one start of the endpoint.
+	 */
+	private class Consumers {
+
+		private volatile boolean active = true;
+
+		private final CountDownLatch finished;
+
+		private Consumers(int threads) {
+			this.finished = new CountDownLatch(threads);
+		}
+
+		/**
+		 * Wait for the threads to exit after a stop, logging a warning if they do not in time.
+		 */
+		private void awaitTermination(long timeout) {
+			try {
+				if (!this.finished.await(timeout, TimeUnit.MILLISECONDS)) {
+					logger.warn("Consumers of '" + queueName + "' from a previous start are still running");
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private class ListenerTask implements Runnable {
+
+		private final Consumers consumers;
+
+		private ListenerTask(Consumers consumers) {
+			this.consumers = consumers;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (this.consumers.active) {
+					List<byte[]> batch = popBatchOrRecover(this.consumers);
+					if (batch != null) {
+						for (byte[] element : batch) {
+							dispatch(element);
+						}
+					}
+				}
+			}
+			finally {
+				this.consumers.finished.countDown();
+			}
+		}
+	}
+
+	/**
+	 * The hand-off queue shared by the fetching and dispatching threads started together.
+	 */
+	private static class HandOff {
+
+		private final BlockingQueue<byte[]> queue;
+
+		private volatile boolean fetching = true;
+
+		private HandOff(int capacity) {
+			this.queue = new ArrayBlockingQueue<byte[]>(capacity);
+		}
+	}
+
+	private class FetchingTask implements Runnable {
+
+		private final Consumers consumers;
+
+		private final HandOff handOff;
+
+		private FetchingTask(Consumers consumers, HandOff handOff) {
+			this.consumers = consumers;
+			this.handOff = handOff;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (this.consumers.active) {
+					List<byte[]> batch = popBatchOrRecover(this.consumers);
+					if (batch != null) {
+						for (byte[] element : batch) {
+							this.handOff.queue.put(element);
+						}
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.error("Interrupted while handing off messages received from '" + queueName + "'");
+			}
+			finally {
+				this.handOff.fetching = false;
+				this.consumers.finished.countDown();
+			}
+		}
+	}
+
+	private class DispatchingTask implements Runnable {
+
+		private final Consumers consumers;
+
+		private final HandOff handOff;
+
+		private DispatchingTask(Consumers consumers, HandOff handOff) {
+			this.consumers = consumers;
+			this.handOff = handOff;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (this.handOff.fetching || !this.handOff.queue.isEmpty()) {
+					byte[] element = this.handOff.queue.poll(100, TimeUnit.MILLISECONDS);
+					if (element != null) {
+						dispatch(element);
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				this.consumers.finished.countDown();
+			}
+		}
+	}
+
+}
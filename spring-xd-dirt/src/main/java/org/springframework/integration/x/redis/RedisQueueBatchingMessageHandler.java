@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.context.Lifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link org.springframework.messaging.MessageHandler} that buffers {@code byte[]} payloads and pushes them onto a
+ * Redis list with a single multi-value LPUSH. A batch is sent once it holds {@code batchSize} payloads, or by the
+ * flush that runs every {@code batchTimeout} milliseconds, whichever comes first; a payload is therefore buffered for
+ * at most {@code batchTimeout} milliseconds, but only reaches Redis once that flush has pushed it. Stopping the
+ * handler flushes any buffered payloads. While the handler is not running, messages are pushed at once rather than
+ * buffered, since no flush would send them; if that push fails, the message is rejected with the exception.
+ * <p>
+ * The values are pushed in the order in which they were received, so a consumer using BRPOP sees the same order as
+ * with {@link org.springframework.integration.redis.outbound.RedisQueueOutboundChannelAdapter}. If a push fails, the
+ * batch is retained and pushed again by the next flush, ahead of the payloads received since. While a full batch is
+ * retained, an incoming message first retries the push; if that fails again the message is rejected with the
+ * exception, so at most {@code batchSize} payloads are buffered and a sender is only told of failures for messages
+ * that were not accepted. Other failures are logged.
+ *
+ * @since 1.0
+ */
+public class RedisQueueBatchingMessageHandler extends AbstractMessageHandler implements Lifecycle {
+
+	private final byte[] queueName;
+
+	private final RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
+
+	private final int batchSize;
+
+	private final long batchTimeout;
+
+	private final TaskScheduler taskScheduler;
+
+	private final Object monitor = new Object();
+
+	private List<byte[]> batch;
+
+	private volatile ScheduledFuture<?> flushTask;
+
+	private volatile boolean running;
+
+	/**
+	 * @param queueName the name of the Redis list to push to
+	 * @param connectionFactory the connection factory
+	 * @param batchSize the maximum number of payloads per LPUSH; must be greater than 1
+	 * @param batchTimeout the maximum time in milliseconds a payload is buffered
+	 * @param taskScheduler the scheduler used to flush incomplete batches
+	 */
+	public RedisQueueBatchingMessageHandler(String queueName, RedisConnectionFactory connectionFactory,
+			int batchSize, long batchTimeout, TaskScheduler taskScheduler) {
+		Assert.hasText(queueName, "'queueName' is required");
+		Assert.notNull(connectionFactory, "'connectionFactory' cannot be null");
+		Assert.isTrue(batchSize > 1, "'batchSize' must be greater than 1");
+		Assert.isTrue(batchTimeout > 0, "'batchTimeout' must be positive");
+		Assert.notNull(taskScheduler, "'taskScheduler' cannot be null");
+		this.queueName = queueName.getBytes();
+		this.template.setConnectionFactory(connectionFactory);
+		this.template.afterPropertiesSet();
+		this.batchSize = batchSize;
+		this.batchTimeout = batchTimeout;
+		this.taskScheduler = taskScheduler;
+		this.batch = new ArrayList<byte[]>(batchSize);
+	}
+
+	@Override
+	public String getComponentType() {
+		return "redis:batching-queue-outbound-channel-adapter";
+	}
+
+	@Override
+	public void start() {
+		synchronized (this.monitor) {
+			if (!this.running) {
+				this.flushTask = this.taskScheduler.scheduleAtFixedRate(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							flush();
+						}
+						catch (RuntimeException e) {
+							logger.error("Failed to flush batch to '" + new String(queueName) + "', retaining it", e);
+						}
+					}
+				}, this.batchTimeout);
+				this.running = true;
+			}
+		}
+	}
+
+	/**
+	 * Cancel the periodic flush and send any buffered payloads; a failure to send them is logged, and the payloads are
+	 * retained until the handler is started again.
+	 */
+	@Override
+	public void stop() {
+		synchronized (this.monitor) {
+			if (this.running) {
+				this.flushTask.cancel(false);
+				this.flushTask = null;
+				this.running = false;
+			}
+			try {
+				flush();
+			}
+			catch (RuntimeException e) {
+				logger.error("Failed to flush batch to '" + new String(queueName) + "' on stop, retaining it", e);
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		Assert.isInstanceOf(byte[].class, message.getPayload(), "Only byte[] payloads can be batched");
+		synchronized (this.monitor) {
+			if (!this.running) {
+				// nothing would flush a buffered payload, so push it now, after any payloads retained on stop
+				this.batch.add((byte[]) message.getPayload());
+				try {
+					flush();
+				}
+				catch (RuntimeException e) {
+					this.batch.remove(this.batch.size() - 1);
+					throw e;
+				}
+				return;
+			}
+			if (this.batch.size() >= this.batchSize) {
+				// a batch that could not be pushed is retained; reject the message if it still cannot be
+				flush();
+			}
+			this.batch.add((byte[]) message.getPayload());
+			if (this.batch.size() >= this.batchSize) {
+				try {
+					flush();
+				}
+				catch (RuntimeException e) {
+					// the message is part of the retained batch, so it has been accepted
+					logger.warn("Failed to push batch to '" + new String(queueName) + "', retaining it", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send any buffered payloads now. The push happens while holding the monitor so that batches reach Redis in the
+	 * order in which they were filled. The payloads are only discarded once the push has succeeded.
+	 */
+	public void flush() {
+		synchronized (this.monitor) {
+			if (this.batch.isEmpty()) {
+				return;
+			}
+			final byte[][] values = this.batch.toArray(new byte[this.batch.size()][]);
+			this.template.execute(new RedisCallback<Long>() {
+
+				@Override
+				public Long doInRedis(RedisConnection connection) throws DataAccessException {
+					return connection.lPush(queueName, values);
+				}
+			});
+			this.batch = new ArrayList<byte[]>(this.batchSize);
+		}
+	}
+
+}
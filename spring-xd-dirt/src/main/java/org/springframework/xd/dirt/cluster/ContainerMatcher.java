@@ -38,4 +38,16 @@ public interface ContainerMatcher {
 	 */
 	Collection<Container> match(ModuleDescriptor moduleDescriptor, ContainerRepository containerRepository);
 
+	/**
+	 * Matches a module with the given deployment preferences against the candidate containers. This is used for
+	 * modules that are not described by a {@link ModuleDescriptor}, such as jobs.
+	 * 
+	 * @param group the group the containers must belong to, or {@code null} for any container
+	 * @param count the number of containers to match; 0 matches all of the candidate containers
+	 * @param containerRepository the container repository that provides the ability to look up containers
+	 * 
+	 * @return a collection of matched containers; collection is empty if no suitable containers are found
+	 */
+	Collection<Container> match(String group, int count, ContainerRepository containerRepository);
+
 }
@@ -32,4 +32,13 @@ public interface ContainerRepository {
 	 */
 	Iterator<Container> getContainerIterator();
 
+	/**
+	 * Return the number of modules that have been deployed, or requested to be deployed, to a container.
+	 * 
+	 * @param containerName the name of the container
+	 * 
+	 * @return the number of modules of the container; 0 if the container is unknown
+	 */
+	int getDeployedModuleCount(String containerName);
+
 }
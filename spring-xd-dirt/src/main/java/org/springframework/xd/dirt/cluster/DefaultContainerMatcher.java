@@ -54,7 +54,7 @@ public class DefaultContainerMatcher implements ContainerMatcher {
 	private static final Logger LOG = LoggerFactory.getLogger(DefaultContainerMatcher.class);
 
 	/**
-	 * Current index for iterating over containers.
+	 * Current index for iterating over containers. Guarded by this.
 	 */
 	private int index = 0;
 
@@ -64,8 +64,14 @@ public class DefaultContainerMatcher implements ContainerMatcher {
 	@Override
 	public Collection<Container> match(ModuleDescriptor moduleDescriptor, ContainerRepository containerRepository) {
 		LOG.debug("Matching containers for module {}", moduleDescriptor);
+		return match(moduleDescriptor.getGroup(), moduleDescriptor.getCount(), containerRepository);
+	}
 
-		String group = moduleDescriptor.getGroup();
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized Collection<Container> match(String group, int count, ContainerRepository containerRepository) {
 		List<Container> candidates = new ArrayList<Container>();
 
 		for (Iterator<Container> iterator = containerRepository.getContainerIterator(); iterator.hasNext();) {
@@ -82,7 +88,6 @@ public class DefaultContainerMatcher implements ContainerMatcher {
 			return candidates;
 		}
 
-		int count = moduleDescriptor.getCount();
 		int candidateCount = candidates.size();
 		if (count <= 0 || count >= candidateCount) {
 			// count of 0 means all members of the group
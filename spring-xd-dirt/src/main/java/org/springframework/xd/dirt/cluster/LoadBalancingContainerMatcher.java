@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.cluster;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.container.ContainerAttributes;
+import org.springframework.xd.dirt.core.ModuleDescriptor;
+
+/**
+ * Implementation of {@link ContainerMatcher} that deploys modules to the least loaded containers. Group and count
+ * preferences are honored as in {@link DefaultContainerMatcher}; when fewer containers than the candidates are needed,
+ * the candidates are ranked by load and the least loaded ones are returned.
+ * <p/>
+ * The load of a container is the number of modules it would host if it was given the module, divided by its declared
+ * {@value ContainerAttributes#CAPACITY_KEY} attribute (1 if absent). If the container publishes its
+ * {@value ContainerAttributes#HEAP_USAGE_KEY} or {@value ContainerAttributes#LOAD_AVERAGE_KEY}, the load is further
+ * weighted by {@code 1 + heapUsage} and {@code 1 + loadAverage}. Containers with equal loads are ranked in the order of
+ * the container repository.
+ * <p/>
+ * The number of modules of a container is read from the {@link ContainerRepository}, which only reflects a deployment
+ * once it has been requested. Modules matched since then are counted separately so that the modules of a stream are
+ * spread out even though they are all matched before any of them is requested. A matched module that is not reflected
+ * by the repository within the {@link #setPendingTimeout pending timeout}, because its deployment failed or was never
+ * requested, is no longer counted.
+ * 
+ * @since 1.0
+ */
+public class LoadBalancingContainerMatcher implements ContainerMatcher {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(LoadBalancingContainerMatcher.class);
+
+	/**
+	 * Modules matched to each container that were not yet reflected by the container repository. Guarded by this.
+	 */
+	private final Map<String, PendingModules> pendingModules = new HashMap<String, PendingModules>();
+
+	/**
+	 * Time in milliseconds after which a matched module that is not reflected by the container repository is no longer
+	 * counted.
+	 */
+	private volatile long pendingTimeout = 30000;
+
+	/**
+	 * Set the time after which a matched module that is not reflected by the container repository is no longer counted
+	 * in the load of its container. This should be at least the time it takes to request the deployment of the modules
+	 * of a stream once they are matched.
+	 * 
+	 * @param pendingTimeout timeout in milliseconds
+	 */
+	public void setPendingTimeout(long pendingTimeout) {
+		Assert.isTrue(pendingTimeout > 0, "pendingTimeout must be positive");
+		this.pendingTimeout = pendingTimeout;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<Container> match(ModuleDescriptor moduleDescriptor, ContainerRepository containerRepository) {
+		LOG.debug("Matching containers for module {}", moduleDescriptor);
+		return match(moduleDescriptor.getGroup(), moduleDescriptor.getCount(), containerRepository);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized Collection<Container> match(String group, int count, ContainerRepository containerRepository) {
+		final Map<Container, Double> loads = new HashMap<Container, Double>();
+		List<Container> candidates = new ArrayList<Container>();
+		Map<String, PendingModules> present = new HashMap<String, PendingModules>();
+		long now = System.currentTimeMillis();
+
+		for (Iterator<Container> iterator = containerRepository.getContainerIterator(); iterator.hasNext();) {
+			Container container = iterator.next();
+			PendingModules pending = updatePending(container.getName(), containerRepository, now);
+			present.put(container.getName(), pending);
+			if (group == null || container.getGroups().contains(group)) {
+				loads.put(container, load(container, pending.observed + pending.deadlines.size() + 1));
+				LOG.trace("Candidate container {} has load {}", container, loads.get(container));
+				candidates.add(container);
+			}
+		}
+
+		// forget about the containers that departed
+		pendingModules.keySet().retainAll(present.keySet());
+
+		if (count > 0 && count < candidates.size()) {
+			Collections.sort(candidates, new Comparator<Container>() {
+
+				@Override
+				public int compare(Container c1, Container c2) {
+					return Double.compare(loads.get(c1), loads.get(c2));
+				}
+			});
+			candidates = new ArrayList<Container>(candidates.subList(0, count));
+		}
+
+		// count of 0 means all members of the group
+		// (if no group specified it means all containers);
+		// count >= candidates means each of the
+		// containers should host a module
+		for (Container container : candidates) {
+			present.get(container.getName()).deadlines.add(now + pendingTimeout);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Read the number of modules of a container from the repository, and discount the pending modules that it now
+	 * reflects or that have expired.
+	 * 
+	 * @param containerName the name of the container
+	 * @param containerRepository the repository to read the number of modules from
+	 * @param now the current time in milliseconds
+	 * 
+	 * @return the pending modules of the container
+	 */
+	private PendingModules updatePending(String containerName, ContainerRepository containerRepository, long now) {
+		int observed = containerRepository.getDeployedModuleCount(containerName);
+		PendingModules pending = pendingModules.get(containerName);
+		if (pending == null) {
+			pending = new PendingModules(observed);
+			pendingModules.put(containerName, pending);
+		}
+		else {
+			// the oldest pending modules are assumed to be the ones that are now reflected
+			for (int i = pending.observed; i < observed && !pending.deadlines.isEmpty(); i++) {
+				pending.deadlines.removeFirst();
+			}
+			while (!pending.deadlines.isEmpty() && pending.deadlines.getFirst() <= now) {
+				pending.deadlines.removeFirst();
+			}
+			pending.observed = observed;
+		}
+		return pending;
+	}
+
+	/**
+	 * Compute the load of a container.
+	 * 
+	 * @param container the container
+	 * @param moduleCount the number of modules of the container
+	 * 
+	 * @return the number of modules of the container relative to its capacity, weighted by its reported resource usage
+	 */
+	private static double load(Container container, int moduleCount) {
+		Map<String, String> attributes = container.getAttributes();
+		double capacity = parse(attributes.get(ContainerAttributes.CAPACITY_KEY), 1);
+		if (capacity <= 0) {
+			capacity = 1;
+		}
+		return moduleCount / capacity
+				* (1 + Math.max(0, parse(attributes.get(ContainerAttributes.HEAP_USAGE_KEY), 0)))
+				* (1 + Math.max(0, parse(attributes.get(ContainerAttributes.LOAD_AVERAGE_KEY), 0)));
+	}
+
+	private static double parse(String value, double defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value);
+		}
+		catch (NumberFormatException e) {
+			LOG.debug("Ignoring container attribute value {} that is not a number", value);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Modules matched to a container beyond the number of modules last read from the container repository.
+	 */
+	private static class PendingModules {
+
+		/**
+		 * The number of modules last read from the repository.
+		 */
+		private int observed;
+
+		/**
+		 * The times at which each matched module is no longer counted, in the order they were matched.
+		 */
+		private final LinkedList<Long> deadlines = new LinkedList<Long>();
+
+		PendingModules(int observed) {
+			this.observed = observed;
+		}
+	}
+
+}
@@ -47,6 +47,21 @@ public class ContainerAttributes extends LinkedHashMap<String, String> {
 
 	public final static String IP_ADDRESS_KEY = "ip";
 
+	/**
+	 * Relative number of modules the container can host, declared with {@code xd.container.capacity}.
+	 */
+	public final static String CAPACITY_KEY = "capacity";
+
+	/**
+	 * Fraction of the maximum heap in use, published by the container when load reporting is enabled.
+	 */
+	public final static String HEAP_USAGE_KEY = "heapUsage";
+
+	/**
+	 * System load average per processor, published by the container when load reporting is enabled.
+	 */
+	public final static String LOAD_AVERAGE_KEY = "loadAverage";
+
 	private final List<String> commonAttributeKeys = Arrays.asList(new String[] { CONTAINER_ID_KEY, PROCESS_ID_KEY,
 		HOST_KEY,
 		IP_ADDRESS_KEY, GROUPS_KEY });
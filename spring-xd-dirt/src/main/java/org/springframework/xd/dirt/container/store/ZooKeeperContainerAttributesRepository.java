@@ -17,12 +17,14 @@
 package org.springframework.xd.dirt.container.store;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.data.Stat;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -30,25 +32,42 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.xd.dirt.container.ContainerAttributes;
 import org.springframework.xd.dirt.util.MapBytesUtility;
+import org.springframework.xd.dirt.zookeeper.ChildPathCache;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
- * ZooKeeper backed repository for runtime info about Containers.
+ * ZooKeeper backed repository for runtime info about Containers. Attributes are read from a {@link ChildPathCache} of
+ * the containers path, which is only loaded once they are first read.
  *
  * @author Mark Fisher
  * @author David Turanski
  */
-public class ZooKeeperContainerAttributesRepository implements ContainerAttributesRepository {
+public class ZooKeeperContainerAttributesRepository implements ContainerAttributesRepository, DisposableBean {
 
 
 	private final ZooKeeperConnection zkConnection;
 
 	private final MapBytesUtility mapBytesUtility = new MapBytesUtility();
 
+	private final ChildPathCache<Map<String, String>> containers;
+
 	@Autowired
 	public ZooKeeperContainerAttributesRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
+		this.containers = new ChildPathCache<Map<String, String>>(zkConnection, Paths.CONTAINERS,
+				new ChildPathCache.NodeConverter<Map<String, String>>() {
+
+					@Override
+					public Map<String, String> convert(String name, Stat stat, byte[] data) {
+						return Collections.unmodifiableMap(mapBytesUtility.toMap(data));
+					}
+				});
+	}
+
+	@Override
+	public void destroy() {
+		containers.close();
 	}
 
 	@Override
@@ -67,8 +86,9 @@ public class ZooKeeperContainerAttributesRepository implements ContainerAttribut
 	public <S extends ContainerAttributes> S save(S entity) {
 		try {
 			zkConnection.getClient().create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL).forPath(
-					Paths.build(Paths.CONTAINERS, entity.getId()),
+					path(entity.getId()),
 					mapBytesUtility.toByteArray(entity));
+			containers.refresh(entity.getId());
 			return entity;
 		}
 		catch (Exception e) {
@@ -87,43 +107,22 @@ public class ZooKeeperContainerAttributesRepository implements ContainerAttribut
 
 	@Override
 	public ContainerAttributes findOne(String id) {
-		ContainerAttributes containerAttributes = null;
-		try {
-			byte[] data = zkConnection.getClient().getData().forPath(path(id));
-			if (data != null) {
-				Map<String, String> map = mapBytesUtility.toMap(data);
-				containerAttributes = new ContainerAttributes(map);
-			}
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
-		return containerAttributes;
+		Map<String, String> map = containers.get(id);
+		return map == null ? null : new ContainerAttributes(map);
 	}
 
 	@Override
 	public boolean exists(String id) {
-		try {
-			return null != zkConnection.getClient().checkExists().forPath(path(id));
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return containers.contains(id);
 	}
 
 	@Override
 	public List<ContainerAttributes> findAll() {
 		List<ContainerAttributes> results = new ArrayList<ContainerAttributes>();
-		try {
-			List<String> children = zkConnection.getClient().getChildren().forPath(Paths.CONTAINERS);
-			for (String id : children) {
-				results.add(findOne(id));
-			}
-			return results;
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
+		for (Map<String, String> map : containers.getAll().values()) {
+			results.add(new ContainerAttributes(map));
 		}
+		return results;
 	}
 
 	@Override
@@ -140,13 +139,7 @@ public class ZooKeeperContainerAttributesRepository implements ContainerAttribut
 
 	@Override
 	public long count() {
-		try {
-			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.CONTAINERS);
-			return (stat != null) ? stat.getNumChildren() : 0;
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return containers.size();
 	}
 
 	@Override
@@ -16,10 +16,17 @@
 
 package org.springframework.xd.dirt.module;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.Resource;
@@ -29,6 +36,7 @@ import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.xd.dirt.core.RuntimeIOException;
+import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.ModuleType;
 
 /**
@@ -40,6 +48,10 @@ import org.springframework.xd.module.ModuleType;
  * <i>e.g.</i> {@code source/time/config/time.xml} and extra classpath is loaded from jars in a lib subdirectory
  * <i>e.g.</i> {@code source/time/lib/*.jar}</li>
  * </ul>
+ * The modules of each type are located once and then served from an index. When the modules of a type live in a
+ * directory of the file system, the index is rebuilt if the names of the module files or of the jars of the modules
+ * have changed, which is checked at most once every {@link #setRefreshInterval refresh interval}. Modules packaged in
+ * jars are indexed once.
  * 
  * @author Mark Fisher
  * @author Glenn Renfro
@@ -50,12 +62,126 @@ public class ResourceModuleRegistry extends AbstractModuleRegistry implements Re
 
 	private final String root;
 
-	private ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+	private volatile ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+	private final ConcurrentMap<ModuleType, ModuleIndex> indexes = new ConcurrentHashMap<ModuleType, ModuleIndex>();
+
+	private volatile long refreshInterval = 1000;
 
 	public ResourceModuleRegistry(String root) {
 		this.root = StringUtils.trimTrailingCharacter(root, '/');
 	}
 
+	/**
+	 * Set the minimum time between two checks for changes to the modules of a type, in milliseconds. 0 checks before
+	 * every lookup.
+	 */
+	public void setRefreshInterval(long refreshInterval) {
+		Assert.isTrue(refreshInterval >= 0, "refreshInterval must not be negative");
+		this.refreshInterval = refreshInterval;
+	}
+
+	@Override
+	public ModuleDefinition findDefinition(String name, ModuleType moduleType) {
+		IndexedModule module = getIndex(moduleType).modulesByName.get(name);
+		return module == null ? null : module.toDefinition(moduleType);
+	}
+
+	@Override
+	public List<ModuleDefinition> findDefinitions(ModuleType type) {
+		List<ModuleDefinition> results = new ArrayList<ModuleDefinition>();
+		for (IndexedModule module : getIndex(type).modules) {
+			results.add(module.toDefinition(type));
+		}
+		return results;
+	}
+
+	/**
+	 * Return the index of the modules of the given type, building it if it does not exist yet or if the modules have
+	 * changed since it was built.
+	 */
+	private ModuleIndex getIndex(ModuleType type) {
+		ModuleIndex index = indexes.get(type);
+		if (index != null) {
+			long now = System.currentTimeMillis();
+			if (index.directory == null || now - index.checkedAt < refreshInterval) {
+				return index;
+			}
+			if (index.contents.equals(listContents(index.directory))) {
+				index.checkedAt = now;
+				return index;
+			}
+		}
+		synchronized (indexes) {
+			ModuleIndex current = indexes.get(type);
+			if (current != index) {
+				// another thread has rebuilt it
+				return current;
+			}
+			ModuleIndex newIndex = buildIndex(type);
+			indexes.put(type, newIndex);
+			return newIndex;
+		}
+	}
+
+	private ModuleIndex buildIndex(ModuleType type) {
+		File directory = null;
+		try {
+			String typedRoot = rootForType(type);
+			if (!typedRoot.contains("*")) {
+				directory = resolver.getResource(typedRoot).getFile();
+			}
+		}
+		catch (IOException e) {
+			// not on the file system: the modules cannot change
+		}
+		// list the contents first, so that a change made while indexing is seen by the next check
+		List<String> contents = directory == null ? null : listContents(directory);
+		List<IndexedModule> modules = new ArrayList<IndexedModule>();
+		Map<String, IndexedModule> modulesByName = new HashMap<String, IndexedModule>();
+		for (Resource resource : locateApplicationContexts(type)) {
+			String name = inferModuleName(resource);
+			modules.add(new IndexedModule(name, resource, maybeLocateClasspath(resource, name, type)));
+			if (!modulesByName.containsKey(name)) {
+				// a lookup by name may find another resource, such as the enhanced location of a simple module
+				Resource located = locateApplicationContext(name, type);
+				if (located != null) {
+					modulesByName.put(name, new IndexedModule(name, located, maybeLocateClasspath(located, name, type)));
+				}
+			}
+		}
+		return new ModuleIndex(directory, contents, modules, modulesByName);
+	}
+
+	/**
+	 * List the names of the files of a module type directory, and of the config and lib sub-directories of its
+	 * modules. These are the only files whose addition or removal changes the modules found.
+	 */
+	private static List<String> listContents(File directory) {
+		List<String> contents = new ArrayList<String>();
+		String[] names = list(directory);
+		for (String name : names) {
+			contents.add(name);
+			File module = new File(directory, name);
+			for (String config : list(new File(module, "config"))) {
+				contents.add(name + "/config/" + config);
+			}
+			for (String jar : list(new File(module, "lib"))) {
+				contents.add(name + "/lib/" + jar);
+			}
+		}
+		return contents;
+	}
+
+	private static String[] list(File directory) {
+		String[] names = directory.list();
+		if (names == null) {
+			return new String[0];
+		}
+		Arrays.sort(names);
+		return names;
+	}
+
 	@Override
 	protected Resource locateApplicationContext(String name, ModuleType type) {
 		try {
@@ -131,6 +257,7 @@ public class ResourceModuleRegistry extends AbstractModuleRegistry implements Re
 		Assert.isTrue(resourceLoader instanceof ResourcePatternResolver,
 				"resourceLoader must be a ResourcePatternResolver");
 		resolver = (ResourcePatternResolver) resourceLoader;
+		indexes.clear();
 	}
 
 	@Override
@@ -172,4 +299,56 @@ public class ResourceModuleRegistry extends AbstractModuleRegistry implements Re
 				resource.getFilename().lastIndexOf('.'));
 	}
 
+	/**
+	 * The modules of a type, as found when the index was built.
+	 */
+	private static class ModuleIndex {
+
+		/**
+		 * The directory of the modules of the type, or {@code null} if they are not on the file system.
+		 */
+		private final File directory;
+
+		/**
+		 * The contents of the directory when the index was built.
+		 */
+		private final List<String> contents;
+
+		private final List<IndexedModule> modules;
+
+		private final Map<String, IndexedModule> modulesByName;
+
+		private volatile long checkedAt = System.currentTimeMillis();
+
+		ModuleIndex(File directory, List<String> contents, List<IndexedModule> modules,
+				Map<String, IndexedModule> modulesByName) {
+			this.directory = directory;
+			this.contents = contents;
+			this.modules = Collections.unmodifiableList(modules);
+			this.modulesByName = Collections.unmodifiableMap(modulesByName);
+		}
+	}
+
+	/**
+	 * The location of a module. A new {@link ModuleDefinition} is created for each lookup, as definitions are mutable.
+	 */
+	private static class IndexedModule {
+
+		private final String name;
+
+		private final Resource resource;
+
+		private final URL[] classpath;
+
+		IndexedModule(String name, Resource resource, URL[] classpath) {
+			this.name = name;
+			this.resource = resource;
+			this.classpath = classpath;
+		}
+
+		ModuleDefinition toDefinition(ModuleType type) {
+			return new ModuleDefinition(name, type, resource, classpath == null ? null : classpath.clone());
+		}
+	}
+
 }
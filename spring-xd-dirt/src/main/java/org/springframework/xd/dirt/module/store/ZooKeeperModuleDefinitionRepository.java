@@ -16,14 +16,19 @@
 
 package org.springframework.xd.dirt.module.store;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
+import org.apache.zookeeper.data.Stat;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -34,6 +39,7 @@ import org.springframework.xd.dirt.module.ModuleDependencyRepository;
 import org.springframework.xd.dirt.module.ModuleRegistry;
 import org.springframework.xd.dirt.module.support.ModuleDefinitionRepositoryUtils;
 import org.springframework.xd.dirt.stream.redis.ModuleDefinitionMixin;
+import org.springframework.xd.dirt.zookeeper.ChildPathCache;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 import org.springframework.xd.module.ModuleDefinition;
@@ -43,11 +49,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * A ZooKeeper based store of {@link ModuleDefinition}s that writes each definition to a node, such as:
- * {@code /xd/modules/[moduletype]/[modulename]}.
+ * {@code /xd/modules/[moduletype]/[modulename]}. The definitions are read from a {@link ChildPathCache} of each module
+ * type; a definition the cache does not have is looked up in ZooKeeper.
  * 
  * @author Mark Fisher
  */
-public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepository {
+public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepository, DisposableBean {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
 
 	private final ModuleRegistry moduleRegistry;
 
@@ -57,6 +66,12 @@ public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepo
 
 	private final ObjectMapper objectMapper = new ObjectMapper();
 
+	/**
+	 * The serialized definitions of the composed modules of each type, by module name.
+	 */
+	private final Map<ModuleType, ChildPathCache<String>> definitions = new EnumMap<ModuleType, ChildPathCache<String>>(
+			ModuleType.class);
+
 	@Autowired
 	public ZooKeeperModuleDefinitionRepository(ModuleRegistry moduleRegistry,
 			ModuleDependencyRepository moduleDependencyRepository,
@@ -68,6 +83,18 @@ public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepo
 		this.moduleDependencyRepository = moduleDependencyRepository;
 		this.zooKeeperConnection = zooKeeperConnection;
 		objectMapper.addMixInAnnotations(ModuleDefinition.class, ModuleDefinitionMixin.class);
+		ChildPathCache.NodeConverter<String> converter = new ChildPathCache.NodeConverter<String>() {
+
+			@Override
+			public String convert(String name, Stat stat, byte[] data) {
+				// only composed modules have definitions
+				return data == null || data.length == 0 ? null : new String(data, UTF_8);
+			}
+		};
+		for (ModuleType type : ModuleType.values()) {
+			definitions.put(type, new ChildPathCache<String>(zooKeeperConnection,
+					Paths.MODULES + '/' + type.toString(), converter));
+		}
 	}
 
 	@Override
@@ -75,11 +102,13 @@ public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepo
 		Assert.notNull(type, "type is required");
 		ModuleDefinition definition = moduleRegistry.findDefinition(name, type);
 		if (definition == null) {
-			String path = Paths.build(Paths.MODULES, type.toString(), name);
+			// the definition may have been written by another process whose write the cache has not seen yet
+			String data = definitions.get(type).getOrRead(name);
+			if (data == null) {
+				return null;
+			}
 			try {
-				byte[] data = zooKeeperConnection.getClient().getData().forPath(path);
-				ModuleDefinition shallowValue = this.objectMapper.readValue(new String(data, "UTF-8"),
-						ModuleDefinition.class);
+				ModuleDefinition shallowValue = this.objectMapper.readValue(data, ModuleDefinition.class);
 				List<ModuleDefinition> deepModules = new ArrayList<ModuleDefinition>(
 						shallowValue.getComposedModuleDefinitions().size());
 				for (ModuleDefinition child : shallowValue.getComposedModuleDefinitions()) {
@@ -88,9 +117,6 @@ public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepo
 				shallowValue.setComposedModuleDefinitions(deepModules);
 				definition = shallowValue;
 			}
-			catch (NoNodeException e) {
-				// will return null
-			}
 			catch (Exception e) {
 				throw new RuntimeException(e);
 			}
@@ -105,19 +131,11 @@ public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepo
 		}
 		List<ModuleDefinition> results = new ArrayList<ModuleDefinition>();
 		results.addAll(moduleRegistry.findDefinitions(type));
-		String path = Paths.build(Paths.MODULES, type.toString());
 		try {
-			List<String> children = zooKeeperConnection.getClient().getChildren().forPath(path);
-			for (String child : children) {
-				byte[] data = zooKeeperConnection.getClient().getData().forPath(
-						Paths.build(Paths.MODULES, type.toString(), child));
-				// Check for data (only composed modules have definitions)
-				if (data != null && data.length > 0) {
-
-					ModuleDefinition composed = this.findByNameAndType(child, type);
-					if (composed != null) {
-						results.add(composed);
-					}
+			for (String child : definitions.get(type).getAll().keySet()) {
+				ModuleDefinition composed = this.findByNameAndType(child, type);
+				if (composed != null) {
+					results.add(composed);
 				}
 			}
 		}
@@ -167,6 +185,7 @@ public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepo
 			catch (Exception e) {
 				throw new RuntimeException(e);
 			}
+			definitions.get(moduleDefinition.getType()).refresh(moduleDefinition.getName());
 		}
 		for (ModuleDefinition child : moduleDefinition.getComposedModuleDefinitions()) {
 			ModuleDefinitionRepositoryUtils.saveDependencies(moduleDependencyRepository, child,
@@ -188,6 +207,7 @@ public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepo
 		String path = Paths.build(Paths.MODULES, moduleDefinition.getType().toString(), moduleDefinition.getName());
 		try {
 			zooKeeperConnection.getClient().delete().deletingChildrenIfNeeded().forPath(path);
+			definitions.get(moduleDefinition.getType()).refresh(moduleDefinition.getName());
 			for (ModuleDefinition composedModule : moduleDefinition.getComposedModuleDefinitions()) {
 				ModuleDefinitionRepositoryUtils.deleteDependencies(moduleDependencyRepository, composedModule,
 						dependencyKey(moduleDefinition));
@@ -201,6 +221,13 @@ public class ZooKeeperModuleDefinitionRepository implements ModuleDefinitionRepo
 		}
 	}
 
+	@Override
+	public void destroy() {
+		for (ChildPathCache<String> cache : definitions.values()) {
+			cache.close();
+		}
+	}
+
 	/**
 	 * Generates the key used in the ModuleDependencyRepository.
 	 * 
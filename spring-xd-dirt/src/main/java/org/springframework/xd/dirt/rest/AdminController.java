@@ -34,9 +34,11 @@ import org.springframework.xd.rest.client.domain.ModuleMetadataResource;
 import org.springframework.xd.rest.client.domain.StreamDefinitionResource;
 import org.springframework.xd.rest.client.domain.XDRuntime;
 import org.springframework.xd.rest.client.domain.metrics.AggregateCountsResource;
+import org.springframework.xd.rest.client.domain.metrics.CardinalityCounterResource;
 import org.springframework.xd.rest.client.domain.metrics.CounterResource;
 import org.springframework.xd.rest.client.domain.metrics.FieldValueCounterResource;
 import org.springframework.xd.rest.client.domain.metrics.GaugeResource;
+import org.springframework.xd.rest.client.domain.metrics.HistogramResource;
 import org.springframework.xd.rest.client.domain.metrics.RichGaugeResource;
 
 /**
@@ -80,6 +82,8 @@ public class AdminController {
 		xdRuntime.add(entityLinks.linkFor(AggregateCountsResource.class).withRel("aggregate-counters"));
 		xdRuntime.add(entityLinks.linkFor(GaugeResource.class).withRel("gauges"));
 		xdRuntime.add(entityLinks.linkFor(RichGaugeResource.class).withRel("rich-gauges"));
+		xdRuntime.add(entityLinks.linkFor(CardinalityCounterResource.class).withRel("cardinality-counters"));
+		xdRuntime.add(entityLinks.linkFor(HistogramResource.class).withRel("histograms"));
 		return xdRuntime;
 	}
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.rest.metrics;
+
+import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounter;
+import org.springframework.xd.rest.client.domain.metrics.CardinalityCounterResource;
+
+/**
+ * Knows how to assemble {@link CardinalityCounterResource}s out of {@link CardinalityCounter}s.
+ *
+ * @since 1.0
+ */
+class DeepCardinalityCounterResourceAssembler extends
+		ResourceAssemblerSupport<CardinalityCounter, CardinalityCounterResource> {
+
+	public DeepCardinalityCounterResourceAssembler() {
+		super(CardinalityCountersController.class, CardinalityCounterResource.class);
+	}
+
+	@Override
+	public CardinalityCounterResource toResource(CardinalityCounter entity) {
+		return createResourceWithId(entity.getName(), entity);
+	}
+
+	@Override
+	protected CardinalityCounterResource instantiateResource(CardinalityCounter entity) {
+		return new CardinalityCounterResource(entity.getName(), entity.getValue());
+	}
+
+}
@@ -39,7 +39,8 @@ public class DeepFieldValueCounterResourceAssembler extends
 
 	@Override
 	protected FieldValueCounterResource instantiateResource(FieldValueCounter entity) {
-		return new FieldValueCounterResource(entity.getName(), entity.getFieldValueCount());
+		return new FieldValueCounterResource(entity.getName(), entity.getFieldValueCount(),
+				entity.getFieldValueErrors());
 	}
 
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.rest.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.ExposesResourceFor;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.xd.analytics.metrics.core.Histogram;
+import org.springframework.xd.analytics.metrics.core.HistogramRepository;
+import org.springframework.xd.dirt.analytics.NoSuchMetricException;
+import org.springframework.xd.rest.client.domain.metrics.HistogramResource;
+import org.springframework.xd.rest.client.domain.metrics.MetricResource;
+
+/**
+ * Exposes representations of {@link Histogram}s.
+ *
+ * @since 1.0
+ */
+@Controller
+@RequestMapping("/metrics/histograms")
+@ExposesResourceFor(HistogramResource.class)
+public class HistogramsController extends AbstractMetricsController<HistogramRepository, Histogram> {
+
+	private final DeepHistogramResourceAssembler histogramResourceAssembler = new DeepHistogramResourceAssembler();
+
+	@Autowired
+	public HistogramsController(HistogramRepository repository) {
+		super(repository);
+	}
+
+	@Override
+	@ResponseBody
+	@RequestMapping(value = "", method = RequestMethod.GET)
+	public PagedResources<MetricResource> list(Pageable pageable,
+			PagedResourcesAssembler<Histogram> pagedAssembler) {
+		return super.list(pageable, pagedAssembler);
+	}
+
+	/**
+	 * Retrieve the percentiles of a histogram.
+	 *
+	 * @param name the name of the histogram
+	 * @param window the number of most recent minutes to compute the percentiles over, default all the values recorded
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public HistogramResource display(@PathVariable("name") String name,
+			@RequestParam(value = "window", required = false) Integer window) {
+		Histogram h = (window == null) ? repository.findOne(name) : repository.findRecent(name, window);
+		if (h == null) {
+			throw new NoSuchMetricException(name, "There is no histogram named '%s'");
+		}
+		return histogramResourceAssembler.toResource(h);
+	}
+}
@@ -16,13 +16,19 @@
 
 package org.springframework.xd.dirt.server;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
 import org.apache.curator.framework.recipes.leader.LeaderSelector;
 import org.apache.curator.framework.recipes.leader.LeaderSelectorListener;
@@ -39,7 +45,9 @@ import org.springframework.context.event.ContextStoppedEvent;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.util.Assert;
 import org.springframework.xd.dirt.cluster.Container;
+import org.springframework.xd.dirt.cluster.ContainerMatcher;
 import org.springframework.xd.dirt.cluster.ContainerRepository;
+import org.springframework.xd.dirt.cluster.LoadBalancingContainerMatcher;
 import org.springframework.xd.dirt.module.ModuleDefinitionRepository;
 import org.springframework.xd.dirt.stream.StreamDefinitionRepository;
 import org.springframework.xd.dirt.util.MapBytesUtility;
@@ -105,6 +113,14 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 	 */
 	private final AtomicReference<PathChildrenCache> containers = new AtomicReference<PathChildrenCache>();
 
+	/**
+	 * Caches of the children under the module deployments path of each container, by container name. They are
+	 * maintained by the {@link ModuleDeploymentsListener} while this admin server is the leader, so that the number of
+	 * modules of a container can be read without a round trip to ZooKeeper.
+	 */
+	private final ConcurrentMap<String, PathChildrenCache> moduleDeployments =
+			new ConcurrentHashMap<String, PathChildrenCache>();
+
 	/**
 	 * Converter from {@link ChildData} types to {@link Container}.
 	 */
@@ -133,6 +149,22 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 	 */
 	private final ConnectionListener connectionListener = new ConnectionListener();
 
+	/**
+	 * Time in milliseconds to wait for the containers to deploy the modules of a stream.
+	 */
+	private volatile long deploymentTimeout = 30000;
+
+	/**
+	 * Number of streams that may be deployed in parallel, either upon request or
+	 * to containers that arrive.
+	 */
+	private volatile int deploymentThreads = 4;
+
+	/**
+	 * Matcher that selects the containers to deploy modules to.
+	 */
+	private volatile ContainerMatcher containerMatcher = new LoadBalancingContainerMatcher();
+
 	/**
 	 * Construct an AdminServer.
 	 *
@@ -155,6 +187,38 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 		this.moduleOptionsMetadataResolver = moduleOptionsMetadataResolver;
 	}
 
+	/**
+	 * Set the time to wait for the containers to deploy the modules of a stream before reporting that the deployment
+	 * timed out.
+	 *
+	 * @param deploymentTimeout timeout in milliseconds
+	 */
+	public void setDeploymentTimeout(long deploymentTimeout) {
+		Assert.isTrue(deploymentTimeout > 0, "deploymentTimeout must be positive");
+		this.deploymentTimeout = deploymentTimeout;
+	}
+
+	/**
+	 * Set the number of streams that may be deployed in parallel.
+	 *
+	 * @param deploymentThreads number of threads deploying streams
+	 */
+	public void setDeploymentThreads(int deploymentThreads) {
+		Assert.isTrue(deploymentThreads > 0, "deploymentThreads must be positive");
+		this.deploymentThreads = deploymentThreads;
+	}
+
+	/**
+	 * Set the matcher that selects the containers to deploy modules to. By default the least loaded containers are
+	 * selected, see {@link LoadBalancingContainerMatcher}.
+	 *
+	 * @param containerMatcher the container matcher
+	 */
+	public void setContainerMatcher(ContainerMatcher containerMatcher) {
+		Assert.notNull(containerMatcher, "containerMatcher must not be null");
+		this.containerMatcher = containerMatcher;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -185,6 +249,32 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 				: new ChildPathIterator<Container>(containerConverter, cache);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getDeployedModuleCount(String containerName) {
+		PathChildrenCache cache = moduleDeployments.get(containerName);
+		return cache == null ? 0 : cache.getCurrentData().size();
+	}
+
+	/**
+	 * Stop caching the module deployments of a container.
+	 *
+	 * @param containerName the name of the container
+	 */
+	private void closeModuleDeployments(String containerName) {
+		PathChildrenCache cache = moduleDeployments.remove(containerName);
+		if (cache != null) {
+			try {
+				cache.close();
+			}
+			catch (IOException e) {
+				LOG.debug("Exception closing module deployments cache of container " + containerName, e);
+			}
+		}
+	}
+
 	/**
 	 * Return the UUID for this admin server.
 	 *
@@ -260,6 +350,44 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 		}
 	}
 
+	/**
+	 * Listener for the {@link Paths#CONTAINERS} cache that starts caching the module deployments of each container
+	 * when it arrives, and stops when it departs.
+	 */
+	private class ModuleDeploymentsListener implements PathChildrenCacheListener {
+
+		/**
+		 * Executor shared by the module deployments caches; it is not shut down when a cache is closed.
+		 */
+		private final ExecutorService executor;
+
+		ModuleDeploymentsListener(ExecutorService executor) {
+			this.executor = executor;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) throws Exception {
+			switch (event.getType()) {
+				case CHILD_ADDED:
+					String containerName = Paths.stripPath(event.getData().getPath());
+					PathChildrenCache cache = new PathChildrenCache(client,
+							Paths.build(Paths.MODULE_DEPLOYMENTS, containerName), false, false, executor);
+					if (moduleDeployments.putIfAbsent(containerName, cache) == null) {
+						cache.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+					}
+					break;
+				case CHILD_REMOVED:
+					closeModuleDeployments(Paths.stripPath(event.getData().getPath()));
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
 	/**
 	 * Listener implementation that is invoked when this server becomes the leader.
 	 */
@@ -281,15 +409,22 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 			PathChildrenCache streams = null;
 			PathChildrenCache streamDeployments = null;
 			PathChildrenCache jobDeployments = null;
+			ExecutorService deploymentExecutor = null;
+			ExecutorService moduleDeploymentsExecutor = null;
 			PathChildrenCacheListener streamListener;
 			PathChildrenCacheListener jobListener;
 			PathChildrenCacheListener containerListener;
 
 			try {
+				deploymentExecutor = Executors.newFixedThreadPool(deploymentThreads,
+						ThreadUtils.newThreadFactory("StreamDeployment"));
+				StreamDeploymentLocks deploymentLocks = new StreamDeploymentLocks();
+
 				streamListener = new StreamListener(AdminServer.this,
 						streamDefinitionRepository,
 						moduleDefinitionRepository,
-						moduleOptionsMetadataResolver);
+						moduleOptionsMetadataResolver,
+						containerMatcher, deploymentExecutor, deploymentTimeout, deploymentLocks);
 
 				streams = new PathChildrenCache(client, Paths.STREAMS, true,
 						ThreadUtils.newThreadFactory("StreamDefinitionPathChildrenCache"));
@@ -301,7 +436,7 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 				streamDeployments.start(PathChildrenCache.StartMode.POST_INITIALIZED_EVENT);
 
 				jobListener = new JobListener(AdminServer.this, moduleDefinitionRepository,
-						moduleOptionsMetadataResolver);
+						moduleOptionsMetadataResolver, containerMatcher);
 
 				jobDeployments = new PathChildrenCache(client, Paths.JOB_DEPLOYMENTS, true,
 						ThreadUtils.newThreadFactory("JobDeploymentsPathChildrenCache"));
@@ -311,10 +446,17 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 				containerListener = new ContainerListener(AdminServer.this,
 						streamDefinitionRepository,
 						moduleDefinitionRepository,
-						moduleOptionsMetadataResolver, streamDeployments, streams);
+						moduleOptionsMetadataResolver, streamDeployments, streams,
+						containerMatcher, deploymentExecutor, deploymentTimeout, deploymentLocks);
+
+				moduleDeploymentsExecutor = Executors.newSingleThreadExecutor(
+						ThreadUtils.newThreadFactory("ModuleDeploymentsPathChildrenCache"));
 
 				PathChildrenCache containersCache = new PathChildrenCache(client, Paths.CONTAINERS, true,
 						ThreadUtils.newThreadFactory("ContainersPathChildrenCache"));
+				// the module deployments of a departing container are forgotten
+				// before the container listener redeploys them elsewhere
+				containersCache.getListenable().addListener(new ModuleDeploymentsListener(moduleDeploymentsExecutor));
 				containersCache.getListenable().addListener(containerListener);
 				containersCache.start();
 
@@ -343,6 +485,18 @@ public class AdminServer implements ContainerRepository, ApplicationListener<App
 				if (jobDeployments != null) {
 					jobDeployments.close();
 				}
+
+				if (deploymentExecutor != null) {
+					deploymentExecutor.shutdownNow();
+				}
+
+				for (String containerName : moduleDeployments.keySet()) {
+					closeModuleDeployments(containerName);
+				}
+
+				if (moduleDeploymentsExecutor != null) {
+					moduleDeploymentsExecutor.shutdownNow();
+				}
 			}
 		}
 	}
@@ -16,11 +16,19 @@
 
 package org.springframework.xd.dirt.server;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
@@ -37,7 +45,6 @@ import org.springframework.util.StringUtils;
 import org.springframework.xd.dirt.cluster.Container;
 import org.springframework.xd.dirt.cluster.ContainerMatcher;
 import org.springframework.xd.dirt.cluster.ContainerRepository;
-import org.springframework.xd.dirt.cluster.DefaultContainerMatcher;
 import org.springframework.xd.dirt.core.ModuleDeploymentsPath;
 import org.springframework.xd.dirt.core.ModuleDescriptor;
 import org.springframework.xd.dirt.core.Stream;
@@ -52,7 +59,11 @@ import org.springframework.xd.module.ModuleType;
 import org.springframework.xd.module.options.ModuleOptionsMetadataResolver;
 
 /**
- * Listener implementation that is invoked when containers are added/removed/modified.
+ * Listener implementation that is invoked when containers are added/removed/modified. The modules to deploy to an
+ * arriving container are determined and deployed for each stream by a task submitted to the deployment executor, so
+ * that the Curator event thread is not blocked while the container deploys them. The modules of a departed container
+ * are redeployed by a task submitted to the same executor. Both hold the lock of each stream while placing its
+ * modules.
  * 
  * @author Patrick Peralta
  * @author Mark Fisher
@@ -69,8 +80,10 @@ public class ContainerListener implements PathChildrenCacheListener {
 	 */
 	private final ContainerRepository containerRepository;
 
-	// todo: make this pluggable and/or refactor to avoid duplication with StreamListener
-	private final ContainerMatcher containerMatcher = new DefaultContainerMatcher();
+	/**
+	 * Matcher that selects the containers to redeploy modules to.
+	 */
+	private final ContainerMatcher containerMatcher;
 
 	/**
 	 * Utility to convert maps to byte arrays.
@@ -99,6 +112,31 @@ public class ContainerListener implements PathChildrenCacheListener {
 	 */
 	private final PathChildrenCache streamDefinitions;
 
+	/**
+	 * Executor that deploys modules to arriving containers and redeploys the modules of departed containers.
+	 */
+	private final ExecutorService deploymentExecutor;
+
+	/**
+	 * Time in milliseconds to wait for a container to deploy the modules of a stream.
+	 */
+	private final long deploymentTimeout;
+
+	/**
+	 * Locks that serialize the placement of the modules of a stream with the {@link StreamListener}.
+	 */
+	private final StreamDeploymentLocks deploymentLocks;
+
+	/**
+	 * Streams parsed from their definitions, by stream name.
+	 */
+	private final ConcurrentMap<String, ParsedStream> parsedStreams = new ConcurrentHashMap<String, ParsedStream>();
+
+	/**
+	 * Deployments to arriving containers submitted to the {@link #deploymentExecutor}, by container name.
+	 * They are canceled if the container departs, and each removes itself once it completes.
+	 */
+	private final ConcurrentMap<String, List<Future<?>>> arrivals = new ConcurrentHashMap<String, List<Future<?>>>();
 
 	/**
 	 * Construct a ContainerListener.
@@ -109,17 +147,28 @@ public class ContainerListener implements PathChildrenCacheListener {
 	 * @param moduleOptionsMetadataResolver resolver for module options metadata
 	 * @param streamDeployments             cache of children for stream deployments path
 	 * @param streamDefinitions             cache of children for streams
+	 * @param containerMatcher              matcher that selects the containers to redeploy modules to
+	 * @param deploymentExecutor            executor that deploys modules to arriving containers and redeploys the
+	 *                                      modules of departed containers
+	 * @param deploymentTimeout             time in milliseconds to wait for a container to deploy the modules of a stream
+	 * @param deploymentLocks               locks that serialize the placement of the modules of a stream
 	 */
 	public ContainerListener(ContainerRepository containerRepository,
 			StreamDefinitionRepository streamDefinitionRepository,
 			ModuleDefinitionRepository moduleDefinitionRepository,
 			ModuleOptionsMetadataResolver moduleOptionsMetadataResolver,
-			PathChildrenCache streamDeployments, PathChildrenCache streamDefinitions) {
+			PathChildrenCache streamDeployments, PathChildrenCache streamDefinitions,
+			ContainerMatcher containerMatcher, ExecutorService deploymentExecutor, long deploymentTimeout,
+			StreamDeploymentLocks deploymentLocks) {
 		this.containerRepository = containerRepository;
 		this.streamFactory = new StreamFactory(streamDefinitionRepository, moduleDefinitionRepository,
 				moduleOptionsMetadataResolver);
 		this.streamDeployments = streamDeployments;
 		this.streamDefinitions = streamDefinitions;
+		this.containerMatcher = containerMatcher;
+		this.deploymentExecutor = deploymentExecutor;
+		this.deploymentTimeout = deploymentTimeout;
+		this.deploymentLocks = deploymentLocks;
 	}
 
 	/**
@@ -132,7 +181,7 @@ public class ContainerListener implements PathChildrenCacheListener {
 				onChildAdded(client, event.getData());
 				break;
 			case CHILD_UPDATED:
-				LOG.info("Container updated: {}", Paths.stripPath(event.getData().getPath()));
+				LOG.debug("Container updated: {}", Paths.stripPath(event.getData().getPath()));
 				break;
 			case CHILD_REMOVED:
 				onChildLeft(client, event.getData());
@@ -149,75 +198,162 @@ public class ContainerListener implements PathChildrenCacheListener {
 	}
 
 	/**
-	 * Handle the arrival of a container. This implementation will scan the existing streams and determine if any
-	 * modules should be deployed to the new container.
+	 * Handle the arrival of a container. This implementation will scan the existing streams and submit a task for each
+	 * of them that determines if any of its modules should be deployed to the new container.
 	 * 
 	 * @param client curator client
 	 * @param data node data for the container that arrived
 	 */
-	private void onChildAdded(CuratorFramework client, ChildData data) throws Exception {
-		Container container = new Container(Paths.stripPath(data.getPath()), mapBytesUtility.toMap(data.getData()));
+	private void onChildAdded(final CuratorFramework client, ChildData data) throws Exception {
+		final Container container = new Container(Paths.stripPath(data.getPath()), mapBytesUtility.toMap(data.getData()));
 		String containerName = container.getName();
 		LOG.info("Container arrived: {}", containerName);
 
+		// all of the tasks are registered before any of them is executed,
+		// so that the entry is only removed once the last one completes
+		List<Future<?>> futures = new CopyOnWriteArrayList<Future<?>>();
 		for (Iterator<String> streamDeploymentIterator =
 					 new ChildPathIterator<String>(streamDeploymentNameConverter, streamDeployments);
 						streamDeploymentIterator.hasNext();) {
-			String streamName = streamDeploymentIterator.next();
-			Stream stream = streamFactory.createStream(streamName,
-					mapBytesUtility.toMap(streamDefinitions.getCurrentData(
-							new StreamsPath().setStreamName(streamName).build()).getData()));
-
-			for (Iterator<ModuleDescriptor> descriptorIterator = stream.getDeploymentOrderIterator(); descriptorIterator.hasNext();) {
-				ModuleDescriptor descriptor = descriptorIterator.next();
-				String group = descriptor.getGroup();
-
-				if (StringUtils.isEmpty(group) || container.getGroups().contains(group)) {
-					String moduleType = descriptor.getModuleDefinition().getType().toString();
-					String moduleName = descriptor.getModuleDefinition().getName();
-					String moduleLabel = descriptor.getLabel();
-
-					// obtain all of the containers that have deployed this module
-					List<String> containersForModule = getContainersForModule(client, descriptor);
-					if (!containersForModule.contains(containerName)) {
-						// this container has not deployed this module; determine if it should
-						int moduleCount = descriptor.getCount();
-						if (moduleCount <= 0 || containersForModule.size() < moduleCount) {
-							// either the module has a count of 0 (therefore it should be deployed everywhere)
-							// or the number of containers that have deployed the module is less than the
-							// amount specified by the module descriptor
-							LOG.info("Deploying module {} to {}", moduleName, container);
-
-							client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
-									.setContainer(containerName)
-									.setStreamName(streamName)
-									.setModuleType(moduleType)
-									.setModuleLabel(moduleLabel).build());
-
-							String path = new StreamsPath()
-									.setStreamName(streamName)
-									.setModuleType(moduleType)
-									.setModuleLabel(moduleLabel)
-									.setContainer(containerName).build();
-
-							// todo: make timeout configurable
-							long timeout = System.currentTimeMillis() + 30000;
-							boolean deployed;
-							do {
-								Thread.sleep(10);
-								deployed = client.checkExists().forPath(path) != null;
-							}
-							while (!deployed && System.currentTimeMillis() < timeout);
-
-							if (!deployed) {
-								throw new IllegalStateException(String.format(
-										"Deployment of module %s to container %s timed out", moduleName, containerName));
-							}
-						}
+			final String streamName = streamDeploymentIterator.next();
+			futures.add(new ArrivalTask(containerName, futures, new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						deployStreamModules(client, container, streamName);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					catch (Exception e) {
+						LOG.error(String.format("Exception deploying modules of stream %s to container %s",
+								streamName, container.getName()), e);
+					}
+				}
+			}));
+		}
+		if (futures.isEmpty()) {
+			return;
+		}
+		arrivals.put(containerName, futures);
+		for (Future<?> future : futures) {
+			deploymentExecutor.execute((ArrivalTask) future);
+		}
+	}
+
+	/**
+	 * Deploy the modules of a stream that should be deployed to a container while holding the lock of the stream, so
+	 * that the placement decisions of concurrent deployments of the stream do not overlap.
+	 * 
+	 * @param client curator client
+	 * @param container the container that arrived
+	 * @param streamName the name of the stream
+	 */
+	private void deployStreamModules(CuratorFramework client, Container container, String streamName)
+			throws Exception {
+		deploymentLocks.lock(streamName);
+		try {
+			doDeployStreamModules(client, container, streamName);
+		}
+		finally {
+			deploymentLocks.unlock(streamName);
+		}
+	}
+
+	/**
+	 * Deploy the modules of a stream that should be deployed to a container, and wait for the container to deploy them.
+	 * 
+	 * @param client curator client
+	 * @param container the container that arrived
+	 * @param streamName the name of the stream
+	 */
+	private void doDeployStreamModules(CuratorFramework client, Container container, String streamName)
+			throws Exception {
+		String containerName = container.getName();
+		Stream stream = getStream(streamName);
+		if (stream == null) {
+			LOG.debug("Stream definition {} has been removed", streamName);
+			return;
+		}
+
+		// paths of the deployment requests, mapped to the paths
+		// the container writes once it has deployed the modules
+		Map<String, String> mapDeploymentStatus = new LinkedHashMap<String, String>();
+		for (Iterator<ModuleDescriptor> descriptorIterator = stream.getDeploymentOrderIterator(); descriptorIterator.hasNext();) {
+			ModuleDescriptor descriptor = descriptorIterator.next();
+			String group = descriptor.getGroup();
+
+			if (StringUtils.isEmpty(group) || container.getGroups().contains(group)) {
+				String moduleType = descriptor.getModuleDefinition().getType().toString();
+				String moduleName = descriptor.getModuleDefinition().getName();
+				String moduleLabel = descriptor.getLabel();
+
+				// obtain all of the containers that have deployed this module
+				List<String> containersForModule = getContainersForModule(client, descriptor);
+				if (!containersForModule.contains(containerName)) {
+					// this container has not deployed this module; determine if it should
+					int moduleCount = descriptor.getCount();
+					if (moduleCount <= 0 || containersForModule.size() < moduleCount) {
+						// either the module has a count of 0 (therefore it should be deployed everywhere)
+						// or the number of containers that have deployed the module is less than the
+						// amount specified by the module descriptor
+						LOG.info("Deploying module {} to {}", moduleName, container);
+
+						mapDeploymentStatus.put(new ModuleDeploymentsPath()
+								.setContainer(containerName)
+								.setStreamName(streamName)
+								.setModuleType(moduleType)
+								.setModuleLabel(moduleLabel).build(),
+								new StreamsPath()
+										.setStreamName(streamName)
+										.setModuleType(moduleType)
+										.setModuleLabel(moduleLabel)
+										.setContainer(containerName).build());
 					}
 				}
 			}
 		}
+
+		for (String path : Paths.createAll(client, mapDeploymentStatus.keySet())) {
+			mapDeploymentStatus.remove(path);
+		}
+
+		Collection<String> timedOut = new DeploymentStatusWatcher(client, mapDeploymentStatus.values())
+				.await(deploymentTimeout);
+
+		if (!timedOut.isEmpty()) {
+			List<String> modules = new ArrayList<String>();
+			for (String path : timedOut) {
+				modules.add(new StreamsPath(path).getModuleLabel());
+			}
+			throw new IllegalStateException(String.format(
+					"Deployment of modules %s of stream %s to container %s timed out", modules, streamName,
+					containerName));
+		}
+	}
+
+	/**
+	 * Return the stream with the given name, parsing its definition only if it has changed since it was last parsed.
+	 * 
+	 * @param streamName the name of the stream
+	 * 
+	 * @return the stream, or {@code null} if its definition has been removed
+	 */
+	private Stream getStream(String streamName) {
+		ChildData data = streamDefinitions.getCurrentData(new StreamsPath().setStreamName(streamName).build());
+		if (data == null) {
+			parsedStreams.remove(streamName);
+			return null;
+		}
+		long version = data.getStat().getMzxid();
+		ParsedStream parsed = parsedStreams.get(streamName);
+		if (parsed == null || parsed.version != version) {
+			parsed = new ParsedStream(version, streamFactory.createStream(streamName,
+					mapBytesUtility.toMap(data.getData())));
+			parsedStreams.put(streamName, parsed);
+		}
+		return parsed.stream;
 	}
 
 	/**
@@ -244,103 +380,198 @@ public class ContainerListener implements PathChildrenCacheListener {
 	}
 
 	/**
-	 * Handle the departure of a container. This will scan the list of modules deployed to the departing container and
-	 * redeploy them if required.
+	 * Handle the departure of a container. Deployments to the container that have not completed are canceled, and a
+	 * task that redeploys the modules of the container is submitted to the deployment executor.
 	 * 
 	 * @param client curator client
 	 * @param data node data for the container that departed
 	 */
-	// todo: break this method up into undeployJob and undeployStreamModule
-	private void onChildLeft(CuratorFramework client, ChildData data) {
-		String path = data.getPath();
-		String container = Paths.stripPath(path);
+	private void onChildLeft(final CuratorFramework client, ChildData data) {
+		final String container = Paths.stripPath(data.getPath());
 		LOG.info("Container departed: {}", container);
+		List<Future<?>> futures = arrivals.remove(container);
+		if (futures != null) {
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
+		}
+		deploymentExecutor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					redeployModules(client, container);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				catch (Exception e) {
+					LOG.error("Exception redeploying the modules of container " + container, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Scan the list of modules deployed to a departed container and redeploy them if required.
+	 * 
+	 * @param client curator client
+	 * @param container the name of the container that departed
+	 */
+	private void redeployModules(CuratorFramework client, String container) throws Exception {
 		if (client.getState() == CuratorFrameworkState.STOPPED) {
 			return;
 		}
+		String containerDeployments = Paths.build(Paths.MODULE_DEPLOYMENTS, container);
+		List<String> deployments;
 		try {
-			Map<String, Stream> streamMap = new HashMap<String, Stream>();
-			String containerDeployments = Paths.build(Paths.MODULE_DEPLOYMENTS, container);
-			List<String> deployments = client.getChildren().forPath(containerDeployments);
-
-			for (String deployment : deployments) {
-				ModuleDeploymentsPath moduleDeploymentsPath = new ModuleDeploymentsPath(containerDeployments + '/' + deployment);
-				String streamName = moduleDeploymentsPath.getStreamName();
-				String moduleType = moduleDeploymentsPath.getModuleType();
-				String moduleLabel = moduleDeploymentsPath.getModuleLabel();
-
-				if (ModuleType.job.toString().equals(moduleType)) {
-					// todo: move job target selection into containerMatcher as well
-					Container target = containerRepository.getContainerIterator().next();
-					if (target == null) {
-						LOG.warn("No containers available for redeployment of job {}", streamName);
-					}
-					else {
-						String targetName = target.getName();
-						LOG.info("Redeploying job {} to container {}", streamName, targetName);
-						client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
-								.setContainer(targetName)
-								.setStreamName(streamName)
-								.setModuleType(moduleType)
-								.setModuleLabel(moduleLabel).build()
-								);
-					}
+			deployments = client.getChildren().forPath(containerDeployments);
+		}
+		catch (KeeperException.NoNodeException e) {
+			return;
+		}
+
+		for (String deployment : deployments) {
+			ModuleDeploymentsPath moduleDeploymentsPath = new ModuleDeploymentsPath(containerDeployments + '/' + deployment);
+			String streamName = moduleDeploymentsPath.getStreamName();
+			String moduleType = moduleDeploymentsPath.getModuleType();
+			String moduleLabel = moduleDeploymentsPath.getModuleLabel();
+
+			if (ModuleType.job.toString().equals(moduleType)) {
+				redeployJob(client, streamName, moduleType, moduleLabel);
+			}
+			else {
+				deploymentLocks.lock(streamName);
+				try {
+					redeployStreamModule(client, streamName, moduleType, moduleLabel);
 				}
-				else {
-					Stream stream = streamMap.get(streamName);
-					if (stream == null) {
-						stream = streamFactory.createStream(streamName, mapBytesUtility.toMap(
-								client.getData().forPath(Paths.build(Paths.STREAMS, streamName))));
-						streamMap.put(streamName, stream);
-					}
-					ModuleDescriptor moduleDescriptor = stream.getModuleDescriptor(moduleLabel, moduleType);
-					if (moduleDescriptor.getCount() > 0) {
-						Iterator<Container> iterator = containerMatcher.match(moduleDescriptor, containerRepository).iterator();
-						if (iterator.hasNext()) {
-							Container targetContainer = iterator.next();
-							String targetName = targetContainer.getName();
-
-							LOG.info("Redeploying module {} for stream {} to container {}",
-									moduleLabel, streamName, targetName);
-
-							client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
-									.setContainer(targetName)
-									.setStreamName(streamName)
-									.setModuleType(moduleType)
-									.setModuleLabel(moduleLabel).build()
-									);
-
-							// todo: consider redeployment verification
-						}
-						else {
-							LOG.warn("No containers available for redeployment of {} for stream {}", moduleLabel,
-									streamName);
-						}
-					}
-					else {
-						StringBuilder builder = new StringBuilder();
-						String group = moduleDescriptor.getGroup();
-						builder.append("Module '").append(moduleLabel).append("' is targeted to all containers");
-						if (StringUtils.hasText(group)) {
-							builder.append(" belonging to group '").append(group).append('\'');
-						}
-						builder.append("; it does not need to be redeployed");
-						LOG.info(builder.toString());
-					}
+				finally {
+					deploymentLocks.unlock(streamName);
 				}
 			}
+		}
+
+		// remove the deployments from the departed container
+		client.delete().deletingChildrenIfNeeded().forPath(containerDeployments);
+	}
+
+	/**
+	 * Redeploy a job of a departed container.
+	 * 
+	 * @param client curator client
+	 * @param jobName the name of the job
+	 * @param moduleType the type of the module
+	 * @param moduleLabel the label of the module
+	 */
+	private void redeployJob(CuratorFramework client, String jobName, String moduleType, String moduleLabel)
+			throws Exception {
+		Iterator<Container> iterator = containerMatcher.match(null, 1, containerRepository).iterator();
+		if (!iterator.hasNext()) {
+			LOG.warn("No containers available for redeployment of job {}", jobName);
+		}
+		else {
+			String targetName = iterator.next().getName();
+			LOG.info("Redeploying job {} to container {}", jobName, targetName);
+			client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
+					.setContainer(targetName)
+					.setStreamName(jobName)
+					.setModuleType(moduleType)
+					.setModuleLabel(moduleLabel).build()
+					);
+		}
+	}
 
-			// remove the deployments from the departed container
-			client.delete().deletingChildrenIfNeeded().forPath(Paths.build(Paths.MODULE_DEPLOYMENTS, container));
+	/**
+	 * Redeploy a module of a stream of a departed container, if the module is not targeted to all containers.
+	 * 
+	 * @param client curator client
+	 * @param streamName the name of the stream
+	 * @param moduleType the type of the module
+	 * @param moduleLabel the label of the module
+	 */
+	private void redeployStreamModule(CuratorFramework client, String streamName, String moduleType,
+			String moduleLabel) throws Exception {
+		Stream stream = getStream(streamName);
+		if (stream == null) {
+			LOG.debug("Stream definition {} has been removed", streamName);
+			return;
 		}
-		catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
+		ModuleDescriptor moduleDescriptor = stream.getModuleDescriptor(moduleLabel, moduleType);
+		if (moduleDescriptor.getCount() > 0) {
+			Iterator<Container> iterator = containerMatcher.match(moduleDescriptor, containerRepository).iterator();
+			if (iterator.hasNext()) {
+				Container targetContainer = iterator.next();
+				String targetName = targetContainer.getName();
+
+				LOG.info("Redeploying module {} for stream {} to container {}",
+						moduleLabel, streamName, targetName);
+
+				client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
+						.setContainer(targetName)
+						.setStreamName(streamName)
+						.setModuleType(moduleType)
+						.setModuleLabel(moduleLabel).build()
+						);
+
+				// todo: consider redeployment verification
+			}
+			else {
+				LOG.warn("No containers available for redeployment of {} for stream {}", moduleLabel,
+						streamName);
+			}
 		}
-		catch (Exception e) {
-			throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+		else {
+			StringBuilder builder = new StringBuilder();
+			String group = moduleDescriptor.getGroup();
+			builder.append("Module '").append(moduleLabel).append("' is targeted to all containers");
+			if (StringUtils.hasText(group)) {
+				builder.append(" belonging to group '").append(group).append('\'');
+			}
+			builder.append("; it does not need to be redeployed");
+			LOG.info(builder.toString());
 		}
 	}
 
+	/**
+	 * Deployment of the modules of a stream to an arriving container that removes itself from {@link #arrivals} once it
+	 * completes or is canceled.
+	 */
+	private class ArrivalTask extends FutureTask<Void> {
+
+		private final String containerName;
+
+		private final List<Future<?>> futures;
+
+		ArrivalTask(String containerName, List<Future<?>> futures, Runnable runnable) {
+			super(runnable, null);
+			this.containerName = containerName;
+			this.futures = futures;
+		}
+
+		@Override
+		protected void done() {
+			futures.remove(this);
+			if (futures.isEmpty()) {
+				// only remove the entry if it has not been replaced by a later arrival
+				arrivals.remove(containerName, futures);
+			}
+		}
+	}
+
+	/**
+	 * A stream parsed from the version of its definition with the given modification zxid.
+	 */
+	private static class ParsedStream {
+
+		private final long version;
+
+		private final Stream stream;
+
+		ParsedStream(long version, Stream stream) {
+			this.version = version;
+			this.stream = stream;
+		}
+	}
 
 	/**
 	 * Converter from {@link ChildData} to {@link Stream}.
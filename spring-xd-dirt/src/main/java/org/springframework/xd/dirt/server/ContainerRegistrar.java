@@ -16,12 +16,18 @@
 
 package org.springframework.xd.dirt.server;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.CuratorWatcher;
@@ -179,6 +185,17 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 	 */
 	private volatile ClassLoader parentClassLoader;
 
+	/**
+	 * Interval in milliseconds at which the heap usage and load average of this container are published with its
+	 * attributes, or 0 if they are not published.
+	 */
+	private volatile long loadReportInterval;
+
+	/**
+	 * Executor that publishes the heap usage and load average of this container while it is connected to ZooKeeper.
+	 */
+	private volatile ScheduledExecutorService loadReporter;
+
 	/**
 	 * Create an instance that will register the provided {@link ContainerAttributes} whenever the underlying
 	 * {@link ZooKeeperConnection} is established. If that connection is already established at the time this instance
@@ -211,6 +228,17 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 		this.parser = new XDStreamParser(moduleDefinitionRepository, moduleOptionsMetadataResolver);
 	}
 
+	/**
+	 * Set the interval at which the heap usage and load average of this container are published with its attributes,
+	 * so that the admin can deploy modules to the least loaded containers. They are not published by default.
+	 *
+	 * @param loadReportInterval interval in milliseconds, or 0 to not publish them
+	 */
+	public void setLoadReportInterval(long loadReportInterval) {
+		Assert.isTrue(loadReportInterval >= 0, "loadReportInterval must not be negative");
+		this.loadReportInterval = loadReportInterval;
+	}
+
 	/**
 	 * Deploy the requested module.
 	 *
@@ -293,6 +321,12 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 			deployments.getListenable().addListener(deploymentListener);
 			containerAttributesRepository.save(containerAttributes);
 			deployments.start(PathChildrenCache.StartMode.POST_INITIALIZED_EVENT);
+			if (loadReportInterval > 0) {
+				loadReporter = Executors.newSingleThreadScheduledExecutor(
+						ThreadUtils.newThreadFactory("ContainerLoadReporter"));
+				loadReporter.scheduleWithFixedDelay(new LoadReporter(client), loadReportInterval,
+						loadReportInterval, TimeUnit.MILLISECONDS);
+			}
 
 			LOG.info("Started container {}", containerAttributes);
 		}
@@ -324,6 +358,10 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 				LOG.warn(">>> disconnected container: {}", containerAttributes.getId());
 				deployments.getListenable().removeListener(deploymentListener);
 				deployments.close();
+				if (loadReporter != null) {
+					loadReporter.shutdownNow();
+					loadReporter = null;
+				}
 				// todo: modules in mapDeployedModules should be undeployed
 			}
 			catch (Exception e) {
@@ -332,6 +370,55 @@ public class ContainerRegistrar implements ApplicationListener<ContextRefreshedE
 		}
 	}
 
+	/**
+	 * Task that publishes the heap usage and load average of this container with its attributes.
+	 */
+	private class LoadReporter implements Runnable {
+
+		/**
+		 * Curator client.
+		 */
+		private final CuratorFramework client;
+
+		/**
+		 * Construct a LoadReporter.
+		 *
+		 * @param client curator client
+		 */
+		LoadReporter(CuratorFramework client) {
+			this.client = client;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			ContainerAttributes attributes = new ContainerAttributes(containerAttributes);
+			MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+			if (heap.getMax() > 0) {
+				attributes.put(ContainerAttributes.HEAP_USAGE_KEY, round((double) heap.getUsed() / heap.getMax()));
+			}
+			OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+			double loadAverage = os.getSystemLoadAverage();
+			if (loadAverage >= 0) {
+				attributes.put(ContainerAttributes.LOAD_AVERAGE_KEY,
+						round(loadAverage / os.getAvailableProcessors()));
+			}
+			try {
+				client.setData().forPath(Paths.build(Paths.CONTAINERS, containerAttributes.getId()),
+						mapBytesUtility.toByteArray(attributes));
+			}
+			catch (Exception e) {
+				LOG.warn("Failed to publish the load of container " + containerAttributes.getId(), e);
+			}
+		}
+
+		private String round(double value) {
+			return Double.toString(Math.round(value * 1000) / 1000.0);
+		}
+	}
+
 	/**
 	 * Event handler for new module deployments.
 	 *
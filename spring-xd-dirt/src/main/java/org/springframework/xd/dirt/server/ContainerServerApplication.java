@@ -20,6 +20,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.PropertyPlaceholderAutoConfiguration;
 import org.springframework.boot.autoconfigure.batch.BatchAutoConfiguration;
@@ -187,6 +188,9 @@ class ContainerConfiguration {
 	@Autowired(required = false)
 	ZooKeeperConnectionConfigurer zooKeeperConnectionConfigurer;
 
+	@Value("${xd.loadReport.interval:0}")
+	private long loadReportInterval;
+
 	@Bean
 	public ApplicationListener<?> xdInitializer(ApplicationContext context) {
 		XdConfigLoggingInitializer delegate = new XdConfigLoggingInitializer(true);
@@ -201,13 +205,15 @@ class ContainerConfiguration {
 			zooKeeperConnection.start();
 		}
 
-		return new ContainerRegistrar(containerAttributes,
+		ContainerRegistrar containerRegistrar = new ContainerRegistrar(containerAttributes,
 				containerAttributesRepository,
 				streamDefinitionRepository,
 				moduleDefinitionRepository,
 				moduleOptionsMetadataResolver,
 				moduleDeployer,
 				zooKeeperConnection);
+		containerRegistrar.setLoadReportInterval(loadReportInterval);
+		return containerRegistrar;
 	}
 
 	// TODO: Should this be removed once the control transport is removed?
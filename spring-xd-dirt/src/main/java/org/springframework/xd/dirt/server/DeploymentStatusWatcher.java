@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.zookeeper.WatchedEvent;
+
+/**
+ * Waits for containers to report the deployment of modules. A container reports that it has deployed a module by
+ * creating a node under the path of the module; instead of polling for these nodes, a ZooKeeper watch is set on each
+ * of them, so that the waiting thread is woken up as soon as the last one is created.
+ * 
+ * @since 1.0
+ */
+class DeploymentStatusWatcher {
+
+	/**
+	 * Curator client.
+	 */
+	private final CuratorFramework client;
+
+	/**
+	 * Paths of the nodes that have not been created yet. Guarded by itself.
+	 */
+	private final Set<String> pending;
+
+	/**
+	 * Construct a DeploymentStatusWatcher.
+	 * 
+	 * @param client curator client
+	 * @param paths paths of the nodes written by the containers upon deployment
+	 */
+	DeploymentStatusWatcher(CuratorFramework client, Collection<String> paths) {
+		this.client = client;
+		this.pending = new HashSet<String>(paths);
+	}
+
+	/**
+	 * Wait until all the nodes have been created, or until the timeout elapses. The watches of the nodes that were not
+	 * created in time are not set again once they fire.
+	 * 
+	 * @param timeout the maximum time to wait, in milliseconds
+	 * 
+	 * @return the paths of the nodes that were not created in time; empty if all of them were
+	 * 
+	 * @throws Exception thrown by Curator, or {@link InterruptedException} if the thread is interrupted
+	 */
+	Collection<String> await(long timeout) throws Exception {
+		try {
+			List<String> paths;
+			synchronized (pending) {
+				paths = new ArrayList<String>(pending);
+			}
+			for (String path : paths) {
+				watch(path);
+			}
+			long deadline = System.currentTimeMillis() + timeout;
+			synchronized (pending) {
+				long remaining = timeout;
+				while (!pending.isEmpty() && remaining > 0) {
+					pending.wait(remaining);
+					remaining = deadline - System.currentTimeMillis();
+				}
+				return new ArrayList<String>(pending);
+			}
+		}
+		finally {
+			// stop watching the nodes that were not created in time
+			synchronized (pending) {
+				pending.clear();
+			}
+		}
+	}
+
+	/**
+	 * Check whether the node at the given path exists, setting a watch that checks again if it does not.
+	 * 
+	 * @param path path of the node
+	 */
+	private void watch(final String path) throws Exception {
+		boolean exists = client.checkExists().usingWatcher(new CuratorWatcher() {
+
+			@Override
+			public void process(WatchedEvent event) throws Exception {
+				boolean waiting;
+				synchronized (pending) {
+					waiting = pending.contains(path);
+				}
+				if (waiting) {
+					watch(path);
+				}
+			}
+		}).forPath(path) != null;
+
+		if (exists) {
+			synchronized (pending) {
+				pending.remove(path);
+				pending.notifyAll();
+			}
+		}
+	}
+
+}
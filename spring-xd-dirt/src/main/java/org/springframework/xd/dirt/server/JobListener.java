@@ -30,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.xd.dirt.cluster.Container;
+import org.springframework.xd.dirt.cluster.ContainerMatcher;
 import org.springframework.xd.dirt.cluster.ContainerRepository;
 import org.springframework.xd.dirt.core.ModuleDeploymentsPath;
 import org.springframework.xd.dirt.core.JobsPath;
@@ -61,6 +62,11 @@ public class JobListener implements PathChildrenCacheListener {
 	 */
 	private final ContainerRepository containerRepository;
 
+	/**
+	 * Matcher that selects the container to deploy a job to.
+	 */
+	private final ContainerMatcher containerMatcher;
+
 	/**
 	 * Utility to convert maps to byte arrays.
 	 */
@@ -83,11 +89,14 @@ public class JobListener implements PathChildrenCacheListener {
 	 * @param containerRepository repository to obtain container data
 	 * @param moduleDefinitionRepository repository to obtain module data
 	 * @param moduleOptionsMetadataResolver resolver for module options metadata
+	 * @param containerMatcher matcher that selects the container to deploy a job to
 	 */
 	public JobListener(ContainerRepository containerRepository,
 			ModuleDefinitionRepository moduleDefinitionRepository,
-			ModuleOptionsMetadataResolver moduleOptionsMetadataResolver) {
+			ModuleOptionsMetadataResolver moduleOptionsMetadataResolver,
+			ContainerMatcher containerMatcher) {
 		this.containerRepository = containerRepository;
+		this.containerMatcher = containerMatcher;
 		// this.moduleDefinitionRepository = moduleDefinitionRepository;
 		this.parser = new XDStreamParser(moduleDefinitionRepository, moduleOptionsMetadataResolver);
 	}
@@ -172,13 +181,15 @@ public class JobListener implements PathChildrenCacheListener {
 	private void deployJob(CuratorFramework client, JobDefinition jobDefinition) throws Exception {
 		Map<Container, String> mapDeploymentStatus = new HashMap<Container, String>();
 
-		// todo: refactor containerMatcher to either provide 2 methods
-		// (one for job matching and another for stream-module matching)
-		// OR provide a common interface for the stream-module descriptor and a new JobDescriptor
-		Container container = containerRepository.getContainerIterator().next();
+		String jobName = jobDefinition.getName();
+		Iterator<Container> containers = containerMatcher.match(null, 1, containerRepository).iterator();
+		if (!containers.hasNext()) {
+			LOG.warn("No containers available for deployment of job {}", jobName);
+			return;
+		}
+		Container container = containers.next();
 		String containerName = container.getName();
 
-		String jobName = jobDefinition.getName();
 		List<ModuleDeploymentRequest> results = this.parser.parse(jobName, jobDefinition.getDefinition(),
 				ParsingContext.job);
 		ModuleDeploymentRequest mdr = results.get(0);
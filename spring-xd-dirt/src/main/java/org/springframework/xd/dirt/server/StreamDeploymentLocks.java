@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.util.Assert;
+
+/**
+ * Locks that serialize the placement of the modules of a stream. A stream deployment and the arrival or departure of
+ * a container all decide where the modules of a stream are to be deployed from the containers that have already
+ * deployed them; holding the lock of the stream while deciding and waiting for the deployments to complete prevents
+ * two of them from observing the same state and deploying more instances than requested.
+ * <p>
+ * A lock only exists while it is held or awaited, so that locks do not accumulate for every stream ever deployed.
+ * Callers hold the lock of a single stream at a time.
+ * 
+ * @since 1.0
+ */
+class StreamDeploymentLocks {
+
+	/**
+	 * Locks by stream name, guarded by the map itself.
+	 */
+	private final Map<String, StreamLock> locks = new HashMap<String, StreamLock>();
+
+	/**
+	 * Acquire the lock for the placement of the modules of the given stream, waiting until it is available.
+	 * 
+	 * @param streamName the name of the stream
+	 * 
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	void lock(String streamName) throws InterruptedException {
+		StreamLock lock;
+		synchronized (locks) {
+			lock = locks.get(streamName);
+			if (lock == null) {
+				lock = new StreamLock();
+				locks.put(streamName, lock);
+			}
+			lock.users++;
+		}
+		try {
+			lock.lockInterruptibly();
+		}
+		catch (InterruptedException e) {
+			release(streamName, lock);
+			throw e;
+		}
+	}
+
+	/**
+	 * Release the lock for the placement of the modules of the given stream, which the current thread holds.
+	 * 
+	 * @param streamName the name of the stream
+	 */
+	void unlock(String streamName) {
+		StreamLock lock;
+		synchronized (locks) {
+			lock = locks.get(streamName);
+		}
+		Assert.state(lock != null && lock.isHeldByCurrentThread(), "The lock of stream " + streamName
+				+ " is not held by the current thread");
+		lock.unlock();
+		release(streamName, lock);
+	}
+
+	/**
+	 * Return whether the lock of the given stream is held or awaited.
+	 * 
+	 * @param streamName the name of the stream
+	 * 
+	 * @return true if the lock is in use
+	 */
+	boolean isInUse(String streamName) {
+		synchronized (locks) {
+			return locks.containsKey(streamName);
+		}
+	}
+
+	/**
+	 * Remove the lock once it is no longer held or awaited.
+	 */
+	private void release(String streamName, StreamLock lock) {
+		synchronized (locks) {
+			if (--lock.users == 0) {
+				locks.remove(streamName);
+			}
+		}
+	}
+
+	/**
+	 * A lock counting the threads holding or awaiting it.
+	 */
+	@SuppressWarnings("serial")
+	private static class StreamLock extends ReentrantLock {
+
+		/**
+		 * Number of acquisitions not released yet, guarded by {@link StreamDeploymentLocks#locks}.
+		 */
+		private int users;
+
+	}
+
+}
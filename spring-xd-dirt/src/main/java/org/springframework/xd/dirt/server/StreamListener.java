@@ -17,10 +17,18 @@
 package org.springframework.xd.dirt.server;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.ChildData;
@@ -33,7 +41,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.xd.dirt.cluster.Container;
 import org.springframework.xd.dirt.cluster.ContainerMatcher;
 import org.springframework.xd.dirt.cluster.ContainerRepository;
-import org.springframework.xd.dirt.cluster.DefaultContainerMatcher;
 import org.springframework.xd.dirt.core.ModuleDeploymentsPath;
 import org.springframework.xd.dirt.core.Module;
 import org.springframework.xd.dirt.core.ModuleDescriptor;
@@ -47,7 +54,9 @@ import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.module.options.ModuleOptionsMetadataResolver;
 
 /**
- * Listener implementation that handles stream deployment requests.
+ * Listener implementation that handles stream deployment requests. Streams are deployed by a bounded executor, so that
+ * independent streams are deployed in parallel; the deployment requests for the modules of a stream are written in a
+ * single ZooKeeper transaction, and their completion is detected with ZooKeeper watches.
  * 
  * @author Patrick Peralta
  * @author Mark Fisher
@@ -75,24 +84,58 @@ public class StreamListener implements PathChildrenCacheListener {
 	private final StreamFactory streamFactory;
 
 	/**
-	 * todo: make this pluggable
+	 * Matcher that selects the containers to deploy modules to.
 	 */
-	private final ContainerMatcher containerMatcher = new DefaultContainerMatcher();
+	private final ContainerMatcher containerMatcher;
+
+	/**
+	 * Executor that deploys streams.
+	 */
+	private final ExecutorService deploymentExecutor;
+
+	/**
+	 * Time in milliseconds to wait for the containers to deploy the modules of a stream.
+	 */
+	private final long deploymentTimeout;
+
+	/**
+	 * Locks that serialize the placement of the modules of a stream with the {@link ContainerListener}.
+	 */
+	private final StreamDeploymentLocks deploymentLocks;
+
+	/**
+	 * The deployments and undeployments of each stream that have not completed, by stream name, in the order in which
+	 * they were requested. Only the first of them has been submitted to the {@link #deploymentExecutor}; it submits the
+	 * next one once it completes, so that they do not interleave and no thread of the executor waits for another.
+	 * Guarded by the map itself.
+	 */
+	private final Map<String, LinkedList<StreamTask>> streamTasks = new HashMap<String, LinkedList<StreamTask>>();
 
 	/**
 	 * Construct a StreamListener.
 	 * 
 	 * @param containerRepository repository to obtain container data
+	 * @param streamDefinitionRepository repository to obtain stream data
 	 * @param moduleDefinitionRepository repository to obtain module data
 	 * @param moduleOptionsMetadataResolver resolver for module options metadata
+	 * @param containerMatcher matcher that selects the containers to deploy modules to
+	 * @param deploymentExecutor executor that deploys streams
+	 * @param deploymentTimeout time in milliseconds to wait for the modules of a stream to be deployed
+	 * @param deploymentLocks locks that serialize the placement of the modules of a stream
 	 */
 	public StreamListener(ContainerRepository containerRepository,
 			StreamDefinitionRepository streamDefinitionRepository,
 			ModuleDefinitionRepository moduleDefinitionRepository,
-			ModuleOptionsMetadataResolver moduleOptionsMetadataResolver) {
+			ModuleOptionsMetadataResolver moduleOptionsMetadataResolver,
+			ContainerMatcher containerMatcher, ExecutorService deploymentExecutor, long deploymentTimeout,
+			StreamDeploymentLocks deploymentLocks) {
 		this.containerRepository = containerRepository;
 		this.streamFactory = new StreamFactory(streamDefinitionRepository, moduleDefinitionRepository,
 				moduleOptionsMetadataResolver);
+		this.containerMatcher = containerMatcher;
+		this.deploymentExecutor = deploymentExecutor;
+		this.deploymentTimeout = deploymentTimeout;
+		this.deploymentLocks = deploymentLocks;
 	}
 
 	/**
@@ -130,34 +173,134 @@ public class StreamListener implements PathChildrenCacheListener {
 	}
 
 	/**
-	 * Handle the creation of a new stream deployment.
+	 * Handle the creation of a new stream deployment by submitting it to the deployment executor.
 	 * 
 	 * @param client curator client
 	 * @param data   stream deployment request data
 	 */
-	private void onChildAdded(CuratorFramework client, ChildData data) throws Exception {
-		String streamName = Paths.stripPath(data.getPath());
+	private void onChildAdded(final CuratorFramework client, ChildData data) throws Exception {
+		final String streamName = Paths.stripPath(data.getPath());
 
 		// todo: grab deployment manifest data from data.getData()
 
-		byte[] streamDefinition = client.getData().forPath(new StreamsPath().setStreamName(streamName).build());
-		Stream stream = streamFactory.createStream(streamName, mapBytesUtility.toMap(streamDefinition));
+		submit(streamName, true, new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					deploymentLocks.lock(streamName);
+					try {
+						byte[] streamDefinition = client.getData().forPath(
+								new StreamsPath().setStreamName(streamName).build());
+						Stream stream = streamFactory.createStream(streamName,
+								mapBytesUtility.toMap(streamDefinition));
 
-		LOG.info("Deploying stream {}", stream);
-		prepareStream(client, stream);
-		deployStream(client, stream);
+						LOG.info("Deploying stream {}", stream);
+						prepareStream(client, stream);
+						deployStream(client, stream);
+					}
+					finally {
+						deploymentLocks.unlock(streamName);
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				catch (Exception e) {
+					LOG.error("Exception deploying stream " + streamName, e);
+				}
+			}
+		});
 	}
 
 	/**
-	 * Handle the deletion of a stream deployment.
+	 * Handle the deletion of a stream deployment by submitting its undeployment to the deployment executor, so that
+	 * the Curator event thread does not wait for a deployment of the stream in progress to complete. Deployments of
+	 * the stream that have not started yet are canceled; the undeployment runs once one in progress has completed.
 	 *
 	 * @param client curator client
 	 * @param data   stream deployment request data
 	 */
-	private void onChildRemoved(CuratorFramework client, ChildData data) throws Exception {
-		String streamName = Paths.stripPath(data.getPath());
+	private void onChildRemoved(final CuratorFramework client, ChildData data) throws Exception {
+		final String streamName = Paths.stripPath(data.getPath());
 		LOG.info("Undeploying stream {}", streamName);
 
+		cancelPendingDeployments(streamName);
+
+		submit(streamName, false, new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					deploymentLocks.lock(streamName);
+					try {
+						undeployStream(client, streamName);
+					}
+					finally {
+						deploymentLocks.unlock(streamName);
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				catch (Exception e) {
+					LOG.error("Exception undeploying stream " + streamName, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Submit a deployment or undeployment of a stream to the deployment executor once the tasks requested before it
+	 * for the same stream have completed.
+	 * 
+	 * @param streamName the name of the stream
+	 * @param deployment whether the task deploys the stream, rather than undeploys it
+	 * @param runnable the deployment or undeployment
+	 */
+	private void submit(String streamName, boolean deployment, Runnable runnable) {
+		StreamTask task = new StreamTask(streamName, deployment, runnable);
+		synchronized (streamTasks) {
+			LinkedList<StreamTask> tasks = streamTasks.get(streamName);
+			if (tasks == null) {
+				tasks = new LinkedList<StreamTask>();
+				streamTasks.put(streamName, tasks);
+			}
+			tasks.add(task);
+			if (tasks.size() > 1) {
+				// submitted by the task before it
+				return;
+			}
+		}
+		deploymentExecutor.execute(task);
+	}
+
+	/**
+	 * Cancel the deployments of a stream that have not started yet. A deployment in progress is left to complete.
+	 * 
+	 * @param streamName the name of the stream
+	 */
+	private void cancelPendingDeployments(String streamName) {
+		synchronized (streamTasks) {
+			LinkedList<StreamTask> tasks = streamTasks.get(streamName);
+			if (tasks != null) {
+				// canceled tasks remove themselves
+				for (StreamTask task : new ArrayList<StreamTask>(tasks)) {
+					if (task.deployment && !task.started) {
+						task.cancel(false);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Delete the paths of the modules of a stream, which makes the containers undeploy them.
+	 *
+	 * @param client curator client
+	 * @param streamName the name of the stream
+	 */
+	private void undeployStream(CuratorFramework client, String streamName) throws Exception {
 		Stream stream;
 		try {
 			byte[] streamDefinition = client.getData().forPath(new StreamsPath().setStreamName(streamName).build());
@@ -218,22 +361,29 @@ public class StreamListener implements PathChildrenCacheListener {
 	 * @param stream stream to be prepared
 	 */
 	private void prepareStream(CuratorFramework client, Stream stream) throws Exception {
+		// the module type nodes precede the module nodes so that
+		// all of them can be created in a single transaction
+		Set<String> typePaths = new LinkedHashSet<String>();
+		List<String> modulePaths = new ArrayList<String>();
 		for (Iterator<ModuleDescriptor> iterator = stream.getDeploymentOrderIterator(); iterator.hasNext();) {
 			ModuleDescriptor descriptor = iterator.next();
 			String streamName = stream.getName();
 			String moduleType = descriptor.getModuleDefinition().getType().toString();
-			String moduleName = descriptor.getModuleDefinition().getName();
 			String moduleLabel = descriptor.getLabel();
 
-			String path = new StreamsPath()
+			typePaths.add(new StreamsPath()
+					.setStreamName(streamName)
+					.setModuleType(moduleType).build());
+			modulePaths.add(new StreamsPath()
 					.setStreamName(streamName)
 					.setModuleType(moduleType)
-					.setModuleLabel(moduleLabel).build();
+					.setModuleLabel(moduleLabel).build());
+		}
 
-			try {
-				client.create().creatingParentsIfNeeded().forPath(path);
-			}
-			catch (KeeperException.NodeExistsException e) {
+		List<String> paths = new ArrayList<String>(typePaths);
+		paths.addAll(modulePaths);
+		for (String path : Paths.createAll(client, paths)) {
+			if (modulePaths.contains(path)) {
 				// todo: this would be somewhat unexpected
 				LOG.info("Path {} already exists", path);
 			}
@@ -241,7 +391,7 @@ public class StreamListener implements PathChildrenCacheListener {
 	}
 
 	/**
-	 * Issue deployment requests for the modules of the given stream.
+	 * Issue deployment requests for the modules of the given stream, and wait for the containers to deploy them.
 	 * 
 	 * @param client curator client
 	 * @param stream stream to be deployed
@@ -249,56 +399,108 @@ public class StreamListener implements PathChildrenCacheListener {
 	 * @throws Exception
 	 */
 	private void deployStream(CuratorFramework client, Stream stream) throws Exception {
+		// paths of the deployment requests, mapped to the paths the containers
+		// write once they have deployed the modules, in deployment order
+		Map<String, String> mapDeploymentStatus = new LinkedHashMap<String, String>();
 		for (Iterator<ModuleDescriptor> iterator = stream.getDeploymentOrderIterator(); iterator.hasNext();) {
 			ModuleDescriptor descriptor = iterator.next();
 			String streamName = stream.getName();
 			String moduleType = descriptor.getModuleDefinition().getType().toString();
-			String moduleName = descriptor.getModuleDefinition().getName();
 			String moduleLabel = descriptor.getLabel();
-			Map<Container, String> mapDeploymentStatus = new HashMap<Container, String>();
 
 			for (Container container : containerMatcher.match(descriptor, containerRepository)) {
 				String containerName = container.getName();
-				try {
-					client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
-							.setContainer(containerName)
-							.setStreamName(streamName)
-							.setModuleType(moduleType)
-							.setModuleLabel(moduleLabel).build());
-
-					mapDeploymentStatus.put(container, new StreamsPath()
-							.setStreamName(streamName)
-							.setModuleType(moduleType)
-							.setModuleLabel(moduleLabel)
-							.setContainer(containerName).build());
-				}
-				catch (KeeperException.NodeExistsException e) {
-					LOG.info("Module {} is already deployed to container {}", descriptor, container);
+				mapDeploymentStatus.put(new ModuleDeploymentsPath()
+						.setContainer(containerName)
+						.setStreamName(streamName)
+						.setModuleType(moduleType)
+						.setModuleLabel(moduleLabel).build(),
+						new StreamsPath()
+								.setStreamName(streamName)
+								.setModuleType(moduleType)
+								.setModuleLabel(moduleLabel)
+								.setContainer(containerName).build());
+			}
+		}
+
+		for (String path : Paths.createAll(client, mapDeploymentStatus.keySet())) {
+			ModuleDeploymentsPath deploymentsPath = new ModuleDeploymentsPath(path);
+			LOG.info("Module {} is already deployed to container {}", deploymentsPath.getModuleLabel(),
+					deploymentsPath.getContainer());
+			mapDeploymentStatus.remove(path);
+		}
+
+		// wait for all deployments to succeed
+		Collection<String> timedOut = new DeploymentStatusWatcher(client, mapDeploymentStatus.values())
+				.await(deploymentTimeout);
+
+		if (!timedOut.isEmpty()) {
+			// todo: if the container went away we should select another one to deploy to;
+			// otherwise this reflects a bug in the container or some kind of network
+			// error in which case the state of deployment is "unknown"
+			List<String> modules = new ArrayList<String>();
+			for (String path : timedOut) {
+				StreamsPath streamsPath = new StreamsPath(path);
+				modules.add(streamsPath.getModuleLabel() + " to " + streamsPath.getContainer());
+			}
+			throw new IllegalStateException(String.format(
+					"Deployment of the following modules of stream %s timed out: %s", stream.getName(), modules));
+		}
+	}
+
+	/**
+	 * A deployment or undeployment of a stream that, once it completes or is canceled, removes itself from
+	 * {@link #streamTasks} and submits the next task of the stream, if it was the one submitted.
+	 */
+	private class StreamTask extends FutureTask<Void> {
+
+		private final String streamName;
+
+		private final boolean deployment;
+
+		/**
+		 * Whether the task has started, guarded by {@link #streamTasks}; a task that has started is not canceled.
+		 */
+		private boolean started;
+
+		StreamTask(String streamName, boolean deployment, Runnable runnable) {
+			super(runnable, null);
+			this.streamName = streamName;
+			this.deployment = deployment;
+		}
+
+		@Override
+		public void run() {
+			synchronized (streamTasks) {
+				if (isDone()) {
+					return;
 				}
+				started = true;
 			}
+			super.run();
+		}
 
-			// wait for all deployments to succeed
-			// todo: make timeout configurable
-			long timeout = System.currentTimeMillis() + 30000;
-			do {
-				for (Iterator<Map.Entry<Container, String>> iteratorStatus = mapDeploymentStatus.entrySet().iterator();
-						iteratorStatus.hasNext();) {
-					Map.Entry<Container, String> entry = iteratorStatus.next();
-					if (client.checkExists().forPath(entry.getValue()) != null) {
-						iteratorStatus.remove();
-					}
-					Thread.sleep(10);
+		@Override
+		protected void done() {
+			StreamTask next = null;
+			synchronized (streamTasks) {
+				LinkedList<StreamTask> tasks = streamTasks.get(streamName);
+				boolean submitted = tasks.getFirst() == this;
+				tasks.remove(this);
+				if (tasks.isEmpty()) {
+					streamTasks.remove(streamName);
+				}
+				else if (submitted) {
+					next = tasks.getFirst();
 				}
 			}
-			while (!mapDeploymentStatus.isEmpty() && System.currentTimeMillis() < timeout);
-
-			if (!mapDeploymentStatus.isEmpty()) {
-				// todo: if the container went away we should select another one to deploy to;
-				// otherwise this reflects a bug in the container or some kind of network
-				// error in which case the state of deployment is "unknown"
-				throw new IllegalStateException(String.format(
-						"Deployment of module %s to the following containers timed out: %s",
-						moduleName, mapDeploymentStatus.keySet()));
+			if (next != null) {
+				try {
+					deploymentExecutor.execute(next);
+				}
+				catch (RejectedExecutionException e) {
+					LOG.debug("Deployment executor shut down, not running the next task of stream {}", streamName);
+				}
 			}
 		}
 	}
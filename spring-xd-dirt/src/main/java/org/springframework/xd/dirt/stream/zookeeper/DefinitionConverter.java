@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.stream.zookeeper;
+
+import org.apache.zookeeper.data.Stat;
+
+import org.springframework.xd.dirt.util.MapBytesUtility;
+import org.springframework.xd.dirt.zookeeper.ChildPathCache;
+
+/**
+ * Converter from the node of a stream or job to the text of its definition.
+ * 
+ * @since 1.0
+ */
+class DefinitionConverter implements ChildPathCache.NodeConverter<String> {
+
+	/**
+	 * Utility to convert byte arrays to maps.
+	 */
+	private final MapBytesUtility mapBytesUtility = new MapBytesUtility();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String convert(String name, Stat stat, byte[] data) {
+		return mapBytesUtility.toMap(data).get("definition");
+	}
+
+}
@@ -17,20 +17,18 @@
 package org.springframework.xd.dirt.stream.zookeeper;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.BackgroundPathAndBytesable;
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
-import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -40,15 +38,19 @@ import org.springframework.data.domain.Sort;
 import org.springframework.xd.dirt.stream.JobDefinition;
 import org.springframework.xd.dirt.stream.JobDefinitionRepository;
 import org.springframework.xd.dirt.util.MapBytesUtility;
+import org.springframework.xd.dirt.zookeeper.ChildPathCache;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
+ * Job definition repository. Definitions are read from a {@link ChildPathCache} of the jobs path, so reads do not go to
+ * ZooKeeper.
+ * 
  * @author Mark Fisher
  */
 // todo: the JobDefinitionRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository, InitializingBean {
+public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository, InitializingBean, DisposableBean {
 
 	private final Logger LOG = LoggerFactory.getLogger(ZooKeeperJobDefinitionRepository.class);
 
@@ -58,9 +60,12 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
+	private final ChildPathCache<String> definitions;
+
 	@Autowired
 	public ZooKeeperJobDefinitionRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
+		this.definitions = new ChildPathCache<String>(zkConnection, Paths.JOBS, new DefinitionConverter());
 	}
 
 	@Override
@@ -72,30 +77,26 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 		}
 	}
 
+	@Override
+	public void destroy() {
+		definitions.close();
+	}
+
 	@Override
 	public Iterable<JobDefinition> findAll(Sort sort) {
 		// todo: this ignores the Sort
-		List<JobDefinition> all = findAll();
-		Collections.sort(all);
-		return all;
+		return findAll();
 	}
 
 	@Override
 	public Page<JobDefinition> findAll(Pageable pageable) {
-		List<JobDefinition> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
-			return new PageImpl<JobDefinition>(all);
+		int total = definitions.size();
+		if (total == 0) {
+			return new PageImpl<JobDefinition>(new ArrayList<JobDefinition>());
 		}
-		Collections.sort(all);
-
-		int offSet = pageable.getOffset();
-		int size = pageable.getPageSize();
-
-		List<JobDefinition> page = new ArrayList<JobDefinition>();
-		for (int i = offSet; i < Math.min(all.size(), offSet + size); i++) {
-			page.add(all.get(i));
-		}
-		return new PageImpl<JobDefinition>(page, pageable, all.size());
+		List<JobDefinition> page = toJobDefinitions(definitions.getPage(pageable.getOffset(),
+				pageable.getPageSize()));
+		return new PageImpl<JobDefinition>(page, pageable, total);
 	}
 
 	@Override
@@ -121,6 +122,7 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 					? client.create() : client.setData();
 
 			op.forPath(path, binary);
+			definitions.refresh(entity.getName());
 
 			LOG.info("Saved job {} with properties {}", path, map);
 		}
@@ -136,40 +138,18 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public JobDefinition findOne(String id) {
-		try {
-			byte[] bytes = zkConnection.getClient().getData().forPath(Paths.build(Paths.JOBS, id));
-			if (bytes == null) {
-				return null;
-			}
-			Map<String, String> map = this.mapBytesUtility.toMap(bytes);
-			return new JobDefinition(id, map.get("definition"));
-		}
-		catch (NoNodeException e) {
-			return null;
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		String definition = definitions.get(id);
+		return definition == null ? null : new JobDefinition(id, definition);
 	}
 
 	@Override
 	public boolean exists(String id) {
-		try {
-			return (null != zkConnection.getClient().checkExists().forPath(Paths.build(Paths.JOBS, id)));
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return definitions.contains(id);
 	}
 
 	@Override
 	public List<JobDefinition> findAll() {
-		try {
-			return this.findAll(zkConnection.getClient().getChildren().forPath(Paths.JOBS));
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return toJobDefinitions(definitions.getAll());
 	}
 
 	@Override
@@ -183,13 +163,7 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public long count() {
-		try {
-			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.JOBS);
-			return stat == null ? 0 : stat.getNumChildren();
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return definitions.size();
 	}
 
 	@Override
@@ -203,6 +177,7 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+		definitions.refresh(id);
 	}
 
 	@Override
@@ -233,21 +208,13 @@ public class ZooKeeperJobDefinitionRepository implements JobDefinitionRepository
 
 	@Override
 	public Iterable<JobDefinition> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
-		List<JobDefinition> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
-			return Collections.emptyList();
-		}
-		Collections.sort(all);
+		return toJobDefinitions(definitions.getRange(from, fromInclusive, to, toInclusive));
+	}
 
-		List<JobDefinition> results = new ArrayList<JobDefinition>();
-		for (JobDefinition definition : all) {
-			if (definition.getName().compareTo(to) > 1) {
-				break;
-			}
-			if (definition.getName().compareTo(from) < 0) {
-				continue;
-			}
-			results.add(definition);
+	private List<JobDefinition> toJobDefinitions(Map<String, String> definitionsByName) {
+		List<JobDefinition> results = new ArrayList<JobDefinition>(definitionsByName.size());
+		for (Map.Entry<String, String> entry : definitionsByName.entrySet()) {
+			results.add(new JobDefinition(entry.getKey(), entry.getValue()));
 		}
 		return results;
 	}
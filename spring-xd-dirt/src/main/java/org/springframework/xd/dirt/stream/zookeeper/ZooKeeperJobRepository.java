@@ -17,48 +17,52 @@
 package org.springframework.xd.dirt.stream.zookeeper;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.curator.framework.CuratorFramework;
 import org.apache.zookeeper.KeeperException;
-import org.apache.zookeeper.data.Stat;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.xd.dirt.core.JobsPath;
 import org.springframework.xd.dirt.stream.Job;
 import org.springframework.xd.dirt.stream.JobDefinition;
 import org.springframework.xd.dirt.stream.JobRepository;
-import org.springframework.xd.dirt.util.MapBytesUtility;
+import org.springframework.xd.dirt.zookeeper.ChildPathCache;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
- * Job instance repository. It should only return values for Jobs that are deployed.
+ * Job instance repository. It should only return values for Jobs that are deployed. Definitions and deployments
+ * are read from {@link ChildPathCache ChildPathCaches}, so reads do not go to ZooKeeper.
  *
  * @author Mark Fisher
  */
 // todo: the JobRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
+public class ZooKeeperJobRepository implements JobRepository, InitializingBean, DisposableBean {
 
 	private final ZooKeeperConnection zkConnection;
 
-	private final MapBytesUtility mapBytesUtility = new MapBytesUtility();
-
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
+	private final ChildPathCache<String> definitions;
+
+	/**
+	 * The times the jobs were deployed, by job name.
+	 */
+	private final ChildPathCache<Long> deployments;
+
 	@Autowired
 	public ZooKeeperJobRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
+		this.definitions = new ChildPathCache<String>(zkConnection, Paths.JOBS, new DefinitionConverter());
+		this.deployments = new ChildPathCache<Long>(zkConnection, Paths.JOB_DEPLOYMENTS, new CreationTimeConverter());
 	}
 
 	@Override
@@ -70,6 +74,12 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 		}
 	}
 
+	@Override
+	public void destroy() {
+		definitions.close();
+		deployments.close();
+	}
+
 	@Override
 	public Iterable<Job> findAll(Sort sort) {
 		// todo: implement sort support
@@ -79,10 +89,9 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 	@Override
 	public Page<Job> findAll(Pageable pageable) {
 		List<Job> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
+		if (all.isEmpty()) {
 			return new PageImpl<Job>(all);
 		}
-		Collections.sort(all);
 
 		int offSet = pageable.getOffset();
 		int size = pageable.getPageSize();
@@ -97,38 +106,26 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public <S extends Job> S save(S entity) {
-		// job instances are "saved" when a JobListener deploys a job
+		// job instances are "saved" when a JobListener deploys a job; the deployment node was
+		// just created, so make it visible to the reads that follow
+		String name = entity.getDefinition().getName();
+		definitions.refresh(name);
+		deployments.refresh(name);
 		return entity;
 	}
 
 	@Override
 	public <S extends Job> Iterable<S> save(Iterable<S> entities) {
-		// job instances are "saved" when a JobListener deploys a job
+		for (S entity : entities) {
+			save(entity);
+		}
 		return entities;
 	}
 
 	@Override
 	public Job findOne(String id) {
-		CuratorFramework client = zkConnection.getClient();
-		JobsPath path = new JobsPath().setJobName(id);
-		try {
-			Stat definitionStat = client.checkExists().forPath(path.build());
-			if (definitionStat != null) {
-				byte[] data = zkConnection.getClient().getData().forPath(path.build());
-				Map<String, String> map = mapBytesUtility.toMap(data);
-				Job job = new Job(new JobDefinition(id, map.get("definition")));
-
-				Stat deployStat = client.checkExists().forPath(Paths.build(Paths.JOB_DEPLOYMENTS, id));
-				if (deployStat != null) {
-					job.setStartedAt(new Date(deployStat.getCtime()));
-					return job;
-				}
-			}
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
-		return null;
+		Long deployedAt = deployments.get(id);
+		return deployedAt == null ? null : makeJob(id, deployedAt);
 	}
 
 	@Override
@@ -138,40 +135,24 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public List<Job> findAll() {
-		try {
-			return findAll(zkConnection.getClient().getChildren().forPath(Paths.JOBS));
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return toJobs(deployments.getAll());
 	}
 
 	@Override
 	public List<Job> findAll(Iterable<String> ids) {
 		List<Job> results = new ArrayList<Job>();
-		try {
-			for (String jobName : ids) {
-				Job job = findOne(jobName);
-				if (job != null) {
-					results.add(job);
-				}
+		for (String id : ids) {
+			Job job = findOne(id);
+			if (job != null) {
+				results.add(job);
 			}
 		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
 		return results;
 	}
 
 	@Override
 	public long count() {
-		try {
-			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.JOB_DEPLOYMENTS);
-			return stat != null ? stat.getNumChildren() : 0;
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return deployments.size();
 	}
 
 	@Override
@@ -185,6 +166,7 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+		deployments.refresh(id);
 	}
 
 	@Override
@@ -217,21 +199,29 @@ public class ZooKeeperJobRepository implements JobRepository, InitializingBean {
 
 	@Override
 	public Iterable<Job> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
-		List<Job> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
-			return Collections.emptyList();
+		return toJobs(deployments.getRange(from, fromInclusive, to, toInclusive));
+	}
+
+	/**
+	 * Create the job for a deployment, unless its definition has been deleted.
+	 */
+	private Job makeJob(String name, long deployedAt) {
+		String definition = definitions.get(name);
+		if (definition == null) {
+			return null;
 		}
-		Collections.sort(all);
+		Job job = new Job(new JobDefinition(name, definition));
+		job.setStartedAt(new Date(deployedAt));
+		return job;
+	}
 
-		List<Job> results = new ArrayList<Job>();
-		for (Job job : all) {
-			if (job.getDefinition().getName().compareTo(to) > 1) {
-				break;
-			}
-			if (job.getDefinition().getName().compareTo(from) < 0) {
-				continue;
+	private List<Job> toJobs(Map<String, Long> deploymentsByName) {
+		List<Job> results = new ArrayList<Job>(deploymentsByName.size());
+		for (Map.Entry<String, Long> entry : deploymentsByName.entrySet()) {
+			Job job = makeJob(entry.getKey(), entry.getValue());
+			if (job != null) {
+				results.add(job);
 			}
-			results.add(job);
 		}
 		return results;
 	}
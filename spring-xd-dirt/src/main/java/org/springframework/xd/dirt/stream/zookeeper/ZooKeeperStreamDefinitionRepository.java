@@ -17,7 +17,6 @@
 package org.springframework.xd.dirt.stream.zookeeper;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,32 +25,36 @@ import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.BackgroundPathAndBytesable;
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
-import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.util.CollectionUtils;
 import org.springframework.xd.dirt.core.StreamsPath;
 import org.springframework.xd.dirt.module.ModuleDependencyRepository;
 import org.springframework.xd.dirt.stream.StreamDefinition;
 import org.springframework.xd.dirt.stream.StreamDefinitionRepository;
 import org.springframework.xd.dirt.stream.StreamDefinitionRepositoryUtils;
 import org.springframework.xd.dirt.util.MapBytesUtility;
+import org.springframework.xd.dirt.zookeeper.ChildPathCache;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
+ * Stream definition repository. Definitions are read from a {@link ChildPathCache} of the streams path, so reads do not
+ * go to ZooKeeper, except when {@link #findOne} looks up a definition the cache does not have.
+ * 
  * @author Mark Fisher
  */
 // todo: the StreamDefinitionRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepository, InitializingBean {
+public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepository, InitializingBean,
+		DisposableBean {
 
 	private final Logger LOG = LoggerFactory.getLogger(ZooKeeperStreamDefinitionRepository.class);
 
@@ -63,11 +66,14 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
+	private final ChildPathCache<String> definitions;
+
 	@Autowired
 	public ZooKeeperStreamDefinitionRepository(ZooKeeperConnection zkConnection,
 			ModuleDependencyRepository moduleDependencyRepository) {
 		this.zkConnection = zkConnection;
 		this.moduleDependencyRepository = moduleDependencyRepository;
+		this.definitions = new ChildPathCache<String>(zkConnection, Paths.STREAMS, new DefinitionConverter());
 	}
 
 	@Override
@@ -79,6 +85,11 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 		}
 	}
 
+	@Override
+	public void destroy() {
+		definitions.close();
+	}
+
 	@Override
 	public Iterable<StreamDefinition> findAll(Sort sort) {
 		throw new UnsupportedOperationException("Auto-generated method stub");
@@ -86,21 +97,13 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public Page<StreamDefinition> findAll(Pageable pageable) {
-		List<StreamDefinition> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
-			return new PageImpl<StreamDefinition>(all);
+		int total = definitions.size();
+		if (total == 0) {
+			return new PageImpl<StreamDefinition>(new ArrayList<StreamDefinition>());
 		}
-		Collections.sort(all);
-
-		int offSet = pageable.getOffset();
-		int size = pageable.getPageSize();
-
-		List<StreamDefinition> page = new ArrayList<StreamDefinition>();
-		for (int i = offSet; i < Math.min(all.size(), offSet + size); i++) {
-			page.add(all.get(i));
-		}
-
-		return new PageImpl<StreamDefinition>(page, pageable, all.size());
+		List<StreamDefinition> page = toStreamDefinitions(definitions.getPage(pageable.getOffset(),
+				pageable.getPageSize()));
+		return new PageImpl<StreamDefinition>(page, pageable, total);
 	}
 
 	@Override
@@ -126,6 +129,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 					? client.create() : client.setData();
 
 			op.forPath(path, binary);
+			definitions.refresh(entity.getName());
 
 			LOG.trace("Saved stream {} with properties {}", path, map);
 
@@ -143,40 +147,19 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public StreamDefinition findOne(String id) {
-		try {
-			byte[] bytes = zkConnection.getClient().getData().forPath(Paths.build(Paths.STREAMS, id));
-			if (bytes == null) {
-				return null;
-			}
-			Map<String, String> map = this.mapBytesUtility.toMap(bytes);
-			return new StreamDefinition(id, map.get("definition"));
-		}
-		catch (NoNodeException e) {
-			return null;
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		// the definition may have been written by another process whose write the cache has not seen yet
+		String definition = definitions.getOrRead(id);
+		return definition == null ? null : new StreamDefinition(id, definition);
 	}
 
 	@Override
 	public boolean exists(String id) {
-		try {
-			return (null != zkConnection.getClient().checkExists().forPath(Paths.build(Paths.STREAMS, id)));
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return definitions.contains(id);
 	}
 
 	@Override
 	public List<StreamDefinition> findAll() {
-		try {
-			return this.findAll(zkConnection.getClient().getChildren().forPath(Paths.STREAMS));
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return toStreamDefinitions(definitions.getAll());
 	}
 
 	@Override
@@ -193,13 +176,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public long count() {
-		try {
-			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.STREAMS);
-			return stat == null ? 0 : stat.getNumChildren();
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return definitions.size();
 	}
 
 	@Override
@@ -220,6 +197,7 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+		definitions.refresh(id);
 	}
 
 	private void doDelete(String path) throws Exception {
@@ -260,7 +238,15 @@ public class ZooKeeperStreamDefinitionRepository implements StreamDefinitionRepo
 
 	@Override
 	public Iterable<StreamDefinition> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
-		throw new UnsupportedOperationException("Auto-generated method stub");
+		return toStreamDefinitions(definitions.getRange(from, fromInclusive, to, toInclusive));
+	}
+
+	private List<StreamDefinition> toStreamDefinitions(Map<String, String> definitionsByName) {
+		List<StreamDefinition> results = new ArrayList<StreamDefinition>(definitionsByName.size());
+		for (Map.Entry<String, String> entry : definitionsByName.entrySet()) {
+			results.add(new StreamDefinition(entry.getKey(), entry.getValue()));
+		}
+		return results;
 	}
 
 }
@@ -17,16 +17,13 @@
 package org.springframework.xd.dirt.stream.zookeeper;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.curator.framework.CuratorFramework;
 import org.apache.zookeeper.KeeperException;
-import org.apache.zookeeper.data.Stat;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -34,32 +31,39 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.util.Assert;
-import org.springframework.xd.dirt.core.StreamsPath;
 import org.springframework.xd.dirt.stream.Stream;
 import org.springframework.xd.dirt.stream.StreamDefinition;
 import org.springframework.xd.dirt.stream.StreamRepository;
-import org.springframework.xd.dirt.util.MapBytesUtility;
+import org.springframework.xd.dirt.zookeeper.ChildPathCache;
 import org.springframework.xd.dirt.zookeeper.Paths;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
- * Stream instance repository. It should only return values for Streams that are deployed.
+ * Stream instance repository. It should only return values for Streams that are deployed. Definitions and deployments
+ * are read from {@link ChildPathCache ChildPathCaches}, so reads do not go to ZooKeeper.
  *
  * @author Mark Fisher
  */
 // todo: the StreamRepository abstraction can be removed once we are fully zk-enabled since we do not need to
 // support multiple impls at that point
-public class ZooKeeperStreamRepository implements StreamRepository, InitializingBean {
+public class ZooKeeperStreamRepository implements StreamRepository, InitializingBean, DisposableBean {
 
 	private final ZooKeeperConnection zkConnection;
 
-	private final MapBytesUtility mapBytesUtility = new MapBytesUtility();
-
 	private final RepositoryConnectionListener connectionListener = new RepositoryConnectionListener();
 
+	private final ChildPathCache<String> definitions;
+
+	/**
+	 * The times the streams were deployed, by stream name.
+	 */
+	private final ChildPathCache<Long> deployments;
+
 	@Autowired
 	public ZooKeeperStreamRepository(ZooKeeperConnection zkConnection) {
 		this.zkConnection = zkConnection;
+		this.definitions = new ChildPathCache<String>(zkConnection, Paths.STREAMS, new DefinitionConverter());
+		this.deployments = new ChildPathCache<Long>(zkConnection, Paths.STREAM_DEPLOYMENTS, new CreationTimeConverter());
 	}
 
 	@Override
@@ -71,6 +75,12 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 		}
 	}
 
+	@Override
+	public void destroy() {
+		definitions.close();
+		deployments.close();
+	}
+
 	@Override
 	public Iterable<Stream> findAll(Sort sort) {
 		// todo: implement sort support
@@ -80,10 +90,9 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 	@Override
 	public Page<Stream> findAll(Pageable pageable) {
 		List<Stream> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
+		if (all.isEmpty()) {
 			return new PageImpl<Stream>(all);
 		}
-		Collections.sort(all);
 
 		int offSet = pageable.getOffset();
 		int size = pageable.getPageSize();
@@ -98,38 +107,26 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public <S extends Stream> S save(S entity) {
-		// stream instances are "saved" when a StreamListener deploys a stream
+		// stream instances are "saved" when a StreamListener deploys a stream; the deployment node was
+		// just created, so make it visible to the reads that follow
+		String name = entity.getDefinition().getName();
+		definitions.refresh(name);
+		deployments.refresh(name);
 		return entity;
 	}
 
 	@Override
 	public <S extends Stream> Iterable<S> save(Iterable<S> entities) {
-		// stream instances are "saved" when a StreamListener deploys a stream
+		for (S entity : entities) {
+			save(entity);
+		}
 		return entities;
 	}
 
 	@Override
 	public Stream findOne(String id) {
-		CuratorFramework client = zkConnection.getClient();
-		StreamsPath path = new StreamsPath().setStreamName(id);
-		try {
-			Stat definitionStat = client.checkExists().forPath(path.build());
-			if (definitionStat != null) {
-				byte[] data = client.getData().forPath(path.build());
-				Map<String, String> map = mapBytesUtility.toMap(data);
-				Stream stream = new Stream(new StreamDefinition(id, map.get("definition")));
-
-				Stat deployStat = client.checkExists().forPath(Paths.build(Paths.STREAM_DEPLOYMENTS, id));
-				if (deployStat != null) {
-					stream.setStartedAt(new Date(deployStat.getCtime()));
-					return stream;
-				}
-			}
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
-		return null;
+		Long deployedAt = deployments.get(id);
+		return deployedAt == null ? null : makeStream(id, deployedAt);
 	}
 
 	@Override
@@ -139,40 +136,24 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public List<Stream> findAll() {
-		try {
-			return findAll(zkConnection.getClient().getChildren().forPath(Paths.STREAMS));
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return toStreams(deployments.getAll());
 	}
 
 	@Override
 	public List<Stream> findAll(Iterable<String> ids) {
 		List<Stream> results = new ArrayList<Stream>();
-		try {
-			for (String stream : ids) {
-				Stream s = findOne(stream);
-				if (s != null) {
-					results.add(s);
-				}
+		for (String id : ids) {
+			Stream stream = findOne(id);
+			if (stream != null) {
+				results.add(stream);
 			}
 		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
 		return results;
 	}
 
 	@Override
 	public long count() {
-		try {
-			Stat stat = zkConnection.getClient().checkExists().forPath(Paths.STREAM_DEPLOYMENTS);
-			return stat != null ? stat.getNumChildren() : 0;
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		return deployments.size();
 	}
 
 	@Override
@@ -186,6 +167,7 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 		catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+		deployments.refresh(id);
 	}
 
 	@Override
@@ -219,21 +201,29 @@ public class ZooKeeperStreamRepository implements StreamRepository, Initializing
 
 	@Override
 	public Iterable<Stream> findAllInRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
-		List<Stream> all = findAll();
-		if (CollectionUtils.isEmpty(all)) {
-			return Collections.emptyList();
+		return toStreams(deployments.getRange(from, fromInclusive, to, toInclusive));
+	}
+
+	/**
+	 * Create the stream for a deployment, unless its definition has been deleted.
+	 */
+	private Stream makeStream(String name, long deployedAt) {
+		String definition = definitions.get(name);
+		if (definition == null) {
+			return null;
 		}
-		Collections.sort(all);
+		Stream stream = new Stream(new StreamDefinition(name, definition));
+		stream.setStartedAt(new Date(deployedAt));
+		return stream;
+	}
 
-		List<Stream> results = new ArrayList<Stream>();
-		for (Stream stream : all) {
-			if (stream.getDefinition().getName().compareTo(to) > 1) {
-				break;
-			}
-			if (stream.getDefinition().getName().compareTo(from) < 0) {
-				continue;
+	private List<Stream> toStreams(Map<String, Long> deploymentsByName) {
+		List<Stream> results = new ArrayList<Stream>(deploymentsByName.size());
+		for (Map.Entry<String, Long> entry : deploymentsByName.entrySet()) {
+			Stream stream = makeStream(entry.getKey(), entry.getValue());
+			if (stream != null) {
+				results.add(stream);
 			}
-			results.add(stream);
 		}
 		return results;
 	}
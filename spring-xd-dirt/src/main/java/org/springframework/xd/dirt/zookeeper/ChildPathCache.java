@@ -0,0 +1,412 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.zookeeper;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
+import org.apache.curator.utils.ThreadUtils;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * In-memory view of the children of a path, converted to immutable values and sorted by name. The view is loaded when it
+ * is first read and then kept current by the watches of a {@link PathChildrenCache}, so that reads do not go to
+ * ZooKeeper. Writes go to ZooKeeper directly; a writer then calls {@link #refresh} so that its own write is visible
+ * to the reads that follow it, without waiting for the watch to fire.
+ * <p/>
+ * Each child is tagged with the zxid of its last modification, and an update is only applied if it is not older than
+ * the one already applied. A child deleted through {@link #refresh} is remembered (tagged with the zxid of the last
+ * change to the children of the path) until the cache reports its removal, so that a late event does not bring it
+ * back.
+ * 
+ * @param <T> the domain class type of the children
+ * 
+ * @since 1.0
+ */
+public class ChildPathCache<T> {
+
+	/**
+	 * Converter from the data of a child node to a domain object.
+	 * 
+	 * @param <T> the domain class type of the children
+	 */
+	public interface NodeConverter<T> {
+
+		/**
+		 * Convert the data of a child node.
+		 * 
+		 * @param name the name of the child
+		 * @param stat the stat of the child
+		 * @param data the data of the child
+		 * 
+		 * @return the domain object for the child, or {@code null} to ignore the child
+		 */
+		T convert(String name, Stat stat, byte[] data);
+	}
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(ChildPathCache.class);
+
+	/**
+	 * ZooKeeper connection.
+	 */
+	private final ZooKeeperConnection zkConnection;
+
+	/**
+	 * Path whose children are cached.
+	 */
+	private final String path;
+
+	/**
+	 * Converter from child data to domain objects.
+	 */
+	private final NodeConverter<T> converter;
+
+	/**
+	 * Children by name. An entry with a {@code null} value is a child that was deleted.
+	 */
+	private final ConcurrentNavigableMap<String, Child<T>> entries = new ConcurrentSkipListMap<String, Child<T>>();
+
+	/**
+	 * Listener that applies the events of the {@link #cache}.
+	 */
+	private final PathChildrenCacheListener cacheListener = new CacheListener();
+
+	/**
+	 * Cache that watches the children, or {@code null} if it has not been started.
+	 */
+	private volatile PathChildrenCache cache;
+
+	/**
+	 * The client the {@link #cache} was started with. If the connection creates a new client, the cache is rebuilt.
+	 */
+	private volatile CuratorFramework cacheClient;
+
+	/**
+	 * Construct a ChildPathCache.
+	 * 
+	 * @param zkConnection ZooKeeper connection
+	 * @param path path whose children are cached
+	 * @param converter converter from child data to domain objects
+	 */
+	public ChildPathCache(ZooKeeperConnection zkConnection, String path, NodeConverter<T> converter) {
+		Assert.notNull(zkConnection, "ZooKeeperConnection must not be null");
+		Assert.hasText(path, "path must not be empty");
+		Assert.notNull(converter, "converter must not be null");
+		this.zkConnection = zkConnection;
+		this.path = path;
+		this.converter = converter;
+	}
+
+	/**
+	 * Return the child with the given name.
+	 * 
+	 * @param name the name of the child
+	 * 
+	 * @return the child, or {@code null} if there is none
+	 */
+	public T get(String name) {
+		Child<T> entry = getEntries().get(name);
+		return entry == null ? null : entry.value;
+	}
+
+	/**
+	 * Return the child with the given name, reading it from ZooKeeper if the view does not have it. A child written by
+	 * another process may not have been reported by the watches yet; use this method where such a child is expected
+	 * to exist, for example when it is referenced by a request sent after it was written.
+	 * 
+	 * @param name the name of the child
+	 * 
+	 * @return the child, or {@code null} if there is none
+	 */
+	public T getOrRead(String name) {
+		T value = get(name);
+		if (value == null) {
+			refresh(name);
+			value = get(name);
+		}
+		return value;
+	}
+
+	/**
+	 * Return whether there is a child with the given name.
+	 * 
+	 * @param name the name of the child
+	 * 
+	 * @return true if the child exists
+	 */
+	public boolean contains(String name) {
+		return get(name) != null;
+	}
+
+	/**
+	 * @return all the children by name, sorted by name
+	 */
+	public Map<String, T> getAll() {
+		return values(getEntries(), 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Return a page of the children, sorted by name.
+	 * 
+	 * @param offset the number of children to skip
+	 * @param size the maximum number of children to return
+	 * 
+	 * @return the children of the page by name, sorted by name
+	 */
+	public Map<String, T> getPage(int offset, int size) {
+		return values(getEntries(), offset, size);
+	}
+
+	/**
+	 * Return the children whose names are within the given range, sorted by name.
+	 * 
+	 * @param from the lowest name of the range
+	 * @param fromInclusive whether the lowest name is in the range
+	 * @param to the highest name of the range
+	 * @param toInclusive whether the highest name is in the range
+	 * 
+	 * @return the children in the range by name, sorted by name
+	 */
+	public Map<String, T> getRange(String from, boolean fromInclusive, String to, boolean toInclusive) {
+		if (from.compareTo(to) > 0) {
+			return Collections.emptyMap();
+		}
+		return values(getEntries().subMap(from, fromInclusive, to, toInclusive), 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the number of children
+	 */
+	public int size() {
+		int size = 0;
+		for (Child<T> entry : getEntries().values()) {
+			if (entry.value != null) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Read a child from ZooKeeper after it was written, so that the write is visible to the reads that follow. This
+	 * does nothing if the view has not been loaded yet, as the child will be read when it is.
+	 * 
+	 * @param name the name of the child
+	 */
+	public void refresh(String name) {
+		CuratorFramework client = cacheClient;
+		if (client == null || client != zkConnection.getClient()) {
+			return;
+		}
+		String childPath = Paths.build(path, name);
+		try {
+			Stat stat = new Stat();
+			byte[] data = client.getData().storingStatIn(stat).forPath(childPath);
+			update(name, stat.getMzxid(), converter.convert(name, stat, data));
+		}
+		catch (KeeperException.NoNodeException e) {
+			try {
+				Stat stat = client.checkExists().forPath(Paths.build(path));
+				if (stat == null) {
+					entries.remove(name);
+				}
+				else {
+					update(name, stat.getPzxid(), null);
+				}
+			}
+			catch (Exception ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Stop watching the children and forget them.
+	 */
+	public synchronized void close() {
+		if (cache != null) {
+			cache.getListenable().removeListener(cacheListener);
+			try {
+				cache.close();
+			}
+			catch (Exception e) {
+				LOG.debug("Exception closing cache of " + path, e);
+			}
+			cache = null;
+			cacheClient = null;
+		}
+		entries.clear();
+	}
+
+	/**
+	 * Return the children by name, loading them if they have not been yet.
+	 */
+	private ConcurrentNavigableMap<String, Child<T>> getEntries() {
+		CuratorFramework client = zkConnection.getClient();
+		if (cache == null || cacheClient != client) {
+			start(client);
+		}
+		return entries;
+	}
+
+	/**
+	 * Load the children and start watching them, unless another thread has done so.
+	 * 
+	 * @param client the current client of the connection
+	 */
+	private synchronized void start(CuratorFramework client) {
+		if (cache != null && cacheClient == client) {
+			return;
+		}
+		close();
+		Assert.state(client != null, "ZooKeeper connection has not been started");
+		PathChildrenCache newCache = new PathChildrenCache(client, Paths.build(path), true,
+				ThreadUtils.newThreadFactory("ChildPathCache"));
+		newCache.getListenable().addListener(cacheListener);
+		try {
+			newCache.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+		}
+		catch (Exception e) {
+			newCache.getListenable().removeListener(cacheListener);
+			try {
+				newCache.close();
+			}
+			catch (Exception ex) {
+				LOG.debug("Exception closing cache of " + path, ex);
+			}
+			throw new RuntimeException(e);
+		}
+		for (ChildData data : newCache.getCurrentData()) {
+			apply(data);
+		}
+		cache = newCache;
+		cacheClient = client;
+	}
+
+	/**
+	 * Apply the current data of a child reported by the cache.
+	 */
+	private void apply(ChildData data) {
+		String name = Paths.stripPath(data.getPath());
+		try {
+			update(name, data.getStat().getMzxid(), converter.convert(name, data.getStat(), data.getData()));
+		}
+		catch (RuntimeException e) {
+			LOG.warn("Ignoring child " + data.getPath() + " that could not be read", e);
+		}
+	}
+
+	/**
+	 * Set the value of a child unless a more recent value is known.
+	 * 
+	 * @param name the name of the child
+	 * @param zxid the zxid of the value
+	 * @param value the value, or {@code null} if the child was deleted
+	 */
+	private synchronized void update(String name, long zxid, T value) {
+		Child<T> entry = entries.get(name);
+		if (entry == null || entry.zxid <= zxid) {
+			entries.put(name, new Child<T>(zxid, value));
+		}
+	}
+
+	/**
+	 * Forget a child that the cache reports as removed, unless it was written again since.
+	 * 
+	 * @param name the name of the child
+	 * @param zxid the zxid of the last value of the child known to the cache
+	 */
+	private synchronized void remove(String name, long zxid) {
+		Child<T> entry = entries.get(name);
+		if (entry != null && (entry.value == null || entry.zxid <= zxid)) {
+			entries.remove(name);
+		}
+	}
+
+	private static <T> Map<String, T> values(Map<String, Child<T>> children, int offset, int size) {
+		Map<String, T> results = new LinkedHashMap<String, T>();
+		int skipped = 0;
+		for (Map.Entry<String, Child<T>> entry : children.entrySet()) {
+			if (results.size() >= size) {
+				break;
+			}
+			if (entry.getValue().value != null && skipped++ >= offset) {
+				results.put(entry.getKey(), entry.getValue().value);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Value of a child with the zxid it was read at.
+	 */
+	private static class Child<T> {
+
+		private final long zxid;
+
+		private final T value;
+
+		Child(long zxid, T value) {
+			this.zxid = zxid;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Listener that applies the events of the cache to the view.
+	 */
+	private class CacheListener implements PathChildrenCacheListener {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) throws Exception {
+			switch (event.getType()) {
+				case CHILD_ADDED:
+				case CHILD_UPDATED:
+					apply(event.getData());
+					break;
+				case CHILD_REMOVED:
+					remove(Paths.stripPath(event.getData().getPath()), event.getData().getStat().getMzxid());
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+}
@@ -16,11 +16,18 @@
 
 package org.springframework.xd.dirt.zookeeper;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.utils.EnsurePath;
+import org.apache.zookeeper.KeeperException;
 
 /**
  * Common paths and path utilities for XD components.
@@ -152,4 +159,46 @@ public class Paths {
 		}
 	}
 
+	/**
+	 * Create nodes at the given paths in a single ZooKeeper transaction, in the given order. The parent of each node must
+	 * either exist or precede it in the collection. If the transaction fails because a node already exists or a parent
+	 * is missing, the nodes are created one at a time instead, creating missing parents and skipping existing nodes.
+	 * 
+	 * @param client curator client
+	 * @param paths paths of the nodes to create
+	 * 
+	 * @return the paths of the nodes that already existed
+	 * 
+	 * @throws Exception thrown by Curator
+	 */
+	public static List<String> createAll(CuratorFramework client, Collection<String> paths) throws Exception {
+		if (paths.isEmpty()) {
+			return Collections.emptyList();
+		}
+		try {
+			CuratorTransaction transaction = client.inTransaction();
+			for (String path : paths) {
+				transaction = transaction.create().forPath(path).and();
+			}
+			((CuratorTransactionFinal) transaction).commit();
+			return Collections.emptyList();
+		}
+		catch (KeeperException.NodeExistsException e) {
+			// fall through
+		}
+		catch (KeeperException.NoNodeException e) {
+			// fall through
+		}
+		List<String> existing = new ArrayList<String>();
+		for (String path : paths) {
+			try {
+				client.create().creatingParentsIfNeeded().forPath(path);
+			}
+			catch (KeeperException.NodeExistsException e) {
+				existing.add(path);
+			}
+		}
+		return existing;
+	}
+
 }
@@ -16,11 +16,13 @@
 
 package org.springframework.integration.x.bus;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -185,6 +187,32 @@ public class MessageBusSupportTests {
 		assertNull(reconstructed.getHeaders().get(MessageHeaders.CONTENT_TYPE));
 	}
 
+	@Test
+	public void testSerializeToBufferAndDeserializeSlice() {
+		Message<ByteBuffer> converted = messageBus.serializePayloadToBuffer(new GenericMessage<Foo>(new Foo("bar")));
+		MimeType mimeType = contentTypeResolver.resolve(converted.getHeaders());
+		assertEquals(Foo.class.getName(), mimeType.getParameter("type"));
+
+		ByteBuffer serialized = converted.getPayload();
+		byte[] framed = new byte[serialized.remaining() + 3];
+		ByteBuffer.wrap(framed, 3, serialized.remaining()).put(serialized);
+		Message<ByteBuffer> slice = MessageBuilder.withPayload(ByteBuffer.wrap(framed, 3, framed.length - 3))
+				.copyHeaders(converted.getHeaders()).build();
+
+		Message<?> reconstructed = messageBus.deserializePayloadIfNecessary(slice);
+		assertEquals("bar", ((Foo) reconstructed.getPayload()).getBar());
+	}
+
+	@Test
+	public void testBytesSlice() {
+		byte[] framed = "xxfoo".getBytes();
+		Message<ByteBuffer> slice = MessageBuilder.withPayload(ByteBuffer.wrap(framed, 2, 3))
+				.setHeader(MessageHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE)
+				.build();
+		Message<?> reconstructed = messageBus.deserializePayloadIfNecessary(slice);
+		assertArrayEquals("foo".getBytes(), (byte[]) reconstructed.getPayload());
+	}
+
 	public static class Foo {
 
 		private String bar;
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.bus.serializer.kryo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.integration.x.bus.serializer.MultiTypeCodec;
+import org.springframework.integration.x.bus.serializer.kryo.CompositeCodecTests.SomeClassWithNoDefaultConstructors;
+import org.springframework.integration.x.bus.serializer.kryo.KryoCodecTests.Foo;
+
+/**
+ * Tests for the {@code codec} bean defined in {@code codec.xml}.
+ */
+public class CodecConfigurationTests {
+
+	private static final String REGISTERED_CLASSES = Foo.class.getName() + ", "
+			+ SomeClassWithNoDefaultConstructors.class.getName();
+
+	private GenericXmlApplicationContext context;
+
+	@After
+	public void close() {
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	@Test
+	public void testCodecWithoutRegisteredClasses() throws IOException {
+		MultiTypeCodec<Object> codec = loadCodec("");
+		SomeClassWithNoDefaultConstructors value = new SomeClassWithNoDefaultConstructors("foo", 1);
+		assertEquals(value, codec.deserialize(serialize(codec, value), SomeClassWithNoDefaultConstructors.class));
+	}
+
+	@Test
+	public void testRegisteredClassesAreWrittenAsIds() throws IOException {
+		Foo foo = new Foo();
+		foo.put("one", new SomeClassWithNoDefaultConstructors("foo", 1));
+
+		byte[] unregistered = serialize(loadCodec(""), foo);
+		context.close();
+		byte[] registered = serialize(loadCodec(REGISTERED_CLASSES), foo);
+		assertTrue(registered.length < unregistered.length);
+		context.close();
+
+		// a codec configured the same way, as in another container, reads what the first one wrote
+		Foo foo2 = (Foo) loadCodec(REGISTERED_CLASSES).deserialize(registered, Foo.class);
+		assertEquals(new SomeClassWithNoDefaultConstructors("foo", 1), foo2.get("one"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private MultiTypeCodec<Object> loadCodec(String registeredClasses) {
+		context = new GenericXmlApplicationContext();
+		context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+				Collections.<String, Object> singletonMap("xd.codec.kryo.registeredClasses", registeredClasses)));
+		PropertySourcesPlaceholderConfigurer placeholderConfigurer = new PropertySourcesPlaceholderConfigurer();
+		placeholderConfigurer.setEnvironment(context.getEnvironment());
+		context.addBeanFactoryPostProcessor(placeholderConfigurer);
+		context.load("classpath:/META-INF/spring-xd/bus/codec.xml");
+		context.refresh();
+		return context.getBean("codec", MultiTypeCodec.class);
+	}
+
+	private byte[] serialize(MultiTypeCodec<Object> codec, Object value) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		codec.serialize(value, bos);
+		return bos.toByteArray();
+	}
+
+}
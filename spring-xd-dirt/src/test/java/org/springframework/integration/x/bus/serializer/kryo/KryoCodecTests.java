@@ -17,13 +17,20 @@
 package org.springframework.integration.x.bus.serializer.kryo;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
@@ -166,6 +173,73 @@ public class KryoCodecTests {
 		assertEquals(t0, t3);
 	}
 
+	@Test
+	public void testTupleValueTypes() throws IOException {
+		TupleCodec serializer = new TupleCodec();
+		Date date = new Date();
+		List<Tuple> list = new ArrayList<Tuple>();
+		list.add(TupleBuilder.tuple().of("a", 1));
+		list.add(TupleBuilder.tuple().of("a", 2));
+		Tuple t0 = TupleBuilder.tuple().put("string", "foo").put("int", 1).put("long", 2L).put("double", 3.0)
+				.put("float", 4.0f).put("boolean", true).put("short", (short) 5).put("byte", (byte) 6)
+				.put("char", 'c').put("date", date).put("null", null).put("list", list).build();
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		serializer.serialize(t0, bos);
+		Tuple t1 = serializer.deserialize(bos.toByteArray());
+		assertEquals(t0, t1);
+		assertEquals(t0.getId(), t1.getId());
+		assertEquals(t0.getTimestamp(), t1.getTimestamp());
+		assertEquals(date, t1.getValue("date"));
+		assertNull(t1.getValue("null"));
+		assertEquals(2, ((Tuple) ((List<?>) t1.getValue("list")).get(1)).getInt("a"));
+		assertEquals(t0.toString(), t1.toString());
+	}
+
+	@Test
+	public void testRepeatedNestedTupleSchema() throws IOException {
+		TupleCodec serializer = new TupleCodec();
+		Tuple t0 = TupleBuilder.tuple().of("x", TupleBuilder.tuple().of("one", 1, "two", 2), "y",
+				TupleBuilder.tuple().of("one", 3, "two", 4), "z", TupleBuilder.tuple().of("one", 5));
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		serializer.serialize(t0, bos);
+		Tuple t1 = serializer.deserialize(bos.toByteArray());
+		assertEquals(t0, t1);
+		assertEquals(4, t1.getTuple("y").getInt("two"));
+		assertEquals(5, t1.getTuple("z").getInt("one"));
+	}
+
+	@Test
+	public void testCodecReuse() throws IOException {
+		PojoCodec serializer = new PojoCodec();
+		for (int i = 0; i < 10; i++) {
+			SomeClassWithNoDefaultConstructors foo = new SomeClassWithNoDefaultConstructors("foo" + i, i);
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			serializer.serialize(foo, bos);
+			assertEquals(foo, serializer.deserialize(bos.toByteArray(), SomeClassWithNoDefaultConstructors.class));
+			Map<String, Integer> map = Collections.singletonMap("one", i);
+			bos = new ByteArrayOutputStream();
+			serializer.serialize(new HashMap<String, Integer>(map), bos);
+			assertEquals(map, serializer.deserialize(new ByteArrayInputStream(bos.toByteArray()), HashMap.class));
+		}
+	}
+
+	@Test
+	public void testRegisteredTypesAcrossCodecInstances() throws IOException {
+		KryoRegistrar registrar = new KryoClassListRegistrar(Arrays.<Class<?>> asList(Foo.class,
+				SomeClassWithNoDefaultConstructors.class));
+		PojoCodec serializer = new PojoCodec();
+		serializer.setKryoRegistrar(registrar);
+		PojoCodec deserializer = new PojoCodec();
+		deserializer.setKryoRegistrar(registrar);
+
+		Foo foo = new Foo();
+		foo.put("one", new SomeClassWithNoDefaultConstructors("foo", 1));
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		serializer.serialize(foo, bos);
+		Foo foo2 = (Foo) deserializer.deserialize(bos.toByteArray(), Foo.class);
+		assertEquals(new SomeClassWithNoDefaultConstructors("foo", 1), foo2.get("one"));
+	}
+
 	static class Foo {
 
 		private Map<Object, Object> map;
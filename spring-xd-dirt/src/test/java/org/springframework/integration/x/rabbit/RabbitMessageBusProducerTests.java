@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.rabbit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.integration.amqp.outbound.AmqpOutboundEndpoint;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.test.util.TestUtils;
+import org.springframework.integration.x.bus.serializer.CompositeCodec;
+import org.springframework.integration.x.bus.serializer.kryo.PojoCodec;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Tests of the producer side of {@link RabbitMessageBus} that need no broker.
+ * 
+ * @since 1.0
+ */
+public class RabbitMessageBusProducerTests {
+
+	private CachingConnectionFactory connectionFactory;
+
+	private RabbitMessageBus messageBus;
+
+	@Before
+	public void setUp() {
+		connectionFactory = new CachingConnectionFactory();
+		// nothing listens on these ports, so that publishing fails at once
+		connectionFactory.setAddresses("localhost:1,localhost:2");
+		connectionFactory.setUsername("xd");
+		connectionFactory.setVirtualHost("xdhost");
+		messageBus = new RabbitMessageBus(connectionFactory, new CompositeCodec<Object>(new PojoCodec()));
+		messageBus.setPublisherConfirms(true);
+	}
+
+	@After
+	public void tearDown() {
+		messageBus.destroy();
+		connectionFactory.destroy();
+	}
+
+	@Test
+	public void testConfirmingConnectionFactoryIsDerivedFromTheConsumers() {
+		CachingConnectionFactory producerConnectionFactory = (CachingConnectionFactory) messageBus
+				.getConfirmingConnectionFactory();
+		assertNotSame(connectionFactory, producerConnectionFactory);
+		assertTrue(producerConnectionFactory.isPublisherConfirms());
+		assertFalse(connectionFactory.isPublisherConfirms());
+		// same credentials and virtual host
+		assertSame(TestUtils.getPropertyValue(connectionFactory, "rabbitConnectionFactory"),
+				TestUtils.getPropertyValue(producerConnectionFactory, "rabbitConnectionFactory"));
+		assertEquals("xdhost", producerConnectionFactory.getVirtualHost());
+		// same addresses
+		assertEquals(StringUtils.arrayToCommaDelimitedString(
+				TestUtils.getPropertyValue(connectionFactory, "addresses", Object[].class)),
+				StringUtils.arrayToCommaDelimitedString(
+						TestUtils.getPropertyValue(producerConnectionFactory, "addresses", Object[].class)));
+		assertSame(producerConnectionFactory, messageBus.getConfirmingConnectionFactory());
+	}
+
+	@Test
+	public void testConfirmingConnectionFactoryIsNotCreatedWithoutConfirms() {
+		messageBus.setPublisherConfirms(false);
+		AmqpOutboundEndpoint endpoint = ReflectionTestUtils.invokeMethod(messageBus, "createOutboundEndpoint");
+		assertSame(connectionFactory, TestUtils.getPropertyValue(endpoint, "amqpTemplate.connectionFactory"));
+		assertEquals(null, TestUtils.getPropertyValue(messageBus, "derivedProducerConnectionFactory"));
+	}
+
+	@Test
+	public void testRejectedMessageIsPublishedAgainOffTheCallbackThread() throws Exception {
+		AmqpOutboundEndpoint endpoint = ReflectionTestUtils.invokeMethod(messageBus, "createOutboundEndpoint");
+		endpoint.setRoutingKey("nacked");
+		endpoint.afterPropertiesSet();
+		MessageChannel nacks = TestUtils.getPropertyValue(endpoint, "confirmNackChannel", MessageChannel.class);
+		// the publish fails as the broker cannot be reached, but not on the thread reporting the rejection
+		assertTrue(nacks.send(MessageBuilder.withPayload(MessageBuilder.withPayload("foo").build()).build()));
+		ExecutorService executor = TestUtils.getPropertyValue(messageBus, "republishExecutor", ExecutorService.class);
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+}
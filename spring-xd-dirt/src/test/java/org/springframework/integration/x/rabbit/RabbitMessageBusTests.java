@@ -16,17 +16,30 @@
 
 package org.springframework.integration.x.rabbit;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Rule;
 import org.junit.Test;
 
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.integration.amqp.AmqpHeaders;
 import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.test.util.TestUtils;
 import org.springframework.integration.x.bus.AbstractMessageBusTests;
+import org.springframework.integration.x.bus.Binding;
 import org.springframework.integration.x.bus.MessageBus;
 import org.springframework.integration.x.bus.RabbitTestMessageBus;
 import org.springframework.messaging.Message;
@@ -71,4 +84,71 @@ public class RabbitMessageBusTests extends AbstractMessageBusTests {
 		moduleOutputChannel.send(message);
 		assertTrue(latch.await(10, TimeUnit.SECONDS));
 	}
+
+	@Test
+	public void testConsumerProperties() throws Exception {
+		RabbitTestMessageBus messageBus = (RabbitTestMessageBus) getMessageBus();
+		RabbitMessageBus coreBus = (RabbitMessageBus) messageBus.getCoreMessageBus();
+		coreBus.setPrefetchCount(10);
+		coreBus.setTxSize(5);
+		coreBus.setConcurrentConsumers(2);
+		messageBus.bindConsumer("props.0", new DirectChannel(), false);
+		@SuppressWarnings("unchecked")
+		List<Binding> bindings = TestUtils.getPropertyValue(coreBus, "bindings", List.class);
+		assertEquals(1, bindings.size());
+		Object container = TestUtils.getPropertyValue(bindings.get(0).getEndpoint(), "messageListenerContainer");
+		assertEquals(10, TestUtils.getPropertyValue(container, "prefetchCount"));
+		assertEquals(5, TestUtils.getPropertyValue(container, "txSize"));
+		assertEquals(2, TestUtils.getPropertyValue(container, "concurrentConsumers"));
+		messageBus.unbindConsumers("props.0");
+	}
+
+	@Test
+	public void testDefaultDeliveryMode() throws Exception {
+		RabbitTestMessageBus messageBus = (RabbitTestMessageBus) getMessageBus();
+		((RabbitMessageBus) messageBus.getCoreMessageBus()).setDefaultDeliveryMode(MessageDeliveryMode.NON_PERSISTENT);
+		DirectChannel moduleOutputChannel = new DirectChannel();
+		QueueChannel moduleInputChannel = new QueueChannel();
+		messageBus.bindProducer("deliveryMode.0", moduleOutputChannel, false);
+		messageBus.bindConsumer("deliveryMode.0", moduleInputChannel, false);
+		moduleOutputChannel.send(MessageBuilder.withPayload("foo").build());
+		Message<?> received = moduleInputChannel.receive(5000);
+		assertNotNull(received);
+		assertEquals(MessageDeliveryMode.NON_PERSISTENT, received.getHeaders().get(AmqpHeaders.DELIVERY_MODE));
+		messageBus.unbindProducers("deliveryMode.0");
+		messageBus.unbindConsumers("deliveryMode.0");
+	}
+
+	@Test
+	public void testPublisherConfirms() throws Exception {
+		RabbitTestMessageBus messageBus = (RabbitTestMessageBus) getMessageBus();
+		RabbitMessageBus coreBus = (RabbitMessageBus) messageBus.getCoreMessageBus();
+		CachingConnectionFactory producerConnectionFactory = new CachingConnectionFactory("localhost");
+		producerConnectionFactory.setPublisherConfirms(true);
+		coreBus.setProducerConnectionFactory(producerConnectionFactory);
+		coreBus.setPublisherConfirms(true);
+		try {
+			DirectChannel moduleOutputChannel = new DirectChannel();
+			QueueChannel moduleInputChannel = new QueueChannel();
+			messageBus.bindProducer("confirms.0", moduleOutputChannel, false);
+			messageBus.bindConsumer("confirms.0", moduleInputChannel, false);
+			@SuppressWarnings("unchecked")
+			List<Binding> bindings = TestUtils.getPropertyValue(coreBus, "bindings", List.class);
+			RabbitTemplate template = TestUtils.getPropertyValue(bindings.get(0).getEndpoint(),
+					"handler.delegate.amqpTemplate", RabbitTemplate.class);
+			// the producer has its own template, and the shared connection factory is left alone
+			assertNotSame(TestUtils.getPropertyValue(coreBus, "rabbitTemplate"), template);
+			assertSame(producerConnectionFactory, template.getConnectionFactory());
+			assertFalse(rabbitAvailableRule.getResource().isPublisherConfirms());
+			moduleOutputChannel.send(MessageBuilder.withPayload("confirmed").build());
+			Message<?> received = moduleInputChannel.receive(5000);
+			assertNotNull(received);
+			assertEquals("confirmed", received.getPayload());
+			messageBus.unbindProducers("confirms.0");
+			messageBus.unbindConsumers("confirms.0");
+		}
+		finally {
+			producerConnectionFactory.destroy();
+		}
+	}
 }
@@ -18,6 +18,8 @@ package org.springframework.integration.x.redis;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
+
 import org.junit.Test;
 
 import org.springframework.integration.support.MessageBuilder;
@@ -34,27 +36,49 @@ public class MessageConverterTests {
 	@Test
 	public void testHeaderEmbedding() throws Exception {
 		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
-		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+		Message<ByteBuffer> message = MessageBuilder.withPayload(ByteBuffer.wrap("Hello".getBytes()))
 				.setHeader("foo", "bar")
 				.setHeader("baz", "quxx")
 				.build();
 		Message<byte[]> converted = converter.embedHeaders(message, "foo", "baz");
 		assertEquals("\u0002\u0003foo\u0003bar\u0003baz\u0004quxxHello", new String(converted.getPayload()));
 
-		converted = converter.extractHeaders(converted);
-		assertEquals("Hello", new String(converted.getPayload()));
-		assertEquals("bar", converted.getHeaders().get("foo"));
-		assertEquals("quxx", converted.getHeaders().get("baz"));
+		Message<ByteBuffer> extracted = converter.extractHeaders(converted);
+		assertEquals("Hello", toString(extracted.getPayload()));
+		assertEquals("bar", extracted.getHeaders().get("foo"));
+		assertEquals("quxx", extracted.getHeaders().get("baz"));
+	}
+
+	@Test
+	public void testHeaderEmbeddingBufferWithOffset() throws Exception {
+		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
+		ByteBuffer payload = ByteBuffer.wrap("xxHelloyy".getBytes(), 2, 5).slice();
+		Message<ByteBuffer> message = MessageBuilder.withPayload(payload)
+				.setHeader("foo", "bar")
+				.build();
+		Message<byte[]> converted = converter.embedHeaders(message, "foo");
+		assertEquals("\u0001\u0003foo\u0003barHello", new String(converted.getPayload()));
+		assertEquals(5, payload.remaining());
+
+		Message<ByteBuffer> extracted = converter.extractHeaders(converted);
+		assertEquals("Hello", toString(extracted.getPayload()));
+		assertEquals("bar", extracted.getHeaders().get("foo"));
 	}
 
 	@Test
 	public void testHeaderEmbeddingMissingHeader() throws Exception {
 		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
-		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+		Message<ByteBuffer> message = MessageBuilder.withPayload(ByteBuffer.wrap("Hello".getBytes()))
 				.setHeader("foo", "bar")
 				.build();
 		Message<byte[]> converted = converter.embedHeaders(message, "foo", "baz");
 		assertEquals("\u0001\u0003foo\u0003barHello", new String(converted.getPayload()));
 	}
 
+	private static String toString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return new String(bytes);
+	}
+
 }
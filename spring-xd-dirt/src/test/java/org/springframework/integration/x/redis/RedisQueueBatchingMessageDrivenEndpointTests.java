@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.test.util.TestUtils;
+import org.springframework.messaging.Message;
+import org.springframework.xd.test.redis.RedisTestSupport;
+
+/**
+ * Integration test of {@link RedisQueueBatchingMessageDrivenEndpoint}
+ */
+public class RedisQueueBatchingMessageDrivenEndpointTests {
+
+	private static final String QUEUE_NAME = "batchinginboundadaptertest";
+
+	private LettuceConnectionFactory connectionFactory;
+
+	private StringRedisTemplate template;
+
+	@Rule
+	public RedisTestSupport redisAvailableRule = new RedisTestSupport();
+
+	@Before
+	public void setUp() {
+		this.connectionFactory = redisAvailableRule.getResource();
+		this.template = new StringRedisTemplate(connectionFactory);
+		this.template.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() {
+		connectionFactory.getConnection().del(QUEUE_NAME.getBytes());
+	}
+
+	@Test
+	public void testPopBatchPreservesOrder() {
+		for (int i = 0; i < 5; i++) {
+			template.boundListOps(QUEUE_NAME).leftPush("message" + i);
+		}
+		RedisQueueBatchingMessageDrivenEndpoint endpoint = new RedisQueueBatchingMessageDrivenEndpoint(QUEUE_NAME,
+				connectionFactory);
+		endpoint.setBatchSize(3);
+		List<byte[]> batch = endpoint.popBatch();
+		assertEquals(3, batch.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals("message" + i, new String(batch.get(i)));
+		}
+		batch = endpoint.popBatch();
+		assertEquals(2, batch.size());
+		assertEquals("message3", new String(batch.get(0)));
+		assertEquals("message4", new String(batch.get(1)));
+	}
+
+	@Test
+	public void testPopBatchStopsWhenListIsEmpty() {
+		template.boundListOps(QUEUE_NAME).leftPush("message0");
+		template.boundListOps(QUEUE_NAME).leftPush("message1");
+		RedisQueueBatchingMessageDrivenEndpoint endpoint = new RedisQueueBatchingMessageDrivenEndpoint(QUEUE_NAME,
+				connectionFactory);
+		endpoint.setBatchSize(1000);
+		List<byte[]> batch = endpoint.popBatch();
+		assertEquals(2, batch.size());
+		assertEquals("message0", new String(batch.get(0)));
+		assertEquals("message1", new String(batch.get(1)));
+		assertEquals(Long.valueOf(0), template.boundListOps(QUEUE_NAME).size());
+	}
+
+	@Test
+	public void testMessagesAreDispatched() {
+		QueueChannel channel = new QueueChannel();
+		RedisQueueBatchingMessageDrivenEndpoint endpoint = new RedisQueueBatchingMessageDrivenEndpoint(QUEUE_NAME,
+				connectionFactory);
+		endpoint.setBatchSize(10);
+		endpoint.setConcurrency(2);
+		endpoint.setOutputChannel(channel);
+		endpoint.setBeanName("testEndpoint");
+		endpoint.afterPropertiesSet();
+		endpoint.start();
+		try {
+			for (int i = 0; i < 20; i++) {
+				template.boundListOps(QUEUE_NAME).leftPush("message" + i);
+			}
+			for (int i = 0; i < 20; i++) {
+				Message<?> message = channel.receive(5000);
+				assertNotNull(message);
+			}
+		}
+		finally {
+			endpoint.stop();
+		}
+	}
+
+	@Test
+	public void testPrefetchWithSingleDispatcherPreservesOrder() {
+		QueueChannel channel = new QueueChannel();
+		RedisQueueBatchingMessageDrivenEndpoint endpoint = new RedisQueueBatchingMessageDrivenEndpoint(QUEUE_NAME,
+				connectionFactory);
+		endpoint.setBatchSize(4);
+		endpoint.setPrefetch(2);
+		endpoint.setOutputChannel(channel);
+		endpoint.setBeanName("testEndpoint");
+		endpoint.afterPropertiesSet();
+		endpoint.start();
+		try {
+			for (int i = 0; i < 20; i++) {
+				template.boundListOps(QUEUE_NAME).leftPush("message" + i);
+			}
+			for (int i = 0; i < 20; i++) {
+				Message<?> message = channel.receive(5000);
+				assertNotNull(message);
+				assertEquals("message" + i, new String((byte[]) message.getPayload()));
+			}
+		}
+		finally {
+			endpoint.stop();
+		}
+	}
+
+	@Test
+	public void testRestartWaitsForPreviousConsumers() {
+		QueueChannel channel = new QueueChannel();
+		RedisQueueBatchingMessageDrivenEndpoint endpoint = new RedisQueueBatchingMessageDrivenEndpoint(QUEUE_NAME,
+				connectionFactory);
+		endpoint.setBatchSize(4);
+		endpoint.setConcurrency(2);
+		endpoint.setPrefetch(2);
+		endpoint.setOutputChannel(channel);
+		endpoint.setBeanName("testEndpoint");
+		endpoint.afterPropertiesSet();
+		endpoint.start();
+		Object previous = TestUtils.getPropertyValue(endpoint, "consumers");
+		endpoint.stop();
+		endpoint.start();
+		try {
+			assertNotSame(previous, TestUtils.getPropertyValue(endpoint, "consumers"));
+			assertEquals(0, TestUtils.getPropertyValue(previous, "finished", CountDownLatch.class).getCount());
+			template.boundListOps(QUEUE_NAME).leftPush("message");
+			Message<?> message = channel.receive(5000);
+			assertNotNull(message);
+			assertEquals("message", new String((byte[]) message.getPayload()));
+		}
+		finally {
+			endpoint.stop();
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.x.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.xd.test.redis.RedisTestSupport;
+
+/**
+ * Integration test of {@link RedisQueueBatchingMessageHandler}
+ */
+public class RedisQueueBatchingMessageHandlerTests {
+
+	private static final String QUEUE_NAME = "batchingadaptertest";
+
+	private LettuceConnectionFactory connectionFactory;
+
+	private ThreadPoolTaskScheduler taskScheduler;
+
+	private StringRedisTemplate template;
+
+	@Rule
+	public RedisTestSupport redisAvailableRule = new RedisTestSupport();
+
+	@Before
+	public void setUp() {
+		this.connectionFactory = redisAvailableRule.getResource();
+		this.taskScheduler = new ThreadPoolTaskScheduler();
+		this.taskScheduler.afterPropertiesSet();
+		this.template = new StringRedisTemplate(connectionFactory);
+		this.template.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() {
+		connectionFactory.getConnection().del(QUEUE_NAME.getBytes());
+		taskScheduler.destroy();
+	}
+
+	@Test
+	public void testFullBatchIsSentInOrder() throws Exception {
+		RedisQueueBatchingMessageHandler handler = new RedisQueueBatchingMessageHandler(QUEUE_NAME,
+				connectionFactory, 3, 60000, taskScheduler);
+		handler.afterPropertiesSet();
+		handler.start();
+		handler.handleMessage(new GenericMessage<byte[]>("message1".getBytes()));
+		handler.handleMessage(new GenericMessage<byte[]>("message2".getBytes()));
+		assertEquals(Long.valueOf(0), template.boundListOps(QUEUE_NAME).size());
+		handler.handleMessage(new GenericMessage<byte[]>("message3".getBytes()));
+		assertEquals("message1", template.boundListOps(QUEUE_NAME).rightPop());
+		assertEquals("message2", template.boundListOps(QUEUE_NAME).rightPop());
+		assertEquals("message3", template.boundListOps(QUEUE_NAME).rightPop());
+		handler.stop();
+	}
+
+	@Test
+	public void testPartialBatchIsFlushedOnStop() throws Exception {
+		RedisQueueBatchingMessageHandler handler = new RedisQueueBatchingMessageHandler(QUEUE_NAME,
+				connectionFactory, 10, 60000, taskScheduler);
+		handler.afterPropertiesSet();
+		handler.start();
+		handler.handleMessage(new GenericMessage<byte[]>("message1".getBytes()));
+		handler.stop();
+		assertEquals("message1", template.boundListOps(QUEUE_NAME).rightPop());
+		assertNull(template.boundListOps(QUEUE_NAME).rightPop());
+	}
+
+	@Test
+	public void testPartialBatchIsFlushedAfterTimeout() throws Exception {
+		RedisQueueBatchingMessageHandler handler = new RedisQueueBatchingMessageHandler(QUEUE_NAME,
+				connectionFactory, 10, 50, taskScheduler);
+		handler.afterPropertiesSet();
+		handler.start();
+		handler.handleMessage(new GenericMessage<byte[]>("message1".getBytes()));
+		String received = null;
+		for (int i = 0; received == null && i < 100; i++) {
+			Thread.sleep(20);
+			received = template.boundListOps(QUEUE_NAME).rightPop();
+		}
+		assertEquals("message1", received);
+		handler.stop();
+	}
+
+	@Test
+	public void testFailedBatchIsRetained() throws Exception {
+		RedisQueueBatchingMessageHandler handler = new RedisQueueBatchingMessageHandler(QUEUE_NAME,
+				connectionFactory, 2, 60000, taskScheduler);
+		handler.afterPropertiesSet();
+		handler.start();
+		// a key of another type makes the push fail
+		template.opsForValue().set(QUEUE_NAME, "notalist");
+		handler.handleMessage(new GenericMessage<byte[]>("message1".getBytes()));
+		handler.handleMessage(new GenericMessage<byte[]>("message2".getBytes()));
+		try {
+			handler.handleMessage(new GenericMessage<byte[]>("rejected".getBytes()));
+			fail("Expected the message to be rejected while the retained batch cannot be pushed");
+		}
+		catch (MessageHandlingException e) {
+			// expected
+		}
+		template.delete(QUEUE_NAME);
+		handler.handleMessage(new GenericMessage<byte[]>("message3".getBytes()));
+		handler.stop();
+		assertEquals("message1", template.boundListOps(QUEUE_NAME).rightPop());
+		assertEquals("message2", template.boundListOps(QUEUE_NAME).rightPop());
+		assertEquals("message3", template.boundListOps(QUEUE_NAME).rightPop());
+		assertNull(template.boundListOps(QUEUE_NAME).rightPop());
+	}
+
+	@Test
+	public void testMessageIsPushedAtOnceWhenNotRunning() throws Exception {
+		RedisQueueBatchingMessageHandler handler = new RedisQueueBatchingMessageHandler(QUEUE_NAME,
+				connectionFactory, 10, 60000, taskScheduler);
+		handler.afterPropertiesSet();
+		handler.handleMessage(new GenericMessage<byte[]>("message1".getBytes()));
+		assertEquals("message1", template.boundListOps(QUEUE_NAME).rightPop());
+
+		handler.start();
+		handler.handleMessage(new GenericMessage<byte[]>("message2".getBytes()));
+		handler.stop();
+		handler.handleMessage(new GenericMessage<byte[]>("message3".getBytes()));
+		assertEquals("message2", template.boundListOps(QUEUE_NAME).rightPop());
+		assertEquals("message3", template.boundListOps(QUEUE_NAME).rightPop());
+
+		// a message that cannot be pushed is rejected rather than buffered
+		template.opsForValue().set(QUEUE_NAME, "notalist");
+		try {
+			handler.handleMessage(new GenericMessage<byte[]>("rejected".getBytes()));
+			fail("Expected the message to be rejected");
+		}
+		catch (MessageHandlingException e) {
+			// expected
+		}
+		template.delete(QUEUE_NAME);
+		handler.flush();
+		assertNull(template.boundListOps(QUEUE_NAME).rightPop());
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.xd.dirt.container.ContainerAttributes;
+
+/**
+ * Tests for {@link LoadBalancingContainerMatcher}.
+ */
+public class LoadBalancingContainerMatcherTests {
+
+	private final StubContainerRepository repository = new StubContainerRepository();
+
+	private final LoadBalancingContainerMatcher matcher = new LoadBalancingContainerMatcher();
+
+	@Test
+	public void matchesLeastLoadedContainer() {
+		repository.add("a", 3);
+		repository.add("b", 1);
+		repository.add("c", 2);
+		assertEquals("b", matchOne(null));
+	}
+
+	@Test
+	public void spreadsModulesNotYetDeployed() {
+		repository.add("a", 0);
+		repository.add("b", 0);
+		repository.add("c", 1);
+		List<String> matched = new ArrayList<String>();
+		for (int i = 0; i < 5; i++) {
+			matched.add(matchOne(null));
+		}
+		assertEquals(2, count(matched, "a"));
+		assertEquals(2, count(matched, "b"));
+		assertEquals(1, count(matched, "c"));
+	}
+
+	@Test
+	public void discountsModulesOnceDeployed() {
+		repository.add("a", 0);
+		repository.add("b", 0);
+		assertEquals("a", matchOne(null));
+		// the module matched to a is now deployed, as well as another one
+		repository.modules.put("a", 2);
+		assertEquals("b", matchOne(null));
+		assertEquals("b", matchOne(null));
+	}
+
+	@Test
+	public void expiresModulesNeverDeployed() throws Exception {
+		matcher.setPendingTimeout(100);
+		repository.add("b", 2);
+		repository.add("a", 0);
+		assertEquals("a", matchOne(null));
+		assertEquals("a", matchOne(null));
+		// the modules matched to a are never deployed
+		Thread.sleep(200);
+		assertEquals("a", matchOne(null));
+	}
+
+	@Test
+	public void weighsModulesByCapacity() {
+		repository.add("a", 2, ContainerAttributes.CAPACITY_KEY, "4");
+		repository.add("b", 1);
+		assertEquals("a", matchOne(null));
+	}
+
+	@Test
+	public void weighsModulesByReportedLoad() {
+		repository.add("a", 1, ContainerAttributes.HEAP_USAGE_KEY, "0.9", ContainerAttributes.LOAD_AVERAGE_KEY, "1.5");
+		repository.add("b", 2, ContainerAttributes.HEAP_USAGE_KEY, "0.1");
+		assertEquals("b", matchOne(null));
+	}
+
+	@Test
+	public void ignoresInvalidAttributes() {
+		repository.add("a", 1, ContainerAttributes.CAPACITY_KEY, "many");
+		repository.add("b", 0, ContainerAttributes.CAPACITY_KEY, "-1");
+		assertEquals("b", matchOne(null));
+	}
+
+	@Test
+	public void matchesGroup() {
+		repository.add("a", 0);
+		repository.add("b", 5, "groups", "g1");
+		repository.add("c", 7, "groups", "g1,g2");
+		assertEquals("b", matchOne("g1"));
+		assertEquals("c", matchOne("g2"));
+		assertTrue(matcher.match("g3", 1, repository).isEmpty());
+	}
+
+	@Test
+	public void matchesCountOfContainers() {
+		repository.add("a", 4);
+		repository.add("b", 1);
+		repository.add("c", 2);
+		Collection<Container> containers = matcher.match(null, 2, repository);
+		assertEquals(2, containers.size());
+		Iterator<Container> iterator = containers.iterator();
+		assertEquals("b", iterator.next().getName());
+		assertEquals("c", iterator.next().getName());
+		assertEquals(3, matcher.match(null, 0, repository).size());
+		assertEquals(3, matcher.match(null, 5, repository).size());
+	}
+
+	private String matchOne(String group) {
+		Collection<Container> containers = matcher.match(group, 1, repository);
+		assertEquals(1, containers.size());
+		return containers.iterator().next().getName();
+	}
+
+	private static int count(List<String> names, String name) {
+		int count = 0;
+		for (String n : names) {
+			if (n.equals(name)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static class StubContainerRepository implements ContainerRepository {
+
+		private final Map<String, Container> containers = new LinkedHashMap<String, Container>();
+
+		private final Map<String, Integer> modules = new HashMap<String, Integer>();
+
+		void add(String name, int moduleCount, String... attributes) {
+			Map<String, String> map = new HashMap<String, String>();
+			for (int i = 0; i < attributes.length; i += 2) {
+				map.put(attributes[i], attributes[i + 1]);
+			}
+			containers.put(name, new Container(name, map));
+			modules.put(name, moduleCount);
+		}
+
+		@Override
+		public Iterator<Container> getContainerIterator() {
+			return containers.values().iterator();
+		}
+
+		@Override
+		public int getDeployedModuleCount(String containerName) {
+			Integer count = modules.get(containerName);
+			return count == null ? 0 : count;
+		}
+	}
+
+}
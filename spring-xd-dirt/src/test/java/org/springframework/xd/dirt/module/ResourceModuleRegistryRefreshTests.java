@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.xd.module.ModuleDefinition;
+import org.springframework.xd.module.ModuleType;
+
+/**
+ * Tests that {@link ResourceModuleRegistry} sees the modules added to or removed from a directory.
+ */
+public class ResourceModuleRegistryRefreshTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ResourceModuleRegistry registry;
+
+	@Before
+	public void setUp() {
+		registry = new ResourceModuleRegistry(folder.getRoot().toURI().toString());
+		registry.setRefreshInterval(0);
+	}
+
+	@Test
+	public void testSimpleModuleAddedAndRemoved() throws IOException {
+		assertNull(registry.findDefinition("foo", ModuleType.source));
+		File module = createFile("source/foo.xml");
+		assertNotNull(registry.findDefinition("foo", ModuleType.source));
+		assertEquals(1, registry.findDefinitions(ModuleType.source).size());
+		module.delete();
+		assertNull(registry.findDefinition("foo", ModuleType.source));
+		assertEquals(0, registry.findDefinitions(ModuleType.source).size());
+	}
+
+	@Test
+	public void testJarAddedToEnhancedModule() throws IOException {
+		createFile("sink/bar/config/bar.xml");
+		ModuleDefinition definition = registry.findDefinition("bar", ModuleType.sink);
+		assertNotNull(definition);
+		assertNull(definition.getClasspath());
+		createFile("sink/bar/lib/bar.jar");
+		assertEquals(1, registry.findDefinition("bar", ModuleType.sink).getClasspath().length);
+	}
+
+	@Test
+	public void testEnhancedModuleTakesPrecedence() throws IOException {
+		createFile("processor/baz.xml");
+		File enhanced = createFile("processor/baz/config/baz.xml");
+		createFile("processor/baz/config/other.xml");
+		assertEquals(enhanced.toURI().toURL(), registry.findDefinition("baz", ModuleType.processor).getResource().getURL());
+		assertNull(registry.findDefinition("other", ModuleType.processor));
+	}
+
+	@Test
+	public void testChangesSeenAfterRefreshInterval() throws IOException {
+		registry.setRefreshInterval(60000);
+		assertNull(registry.findDefinition("foo", ModuleType.source));
+		createFile("source/foo.xml");
+		assertNull(registry.findDefinition("foo", ModuleType.source));
+		registry.setRefreshInterval(0);
+		assertNotNull(registry.findDefinition("foo", ModuleType.source));
+	}
+
+	private File createFile(String path) throws IOException {
+		File file = new File(folder.getRoot(), path);
+		file.getParentFile().mkdirs();
+		file.createNewFile();
+		return file;
+	}
+
+}
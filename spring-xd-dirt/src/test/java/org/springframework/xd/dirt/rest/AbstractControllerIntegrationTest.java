@@ -32,9 +32,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounterRepository;
 import org.springframework.xd.analytics.metrics.core.CounterRepository;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
 import org.springframework.xd.analytics.metrics.core.GaugeRepository;
+import org.springframework.xd.analytics.metrics.core.HistogramRepository;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 import org.springframework.xd.dirt.container.store.ContainerAttributesRepository;
 import org.springframework.xd.dirt.module.store.ModuleMetadataRepository;
@@ -107,6 +109,12 @@ public class AbstractControllerIntegrationTest {
 	@Autowired
 	protected RichGaugeRepository richGaugeRepository;
 
+	@Autowired
+	protected CardinalityCounterRepository cardinalityCounterRepository;
+
+	@Autowired
+	protected HistogramRepository histogramRepository;
+
 	@Autowired
 	private JobService jobService;
 
@@ -124,6 +132,8 @@ public class AbstractControllerIntegrationTest {
 		resetOrDelete(fieldValueCounterRepository);
 		resetOrDelete(gaugeRepository);
 		resetOrDelete(richGaugeRepository);
+		resetOrDelete(cardinalityCounterRepository);
+		resetOrDelete(histogramRepository);
 	}
 
 	/**
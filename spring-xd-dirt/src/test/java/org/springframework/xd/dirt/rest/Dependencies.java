@@ -39,9 +39,11 @@ import org.springframework.integration.x.bus.LocalMessageBus;
 import org.springframework.integration.x.bus.MessageBus;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounterRepository;
 import org.springframework.xd.analytics.metrics.core.CounterRepository;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
 import org.springframework.xd.analytics.metrics.core.GaugeRepository;
+import org.springframework.xd.analytics.metrics.core.HistogramRepository;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 import org.springframework.xd.dirt.container.store.ContainerAttributesRepository;
 import org.springframework.xd.dirt.module.ModuleDefinitionRepository;
@@ -115,6 +117,16 @@ public class Dependencies {
 		return mock(RichGaugeRepository.class);
 	}
 
+	@Bean
+	public CardinalityCounterRepository cardinalityCounterRepository() {
+		return mock(CardinalityCounterRepository.class);
+	}
+
+	@Bean
+	public HistogramRepository histogramRepository() {
+		return mock(HistogramRepository.class);
+	}
+
 	@Bean
 	public FieldValueCounterRepository fieldValueCounterRepository() {
 		return mock(FieldValueCounterRepository.class);
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package org.springframework.xd.dirt.rest.metrics;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.xd.analytics.metrics.core.CardinalityCounter;
+import org.springframework.xd.dirt.rest.AbstractControllerIntegrationTest;
+import org.springframework.xd.dirt.rest.Dependencies;
+import org.springframework.xd.dirt.rest.RestConfiguration;
+
+/**
+ * Tests REST compliance of cardinality counter related endpoints.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = { RestConfiguration.class, Dependencies.class })
+public class CardinalityCountersControllerIntegrationTests extends AbstractControllerIntegrationTest {
+
+	@Test
+	public void testList() throws Exception {
+		when(cardinalityCounterRepository.findAll()).thenReturn(
+				Arrays.asList(new CardinalityCounter("foo"), new CardinalityCounter("bar")));
+
+		mockMvc.perform(get("/metrics/cardinality-counters").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].name").value("foo"))
+				.andExpect(jsonPath("$.content[1].name").value("bar"));
+	}
+
+	@Test
+	public void testRetrieveCounter() throws Exception {
+		byte[] registers = new byte[CardinalityCounter.REGISTERS];
+		registers[0] = 1;
+		when(cardinalityCounterRepository.findOne("visitors")).thenReturn(new CardinalityCounter("visitors", registers));
+
+		mockMvc.perform(get("/metrics/cardinality-counters/visitors").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("visitors"))
+				.andExpect(jsonPath("$.value").value(1));
+	}
+
+	@Test
+	public void testRetrieveUnknownCounter() throws Exception {
+		mockMvc.perform(get("/metrics/cardinality-counters/nothere").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testDeleteCounter() throws Exception {
+		when(cardinalityCounterRepository.exists("deleteme")).thenReturn(true);
+		mockMvc.perform(delete("/metrics/cardinality-counters/{name}", "deleteme")).andExpect(status().isOk());
+		verify(cardinalityCounterRepository).delete("deleteme");
+	}
+}
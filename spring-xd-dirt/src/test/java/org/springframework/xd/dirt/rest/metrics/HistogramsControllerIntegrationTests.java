@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package org.springframework.xd.dirt.rest.metrics;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.xd.analytics.metrics.core.Histogram;
+import org.springframework.xd.dirt.rest.AbstractControllerIntegrationTest;
+import org.springframework.xd.dirt.rest.Dependencies;
+import org.springframework.xd.dirt.rest.RestConfiguration;
+
+/**
+ * Tests REST compliance of histogram related endpoints.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = { RestConfiguration.class, Dependencies.class })
+public class HistogramsControllerIntegrationTests extends AbstractControllerIntegrationTest {
+
+	@Test
+	public void testList() throws Exception {
+		when(histogramRepository.findAll()).thenReturn(Arrays.asList(new Histogram("foo"), new Histogram("bar")));
+
+		mockMvc.perform(get("/metrics/histograms").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].name").value("foo"))
+				.andExpect(jsonPath("$.content[1].name").value("bar"));
+	}
+
+	@Test
+	public void testRetrieveHistogram() throws Exception {
+		when(histogramRepository.findOne("latency")).thenReturn(latency());
+
+		mockMvc.perform(get("/metrics/histograms/latency").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("latency"))
+				.andExpect(jsonPath("$.count").value(4))
+				.andExpect(jsonPath("$.p50").value(10))
+				.andExpect(jsonPath("$.max").value(20));
+	}
+
+	@Test
+	public void testRetrieveHistogramWindow() throws Exception {
+		when(histogramRepository.findRecent("latency", 5)).thenReturn(latency());
+
+		mockMvc.perform(get("/metrics/histograms/latency").param("window", "5").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.count").value(4));
+	}
+
+	@Test
+	public void testRetrieveUnknownHistogram() throws Exception {
+		mockMvc.perform(get("/metrics/histograms/nothere").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testDeleteHistogram() throws Exception {
+		when(histogramRepository.exists("deleteme")).thenReturn(true);
+		mockMvc.perform(delete("/metrics/histograms/{name}", "deleteme")).andExpect(status().isOk());
+		verify(histogramRepository).delete("deleteme");
+	}
+
+	private Histogram latency() {
+		Map<Integer, Long> counts = new HashMap<Integer, Long>();
+		counts.put(Histogram.bucket(10), 3L);
+		counts.put(Histogram.bucket(20), 1L);
+		return new Histogram("latency", counts);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.springframework.integration.test.util.TestUtils;
+import org.springframework.xd.dirt.core.ModuleDeploymentsPath;
+import org.springframework.xd.dirt.module.ModuleDefinitionRepository;
+import org.springframework.xd.dirt.util.MapBytesUtility;
+import org.springframework.xd.dirt.zookeeper.EmbeddedZooKeeper;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.module.options.ModuleOptionsMetadataResolver;
+
+/**
+ * Tests for {@link ContainerListener}.
+ */
+public class ContainerListenerTests {
+
+	private static EmbeddedZooKeeper embeddedZooKeeper = new EmbeddedZooKeeper();
+
+	private static ZooKeeperConnection zkConnection;
+
+	private static CuratorFramework client;
+
+	private final StreamDeploymentLocks deploymentLocks = new StreamDeploymentLocks();
+
+	private ExecutorService deploymentExecutor;
+
+	private PathChildrenCache streamDeployments;
+
+	private PathChildrenCache streamDefinitions;
+
+	private ContainerListener containerListener;
+
+	@BeforeClass
+	public static void initZooKeeper() throws Exception {
+		embeddedZooKeeper.start();
+		zkConnection = new ZooKeeperConnection("localhost:" + embeddedZooKeeper.getClientPort());
+		zkConnection.start();
+		for (int i = 0; !zkConnection.isConnected() && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		client = zkConnection.getClient();
+	}
+
+	@Before
+	public void createListener() throws Exception {
+		// a deployed stream whose definition has been removed, so that
+		// placing its modules only consists of taking its lock
+		Paths.createAll(client, Arrays.asList(Paths.build(Paths.STREAMS), Paths.build(Paths.DEPLOYMENTS),
+				Paths.build(Paths.STREAM_DEPLOYMENTS), Paths.build(Paths.STREAM_DEPLOYMENTS, "s")));
+		streamDeployments = new PathChildrenCache(client, Paths.build(Paths.STREAM_DEPLOYMENTS), true);
+		streamDeployments.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+		streamDefinitions = new PathChildrenCache(client, Paths.build(Paths.STREAMS), true);
+		streamDefinitions.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+		deploymentExecutor = Executors.newSingleThreadExecutor();
+		containerListener = new ContainerListener(null, null, mock(ModuleDefinitionRepository.class),
+				mock(ModuleOptionsMetadataResolver.class), streamDeployments, streamDefinitions, null,
+				deploymentExecutor, 10000, deploymentLocks);
+	}
+
+	@After
+	public void deleteNodes() throws Exception {
+		deploymentExecutor.shutdownNow();
+		streamDeployments.close();
+		streamDefinitions.close();
+		for (String path : Arrays.asList(Paths.STREAMS, Paths.DEPLOYMENTS)) {
+			client.delete().deletingChildrenIfNeeded().forPath(Paths.build(path));
+		}
+	}
+
+	@AfterClass
+	public static void stopZooKeeper() {
+		zkConnection.stop();
+		embeddedZooKeeper.stop();
+	}
+
+	@Test
+	public void arrivalWaitsForTheLockOfTheStream() throws Exception {
+		deploymentLocks.lock("s");
+		containerListener.childEvent(client, containerEvent(PathChildrenCacheEvent.Type.CHILD_ADDED, "c1"));
+		Thread.sleep(200);
+		assertTrue(getArrivals().containsKey("c1"));
+		deploymentLocks.unlock("s");
+		for (int i = 0; getArrivals().containsKey("c1") && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		assertFalse(getArrivals().containsKey("c1"));
+		assertFalse(deploymentLocks.isInUse("s"));
+	}
+
+	@Test
+	public void departureWaitsForTheLockOfTheStream() throws Exception {
+		String containerDeployments = Paths.build(Paths.MODULE_DEPLOYMENTS, "c1");
+		client.create().creatingParentsIfNeeded().forPath(new ModuleDeploymentsPath()
+				.setContainer("c1").setStreamName("s").setModuleType("source").setModuleLabel("time-0").build());
+		deploymentLocks.lock("s");
+		containerListener.childEvent(client, containerEvent(PathChildrenCacheEvent.Type.CHILD_REMOVED, "c1"));
+		Thread.sleep(200);
+		assertNotNull(client.checkExists().forPath(containerDeployments));
+		deploymentLocks.unlock("s");
+		for (int i = 0; client.checkExists().forPath(containerDeployments) != null && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		assertNull(client.checkExists().forPath(containerDeployments));
+		assertFalse(deploymentLocks.isInUse("s"));
+	}
+
+	@Test
+	public void arrivalIsCanceledOnDeparture() throws Exception {
+		// keep the executor busy so that the arrival does not start
+		final CountDownLatch release = new CountDownLatch(1);
+		deploymentExecutor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		containerListener.childEvent(client, containerEvent(PathChildrenCacheEvent.Type.CHILD_ADDED, "c1"));
+		List<Future<?>> arrival = getArrivals().get("c1");
+		assertEquals(1, arrival.size());
+		Future<?> future = arrival.get(0);
+
+		containerListener.childEvent(client, containerEvent(PathChildrenCacheEvent.Type.CHILD_REMOVED, "c1"));
+		assertTrue(future.isCancelled());
+		assertTrue(getArrivals().isEmpty());
+		release.countDown();
+		deploymentExecutor.shutdown();
+		assertTrue(deploymentExecutor.awaitTermination(10, TimeUnit.SECONDS));
+		assertFalse(deploymentLocks.isInUse("s"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, List<Future<?>>> getArrivals() {
+		return TestUtils.getPropertyValue(containerListener, "arrivals", Map.class);
+	}
+
+	private PathChildrenCacheEvent containerEvent(PathChildrenCacheEvent.Type type, String containerName) {
+		ChildData data = mock(ChildData.class);
+		when(data.getPath()).thenReturn(Paths.build(Paths.CONTAINERS, containerName));
+		when(data.getData()).thenReturn(new MapBytesUtility().toByteArray(Collections.<String, String> emptyMap()));
+		return new PathChildrenCacheEvent(type, data);
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.springframework.xd.dirt.zookeeper.EmbeddedZooKeeper;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+
+/**
+ * Tests for {@link DeploymentStatusWatcher}.
+ */
+public class DeploymentStatusWatcherTests {
+
+	private static EmbeddedZooKeeper embeddedZooKeeper = new EmbeddedZooKeeper();
+
+	private static ZooKeeperConnection zkConnection;
+
+	private static CuratorFramework client;
+
+	@BeforeClass
+	public static void initZooKeeper() throws Exception {
+		embeddedZooKeeper.start();
+		zkConnection = new ZooKeeperConnection("localhost:" + embeddedZooKeeper.getClientPort());
+		zkConnection.start();
+		for (int i = 0; !zkConnection.isConnected() && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		client = zkConnection.getClient();
+	}
+
+	@After
+	public void deleteNodes() throws Exception {
+		if (client.checkExists().forPath("/status") != null) {
+			client.delete().deletingChildrenIfNeeded().forPath("/status");
+		}
+	}
+
+	@AfterClass
+	public static void stopZooKeeper() {
+		zkConnection.stop();
+		embeddedZooKeeper.stop();
+	}
+
+	@Test
+	public void existingNodesAreNotAwaited() throws Exception {
+		Paths.createAll(client, Arrays.asList("/status", "/status/a"));
+		Collection<String> timedOut = new DeploymentStatusWatcher(client, Collections.singletonList("/status/a"))
+				.await(10000);
+		assertTrue(timedOut.isEmpty());
+	}
+
+	@Test
+	public void createdNodesAreDetected() throws Exception {
+		Paths.createAll(client, Collections.singletonList("/status"));
+		new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(200);
+					client.create().forPath("/status/a");
+					client.create().forPath("/status/b");
+				}
+				catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}.start();
+
+		long start = System.currentTimeMillis();
+		Collection<String> timedOut = new DeploymentStatusWatcher(client, Arrays.asList("/status/a", "/status/b"))
+				.await(10000);
+		assertTrue(timedOut.isEmpty());
+		assertTrue(System.currentTimeMillis() - start < 10000);
+	}
+
+	@Test
+	public void missingNodesTimeOut() throws Exception {
+		Paths.createAll(client, Arrays.asList("/status", "/status/a"));
+		Collection<String> timedOut = new DeploymentStatusWatcher(client, Arrays.asList("/status/a", "/status/b"))
+				.await(200);
+		assertEquals(Collections.singletonList("/status/b"), timedOut);
+	}
+
+	@Test
+	public void timedOutNodesAreNotWatchedAgain() throws Exception {
+		Paths.createAll(client, Collections.singletonList("/status"));
+		new DeploymentStatusWatcher(client, Collections.singletonList("/status/a")).await(200);
+		assertEquals(1, countWatches());
+		// the watch fires once the node is created, and is not set again
+		client.create().forPath("/status/a");
+		for (int i = 0; countWatches() > 0 && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(0, countWatches());
+	}
+
+	/**
+	 * Return the number of watches set on the server, using the {@code wchs} four letter command.
+	 */
+	private int countWatches() throws Exception {
+		Socket socket = new Socket("localhost", embeddedZooKeeper.getClientPort());
+		try {
+			socket.getOutputStream().write("wchs".getBytes());
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (line.startsWith("Total watches:")) {
+					return Integer.parseInt(line.substring("Total watches:".length()).trim());
+				}
+			}
+			throw new IllegalStateException("No watch count returned");
+		}
+		finally {
+			socket.close();
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link StreamDeploymentLocks}.
+ */
+public class StreamDeploymentLocksTests {
+
+	private final StreamDeploymentLocks locks = new StreamDeploymentLocks();
+
+	@Test
+	public void lockOfStreamIsExclusive() throws Exception {
+		locks.lock("a");
+		CountDownLatch locked = lockInThread("a");
+		assertFalse(locked.await(200, TimeUnit.MILLISECONDS));
+		locks.unlock("a");
+		assertTrue(locked.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void locksOfStreamsAreIndependent() throws Exception {
+		locks.lock("a");
+		assertTrue(lockInThread("b").await(10, TimeUnit.SECONDS));
+		locks.unlock("a");
+	}
+
+	@Test
+	public void lockIsRemovedOnceNoLongerUsed() throws Exception {
+		locks.lock("a");
+		locks.lock("a");
+		locks.unlock("a");
+		assertTrue(locks.isInUse("a"));
+		locks.unlock("a");
+		assertFalse(locks.isInUse("a"));
+	}
+
+	@Test
+	public void lockIsKeptWhileAwaited() throws Exception {
+		locks.lock("a");
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch waiterLocked = new CountDownLatch(1);
+		Thread waiter = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					locks.lock("a");
+					waiterLocked.countDown();
+					release.await();
+					locks.unlock("a");
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		waiter.start();
+		Thread.sleep(100);
+		locks.unlock("a");
+		assertTrue(waiterLocked.await(10, TimeUnit.SECONDS));
+		// the lock passed on to the waiter is the one a later thread waits for
+		CountDownLatch locked = lockInThread("a");
+		assertFalse(locked.await(200, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue(locked.await(10, TimeUnit.SECONDS));
+		waiter.join(10000);
+		assertFalse(locks.isInUse("a"));
+	}
+
+	@Test
+	public void interruptedWaiterReleasesLock() throws Exception {
+		locks.lock("a");
+		Thread waiter = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					locks.lock("a");
+				}
+				catch (InterruptedException e) {
+					// expected
+				}
+			}
+		};
+		waiter.start();
+		Thread.sleep(100);
+		waiter.interrupt();
+		waiter.join(10000);
+		locks.unlock("a");
+		assertFalse(locks.isInUse("a"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void unlockRequiresTheLock() {
+		locks.unlock("a");
+	}
+
+	/**
+	 * Acquire and release the lock of a stream in another thread.
+	 * 
+	 * @return a latch that is released once the lock was acquired and released
+	 */
+	private CountDownLatch lockInThread(final String streamName) {
+		final CountDownLatch locked = new CountDownLatch(1);
+		new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					locks.lock(streamName);
+					locks.unlock(streamName);
+					locked.countDown();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}.start();
+		return locked;
+	}
+
+}
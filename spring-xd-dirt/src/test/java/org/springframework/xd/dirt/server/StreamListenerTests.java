@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.springframework.integration.test.util.TestUtils;
+import org.springframework.xd.dirt.module.ModuleDefinitionRepository;
+import org.springframework.xd.dirt.zookeeper.EmbeddedZooKeeper;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.module.options.ModuleOptionsMetadataResolver;
+
+/**
+ * Tests for the ordering of the deployments and undeployments of a stream by {@link StreamListener}.
+ */
+public class StreamListenerTests {
+
+	private static EmbeddedZooKeeper embeddedZooKeeper = new EmbeddedZooKeeper();
+
+	private static ZooKeeperConnection zkConnection;
+
+	private static CuratorFramework client;
+
+	private final StreamDeploymentLocks deploymentLocks = new StreamDeploymentLocks();
+
+	private ThreadPoolExecutor deploymentExecutor;
+
+	private StreamListener streamListener;
+
+	@BeforeClass
+	public static void initZooKeeper() throws Exception {
+		embeddedZooKeeper.start();
+		zkConnection = new ZooKeeperConnection("localhost:" + embeddedZooKeeper.getClientPort());
+		zkConnection.start();
+		for (int i = 0; !zkConnection.isConnected() && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		client = zkConnection.getClient();
+	}
+
+	@Before
+	public void createListener() {
+		deploymentExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		// streams without a definition, so that a deployment or undeployment only consists of taking the lock
+		streamListener = new StreamListener(null, null, mock(ModuleDefinitionRepository.class),
+				mock(ModuleOptionsMetadataResolver.class), null, deploymentExecutor, 10000, deploymentLocks);
+	}
+
+	@After
+	public void shutdownExecutor() {
+		deploymentExecutor.shutdownNow();
+	}
+
+	@AfterClass
+	public static void stopZooKeeper() {
+		zkConnection.stop();
+		embeddedZooKeeper.stop();
+	}
+
+	@Test
+	public void undeploymentWaitsForTheDeploymentInProgress() throws Exception {
+		// the deployment starts and waits for the lock of the stream
+		deploymentLocks.lock("s");
+		streamListener.childEvent(client, streamEvent(PathChildrenCacheEvent.Type.CHILD_ADDED, "s"));
+		awaitActive(1);
+		streamListener.childEvent(client, streamEvent(PathChildrenCacheEvent.Type.CHILD_REMOVED, "s"));
+		List<Future<?>> tasks = getStreamTasks().get("s");
+		assertEquals(2, tasks.size());
+		assertFalse(tasks.get(0).isCancelled());
+		// the undeployment is only submitted once the deployment completes
+		assertEquals(0, deploymentExecutor.getQueue().size());
+
+		// the other streams are not held up by it
+		streamListener.childEvent(client, streamEvent(PathChildrenCacheEvent.Type.CHILD_ADDED, "t"));
+		assertEquals(1, deploymentExecutor.getQueue().size());
+
+		deploymentLocks.unlock("s");
+		awaitCompletion();
+		assertFalse(tasks.get(0).isCancelled());
+		assertTrue(tasks.get(1).isDone());
+	}
+
+	@Test
+	public void pendingDeploymentIsCanceledByUndeployment() throws Exception {
+		deploymentLocks.lock("s");
+		streamListener.childEvent(client, streamEvent(PathChildrenCacheEvent.Type.CHILD_ADDED, "s"));
+		awaitActive(1);
+		streamListener.childEvent(client, streamEvent(PathChildrenCacheEvent.Type.CHILD_REMOVED, "s"));
+		streamListener.childEvent(client, streamEvent(PathChildrenCacheEvent.Type.CHILD_ADDED, "s"));
+		Future<?> pending = getStreamTasks().get("s").get(2);
+		streamListener.childEvent(client, streamEvent(PathChildrenCacheEvent.Type.CHILD_REMOVED, "s"));
+		assertTrue(pending.isCancelled());
+		// the deployment in progress, and both undeployments
+		assertEquals(3, getStreamTasks().get("s").size());
+		assertFalse(getStreamTasks().get("s").get(0).isCancelled());
+
+		deploymentLocks.unlock("s");
+		awaitCompletion();
+	}
+
+	private void awaitActive(int count) throws InterruptedException {
+		for (int i = 0; deploymentExecutor.getActiveCount() < count && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(count, deploymentExecutor.getActiveCount());
+	}
+
+	private void awaitCompletion() throws InterruptedException {
+		for (int i = 0; !getStreamTasks().isEmpty() && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		assertTrue(getStreamTasks().isEmpty());
+		assertFalse(deploymentLocks.isInUse("s"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, List<Future<?>>> getStreamTasks() {
+		Map<String, List<Future<?>>> streamTasks = TestUtils.getPropertyValue(streamListener, "streamTasks", Map.class);
+		Map<String, List<Future<?>>> copy = new HashMap<String, List<Future<?>>>();
+		synchronized (streamTasks) {
+			for (Map.Entry<String, List<Future<?>>> entry : streamTasks.entrySet()) {
+				copy.put(entry.getKey(), new ArrayList<Future<?>>(entry.getValue()));
+			}
+		}
+		return copy;
+	}
+
+	private PathChildrenCacheEvent streamEvent(PathChildrenCacheEvent.Type type, String streamName) {
+		ChildData data = mock(ChildData.class);
+		when(data.getPath()).thenReturn(Paths.build(Paths.STREAM_DEPLOYMENTS, streamName));
+		return new PathChildrenCacheEvent(type, data);
+	}
+
+}
@@ -159,10 +159,10 @@ public class CompletionProviderTests {
 	}
 
 	@Test
-	// file | counter --name=foo --inputType=bar<TAB> => we're done
+	// file | counter --name=foo --inputType=bar --flushInterval=0 --flushSize=0<TAB> => we're done
 	public void testSinkWithAllOptionsSetCantGoFurther() {
 		List<String> completions = completionProvider.complete(stream,
-				"file | counter --name=foo --inputType=text/plain");
+				"file | counter --name=foo --inputType=text/plain --flushInterval=0 --flushSize=0");
 
 		assertThat(completions, hasSize(0));
 	}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.zookeeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.zookeeper.data.Stat;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ChildPathCache}.
+ */
+public class ChildPathCacheTests {
+
+	private static EmbeddedZooKeeper embeddedZooKeeper = new EmbeddedZooKeeper();
+
+	private static ZooKeeperConnection zkConnection;
+
+	private static CuratorFramework client;
+
+	private ChildPathCache<String> cache;
+
+	@BeforeClass
+	public static void initZooKeeper() throws Exception {
+		embeddedZooKeeper.start();
+		zkConnection = new ZooKeeperConnection("localhost:" + embeddedZooKeeper.getClientPort());
+		zkConnection.start();
+		for (int i = 0; !zkConnection.isConnected() && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		client = zkConnection.getClient();
+	}
+
+	@Before
+	public void createCache() throws Exception {
+		client.create().forPath("/test");
+		cache = new ChildPathCache<String>(zkConnection, "test", new ChildPathCache.NodeConverter<String>() {
+
+			@Override
+			public String convert(String name, Stat stat, byte[] data) {
+				return new String(data);
+			}
+		});
+	}
+
+	@After
+	public void deleteNodes() throws Exception {
+		cache.close();
+		client.delete().deletingChildrenIfNeeded().forPath("/test");
+	}
+
+	@AfterClass
+	public static void stopZooKeeper() {
+		zkConnection.stop();
+		embeddedZooKeeper.stop();
+	}
+
+	@Test
+	public void testLoadsChildrenSorted() throws Exception {
+		client.create().forPath("/test/b", "2".getBytes());
+		client.create().forPath("/test/a", "1".getBytes());
+		client.create().forPath("/test/c", "3".getBytes());
+		assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<String>(cache.getAll().keySet()));
+		assertEquals(Arrays.asList("1", "2", "3"), new ArrayList<String>(cache.getAll().values()));
+		assertEquals(3, cache.size());
+		assertEquals("2", cache.get("b"));
+		assertNull(cache.get("d"));
+	}
+
+	@Test
+	public void testPagesAndRanges() throws Exception {
+		for (String name : Arrays.asList("a", "b", "c", "d", "e")) {
+			client.create().forPath("/test/" + name, name.getBytes());
+		}
+		assertEquals(Arrays.asList("c", "d"), new ArrayList<String>(cache.getPage(2, 2).keySet()));
+		assertEquals(Arrays.asList("e"), new ArrayList<String>(cache.getPage(4, 2).keySet()));
+		assertTrue(cache.getPage(5, 2).isEmpty());
+		assertEquals(Arrays.asList("b", "c", "d"), new ArrayList<String>(cache.getRange("b", true, "d", true).keySet()));
+		assertEquals(Arrays.asList("c"), new ArrayList<String>(cache.getRange("b", false, "d", false).keySet()));
+		assertTrue(cache.getRange("d", true, "b", true).isEmpty());
+	}
+
+	@Test
+	public void testRefreshMakesWritesVisible() throws Exception {
+		assertEquals(0, cache.size());
+		client.create().forPath("/test/a", "1".getBytes());
+		cache.refresh("a");
+		assertEquals("1", cache.get("a"));
+		client.setData().forPath("/test/a", "2".getBytes());
+		cache.refresh("a");
+		assertEquals("2", cache.get("a"));
+		client.delete().forPath("/test/a");
+		cache.refresh("a");
+		assertFalse(cache.contains("a"));
+		assertEquals(0, cache.size());
+		client.create().forPath("/test/a", "3".getBytes());
+		cache.refresh("a");
+		assertEquals("3", cache.get("a"));
+	}
+
+	@Test
+	public void testGetOrReadReadsChildrenMissingFromTheView() throws Exception {
+		assertEquals(0, cache.size());
+		client.create().forPath("/test/a", "1".getBytes());
+		// no refresh: the child is read whether or not the watch has reported it
+		assertEquals("1", cache.getOrRead("a"));
+		assertEquals("1", cache.get("a"));
+		assertNull(cache.getOrRead("b"));
+		assertFalse(cache.contains("b"));
+	}
+
+	@Test
+	public void testWatchesChanges() throws Exception {
+		assertEquals(0, cache.size());
+		client.create().forPath("/test/a", "1".getBytes());
+		for (int i = 0; cache.get("a") == null && i < 100; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals("1", cache.get("a"));
+		client.setData().forPath("/test/a", "2".getBytes());
+		for (int i = 0; !"2".equals(cache.get("a")) && i < 100; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals("2", cache.get("a"));
+		client.delete().forPath("/test/a");
+		for (int i = 0; cache.contains("a") && i < 100; i++) {
+			Thread.sleep(50);
+		}
+		assertFalse(cache.contains("a"));
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.xd.dirt.zookeeper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Paths}.
+ */
+public class PathsTests {
+
+	private static EmbeddedZooKeeper embeddedZooKeeper = new EmbeddedZooKeeper();
+
+	private static ZooKeeperConnection zkConnection;
+
+	private static CuratorFramework client;
+
+	@BeforeClass
+	public static void initZooKeeper() throws Exception {
+		embeddedZooKeeper.start();
+		zkConnection = new ZooKeeperConnection("localhost:" + embeddedZooKeeper.getClientPort());
+		zkConnection.start();
+		for (int i = 0; !zkConnection.isConnected() && i < 100; i++) {
+			Thread.sleep(100);
+		}
+		client = zkConnection.getClient();
+	}
+
+	@After
+	public void deleteNodes() throws Exception {
+		if (client.checkExists().forPath("/test") != null) {
+			client.delete().deletingChildrenIfNeeded().forPath("/test");
+		}
+	}
+
+	@AfterClass
+	public static void stopZooKeeper() {
+		zkConnection.stop();
+		embeddedZooKeeper.stop();
+	}
+
+	@Test
+	public void testCreateAllInTransaction() throws Exception {
+		assertTrue(Paths.createAll(client, Arrays.asList("/test", "/test/a", "/test/a/b", "/test/c")).isEmpty());
+		assertNotNull(client.checkExists().forPath("/test/a/b"));
+		assertNotNull(client.checkExists().forPath("/test/c"));
+	}
+
+	@Test
+	public void testCreateAllWithExistingNodes() throws Exception {
+		Paths.createAll(client, Arrays.asList("/test", "/test/a"));
+		assertEquals(Collections.singletonList("/test/a"),
+				Paths.createAll(client, Arrays.asList("/test/a", "/test/b")));
+		assertNotNull(client.checkExists().forPath("/test/b"));
+	}
+
+	@Test
+	public void testCreateAllWithMissingParents() throws Exception {
+		assertTrue(Paths.createAll(client, Arrays.asList("/test/x/y", "/test/x/z")).isEmpty());
+		assertNotNull(client.checkExists().forPath("/test/x/y"));
+		assertNotNull(client.checkExists().forPath("/test/x/z"));
+	}
+
+}
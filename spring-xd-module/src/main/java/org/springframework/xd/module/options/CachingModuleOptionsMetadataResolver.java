@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module.options;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.module.ModuleDefinition;
+
+/**
+ * A decorator around another {@link ModuleOptionsMetadataResolver} that remembers the metadata it resolved for each
+ * module, as resolving it may load classes and parse files.
+ * 
+ * <p>
+ * The metadata of a module is resolved again if its definition has changed, that is if its resource, classpath,
+ * composed definition or composed modules are not the same. Modules are told apart by type and name, so there is at
+ * most one metadata remembered per module.
+ * 
+ * @since 1.0
+ */
+public class CachingModuleOptionsMetadataResolver implements ModuleOptionsMetadataResolver {
+
+	private ModuleOptionsMetadataResolver delegate;
+
+	private final ConcurrentMap<String, CachedMetadata> cache = new ConcurrentHashMap<String, CachedMetadata>();
+
+	public void setDelegate(ModuleOptionsMetadataResolver delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public ModuleOptionsMetadata resolve(ModuleDefinition moduleDefinition) {
+		String key = moduleDefinition.getType() + ":" + moduleDefinition.getName();
+		String fingerprint = fingerprint(moduleDefinition);
+		CachedMetadata cached = cache.get(key);
+		if (cached != null && cached.fingerprint.equals(fingerprint)) {
+			return cached.metadata;
+		}
+		ModuleOptionsMetadata metadata = delegate.resolve(moduleDefinition);
+		if (metadata != null) {
+			cache.put(key, new CachedMetadata(fingerprint, metadata));
+		}
+		return metadata;
+	}
+
+	/**
+	 * Describe what the metadata of a module is derived from.
+	 */
+	private String fingerprint(ModuleDefinition moduleDefinition) {
+		StringBuilder sb = new StringBuilder();
+		if (moduleDefinition.getResource() != null) {
+			sb.append(moduleDefinition.getResource().getDescription());
+		}
+		sb.append('|').append(Arrays.toString(moduleDefinition.getClasspath()));
+		sb.append('|').append(moduleDefinition.getDefinition());
+		for (ModuleDefinition composed : moduleDefinition.getComposedModuleDefinitions()) {
+			sb.append("|[").append(composed.getType()).append(':').append(composed.getName()).append('|');
+			sb.append(fingerprint(composed)).append(']');
+		}
+		return sb.toString();
+	}
+
+	private static class CachedMetadata {
+
+		private final String fingerprint;
+
+		private final ModuleOptionsMetadata metadata;
+
+		CachedMetadata(String fingerprint, ModuleOptionsMetadata metadata) {
+			this.fingerprint = fingerprint;
+			this.metadata = metadata;
+		}
+	}
+
+}
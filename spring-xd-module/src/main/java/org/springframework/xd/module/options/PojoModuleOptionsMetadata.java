@@ -134,9 +134,14 @@ public class PojoModuleOptionsMetadata implements ModuleOptionsMetadata {
 		return options.iterator();
 	}
 
+	/**
+	 * Bind the values to a new instance of the POJO, so that interpolations do not see the values of each other and
+	 * this metadata can be shared.
+	 */
 	@Override
 	public ModuleOptions interpolate(Map<String, String> raw) throws BindException {
-		bindAndValidate(raw);
+		final BeanWrapper beanWrapper = new BeanWrapperImpl(this.beanWrapper.getWrappedClass());
+		bindAndValidate(beanWrapper, raw);
 
 		return new ModuleOptions() {
 
@@ -181,7 +186,7 @@ public class PojoModuleOptionsMetadata implements ModuleOptionsMetadata {
 	}
 
 	@SuppressWarnings("unchecked")
-	private void bindAndValidate(Map<String, String> raw) throws BindException {
+	private void bindAndValidate(BeanWrapper beanWrapper, Map<String, String> raw) throws BindException {
 		DataBinder dataBinder = new DataBinder(beanWrapper.getWrappedInstance());
 		dataBinder.setIgnoreUnknownFields(false);
 		dataBinder.setConversionService(conversionService);
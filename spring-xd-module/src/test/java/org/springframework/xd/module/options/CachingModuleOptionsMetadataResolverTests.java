@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.module.options;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.springframework.xd.module.ModuleType.processor;
+import static org.springframework.xd.module.ModuleType.source;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.xd.module.ModuleDefinition;
+
+/**
+ * Tests for {@link CachingModuleOptionsMetadataResolver}.
+ */
+public class CachingModuleOptionsMetadataResolverTests {
+
+	private final Resource resource1 = new ClassPathResource(
+			"/DefaultModuleOptionsMetadataResolverTests-modules/source/module1/config/module1.xml");
+
+	private final Resource resource2 = new ClassPathResource(
+			"/DefaultModuleOptionsMetadataResolverTests-modules/source/module2/config/module2.xml");
+
+	private final CachingModuleOptionsMetadataResolver resolver = new CachingModuleOptionsMetadataResolver();
+
+	private int resolutions;
+
+	@Before
+	public void setUp() {
+		resolver.setDelegate(new ModuleOptionsMetadataResolver() {
+
+			@Override
+			public ModuleOptionsMetadata resolve(ModuleDefinition moduleDefinition) {
+				resolutions++;
+				return new PassthruModuleOptionsMetadata();
+			}
+		});
+	}
+
+	@Test
+	public void testSameDefinitionResolvedOnce() {
+		ModuleOptionsMetadata metadata = resolver.resolve(new ModuleDefinition("module", source, resource1));
+		assertSame(metadata, resolver.resolve(new ModuleDefinition("module", source, resource1)));
+		assertEquals(1, resolutions);
+	}
+
+	@Test
+	public void testModulesOfDifferentTypesResolvedSeparately() {
+		ModuleOptionsMetadata metadata = resolver.resolve(new ModuleDefinition("module", source, resource1));
+		assertNotSame(metadata, resolver.resolve(new ModuleDefinition("module", processor, resource1)));
+		assertEquals(2, resolutions);
+	}
+
+	@Test
+	public void testChangedResourceResolvedAgain() {
+		ModuleOptionsMetadata metadata = resolver.resolve(new ModuleDefinition("module", source, resource1));
+		ModuleOptionsMetadata changed = resolver.resolve(new ModuleDefinition("module", source, resource2));
+		assertNotSame(metadata, changed);
+		assertSame(changed, resolver.resolve(new ModuleDefinition("module", source, resource2)));
+		assertEquals(2, resolutions);
+	}
+
+	@Test
+	public void testChangedCompositionResolvedAgain() {
+		ModuleOptionsMetadata metadata = resolver.resolve(composed("module1 | module2", resource1));
+		assertSame(metadata, resolver.resolve(composed("module1 | module2", resource1)));
+		assertNotSame(metadata, resolver.resolve(composed("module1 | module2", resource2)));
+		assertEquals(2, resolutions);
+	}
+
+	private ModuleDefinition composed(String definition, Resource childResource) {
+		ModuleDefinition composed = new ModuleDefinition("composed", source);
+		composed.setDefinition(definition);
+		composed.setComposedModuleDefinitions(Collections.singletonList(new ModuleDefinition("module1", source,
+				childResource)));
+		return composed;
+	}
+
+}
@@ -139,6 +139,17 @@ public class PojoModuleOptionsMetadataTests {
 
 	}
 
+	@Test
+	public void testInterpolationsAreIndependent() throws BindException {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("foo", "othervalue");
+		ModuleOptions first = metadata.interpolate(values);
+
+		ModuleOptions second = metadata.interpolate(new HashMap<String, String>());
+		assertThat((String) second.asPropertySource().getProperty("foo"), equalTo("somedefault"));
+		assertThat((String) first.asPropertySource().getProperty("foo"), equalTo("othervalue"));
+	}
+
 	@Test
 	public void testGroupValidation() throws BindException {
 		Map<String, String> values = new HashMap<String, String>();
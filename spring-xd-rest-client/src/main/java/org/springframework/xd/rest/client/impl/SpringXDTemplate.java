@@ -21,10 +21,12 @@ import java.net.URI;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.xd.rest.client.AggregateCounterOperations;
+import org.springframework.xd.rest.client.CardinalityCounterOperations;
 import org.springframework.xd.rest.client.CompletionOperations;
 import org.springframework.xd.rest.client.CounterOperations;
 import org.springframework.xd.rest.client.FieldValueCounterOperations;
 import org.springframework.xd.rest.client.GaugeOperations;
+import org.springframework.xd.rest.client.HistogramOperations;
 import org.springframework.xd.rest.client.JobOperations;
 import org.springframework.xd.rest.client.ModuleOperations;
 import org.springframework.xd.rest.client.RichGaugeOperations;
@@ -85,6 +87,16 @@ public class SpringXDTemplate extends AbstractTemplate implements SpringXDOperat
 	 */
 	private RichGaugeOperations richGaugeOperations;
 
+	/**
+	 * Holds the CardinalityCounter related part of the API
+	 */
+	private CardinalityCounterOperations cardinalityCounterOperations;
+
+	/**
+	 * Holds the Histogram related part of the API
+	 */
+	private HistogramOperations histogramOperations;
+
 	/**
 	 * Holds the code completion related part of the API.
 	 */
@@ -113,6 +125,8 @@ public class SpringXDTemplate extends AbstractTemplate implements SpringXDOperat
 		resources.put("aggregate-counters", URI.create(xdRuntime.getLink("aggregate-counters").getHref()));
 		resources.put("gauges", URI.create(xdRuntime.getLink("gauges").getHref()));
 		resources.put("rich-gauges", URI.create(xdRuntime.getLink("rich-gauges").getHref()));
+		resources.put("cardinality-counters", URI.create(xdRuntime.getLink("cardinality-counters").getHref()));
+		resources.put("histograms", URI.create(xdRuntime.getLink("histograms").getHref()));
 
 
 		streamOperations = new StreamTemplate(this);
@@ -122,6 +136,8 @@ public class SpringXDTemplate extends AbstractTemplate implements SpringXDOperat
 		aggrCounterOperations = new AggregateCounterTemplate(this);
 		gaugeOperations = new GaugeTemplate(this);
 		richGaugeOperations = new RichGaugeTemplate(this);
+		cardinalityCounterOperations = new CardinalityCounterTemplate(this);
+		histogramOperations = new HistogramTemplate(this);
 		moduleOperations = new ModuleTemplate(this);
 		runtimeOperations = new RuntimeTemplate(this);
 		completionOperations = new CompletionTemplate(this);
@@ -176,6 +192,16 @@ public class SpringXDTemplate extends AbstractTemplate implements SpringXDOperat
 		return richGaugeOperations;
 	}
 
+	@Override
+	public CardinalityCounterOperations cardinalityCounterOperations() {
+		return cardinalityCounterOperations;
+	}
+
+	@Override
+	public HistogramOperations histogramOperations() {
+		return histogramOperations;
+	}
+
 	@Override
 	public CompletionOperations completionOperations() {
 		return completionOperations;
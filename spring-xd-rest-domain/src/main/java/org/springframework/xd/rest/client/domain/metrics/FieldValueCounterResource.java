@@ -36,6 +36,10 @@ public class FieldValueCounterResource extends MetricResource {
 	@XmlElement(name = "counts", type = HashMap.class)
 	private Map<String, Double> fieldValueCounts;
 
+	@JsonProperty("errors")
+	@XmlElement(name = "errors", type = HashMap.class)
+	private Map<String, Double> fieldValueErrors;
+
 	/**
 	 * No arg constructor for serialization frameworks.
 	 */
@@ -44,12 +48,26 @@ public class FieldValueCounterResource extends MetricResource {
 	}
 
 	public FieldValueCounterResource(String name, Map<String, Double> fieldValueCounts) {
+		this(name, fieldValueCounts, new HashMap<String, Double>());
+	}
+
+	public FieldValueCounterResource(String name, Map<String, Double> fieldValueCounts,
+			Map<String, Double> fieldValueErrors) {
 		super(name);
 		this.fieldValueCounts = fieldValueCounts;
+		this.fieldValueErrors = fieldValueErrors;
 	}
 
 	public Map<String, Double> getFieldValueCounts() {
 		return fieldValueCounts;
 	}
 
+	/**
+	 * For a counter that only tracks its approximate top values, the amount by which the count of each value may
+	 * overestimate its true count. Values that have no entry are counted exactly.
+	 */
+	public Map<String, Double> getFieldValueErrors() {
+		return fieldValueErrors;
+	}
+
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.rest.client.domain.metrics;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The REST representation of a Histogram, as the values at its usual percentiles.
+ *
+ * @since 1.0
+ */
+@XmlRootElement(name = "histogram")
+public class HistogramResource extends MetricResource {
+
+	@XmlAttribute(name = "count")
+	private long count;
+
+	@XmlAttribute(name = "p50")
+	private long p50;
+
+	@XmlAttribute(name = "p95")
+	private long p95;
+
+	@XmlAttribute(name = "p99")
+	private long p99;
+
+	@XmlAttribute(name = "p999")
+	private long p999;
+
+	@XmlAttribute(name = "max")
+	private long max;
+
+	/**
+	 * No-arg constructor for serialization frameworks.
+	 */
+	protected HistogramResource() {
+	}
+
+	public HistogramResource(String name, long count, long p50, long p95, long p99, long p999, long max) {
+		super(name);
+		this.count = count;
+		this.p50 = p50;
+		this.p95 = p95;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.max = max;
+	}
+
+	/**
+	 * Return the number of values recorded.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Return the median value.
+	 */
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP95() {
+		return p95;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public long getP999() {
+		return p999;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+}
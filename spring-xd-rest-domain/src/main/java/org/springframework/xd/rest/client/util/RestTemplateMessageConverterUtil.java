@@ -39,9 +39,11 @@ import org.springframework.xd.rest.client.domain.ModuleMetadataResource;
 import org.springframework.xd.rest.client.domain.StreamDefinitionResource;
 import org.springframework.xd.rest.client.domain.XDRuntime;
 import org.springframework.xd.rest.client.domain.metrics.AggregateCountsResource;
+import org.springframework.xd.rest.client.domain.metrics.CardinalityCounterResource;
 import org.springframework.xd.rest.client.domain.metrics.CounterResource;
 import org.springframework.xd.rest.client.domain.metrics.FieldValueCounterResource;
 import org.springframework.xd.rest.client.domain.metrics.GaugeResource;
+import org.springframework.xd.rest.client.domain.metrics.HistogramResource;
 import org.springframework.xd.rest.client.domain.metrics.MetricResource;
 import org.springframework.xd.rest.client.domain.metrics.RichGaugeResource;
 
@@ -80,7 +82,7 @@ public class RestTemplateMessageConverterUtil {
 		ModuleMetadataResource.class,
 		MetricResource.class, GaugeResource.class,
 		AggregateCountsResource.class, CounterResource.class, XDRuntime.class, FieldValueCounterResource.class,
-		RichGaugeResource.class };
+		RichGaugeResource.class, CardinalityCounterResource.class, HistogramResource.class };
 
 	private RestTemplateMessageConverterUtil() {
 
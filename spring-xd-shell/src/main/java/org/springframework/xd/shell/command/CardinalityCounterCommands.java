@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.shell.command;
+
+import java.text.NumberFormat;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.shell.core.CommandMarker;
+import org.springframework.shell.core.annotation.CliAvailabilityIndicator;
+import org.springframework.shell.core.annotation.CliCommand;
+import org.springframework.shell.core.annotation.CliOption;
+import org.springframework.stereotype.Component;
+import org.springframework.xd.rest.client.CardinalityCounterOperations;
+import org.springframework.xd.rest.client.domain.metrics.CardinalityCounterResource;
+import org.springframework.xd.rest.client.domain.metrics.MetricResource;
+import org.springframework.xd.shell.XDShell;
+import org.springframework.xd.shell.converter.NumberFormatConverter;
+import org.springframework.xd.shell.util.Table;
+
+/**
+ * Commands for interacting with CardinalityCounter analytics.
+ *
+ * @since 1.0
+ */
+@Component
+public class CardinalityCounterCommands extends AbstractMetricsCommands implements CommandMarker {
+
+	protected CardinalityCounterCommands() {
+		super("CardinalityCounter");
+	}
+
+	private static final String DISPLAY_CARDINALITY_COUNTER = "cardinality-counter display";
+
+	private static final String LIST_CARDINALITY_COUNTERS = "cardinality-counter list";
+
+	private static final String DELETE_CARDINALITY_COUNTER = "cardinality-counter delete";
+
+	@Autowired
+	private XDShell xdShell;
+
+	@CliAvailabilityIndicator({ LIST_CARDINALITY_COUNTERS, DISPLAY_CARDINALITY_COUNTER, DELETE_CARDINALITY_COUNTER })
+	public boolean available() {
+		return xdShell.getSpringXDOperations() != null;
+	}
+
+	@CliCommand(value = DISPLAY_CARDINALITY_COUNTER, help = "Display the estimated number of distinct values of a cardinality counter")
+	public String display(
+			@CliOption(key = { "", "name" }, help = "the name of the cardinality counter to display", mandatory = true, optionContext = "existing-cardinality-counter disable-string-converter") String name,
+			@CliOption(key = "pattern", help = "the pattern used to format the value (see DecimalFormat)", mandatory = false, unspecifiedDefaultValue = NumberFormatConverter.DEFAULT) NumberFormat pattern) {
+		CardinalityCounterResource counter = cardinalityCounterOperations().retrieve(name);
+
+		return pattern.format(counter.getValue());
+	}
+
+	@CliCommand(value = LIST_CARDINALITY_COUNTERS, help = "List all available cardinality counter names")
+	public Table list(/* TODO */) {
+		PagedResources<MetricResource> list = cardinalityCounterOperations().list(/* TODO */);
+		return displayMetrics(list);
+	}
+
+	@CliCommand(value = DELETE_CARDINALITY_COUNTER, help = "Delete the cardinality counter with the given name")
+	public String delete(
+			@CliOption(mandatory = true, key = { "", "name" }, help = "the name of the cardinality counter to delete", optionContext = "existing-cardinality-counter disable-string-converter") String name) {
+		cardinalityCounterOperations().delete(name);
+		return String.format("Deleted cardinality counter '%s'", name);
+	}
+
+	private CardinalityCounterOperations cardinalityCounterOperations() {
+		return xdShell.getSpringXDOperations().cardinalityCounterOperations();
+	}
+
+}
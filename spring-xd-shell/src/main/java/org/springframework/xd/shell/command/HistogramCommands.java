@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.shell.command;
+
+import java.text.NumberFormat;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.shell.core.CommandMarker;
+import org.springframework.shell.core.annotation.CliAvailabilityIndicator;
+import org.springframework.shell.core.annotation.CliCommand;
+import org.springframework.shell.core.annotation.CliOption;
+import org.springframework.stereotype.Component;
+import org.springframework.xd.rest.client.HistogramOperations;
+import org.springframework.xd.rest.client.domain.metrics.HistogramResource;
+import org.springframework.xd.rest.client.domain.metrics.MetricResource;
+import org.springframework.xd.shell.XDShell;
+import org.springframework.xd.shell.converter.NumberFormatConverter;
+import org.springframework.xd.shell.util.Table;
+import org.springframework.xd.shell.util.TableHeader;
+
+/**
+ * Commands for interacting with Histogram analytics.
+ *
+ * @since 1.0
+ */
+@Component
+public class HistogramCommands extends AbstractMetricsCommands implements CommandMarker {
+
+	protected HistogramCommands() {
+		super("Histogram");
+	}
+
+	private static final String DISPLAY_HISTOGRAM = "histogram display";
+
+	private static final String LIST_HISTOGRAMS = "histogram list";
+
+	private static final String DELETE_HISTOGRAM = "histogram delete";
+
+	@Autowired
+	private XDShell xdShell;
+
+	@CliAvailabilityIndicator({ LIST_HISTOGRAMS, DISPLAY_HISTOGRAM, DELETE_HISTOGRAM })
+	public boolean available() {
+		return xdShell.getSpringXDOperations() != null;
+	}
+
+	@CliCommand(value = DISPLAY_HISTOGRAM, help = "Display the percentiles of the values recorded by a histogram")
+	public Table display(
+			@CliOption(key = { "", "name" }, help = "the name of the histogram to display", mandatory = true, optionContext = "existing-histogram disable-string-converter") String name,
+			@CliOption(key = "window", help = "only consider the values recorded in this many most recent minutes", mandatory = false) Integer window,
+			@CliOption(key = "pattern", help = "the pattern used to format the values (see DecimalFormat)", mandatory = false, unspecifiedDefaultValue = NumberFormatConverter.DEFAULT) NumberFormat pattern) {
+		HistogramResource resource = window == null ? histogramOperations().retrieve(name)
+				: histogramOperations().retrieve(name, window);
+		return displayHistogram(resource, pattern);
+	}
+
+	@CliCommand(value = LIST_HISTOGRAMS, help = "List all available histogram names")
+	public Table list(/* TODO */) {
+		PagedResources<MetricResource> list = histogramOperations().list(/* TODO */);
+		return displayMetrics(list);
+	}
+
+	@CliCommand(value = DELETE_HISTOGRAM, help = "Delete the histogram with the given name")
+	public String delete(
+			@CliOption(mandatory = true, key = { "", "name" }, help = "the name of the histogram to delete", optionContext = "existing-histogram disable-string-converter") String name) {
+		histogramOperations().delete(name);
+		return String.format("Deleted histogram '%s'", name);
+	}
+
+	private HistogramOperations histogramOperations() {
+		return xdShell.getSpringXDOperations().histogramOperations();
+	}
+
+	private Table displayHistogram(HistogramResource r, NumberFormat pattern) {
+		Table t = new Table();
+		t.addHeader(1, new TableHeader(String.format("Name"))).addHeader(2, new TableHeader(r.getName()));
+		t.newRow().addValue(1, "count").addValue(2, pattern.format(r.getCount()));
+		t.newRow().addValue(1, "p50").addValue(2, pattern.format(r.getP50()));
+		t.newRow().addValue(1, "p95").addValue(2, pattern.format(r.getP95()));
+		t.newRow().addValue(1, "p99").addValue(2, pattern.format(r.getP99()));
+		t.newRow().addValue(1, "p99.9").addValue(2, pattern.format(r.getP999()));
+		t.newRow().addValue(1, "max").addValue(2, pattern.format(r.getMax()));
+		return t;
+	}
+
+}
@@ -83,6 +83,13 @@ public class ExistingXDEntityConverter implements Converter<String> {
 		else if ("rich-gauge".equals(kind)) {
 			populate(completions, springXDOperations.richGaugeOperations().list(), criteria, "Rich Gauges");
 		}
+		else if ("cardinality-counter".equals(kind)) {
+			populate(completions, springXDOperations.cardinalityCounterOperations().list(), criteria,
+					"Cardinality Counters");
+		}
+		else if ("histogram".equals(kind)) {
+			populate(completions, springXDOperations.histogramOperations().list(), criteria, "Histograms");
+		}
 		else if ("aggregate-counter".equals(kind)) {
 			populate(completions, springXDOperations.aggrCounterOperations().list(), criteria, "Aggregate Counters");
 		}
@@ -20,6 +20,7 @@ import com.eaio.uuid.UUIDGen;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashMap;
@@ -52,37 +53,162 @@ public class DefaultTuple implements Tuple {
 	// caused the failure. Need to wrap ConversionFailedException with IllegalArgumentException and add that context
 	// back in.
 
-	// TODO consider LinkedHashMap and map to link index position to nam,e, look at efficient impls in goldman sach's
-	// collection class lib.
-	private List<String> names;
+	private static final byte REFERENCE = 0;
 
-	private List<Object> values;
+	private static final byte INT = 1;
+
+	private static final byte LONG = 2;
+
+	private static final byte FLOAT = 3;
+
+	private static final byte DOUBLE = 4;
+
+	private final TupleSchema schema;
+
+	/**
+	 * The values of reference typed fields; null in the slots of fields stored in {@link #primitives}.
+	 */
+	private final Object[] values;
+
+	/**
+	 * The values of int, long, float and double fields, stored unboxed as long bits; null if there are none.
+	 */
+	private final long[] primitives;
+
+	/**
+	 * The primitive type of each field, or {@link #REFERENCE}; null if there are no primitive fields.
+	 */
+	private final byte[] primitiveTypes;
 
 	private transient FormattingConversionService formattingConversionService;
 
-	private transient Converter<Tuple, String> tupleToStringConverter = new DefaultTupleToStringConverter();
+	private transient Converter<Tuple, String> tupleToStringConverter;
 
-	private UUID id;
+	private volatile UUID id;
 
-	private Long timestamp;
+	private final long timestamp;
 
 	// TODO consider making final and package protect ctor so as to always use TupleBuilder
 
 	public DefaultTuple(List<String> names, List<Object> values, FormattingConversionService formattingConversionService) {
-		Assert.notNull(names);
+		this(validatedSchema(names, values), values.toArray(), formattingConversionService);
+	}
+
+	/**
+	 * Create a tuple sharing the given schema. The values array is taken over rather than copied, so it must not be
+	 * used afterwards. The id is generated when it is first requested.
+	 */
+	DefaultTuple(TupleSchema schema, Object[] values, FormattingConversionService formattingConversionService) {
+		this(schema, values, formattingConversionService, null, null);
+	}
+
+	/**
+	 * Create a tuple with an existing id and timestamp, e.g. when restoring a tuple that has been serialized. The
+	 * values array is taken over rather than copied, so it must not be used afterwards.
+	 * <p>
+	 * {@link Integer}, {@link Long}, {@link Float} and {@link Double} values are stored unboxed, so that the matching
+	 * typed accessors can read them without boxing or conversion.
+	 * 
+	 * @param schema the schema
+	 * @param values the values, in schema order
+	 * @param formattingConversionService the conversion service used by the typed accessors
+	 * @param id the id, or null to generate one when it is first requested
+	 * @param timestamp the timestamp, or null to use the current time
+	 */
+	public DefaultTuple(TupleSchema schema, Object[] values, FormattingConversionService formattingConversionService,
+			UUID id, Long timestamp) {
+		Assert.notNull(schema);
 		Assert.notNull(values);
 		Assert.notNull(formattingConversionService);
+		if (values.length != schema.size()) {
+			throw new IllegalArgumentException("Field names must be same length as values: names="
+					+ schema.getFieldNames() + ", values=" + Arrays.asList(values));
+		}
+		// TODO check for no null values.
+		this.schema = schema;
+		this.values = values;
+		long[] primitives = null;
+		byte[] primitiveTypes = null;
+		for (int i = 0; i < values.length; i++) {
+			byte primitiveType = primitiveTypeOf(values[i]);
+			if (primitiveType != REFERENCE) {
+				if (primitiveTypes == null) {
+					primitives = new long[values.length];
+					primitiveTypes = new byte[values.length];
+				}
+				primitives[i] = toBits((Number) values[i], primitiveType);
+				primitiveTypes[i] = primitiveType;
+				values[i] = null;
+			}
+		}
+		this.primitives = primitives;
+		this.primitiveTypes = primitiveTypes;
+		this.formattingConversionService = formattingConversionService;
+		this.id = id;
+		this.timestamp = timestamp != null ? timestamp : System.currentTimeMillis();
+	}
+
+	private static TupleSchema validatedSchema(List<String> names, List<Object> values) {
+		Assert.notNull(names);
+		Assert.notNull(values);
 		if (values.size() != names.size()) {
 			throw new IllegalArgumentException("Field names must be same length as values: names=" + names
 					+ ", values=" + values);
 		}
-		// TODO check for no duplicate names.
-		// TODO check for no null values.
-		this.names = new ArrayList<String>(names);
-		this.values = new ArrayList<Object>(values); // shallow copy
-		this.formattingConversionService = formattingConversionService;
-		this.id = new UUID(UUIDGen.newTime(), UUIDGen.getClockSeqAndNode());
-		this.timestamp = Long.valueOf(System.currentTimeMillis());
+		return TupleSchema.of(names);
+	}
+
+	private static byte primitiveTypeOf(Object value) {
+		if (value == null) {
+			return REFERENCE;
+		}
+		Class<?> type = value.getClass();
+		if (type == Integer.class) {
+			return INT;
+		}
+		if (type == Long.class) {
+			return LONG;
+		}
+		if (type == Float.class) {
+			return FLOAT;
+		}
+		if (type == Double.class) {
+			return DOUBLE;
+		}
+		return REFERENCE;
+	}
+
+	private static long toBits(Number value, byte primitiveType) {
+		switch (primitiveType) {
+			case FLOAT:
+				return Float.floatToRawIntBits(value.floatValue());
+			case DOUBLE:
+				return Double.doubleToRawLongBits(value.doubleValue());
+			default:
+				return value.longValue();
+		}
+	}
+
+	private byte primitiveTypeAt(int index) {
+		return (primitiveTypes == null) ? REFERENCE : primitiveTypes[index];
+	}
+
+	/**
+	 * @return the value at the given index, boxing it if it is stored unboxed
+	 */
+	private Object valueAt(int index) {
+		switch (primitiveTypeAt(index)) {
+			case INT:
+				return Integer.valueOf((int) primitives[index]);
+			case LONG:
+				return Long.valueOf(primitives[index]);
+			case FLOAT:
+				return Float.valueOf(Float.intBitsToFloat((int) primitives[index]));
+			case DOUBLE:
+				return Double.valueOf(Double.longBitsToDouble(primitives[index]));
+			default:
+				return values[index];
+		}
 	}
 
 	/*
@@ -92,7 +218,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public int size() {
-		return values.size();
+		return values.length;
 	}
 
 	/*
@@ -102,7 +228,17 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public UUID getId() {
-		return this.id;
+		UUID id = this.id;
+		if (id == null) {
+			synchronized (this) {
+				id = this.id;
+				if (id == null) {
+					id = new UUID(UUIDGen.newTime(), UUIDGen.getClockSeqAndNode());
+					this.id = id;
+				}
+			}
+		}
+		return id;
 	}
 
 	/*
@@ -112,7 +248,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public Long getTimestamp() {
-		return this.timestamp;
+		return Long.valueOf(this.timestamp);
 	}
 
 	/**
@@ -122,7 +258,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public List<String> getFieldNames() {
-		return Collections.unmodifiableList(names);
+		return schema.getFieldNames();
 	}
 
 	/**
@@ -132,12 +268,30 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public List<Object> getValues() {
-		return Collections.unmodifiableList(values);
+		return Collections.unmodifiableList(Arrays.asList(boxedValues()));
+	}
+
+	private Object[] boxedValues() {
+		if (primitiveTypes == null) {
+			return values;
+		}
+		Object[] boxed = new Object[values.length];
+		for (int i = 0; i < boxed.length; i++) {
+			boxed[i] = valueAt(i);
+		}
+		return boxed;
+	}
+
+	/**
+	 * @return the schema shared by all tuples with the same field names
+	 */
+	public TupleSchema getSchema() {
+		return this.schema;
 	}
 
 	@Override
 	public int getFieldCount() {
-		return this.names.size();
+		return this.schema.size();
 	}
 
 	/*
@@ -147,7 +301,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public boolean hasFieldName(String name) {
-		return names.contains(name);
+		return schema.indexOf(name) != -1;
 	}
 
 	/*
@@ -168,15 +322,15 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public Object getValue(int index) {
-		return values.get(index);
+		return valueAt(index);
 	}
 
 	@SuppressWarnings("rawtypes")
 	@Override
 	public List<Class> getFieldTypes() {
-		ArrayList<Class> types = new ArrayList<Class>(values.size());
-		for (Object val : values) {
-			types.add(val.getClass());
+		ArrayList<Class> types = new ArrayList<Class>(values.length);
+		for (int i = 0; i < values.length; i++) {
+			types.add(valueAt(i).getClass());
 		}
 		return Collections.unmodifiableList(types);
 	}
@@ -190,8 +344,8 @@ public class DefaultTuple implements Tuple {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((names == null) ? 0 : names.hashCode());
-		result = prime * result + ((values == null) ? 0 : values.hashCode());
+		result = prime * result + schema.hashCode();
+		result = prime * result + Arrays.hashCode(boxedValues());
 		return result;
 	}
 
@@ -212,20 +366,10 @@ public class DefaultTuple implements Tuple {
 			return false;
 		}
 		DefaultTuple other = (DefaultTuple) obj;
-		if (names == null) {
-			if (other.names != null) {
-				return false;
-			}
-		}
-		else if (!names.equals(other.names)) {
+		if (!schema.equals(other.schema)) {
 			return false;
 		}
-		if (values == null) {
-			if (other.values != null) {
-				return false;
-			}
-		}
-		else if (!values.equals(other.values)) {
+		if (!Arrays.equals(boxedValues(), other.boxedValues())) {
 			return false;
 		}
 		return true;
@@ -244,7 +388,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public Tuple getTuple(int index) {
-		return convert(values.get(index), Tuple.class);
+		return convert(valueAt(index), Tuple.class);
 	}
 
 	@Override
@@ -257,7 +401,7 @@ public class DefaultTuple implements Tuple {
 	 * @return the converted raw value, trimmed
 	 */
 	private String readAndTrim(int index) {
-		Object rawValue = values.get(index);
+		Object rawValue = valueAt(index);
 		if (rawValue != null) {
 			String value = convert(rawValue, String.class);
 			if (value != null) {
@@ -280,7 +424,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public String getRawString(int index) {
-		Object rawValue = values.get(index);
+		Object rawValue = valueAt(index);
 		if (rawValue != null) {
 			String value = convert(rawValue, String.class);
 			if (value != null) {
@@ -342,7 +486,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public byte getByte(int index) {
-		Byte b = convert(values.get(index), Byte.class);
+		Byte b = convert(valueAt(index), Byte.class);
 		return (b != null) ? b : 0;
 	}
 
@@ -354,7 +498,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public byte getByte(int index, byte defaultValue) {
-		Byte b = convert(values.get(index), Byte.class);
+		Byte b = convert(valueAt(index), Byte.class);
 		return (b != null) ? b : defaultValue;
 	}
 
@@ -366,7 +510,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public short getShort(int index) {
-		Short s = convert(values.get(index), Short.class);
+		Short s = convert(valueAt(index), Short.class);
 		return (s != null) ? s : 0;
 	}
 
@@ -378,7 +522,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public short getShort(int index, short defaultValue) {
-		Short s = convert(values.get(index), Short.class);
+		Short s = convert(valueAt(index), Short.class);
 		return (s != null) ? s : defaultValue;
 	}
 
@@ -390,7 +534,10 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public int getInt(int index) {
-		Integer i = convert(values.get(index), Integer.class);
+		if (primitiveTypeAt(index) == INT) {
+			return (int) primitives[index];
+		}
+		Integer i = convert(valueAt(index), Integer.class);
 		return (i != null) ? i : 0;
 	}
 
@@ -402,7 +549,10 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public int getInt(int index, int defaultValue) {
-		Integer i = convert(values.get(index), Integer.class);
+		if (primitiveTypeAt(index) == INT) {
+			return (int) primitives[index];
+		}
+		Integer i = convert(valueAt(index), Integer.class);
 		return (i != null) ? i : defaultValue;
 	}
 
@@ -414,7 +564,11 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public long getLong(int index) {
-		Long l = convert(values.get(index), Long.class);
+		byte primitiveType = primitiveTypeAt(index);
+		if (primitiveType == LONG || primitiveType == INT) {
+			return primitives[index];
+		}
+		Long l = convert(valueAt(index), Long.class);
 		return (l != null) ? l : 0;
 	}
 
@@ -426,7 +580,11 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public long getLong(int index, long defaultValue) {
-		Long l = convert(values.get(index), Long.class);
+		byte primitiveType = primitiveTypeAt(index);
+		if (primitiveType == LONG || primitiveType == INT) {
+			return primitives[index];
+		}
+		Long l = convert(valueAt(index), Long.class);
 		return (l != null) ? l : defaultValue;
 	}
 
@@ -438,7 +596,14 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public float getFloat(int index) {
-		Float f = convert(values.get(index), Float.class);
+		byte primitiveType = primitiveTypeAt(index);
+		if (primitiveType == FLOAT) {
+			return Float.intBitsToFloat((int) primitives[index]);
+		}
+		if (primitiveType == INT) {
+			return (int) primitives[index];
+		}
+		Float f = convert(valueAt(index), Float.class);
 		return (f != null) ? f : 0;
 	}
 
@@ -450,7 +615,14 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public float getFloat(int index, float defaultValue) {
-		Float f = convert(values.get(index), Float.class);
+		byte primitiveType = primitiveTypeAt(index);
+		if (primitiveType == FLOAT) {
+			return Float.intBitsToFloat((int) primitives[index]);
+		}
+		if (primitiveType == INT) {
+			return (int) primitives[index];
+		}
+		Float f = convert(valueAt(index), Float.class);
 		return (f != null) ? f : defaultValue;
 	}
 
@@ -462,7 +634,10 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public double getDouble(int index) {
-		Double d = convert(values.get(index), Double.class);
+		if (primitiveTypeAt(index) != REFERENCE) {
+			return doubleAt(index);
+		}
+		Double d = convert(valueAt(index), Double.class);
 		return (d != null) ? d : 0;
 	}
 
@@ -474,10 +649,27 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public double getDouble(int index, double defaultValue) {
-		Double d = convert(values.get(index), Double.class);
+		if (primitiveTypeAt(index) != REFERENCE) {
+			return doubleAt(index);
+		}
+		Double d = convert(valueAt(index), Double.class);
 		return (d != null) ? d : defaultValue;
 	}
 
+	/**
+	 * @return the value of a field stored unboxed, widened to a double
+	 */
+	private double doubleAt(int index) {
+		switch (primitiveTypeAt(index)) {
+			case FLOAT:
+				return Float.intBitsToFloat((int) primitives[index]);
+			case DOUBLE:
+				return Double.longBitsToDouble(primitives[index]);
+			default:
+				return primitives[index];
+		}
+	}
+
 	@Override
 	public BigDecimal getBigDecimal(String name) {
 		return getBigDecimal(indexOf(name));
@@ -485,7 +677,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public BigDecimal getBigDecimal(int index) {
-		return convert(values.get(index), BigDecimal.class);
+		return convert(valueAt(index), BigDecimal.class);
 	}
 
 	@Override
@@ -496,13 +688,13 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public BigDecimal getBigDecimal(int index, BigDecimal defaultValue) {
-		BigDecimal bd = convert(values.get(index), BigDecimal.class);
+		BigDecimal bd = convert(valueAt(index), BigDecimal.class);
 		return (bd != null) ? bd : defaultValue;
 	}
 
 	@Override
 	public Date getDate(int index) {
-		return convert(values.get(index), Date.class);
+		return convert(valueAt(index), Date.class);
 	}
 
 	@Override
@@ -567,7 +759,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public <T> T getValue(String name, Class<T> valueClass) {
-		Object value = values.get(indexOf(name));
+		Object value = valueAt(indexOf(name));
 		return convert(value, valueClass);
 	}
 
@@ -578,7 +770,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public <T> T getValue(int index, Class<T> valueClass) {
-		return convert(values.get(index), valueClass);
+		return convert(valueAt(index), valueClass);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -607,9 +799,10 @@ public class DefaultTuple implements Tuple {
 	 * @return names and values as a {@code Map<String, Object>}
 	 */
 	Map<String, Object> toMap() {
-		Map<String, Object> map = new LinkedHashMap<String, Object>(values.size());
-		for (int i = 0; i < values.size(); i++) {
-			map.put(names.get(i), values.get(i));
+		List<String> names = schema.getFieldNames();
+		Map<String, Object> map = new LinkedHashMap<String, Object>(values.length);
+		for (int i = 0; i < values.length; i++) {
+			map.put(names.get(i), valueAt(i));
 		}
 		return map;
 	}
@@ -639,34 +832,28 @@ public class DefaultTuple implements Tuple {
 	/**
 	 * Find the index in the names collection for the given name.
 	 * 
-	 * @throws IllegalArgumentException if a the given name is not defined.
+	 * @return the index, or -1 if the given name is not defined.
 	 */
 	protected int indexOf(String name) {
-		return names.indexOf(name);
+		return schema.indexOf(name);
 	}
 
 	/**
 	 * 
 	 * @param tupleToStringConverter
 	 */
-	protected void setTupleToStringConverter(Converter<Tuple, String> tupleToStringConverter) {
+	public void setTupleToStringConverter(Converter<Tuple, String> tupleToStringConverter) {
 		Assert.notNull(tupleToStringConverter, "tupleToStringConverter cannot be null");
 		this.tupleToStringConverter = tupleToStringConverter;
 	}
 
 	@Override
 	public String toString() {
-		return tupleToStringConverter.convert(this);
-	}
-
-	class DefaultTupleToStringConverter implements Converter<Tuple, String> {
-
-		@Override
-		public String convert(Tuple source) {
-			return "DefaultTuple [names=" + names + ", values=" + values + ", id=" + id + ", timestamp=" + timestamp
-					+ "]";
+		if (tupleToStringConverter != null) {
+			return tupleToStringConverter.convert(this);
 		}
-
+		return "DefaultTuple [names=" + schema.getFieldNames() + ", values=" + getValues() + ", id="
+				+ getId() + ", timestamp=" + timestamp + "]";
 	}
 
 }
@@ -15,34 +15,22 @@ package org.springframework.xd.tuple;
 
 import org.springframework.core.convert.converter.Converter;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
+ * Converts a JSON document to a {@link Tuple}, streaming it through a {@link JsonParserToTupleConverter}.
+ *
  * @author David Turanski
  * 
  */
 public class JsonBytesToTupleConverter implements Converter<byte[], Tuple> {
 
-	private final ObjectMapper mapper = new ObjectMapper();
-
-	private final JsonNodeToTupleConverter jsonNodeToTupleConverter = new JsonNodeToTupleConverter();
-
-	public JsonBytesToTupleConverter() {
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-	}
+	private final JsonParserToTupleConverter jsonParserToTupleConverter = new JsonParserToTupleConverter();
 
 	@Override
 	public Tuple convert(byte[] source) {
 		if (source == null) {
 			return null;
 		}
-		try {
-			return jsonNodeToTupleConverter.convert(mapper.readTree(source));
-		}
-		catch (Exception e) {
-			throw new IllegalArgumentException(e.getMessage(), e);
-		}
+		return jsonParserToTupleConverter.convert(source);
 	}
 
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Builds a {@link Tuple} directly from the tokens of a {@link JsonParser}, without first reading the document into a
+ * {@code JsonNode} tree.
+ * <p>
+ * If field names are set, only top level fields with those names are read; the values of all other fields are skipped
+ * without being materialized, and parsing stops as soon as all requested fields have been read. The remainder of the
+ * document is then not validated.
+ * <p>
+ * By default, values are read as {@link JsonNodeToTupleConverter} reads them: scalars as text, objects as nested
+ * tuples and arrays as lists, with scalar {@code id} and {@code timestamp} fields ignored. With
+ * {@link #setTextValues(boolean) textValues} set to false, values are instead read as Jackson reads untyped values:
+ * numbers, booleans and strings as the corresponding Java types, objects as maps and arrays as lists.
+ *
+ * @since 1.0
+ */
+public class JsonParserToTupleConverter implements Converter<JsonParser, Tuple> {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private volatile Set<String> fieldNames;
+
+	private volatile boolean textValues = true;
+
+	public JsonParserToTupleConverter() {
+		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+	}
+
+	/**
+	 * Set the names of the top level fields to read; by default all fields are read.
+	 *
+	 * @param fieldNames the field names
+	 */
+	public void setFieldNames(String... fieldNames) {
+		Assert.notEmpty(fieldNames, "'fieldNames' cannot be empty");
+		this.fieldNames = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(fieldNames)));
+	}
+
+	/**
+	 * Set whether scalar values are read as text and objects as tuples. Default true.
+	 *
+	 * @param textValues false to read values as Jackson reads untyped values
+	 */
+	public void setTextValues(boolean textValues) {
+		this.textValues = textValues;
+	}
+
+	/**
+	 * Read a tuple from the given JSON text.
+	 *
+	 * @param json the JSON text
+	 * @return the tuple
+	 */
+	public Tuple convert(String json) {
+		try {
+			return convertAndClose(this.mapper.getFactory().createParser(json));
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Read a tuple from the given JSON document; its encoding is detected as specified by RFC 4627.
+	 *
+	 * @param json the JSON document
+	 * @return the tuple
+	 */
+	public Tuple convert(byte[] json) {
+		try {
+			return convertAndClose(this.mapper.getFactory().createParser(json));
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	private Tuple convertAndClose(JsonParser parser) throws IOException {
+		try {
+			return convert(parser);
+		}
+		finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Read the tuple from the given parser; the parser is not closed.
+	 */
+	@Override
+	public Tuple convert(JsonParser parser) {
+		try {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT) {
+				return readObject(parser, this.fieldNames);
+			}
+			TupleBuilder builder = TupleBuilder.tuple();
+			if (token == null || token == JsonToken.START_ARRAY || !this.textValues) {
+				return builder.build();
+			}
+			return builder.of("value", readScalarAsText(parser));
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Read the fields of the object whose START_OBJECT token is current, up to and including its END_OBJECT token.
+	 */
+	private Tuple readObject(JsonParser parser, Set<String> fieldNames) throws IOException {
+		TupleBuilder builder = TupleBuilder.tuple();
+		int remaining = (fieldNames == null) ? -1 : fieldNames.size();
+		while (remaining != 0 && parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (fieldNames != null && !fieldNames.contains(name)) {
+				parser.skipChildren();
+				continue;
+			}
+			remaining--;
+			if (!this.textValues) {
+				builder.addEntry(name, parser.readValueAs(Object.class));
+			}
+			else if (token == JsonToken.START_OBJECT) {
+				builder.addEntry(name, readObject(parser, null));
+			}
+			else if (token == JsonToken.START_ARRAY) {
+				builder.addEntry(name, readArray(parser));
+			}
+			else if (!name.equals("id") && !name.equals("timestamp")) {
+				// TODO how should id and timestamp be handled?
+				builder.addEntry(name, readScalarAsText(parser));
+			}
+		}
+		return builder.build();
+	}
+
+	private List<Object> readArray(JsonParser parser) throws IOException {
+		List<Object> list = new ArrayList<Object>();
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			if (token == JsonToken.START_OBJECT) {
+				list.add(readObject(parser, null));
+			}
+			else if (token == JsonToken.START_ARRAY) {
+				list.add(readArray(parser));
+			}
+			else {
+				list.add(readScalarAsText(parser));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Read the current scalar token as {@code JsonNode.asText()} renders it.
+	 */
+	private String readScalarAsText(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+			case VALUE_NUMBER_INT:
+				return parser.getNumberValue().toString();
+			case VALUE_NUMBER_FLOAT:
+				return String.valueOf(parser.getDoubleValue());
+			default:
+				return parser.getText();
+		}
+	}
+
+}
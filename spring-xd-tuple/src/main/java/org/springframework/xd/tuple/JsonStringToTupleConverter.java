@@ -13,80 +13,21 @@
 
 package org.springframework.xd.tuple;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map.Entry;
-
 import org.springframework.core.convert.converter.Converter;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
+ * Converts JSON text to a {@link Tuple}, streaming it through a {@link JsonParserToTupleConverter}.
+ *
  * @author David Turanski
  * 
  */
 public class JsonStringToTupleConverter implements Converter<String, Tuple> {
 
-	private final ObjectMapper mapper = new ObjectMapper();
-
-	public JsonStringToTupleConverter() {
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-	}
+	private final JsonParserToTupleConverter jsonParserToTupleConverter = new JsonParserToTupleConverter();
 
 	@Override
 	public Tuple convert(String source) {
-		TupleBuilder builder = TupleBuilder.tuple();
-		try {
-
-			JsonNode root = mapper.readTree(source);
-			for (Iterator<Entry<String, JsonNode>> it = root.fields(); it.hasNext();) {
-				Entry<String, JsonNode> entry = it.next();
-				String name = entry.getKey();
-				JsonNode node = entry.getValue();
-				if (node.isObject()) {
-					// tuple
-					builder.addEntry(name, convert(node.toString()));
-				}
-				else if (node.isArray()) {
-					builder.addEntry(name, nodeToList(node));
-				}
-				else {
-					if (name.equals("id")) {
-						// TODO how should this be handled?
-					}
-					else if (name.equals("timestamp")) {
-						// TODO how should this be handled?
-					}
-					else {
-						builder.addEntry(name, node.asText());
-					}
-				}
-			}
-		}
-		catch (Exception e) {
-			throw new RuntimeException(e);
-		}
-		return builder.build();
-	}
-
-	private List<Object> nodeToList(JsonNode node) {
-		List<Object> list = new ArrayList<Object>(node.size());
-		for (int i = 0; i < node.size(); i++) {
-			JsonNode item = node.get(i);
-			if (item.isObject()) {
-				list.add(convert(item.toString()));
-			}
-			else if (item.isArray()) {
-				list.add(nodeToList(item));
-			}
-			else {
-				list.add(item.asText());
-			}
-		}
-		return list;
+		return jsonParserToTupleConverter.convert(source);
 	}
 
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * The immutable layout of a {@link DefaultTuple}: its field names in order, and a map from each name to its index.
+ * Tuples with the same field names share one schema, so the index is built once per layout rather than once per
+ * tuple.
+ *
+ * @since 1.0
+ */
+public final class TupleSchema {
+
+	private static final int MAX_CACHED_SCHEMAS = 1024;
+
+	/**
+	 * The most recently used schemas, guarded by itself. The least recently used one is evicted when the cache is full,
+	 * so layouts that are still in use stay cached however many others have been seen.
+	 */
+	@SuppressWarnings("serial")
+	private static final Map<List<String>, TupleSchema> schemas = new LinkedHashMap<List<String>, TupleSchema>(16,
+			0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<String>, TupleSchema> eldest) {
+			return size() > MAX_CACHED_SCHEMAS;
+		}
+	};
+
+	private final List<String> names;
+
+	private final Map<String, Integer> indexes;
+
+	private final int hashCode;
+
+	private TupleSchema(List<String> names) {
+		this.names = Collections.unmodifiableList(new ArrayList<String>(names));
+		this.indexes = new HashMap<String, Integer>(names.size() * 2);
+		for (int i = names.size() - 1; i >= 0; i--) {
+			// iterate backwards so that a duplicate name maps to its first index, as List.indexOf does
+			this.indexes.put(names.get(i), i);
+		}
+		this.hashCode = this.names.hashCode();
+	}
+
+	/**
+	 * Return the schema for the given field names. The most recently used schemas are cached, so this usually returns
+	 * the same instance for equal lists of names.
+	 *
+	 * @param names the field names in order
+	 * @return the schema
+	 */
+	public static TupleSchema of(List<String> names) {
+		Assert.notNull(names);
+		synchronized (schemas) {
+			TupleSchema schema = schemas.get(names);
+			if (schema == null) {
+				schema = new TupleSchema(names);
+				schemas.put(schema.names, schema);
+			}
+			return schema;
+		}
+	}
+
+	/**
+	 * @return the field names as an unmodifiable list
+	 */
+	public List<String> getFieldNames() {
+		return this.names;
+	}
+
+	/**
+	 * @return the number of fields
+	 */
+	public int size() {
+		return this.names.size();
+	}
+
+	/**
+	 * @param name the field name
+	 * @return the index of the first field with the given name, or -1 if there is none
+	 */
+	public int indexOf(String name) {
+		Integer index = this.indexes.get(name);
+		return index == null ? -1 : index;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TupleSchema)) {
+			return false;
+		}
+		TupleSchema other = (TupleSchema) obj;
+		return this.hashCode == other.hashCode && this.names.equals(other.names);
+	}
+
+	@Override
+	public String toString() {
+		return this.names.toString();
+	}
+
+}
@@ -16,17 +16,9 @@
 
 package org.springframework.xd.tuple.integration;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
 import org.springframework.integration.transformer.AbstractPayloadTransformer;
+import org.springframework.xd.tuple.JsonParserToTupleConverter;
 import org.springframework.xd.tuple.Tuple;
-import org.springframework.xd.tuple.TupleBuilder;
-
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Converts from a json string into a tuple data structure.
@@ -35,26 +27,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 public class JsonToTupleTransformer extends AbstractPayloadTransformer<String, Tuple> {
 
-	private final ObjectMapper mapper = new ObjectMapper();
+	private final JsonParserToTupleConverter converter = new JsonParserToTupleConverter();
 
 	public JsonToTupleTransformer() {
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+		converter.setTextValues(false);
+	}
+
+	/**
+	 * Set the names of the top level fields to read; the values of all other fields are skipped. By default all
+	 * fields are read.
+	 * 
+	 * @param fieldNames the field names
+	 */
+	public void setFieldNames(String... fieldNames) {
+		converter.setFieldNames(fieldNames);
 	}
 
 	@Override
 	public Tuple transformPayload(String json) throws Exception {
-		List<String> names = new ArrayList<String>();
-		List<Object> values = new ArrayList<Object>();
-		JsonNode node = this.mapper.readTree(json);
-		Iterator<String> fieldNames = node.fieldNames();
-		while (fieldNames.hasNext()) {
-			String name = fieldNames.next();
-			JsonNode valueNode = node.get(name);
-			Object value = mapper.treeToValue(valueNode, Object.class);
-			names.add(name);
-			values.add(value);
-		}
-		return TupleBuilder.tuple().ofNamesAndValues(names, values);
+		return converter.convert(json);
 	}
 
 }
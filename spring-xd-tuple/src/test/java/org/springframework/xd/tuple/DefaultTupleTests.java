@@ -103,6 +103,41 @@ public class DefaultTupleTests {
 		assertThat(tuple1.getId(), notNullValue());
 		Tuple tuple2 = TupleBuilder.tuple().of("foo", "bar");
 		assertNotSame(tuple1.getId(), tuple2.getId());
+		assertThat(tuple1.getId(), equalTo(tuple1.getId()));
+	}
+
+	@Test
+	public void testSchemaIsShared() {
+		DefaultTuple tuple1 = (DefaultTuple) TupleBuilder.tuple().of("foo", "bar", "baz", 1);
+		DefaultTuple tuple2 = (DefaultTuple) TupleBuilder.tuple().of("foo", "qux", "baz", 2);
+		assertThat(tuple1.getSchema(), sameInstance(tuple2.getSchema()));
+		assertThat(tuple2.getInt("baz"), equalTo(2));
+	}
+
+	@Test
+	public void testPrimitiveValues() {
+		Tuple tuple = TupleBuilder.tuple().put("int", 1).put("long", 2L).put("float", 1.5f).put("double", 2.5).put(
+				"string", "3").build();
+		assertThat(tuple.getInt("int"), equalTo(1));
+		assertThat(tuple.getLong("int"), equalTo(1L));
+		assertThat(tuple.getLong("long"), equalTo(2L));
+		assertThat(tuple.getFloat("float"), equalTo(1.5f));
+		assertThat(tuple.getDouble("float"), equalTo(1.5));
+		assertThat(tuple.getDouble("double"), equalTo(2.5));
+		assertThat(tuple.getDouble("long"), equalTo(2.0));
+		assertThat(tuple.getInt("long"), equalTo(2));
+		assertThat(tuple.getInt("string"), equalTo(3));
+		assertThat(tuple.getString("double"), equalTo("2.5"));
+		assertEquals(Long.valueOf(2), tuple.getValue("long"));
+		assertEquals(Arrays.<Object> asList(1, 2L, 1.5f, 2.5, "3"), tuple.getValues());
+		assertEquals(tuple, TupleBuilder.tuple().ofNamesAndValues(tuple.getFieldNames(), tuple.getValues()));
+	}
+
+	@Test
+	public void testDuplicateNameResolvesToFirstField() {
+		Tuple tuple = TupleBuilder.tuple().of("foo", "bar", "foo", "baz");
+		assertThat(tuple.getString("foo"), equalTo("bar"));
+		assertThat(tuple.getString(1), equalTo("baz"));
 	}
 
 	@Test
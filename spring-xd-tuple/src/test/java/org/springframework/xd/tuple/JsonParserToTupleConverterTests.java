@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests for {@link JsonParserToTupleConverter}.
+ */
+public class JsonParserToTupleConverterTests {
+
+	private static final String JSON = "{\"id\":\"123\",\"name\":\"foo\",\"count\":12,\"ratio\":1.5,\"flag\":true,"
+			+ "\"nothing\":null,\"nested\":{\"a\":1,\"b\":[2,{\"c\":3}]},\"list\":[\"x\",[1.0]]}";
+
+	@Test
+	public void testMatchesTreeConversion() throws Exception {
+		Tuple expected = new JsonNodeToTupleConverter().convert(new ObjectMapper().readTree(JSON));
+		Tuple actual = new JsonParserToTupleConverter().convert(JSON);
+		assertEquals(expected, actual);
+		assertEquals(expected, new JsonParserToTupleConverter().convert(JSON.getBytes("UTF-8")));
+		assertEquals(Arrays.asList("name", "count", "ratio", "flag", "nothing", "nested", "list"),
+				actual.getFieldNames());
+	}
+
+	@Test
+	public void testFieldProjection() {
+		JsonParserToTupleConverter converter = new JsonParserToTupleConverter();
+		converter.setFieldNames("nested", "count");
+		Tuple tuple = converter.convert(JSON);
+		assertEquals(Arrays.asList("count", "nested"), tuple.getFieldNames());
+		assertEquals(12, tuple.getInt("count"));
+		assertEquals("1", tuple.getTuple("nested").getString("a"));
+	}
+
+	@Test
+	public void testUntypedValues() {
+		JsonParserToTupleConverter converter = new JsonParserToTupleConverter();
+		converter.setTextValues(false);
+		converter.setFieldNames("id", "count", "flag", "nested");
+		Tuple tuple = converter.convert(JSON);
+		assertEquals("123", tuple.getValue("id"));
+		assertEquals(12, tuple.getValue("count"));
+		assertEquals(Boolean.TRUE, tuple.getValue("flag"));
+		assertTrue(tuple.getValue("nested") instanceof Map);
+		assertFalse(tuple.hasFieldName("name"));
+	}
+
+	@Test
+	public void testScalarDocument() {
+		Tuple tuple = new JsonParserToTupleConverter().convert("\"foo\"");
+		assertEquals("foo", tuple.getString("value"));
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link TupleSchema}.
+ */
+public class TupleSchemaTests {
+
+	@Test
+	public void testIndexOf() {
+		TupleSchema schema = TupleSchema.of(Arrays.asList("a", "b", "a"));
+		assertEquals(3, schema.size());
+		assertEquals(0, schema.indexOf("a"));
+		assertEquals(1, schema.indexOf("b"));
+		assertEquals(-1, schema.indexOf("c"));
+	}
+
+	@Test
+	public void testRecentlyUsedSchemasStayCachedAfterManyLayouts() {
+		List<String> names = Arrays.asList("recent");
+		TupleSchema schema = TupleSchema.of(names);
+		for (int i = 0; i < 5000; i++) {
+			TupleSchema.of(Arrays.asList("field" + i));
+			assertSame(schema, TupleSchema.of(names));
+		}
+		List<String> newNames = Arrays.asList("new");
+		assertSame(TupleSchema.of(newNames), TupleSchema.of(newNames));
+	}
+
+}